@@ -0,0 +1,248 @@
+package com.azure.reactnative.notificationhub;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts notification Bundles to the maps and arrays that are emitted to JS.
+ *
+ * Values are dispatched on their exact class through a lookup table, so the common FCM payload
+ * (strings, numbers and booleans) costs one hash lookup per value instead of a walk down an
+ * instanceof chain. Only classes that are not in the table, such as List implementations and
+ * Parcelables other than Bundle, fall back to instanceof checks.
+ *
+ * Numbers that do not fit in a JS int (long) are passed as doubles rather than truncated, chars
+ * become one-character strings, and arrays and lists become JS arrays. Parcelables other than
+ * Bundle are passed as their string form and anything else becomes null.
+ */
+public final class ReactNativeBundleConverter {
+    public static final String TAG = "ReactNativeBundleConverter";
+
+    private static final int TYPE_UNKNOWN = 0;
+    private static final int TYPE_STRING = 1;
+    private static final int TYPE_INT = 2;
+    private static final int TYPE_DOUBLE = 3;
+    private static final int TYPE_BOOLEAN = 4;
+    private static final int TYPE_CHAR = 5;
+    private static final int TYPE_BUNDLE = 6;
+    private static final int TYPE_INT_ARRAY = 7;
+    private static final int TYPE_LONG_ARRAY = 8;
+    private static final int TYPE_DOUBLE_ARRAY = 9;
+    private static final int TYPE_FLOAT_ARRAY = 10;
+    private static final int TYPE_SHORT_ARRAY = 11;
+    private static final int TYPE_BYTE_ARRAY = 12;
+    private static final int TYPE_BOOLEAN_ARRAY = 13;
+    private static final int TYPE_CHAR_ARRAY = 14;
+    private static final int TYPE_OBJECT_ARRAY = 15;
+    private static final int TYPE_LIST = 16;
+    private static final int TYPE_STRING_VALUE = 17;
+
+    private static final Map<Class<?>, Integer> mTypes = new HashMap<>();
+
+    static {
+        mTypes.put(String.class, TYPE_STRING);
+        mTypes.put(Integer.class, TYPE_INT);
+        mTypes.put(Short.class, TYPE_INT);
+        mTypes.put(Byte.class, TYPE_INT);
+        mTypes.put(Long.class, TYPE_DOUBLE);
+        mTypes.put(Float.class, TYPE_DOUBLE);
+        mTypes.put(Double.class, TYPE_DOUBLE);
+        mTypes.put(Boolean.class, TYPE_BOOLEAN);
+        mTypes.put(Character.class, TYPE_CHAR);
+        mTypes.put(Bundle.class, TYPE_BUNDLE);
+        mTypes.put(int[].class, TYPE_INT_ARRAY);
+        mTypes.put(long[].class, TYPE_LONG_ARRAY);
+        mTypes.put(double[].class, TYPE_DOUBLE_ARRAY);
+        mTypes.put(float[].class, TYPE_FLOAT_ARRAY);
+        mTypes.put(short[].class, TYPE_SHORT_ARRAY);
+        mTypes.put(byte[].class, TYPE_BYTE_ARRAY);
+        mTypes.put(boolean[].class, TYPE_BOOLEAN_ARRAY);
+        mTypes.put(char[].class, TYPE_CHAR_ARRAY);
+        mTypes.put(String[].class, TYPE_OBJECT_ARRAY);
+        mTypes.put(Bundle[].class, TYPE_OBJECT_ARRAY);
+        mTypes.put(Parcelable[].class, TYPE_OBJECT_ARRAY);
+    }
+
+    private ReactNativeBundleConverter() {
+    }
+
+    public static WritableMap toMap(Bundle bundle) {
+        WritableMap map = Arguments.createMap();
+        if (bundle == null) {
+            return map;
+        }
+
+        // Bundle.get is the only untyped accessor; the typed getters need the type up front
+        for (String key : bundle.keySet()) {
+            putValue(map, key, bundle.get(key));
+        }
+
+        return map;
+    }
+
+    public static WritableArray toArray(List<?> list) {
+        WritableArray array = Arguments.createArray();
+        for (int i = 0, size = list.size(); i < size; i++) {
+            pushValue(array, list.get(i));
+        }
+
+        return array;
+    }
+
+    private static void putValue(WritableMap map, String key, Object value) {
+        if (value == null) {
+            map.putNull(key);
+            return;
+        }
+
+        int type = typeOf(value);
+        switch (type) {
+            case TYPE_STRING:
+                map.putString(key, (String) value);
+                break;
+            case TYPE_INT:
+                map.putInt(key, ((Number) value).intValue());
+                break;
+            case TYPE_DOUBLE:
+                map.putDouble(key, ((Number) value).doubleValue());
+                break;
+            case TYPE_BOOLEAN:
+                map.putBoolean(key, (Boolean) value);
+                break;
+            case TYPE_CHAR:
+            case TYPE_STRING_VALUE:
+                map.putString(key, value.toString());
+                break;
+            case TYPE_BUNDLE:
+                map.putMap(key, toMap((Bundle) value));
+                break;
+            case TYPE_UNKNOWN:
+                map.putNull(key);
+                break;
+            default:
+                map.putArray(key, toArray(value, type));
+                break;
+        }
+    }
+
+    private static void pushValue(WritableArray array, Object value) {
+        if (value == null) {
+            array.pushNull();
+            return;
+        }
+
+        int type = typeOf(value);
+        switch (type) {
+            case TYPE_STRING:
+                array.pushString((String) value);
+                break;
+            case TYPE_INT:
+                array.pushInt(((Number) value).intValue());
+                break;
+            case TYPE_DOUBLE:
+                array.pushDouble(((Number) value).doubleValue());
+                break;
+            case TYPE_BOOLEAN:
+                array.pushBoolean((Boolean) value);
+                break;
+            case TYPE_CHAR:
+            case TYPE_STRING_VALUE:
+                array.pushString(value.toString());
+                break;
+            case TYPE_BUNDLE:
+                array.pushMap(toMap((Bundle) value));
+                break;
+            case TYPE_UNKNOWN:
+                array.pushNull();
+                break;
+            default:
+                array.pushArray(toArray(value, type));
+                break;
+        }
+    }
+
+    private static WritableArray toArray(Object value, int type) {
+        if (type == TYPE_LIST) {
+            return toArray((List<?>) value);
+        }
+
+        WritableArray array = Arguments.createArray();
+        switch (type) {
+            case TYPE_INT_ARRAY:
+                for (int item : (int[]) value) {
+                    array.pushInt(item);
+                }
+                break;
+            case TYPE_LONG_ARRAY:
+                for (long item : (long[]) value) {
+                    array.pushDouble(item);
+                }
+                break;
+            case TYPE_DOUBLE_ARRAY:
+                for (double item : (double[]) value) {
+                    array.pushDouble(item);
+                }
+                break;
+            case TYPE_FLOAT_ARRAY:
+                for (float item : (float[]) value) {
+                    array.pushDouble(item);
+                }
+                break;
+            case TYPE_SHORT_ARRAY:
+                for (short item : (short[]) value) {
+                    array.pushInt(item);
+                }
+                break;
+            case TYPE_BYTE_ARRAY:
+                for (byte item : (byte[]) value) {
+                    array.pushInt(item);
+                }
+                break;
+            case TYPE_BOOLEAN_ARRAY:
+                for (boolean item : (boolean[]) value) {
+                    array.pushBoolean(item);
+                }
+                break;
+            case TYPE_CHAR_ARRAY:
+                for (char item : (char[]) value) {
+                    array.pushString(String.valueOf(item));
+                }
+                break;
+            case TYPE_OBJECT_ARRAY:
+                for (Object item : (Object[]) value) {
+                    pushValue(array, item);
+                }
+                break;
+        }
+
+        return array;
+    }
+
+    private static int typeOf(Object value) {
+        Integer type = mTypes.get(value.getClass());
+        if (type != null) {
+            return type;
+        }
+
+        // Classes outside the table are rare enough that the instanceof checks do not matter
+        if (value instanceof Bundle) {
+            return TYPE_BUNDLE;
+        } else if (value instanceof List) {
+            return TYPE_LIST;
+        } else if (value instanceof Object[]) {
+            return TYPE_OBJECT_ARRAY;
+        } else if (value instanceof Parcelable || value instanceof CharSequence) {
+            return TYPE_STRING_VALUE;
+        }
+
+        return TYPE_UNKNOWN;
+    }
+}
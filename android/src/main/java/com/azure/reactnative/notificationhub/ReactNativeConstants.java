@@ -11,6 +11,8 @@ public final class ReactNativeConstants {
     public static final String EVENT_REMOTE_NOTIFICATION_RECEIVED = "remoteNotificationReceived";
     public static final String EVENT_AZURE_NOTIFICATION_HUB_REGISTERED = "azureNotificationHubRegistered";
     public static final String EVENT_AZURE_NOTIFICATION_HUB_REGISTERED_ERROR = "azureNotificationHubRegisteredError";
+    public static final String EVENT_REMOTE_NOTIFICATIONS_RECEIVED_IN_BACKGROUND = "remoteNotificationsReceivedInBackground";
+    public static final String EVENT_REMOTE_NOTIFICATIONS_RECEIVED_BATCH = "remoteNotificationsReceivedBatch";
 
     // Registration's keys
     public static final String KEY_REGISTRATION_CONNECTIONSTRING = "connectionString";
@@ -26,9 +28,78 @@ public final class ReactNativeConstants {
     public static final String KEY_REGISTRATION_TEMPLATENAME = "templateName";
     public static final String KEY_REGISTRATION_TEMPLATE = "template";
     public static final String KEY_REGISTRATION_ISTEMPLATE = "isTemplate";
+    public static final String KEY_REGISTRATION_TTL = "registrationTTL";
+
+    // Notification channel declarations' keys
+    public static final String KEY_CHANNEL_ID = "id";
+    public static final String KEY_CHANNEL_NAME = "name";
+    public static final String KEY_CHANNEL_DESCRIPTION = "description";
+    public static final String KEY_CHANNEL_IMPORTANCE = "importance";
+    public static final String KEY_CHANNEL_SHOW_BADGE = "showBadge";
+    public static final String KEY_CHANNEL_ENABLE_LIGHTS = "enableLights";
+    public static final String KEY_CHANNEL_ENABLE_VIBRATION = "enableVibration";
+
+    // Runtime options' keys
+    public static final String KEY_OPTIONS_NETWORK_TIMEOUT = "networkTimeout";
+    public static final String KEY_OPTIONS_REGISTRATION_DEBOUNCE = "registrationDebounce";
+    public static final String KEY_OPTIONS_LISTENERS_READY_TIMEOUT = "listenersReadyTimeout";
+    public static final String KEY_OPTIONS_BATCH_WINDOW = "batchWindow";
+    public static final String KEY_OPTIONS_BATCH_SIZE = "batchSize";
+    public static final String KEY_OPTIONS_GROUP_WINDOW = "groupWindow";
+    public static final String KEY_OPTIONS_GROUP_MAX_POSTS_PER_SECOND = "groupMaxPostsPerSecond";
+    public static final String KEY_OPTIONS_NOTIFY_RATE = "notifyRate";
+    public static final String KEY_OPTIONS_NOTIFY_BURST = "notifyBurst";
+    public static final String KEY_OPTIONS_NOTIFY_QUEUE_SIZE = "notifyQueueSize";
+    public static final String KEY_OPTIONS_HISTORY_RETENTION = "historyRetention";
+    public static final String KEY_OPTIONS_HISTORY_MAX_SIZE = "historyMaxSize";
+    public static final String KEY_OPTIONS_JSON_KEYS = "jsonKeys";
+    public static final String KEY_OPTIONS_EXECUTORS = "executors";
+    public static final String KEY_OPTIONS_EXECUTOR_THREADS = "threads";
+    public static final String KEY_OPTIONS_EXECUTOR_QUEUE_SIZE = "queueSize";
+
+    // Runtime options' defaults
+    public static final long DEFAULT_NETWORK_TIMEOUT_MS = 30000;
+    public static final long DEFAULT_REGISTRATION_DEBOUNCE_MS = 500;
+    public static final long DEFAULT_LISTENERS_READY_TIMEOUT_MS = 3000;
+    public static final long DEFAULT_IMAGE_MEMORY_CACHE_BYTES = 4 * 1024 * 1024;
+    public static final long DEFAULT_IMAGE_DISK_CACHE_BYTES = 10 * 1024 * 1024;
+    public static final int DEFAULT_IMAGE_MAX_DOWNLOAD_BYTES = 2 * 1024 * 1024;
+    public static final int DEFAULT_IMAGE_CONNECT_TIMEOUT_MS = 10000;
+    public static final int DEFAULT_IMAGE_READ_TIMEOUT_MS = 10000;
+    public static final long DEFAULT_IMAGE_FRESHNESS_MS = 60 * 60 * 1000;
+    public static final int DEFAULT_BACKGROUND_BUFFER_CAPACITY = 100;
+    public static final long DEFAULT_BATCH_WINDOW_MS = 0;
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    public static final int DEFAULT_MESSAGE_ID_CACHE_SIZE = 256;
+    public static final long MESSAGE_ID_PERSIST_DELAY_MS = 1000;
+    public static final long DEFAULT_GROUP_WINDOW_MS = 0;
+    public static final int DEFAULT_GROUP_MAX_POSTS_PER_SECOND = 4;
+    public static final int DEFAULT_GROUP_SUMMARY_LINES = 6;
+    public static final long DEFAULT_GROUP_IDLE_RESET_MS = 10 * 60 * 1000;
+    public static final double DEFAULT_NOTIFY_RATE_PER_SECOND = 0;
+    public static final int DEFAULT_NOTIFY_BURST = 4;
+    public static final int DEFAULT_NOTIFY_QUEUE_SIZE = 50;
+    public static final long DEFAULT_HISTORY_RETENTION_MS = 0;
+    public static final long DEFAULT_HISTORY_MAX_SIZE = 1024 * 1024;
+    public static final long DEFAULT_HISTORY_COMPACT_INTERVAL_MS = 60 * 60 * 1000;
+    public static final int DEFAULT_HISTORY_PAGE_SIZE = 50;
+    public static final int MAX_HISTORY_PAGE_SIZE = 500;
+    public static final int DEFAULT_IO_THREADS = 2;
+    public static final int DEFAULT_IO_QUEUE_SIZE = 32;
+    public static final int DEFAULT_CPU_THREADS = 2;
+    public static final int DEFAULT_CPU_QUEUE_SIZE = 64;
+    public static final int DEFAULT_DISPATCH_QUEUE_SIZE = 256;
+    public static final long REGISTRATION_THREAD_KEEP_ALIVE_MS = 30000;
+    public static final long DEFAULT_REGISTRATION_RETRY_BASE_MS = 2000;
+    public static final long DEFAULT_REGISTRATION_RETRY_MAX_MS = 15 * 60 * 1000;
+    public static final int DEFAULT_REGISTRATION_RETRY_MAX_ATTEMPTS = 10;
 
     // Shared prefs used in NotificationHubUtil
     public static final String SHARED_PREFS_NAME = "com.azure.reactnative.notificationhub.NotificationHubUtil";
+    public static final String MESSAGE_IDS_PREFS_NAME = "com.azure.reactnative.notificationhub.MessageIds";
+    public static final String REGISTRATION_RETRY_PREFS_NAME = "com.azure.reactnative.notificationhub.RegistrationRetry";
+    public static final String NOTIFICATION_CHANNELS_PREFS_NAME = "com.azure.reactnative.notificationhub.NotificationChannels";
+    public static final String HISTORY_PREFS_NAME = "com.azure.reactnative.notificationhub.NotificationHistory";
     public static final String KEY_FOR_PREFS_REGISTRATIONID = "AzureNotificationHub_registrationID";
     public static final String KEY_FOR_PREFS_CONNECTIONSTRING = "AzureNotificationHub_connectionString";
     public static final String KEY_FOR_PREFS_HUBNAME = "AzureNotificationHub_hubName";
@@ -45,6 +116,9 @@ public final class ReactNativeConstants {
     public static final String KEY_FOR_PREFS_TEMPLATE = "AzureNotificationHub_template";
     public static final String KEY_FOR_PREFS_ISTEMPLATE = "AzureNotificationHub_isTemplate";
     public static final String KEY_FOR_PREFS_UUID = "AzureNotificationHub_UUID";
+    public static final String KEY_FOR_PREFS_REGISTRATION_FINGERPRINT = "AzureNotificationHub_registrationFingerprint";
+    public static final String KEY_FOR_PREFS_REGISTERED_AT = "AzureNotificationHub_registeredAt";
+    public static final String KEY_FOR_PREFS_REGISTRATION_TTL = "AzureNotificationHub_registrationTTL";
 
     // Remote notification payload
     public static final String KEY_REMOTE_NOTIFICATION_MESSAGE = "message";
@@ -70,9 +144,11 @@ public final class ReactNativeConstants {
     public static final String KEY_REMOTE_NOTIFICATION_ACTIONS = "actions";
     public static final String KEY_REMOTE_NOTIFICATION_ACTION = "action";
     public static final String KEY_REMOTE_NOTIFICATION_TAG = "tag";
+    public static final String KEY_REMOTE_NOTIFICATION_CHANNEL_ID = "channelId";
     public static final String KEY_REMOTE_NOTIFICATION_USER_INTERACTION = "userInteraction";
     public static final String KEY_REMOTE_NOTIFICATION_COLDSTART = "coldstart";
     public static final String KEY_REMOTE_NOTIFICATION_AVATAR_URL = "avatarUrl";
+    public static final String KEY_REMOTE_NOTIFICATION_JSON_ERRORS = "jsonErrors";
 
     // Remote notification payload's priority
     public static final String REMOTE_NOTIFICATION_PRIORITY_MAX = "max";
@@ -98,11 +174,93 @@ public final class ReactNativeConstants {
     public static final String KEY_PROMISE_RESOLVE_UUID = "uuid";
     public static final String AZURE_NOTIFICATION_HUB_UNREGISTERED = "Unregistered successfully";
 
+    // Notification history queries and pages
+    public static final String KEY_HISTORY_SINCE = "since";
+    public static final String KEY_HISTORY_LIMIT = "limit";
+    public static final String KEY_HISTORY_GROUP = "group";
+    public static final String KEY_HISTORY_TAG = "tag";
+    public static final String KEY_HISTORY_CURSOR = "cursor";
+    public static final String KEY_HISTORY_NOTIFICATIONS = "notifications";
+    public static final String KEY_HISTORY_ID = "id";
+    public static final String KEY_HISTORY_RECEIVED_AT = "receivedAt";
+    public static final String KEY_HISTORY_NOTIFICATION = "notification";
+
+    // Metrics
+    public static final String METRIC_UNREGISTER = "unregister";
+    public static final String METRIC_UNREGISTER_TEMPLATE = "unregisterTemplate";
+    public static final String METRIC_HUB_CLIENT_CREATED = "hubClient.created";
+    public static final String METRIC_REGISTRATION_REQUESTED = "registration.requested";
+    public static final String METRIC_REGISTRATION_COALESCED = "registration.coalesced";
+    public static final String METRIC_REGISTRATION_SUPERSEDED = "registration.superseded";
+    public static final String METRIC_REGISTRATION_SENT = "registration.sent";
+    public static final String METRIC_REGISTRATION_SKIPPED = "registration.skipped";
+    public static final String METRIC_REGISTRATION_RETRY_SCHEDULED = "registration.retryScheduled";
+    public static final String METRIC_REGISTRATION_RETRY_EXHAUSTED = "registration.retryExhausted";
+    public static final String METRIC_REGISTRATION_PERMANENT_FAILURE = "registration.permanentFailure";
+    public static final String METRIC_IMAGE_MEMORY_HIT = "image.memoryHit";
+    public static final String METRIC_IMAGE_MEMORY_MISS = "image.memoryMiss";
+    public static final String METRIC_IMAGE_MEMORY_EVICTED = "image.memoryEvicted";
+    public static final String METRIC_IMAGE_DISK_HIT = "image.diskHit";
+    public static final String METRIC_IMAGE_DISK_EVICTED = "image.diskEvicted";
+    public static final String METRIC_IMAGE_REVALIDATED = "image.revalidated";
+    public static final String METRIC_IMAGE_DOWNLOADED = "image.downloaded";
+    public static final String METRIC_IMAGE_FETCH_FAILED = "image.fetchFailed";
+    public static final String METRIC_IMAGE_LOAD = "image.loadMs";
+    public static final String METRIC_LAUNCH_NOTIFICATION_DELIVERY = "launchNotification.deliveryMs";
+    public static final String METRIC_LAUNCH_NOTIFICATION_FALLBACK = "launchNotification.fallback";
+    public static final String METRIC_BUFFER_APPENDED = "backgroundBuffer.appended";
+    public static final String METRIC_BUFFER_DUPLICATE = "backgroundBuffer.duplicates";
+    public static final String METRIC_BUFFER_EVICTED = "backgroundBuffer.evicted";
+    public static final String METRIC_BUFFER_REPLAYED = "backgroundBuffer.replayed";
+    public static final String EXECUTOR_IO = "io";
+    public static final String EXECUTOR_CPU = "cpu";
+    public static final String EXECUTOR_DISPATCH = "dispatch";
+    public static final String METRIC_DISPATCH_QUEUE_DEPTH = "dispatch.queueDepth";
+    public static final String METRIC_DISPATCH_LAG = "dispatch.lagMs";
+    public static final String METRIC_DISPATCH_FAILED = "dispatch.failed";
+    public static final String METRIC_DISPATCH_REJECTED = "dispatch.rejected";
+    public static final String METRIC_BATCH_EMITTED = "batch.emitted";
+    public static final String METRIC_BATCH_NOTIFICATIONS = "batch.notifications";
+    public static final String METRIC_BATCH_SIZE = "batch.size";
+    public static final String METRIC_MESSAGE_DUPLICATE = "message.duplicates";
+    public static final String METRIC_GROUP_POSTED = "group.posted";
+    public static final String METRIC_GROUP_SUMMARIES = "group.summaries";
+    public static final String METRIC_GROUP_COLLAPSED = "group.collapsed";
+    public static final String METRIC_GROUP_DEFERRED = "group.deferred";
+    public static final String METRIC_NOTIFY_POSTED = "notify.posted";
+    public static final String METRIC_NOTIFY_DEFERRED = "notify.deferred";
+    public static final String METRIC_NOTIFY_COLLAPSED = "notify.collapsed";
+    public static final String METRIC_NOTIFY_DROPPED = "notify.dropped";
+    public static final String METRIC_NOTIFY_QUEUED = "notify.queued";
+    public static final String METRIC_CHANNEL_CREATED = "channel.created";
+    public static final String METRIC_CHANNEL_UNKNOWN = "channel.unknown";
+    public static final String METRIC_CHANNEL_DELETED = "channel.deleted";
+    public static final String METRIC_HISTORY_APPENDED = "history.appended";
+    public static final String METRIC_HISTORY_DUPLICATE = "history.duplicates";
+    public static final String METRIC_HISTORY_EXPIRED = "history.expired";
+    public static final String METRIC_HISTORY_EVICTED = "history.evicted";
+    public static final String METRIC_HISTORY_COMPACTIONS = "history.compactions";
+    public static final String METRIC_HISTORY_QUERY = "history.queryMs";
+    public static final String METRIC_JSON_PARSED = "json.parsed";
+    public static final String METRIC_JSON_PARSE_FAILED = "json.parseFailed";
+    public static final String METRIC_SUFFIX_QUEUE_WAIT = ".queueWaitMs";
+    public static final String METRIC_SUFFIX_NETWORK = ".networkMs";
+    public static final String METRIC_SUFFIX_FAILED = ".failed";
+    public static final String METRIC_SUFFIX_ACTIVE = ".active";
+    public static final String METRIC_SUFFIX_QUEUED = ".queued";
+    public static final String METRIC_SUFFIX_QUEUE_DEPTH = ".queueDepth";
+    public static final String METRIC_SUFFIX_LAG = ".lagMs";
+    public static final String METRIC_SUFFIX_TASK = ".taskMs";
+    public static final String METRIC_SUFFIX_REJECTED = ".rejected";
+    public static final String METRIC_SUFFIX_TIMEOUT = ".timeouts";
+    public static final String METRIC_SUFFIX_CANCELLED = ".cancelled";
+
     // Errors
     public static final String ERROR_NO_ACTIVITY_CLASS = "No activity class found for the notification";
     public static final String ERROR_NO_MESSAGE = "No message specified for the notification";
     public static final String ERROR_COVERT_ACTIONS = "Exception while converting actions to JSON object.";
     public static final String ERROR_GET_ACTIONS_ARRAY = "Exception while getting action from actionsArray.";
+    public static final String ERROR_PARSE_JSON_FIELD = "Exception while parsing JSON notification field: ";
     public static final String ERROR_SEND_PUSH_NOTIFICATION = "failed to send push notification";
     public static final String ERROR_ACTIVITY_CLASS_NOT_FOUND = "Activity class not found";
     public static final String ERROR_INVALID_ARGUMENTS = "E_INVALID_ARGUMENTS";
@@ -111,12 +269,29 @@ public final class ReactNativeConstants {
     public static final String ERROR_INVALID_SENDER_ID = "Sender ID cannot be null.";
     public static final String ERROR_INVALID_TEMPLATE_NAME = "Template Name cannot be null.";
     public static final String ERROR_INVALID_TEMPLATE = "Template cannot be null.";
+    public static final String ERROR_INVALID_CHANNEL_ID = "Channel ID cannot be null.";
     public static final String ERROR_PLAY_SERVICES = "E_PLAY_SERVICES";
     public static final String ERROR_PLAY_SERVICES_DISABLED = "User must enable Google Play Services.";
     public static final String ERROR_PLAY_SERVICES_UNSUPPORTED = "This device is not supported by Google Play Services.";
     public static final String ERROR_NOTIFICATION_HUB = "E_NOTIFICATION_HUB";
     public static final String ERROR_NOT_REGISTERED = "E_NOT_REGISTERED";
     public static final String ERROR_NOT_REGISTERED_DESC = "No registration to Azure Notification Hub.";
+    public static final String ERROR_OPERATION_TIMEOUT = "E_TIMEOUT";
+    public static final String ERROR_OPERATION_TIMEOUT_DESC = "Azure Notification Hub request timed out.";
+    public static final String ERROR_OPERATION_CANCELLED = "E_CANCELLED";
+    public static final String ERROR_OPERATION_CANCELLED_DESC = "Azure Notification Hub request was cancelled.";
+    public static final String ERROR_EXECUTOR_TASK = "Error while running a task on executor: ";
+    public static final String ERROR_EXECUTOR_REJECTED = "Queue is full, dropping a task on executor: ";
+    public static final String ERROR_NOTIFICATION_BUFFER = "Error while buffering background notifications.";
+    public static final String ERROR_NOTIFICATION_CHANNELS = "Error while reading or saving notification channels.";
+    public static final String ERROR_NOTIFICATION_HISTORY = "Error while accessing the notification history.";
+    public static final String ERROR_GET_NOTIFICATION_HISTORY = "E_NOTIFICATION_HISTORY";
+    public static final String ERROR_HISTORY_BUSY = "Too many background tasks are queued, try again later.";
+    public static final String ERROR_SET_NOTIFICATION_CHANNELS = "E_NOTIFICATION_CHANNELS";
+    public static final String ERROR_CHANNELS_BUSY =
+            "Too many background tasks are queued, channels will be created when first used.";
+    public static final String ERROR_REGISTRATION_RETRY = "Registration failed, retrying in ms: ";
+    public static final String ERROR_REGISTRATION_PERMANENT = "Registration failed and will not be retried.";
     public static final String ERROR_FETCH_IMAGE = "Error while fetching image.";
     public static final String ERROR_GET_INIT_NOTIFICATION = "E_GET_INIT_NOTIF";
     public static final String ERROR_ACTIVITY_IS_NULL = "Current activity is null";
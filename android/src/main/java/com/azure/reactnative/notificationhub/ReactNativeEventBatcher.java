@@ -0,0 +1,131 @@
+package com.azure.reactnative.notificationhub;
+
+import android.os.Bundle;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableArray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * Collects foreground notifications and emits them to JS as a single
+ * remoteNotificationsReceivedBatch event, so a burst of pushes crosses the bridge once.
+ *
+ * Batching is off until a window is set. A batch is emitted when the window has passed since
+ * its first notification or when it reaches the maximum size, whichever comes first. Either
+ * way it is converted and emitted on the dispatcher, never on the thread that adds to it.
+ */
+public class ReactNativeEventBatcher {
+    public static final String TAG = "ReactNativeEventBatcher";
+
+    private final ReactContext mReactContext;
+    private List<Bundle> mPending = new ArrayList<>();
+    private Future<?> mFlushTask;
+    // Whether mFlushTask runs straight away because the batch is full
+    private boolean mFlushDue;
+    private volatile long mWindow = DEFAULT_BATCH_WINDOW_MS;
+    private volatile int mMaxSize = DEFAULT_BATCH_SIZE;
+
+    public ReactNativeEventBatcher(ReactContext reactContext) {
+        mReactContext = reactContext;
+    }
+
+    public boolean isEnabled() {
+        return mWindow > 0;
+    }
+
+    public long getWindow() {
+        return mWindow;
+    }
+
+    /**
+     * Sets how long to collect notifications before emitting them. Zero turns batching off and
+     * emits whatever is pending.
+     */
+    public void setWindow(long window) {
+        mWindow = window;
+        if (window <= 0) {
+            flush();
+        }
+    }
+
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        mMaxSize = Math.max(1, maxSize);
+    }
+
+    public synchronized int getPendingCount() {
+        return mPending.size();
+    }
+
+    /**
+     * Adds a notification to the current batch, and has the batch emitted right away if it is
+     * full.
+     */
+    public synchronized void add(Bundle bundle) {
+        mPending.add(bundle);
+        boolean full = mPending.size() >= mMaxSize;
+        if (mFlushTask != null) {
+            if (!full || mFlushDue) {
+                return;
+            }
+
+            // The window no longer matters once the batch is full
+            mFlushTask.cancel(false);
+        }
+
+        Runnable flush = new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        };
+        long delay = full ? 0 : mWindow;
+        mFlushDue = full;
+        mFlushTask = ReactNativeUtil.dispatchDelayed(flush, delay);
+        if (mFlushTask == null) {
+            // The dispatcher is full; the scheduler still gets the batch emitted
+            mFlushTask = ReactNativeUtil.runDelayed(flush, delay);
+        }
+    }
+
+    /**
+     * Emits the pending notifications, oldest first, as one event.
+     */
+    public void flush() {
+        List<Bundle> batch;
+        synchronized (this) {
+            if (mFlushTask != null) {
+                mFlushTask.cancel(false);
+                mFlushTask = null;
+            }
+            mFlushDue = false;
+
+            if (mPending.isEmpty()) {
+                return;
+            }
+
+            batch = mPending;
+            mPending = new ArrayList<>();
+        }
+
+        // Converting outside the lock keeps add() cheap for the thread receiving broadcasts
+        WritableArray notifications = Arguments.createArray();
+        for (Bundle bundle : batch) {
+            notifications.pushMap(ReactNativeUtil.convertBundleToMap(bundle));
+        }
+
+        ReactNativeUtil.emitEvent(mReactContext, EVENT_REMOTE_NOTIFICATIONS_RECEIVED_BATCH, notifications);
+        ReactNativeMetrics.increment(METRIC_BATCH_EMITTED);
+        ReactNativeMetrics.add(METRIC_BATCH_NOTIFICATIONS, batch.size());
+        ReactNativeMetrics.recordValue(METRIC_BATCH_SIZE, batch.size());
+    }
+}
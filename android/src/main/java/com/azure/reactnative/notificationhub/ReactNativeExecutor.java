@@ -0,0 +1,152 @@
+package com.azure.reactnative.notificationhub;
+
+import android.os.Build;
+import android.util.Log;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * A named pool of daemon threads with a bounded queue.
+ *
+ * Once the queue holds as many tasks as allowed, new tasks are dropped rather than queued, so
+ * a backlog in one kind of work cannot grow without bound or hold up another. The pool reports
+ * under its name in the metrics:
+ * <ul>
+ *     <li>{@code <name>.active} and {@code <name>.queued}: threads busy and tasks waiting now</li>
+ *     <li>{@code <name>.queueDepth}: tasks waiting, sampled as each task is submitted</li>
+ *     <li>{@code <name>.lagMs}: how late each task started, {@code <name>.taskMs}: how long it ran</li>
+ *     <li>{@code <name>.rejected} and {@code <name>.failed}: tasks dropped and tasks that threw</li>
+ * </ul>
+ */
+public class ReactNativeExecutor {
+    public static final String TAG = "ReactNativeExecutor";
+
+    private final String mName;
+    private final ScheduledThreadPoolExecutor mExecutor;
+    private final AtomicInteger mActive = new AtomicInteger();
+    private volatile int mMaxQueueSize;
+
+    public ReactNativeExecutor(String name, int threads, int maxQueueSize) {
+        mName = name;
+        mExecutor = new ScheduledThreadPoolExecutor(Math.max(1, threads), createThreadFactory(name));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            // Cancelled timers would otherwise hold a queue slot until their delay passes
+            mExecutor.setRemoveOnCancelPolicy(true);
+        }
+        mMaxQueueSize = Math.max(1, maxQueueSize);
+
+        ReactNativeMetrics.registerGauge(name + METRIC_SUFFIX_ACTIVE, new ReactNativeMetrics.Gauge() {
+            @Override
+            public long get() {
+                return mActive.get();
+            }
+        });
+        ReactNativeMetrics.registerGauge(name + METRIC_SUFFIX_QUEUED, new ReactNativeMetrics.Gauge() {
+            @Override
+            public long get() {
+                return getQueuedCount();
+            }
+        });
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public int getThreads() {
+        return mExecutor.getCorePoolSize();
+    }
+
+    public void setThreads(int threads) {
+        mExecutor.setCorePoolSize(Math.max(1, threads));
+    }
+
+    public int getMaxQueueSize() {
+        return mMaxQueueSize;
+    }
+
+    public void setMaxQueueSize(int maxQueueSize) {
+        mMaxQueueSize = Math.max(1, maxQueueSize);
+    }
+
+    public int getActiveCount() {
+        return mActive.get();
+    }
+
+    /**
+     * Tasks that have been submitted but not started, including delayed tasks that are not due.
+     */
+    public int getQueuedCount() {
+        return mExecutor.getQueue().size();
+    }
+
+    /**
+     * Runs the task as soon as a thread is free.
+     *
+     * @return false if the queue was full and the task was dropped.
+     */
+    public boolean execute(Runnable task) {
+        return schedule(task, 0) != null;
+    }
+
+    /**
+     * Runs the task once the delay has passed.
+     *
+     * @return null if the queue was full and the task was dropped.
+     */
+    public ScheduledFuture<?> schedule(final Runnable task, long delayMs) {
+        if (getQueuedCount() >= mMaxQueueSize) {
+            // Before Lollipop cancelled tasks are only dropped from the queue here
+            mExecutor.purge();
+        }
+
+        if (getQueuedCount() >= mMaxQueueSize) {
+            ReactNativeMetrics.increment(mName + METRIC_SUFFIX_REJECTED);
+            Log.w(TAG, ERROR_EXECUTOR_REJECTED + mName);
+            return null;
+        }
+
+        final long dueAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        ScheduledFuture<?> future = mExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                long startedAt = System.nanoTime();
+                ReactNativeMetrics.recordLatency(
+                        mName + METRIC_SUFFIX_LAG, Math.max(0, (startedAt - dueAt) / 1000000));
+                mActive.incrementAndGet();
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    // Keep the thread alive for the tasks queued behind this one
+                    ReactNativeMetrics.increment(mName + METRIC_SUFFIX_FAILED);
+                    Log.e(TAG, ERROR_EXECUTOR_TASK + mName, e);
+                } finally {
+                    mActive.decrementAndGet();
+                    ReactNativeMetrics.recordLatency(
+                            mName + METRIC_SUFFIX_TASK, (System.nanoTime() - startedAt) / 1000000);
+                }
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+        ReactNativeMetrics.recordValue(mName + METRIC_SUFFIX_QUEUE_DEPTH, getQueuedCount());
+        return future;
+    }
+
+    private static ThreadFactory createThreadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "AzureNotificationHub-" + name + "-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
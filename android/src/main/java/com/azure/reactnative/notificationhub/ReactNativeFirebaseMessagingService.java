@@ -3,7 +3,6 @@ package com.azure.reactnative.notificationhub;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.content.Context;
-import android.content.Intent;
 import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
@@ -77,12 +76,19 @@ public class ReactNativeFirebaseMessagingService extends FirebaseMessagingServic
     public void onNewToken(String token) {
         Log.i(TAG, "Refreshing FCM Registration Token");
 
-        Intent intent = ReactNativeNotificationHubUtil.IntentFactory.createIntent(this, ReactNativeRegistrationIntentService.class);
-        ReactNativeRegistrationIntentService.enqueueWork(this, intent);
+        // Not debounced: FCM may have started the process only for this, and the debounce timer
+        // would die with it
+        ReactNativeRegistrationCoordinator.getInstance().requestRegistrationNow(this);
     }
 
     @Override
     public void onMessageReceived(RemoteMessage remoteMessage) {
+        // FCM can deliver the same message more than once, drop copies before doing any work
+        if (!ReactNativeMessageDeduplicator.getInstance(this).markSeen(remoteMessage.getMessageId())) {
+            Log.d(TAG, "Dropping duplicate message: " + remoteMessage.getMessageId());
+            return;
+        }
+
         ReactNativeNotificationHubUtil notificationHubUtil = ReactNativeNotificationHubUtil.getInstance();
         Log.d(TAG, "Remote message from: " + remoteMessage.getFrom());
 
@@ -91,14 +97,25 @@ public class ReactNativeFirebaseMessagingService extends FirebaseMessagingServic
         }
 
         Bundle bundle = remoteMessage.toIntent().getExtras();
+
+        // Recorded before the flags below are added, so the history holds only what was sent
+        ReactNativeNotificationHistory.record(this, bundle);
         if (notificationHubUtil.getAppIsForeground()) {
             bundle.putBoolean(KEY_REMOTE_NOTIFICATION_FOREGROUND, true);
             bundle.putBoolean(KEY_REMOTE_NOTIFICATION_USER_INTERACTION, false);
             bundle.putBoolean(KEY_REMOTE_NOTIFICATION_COLDSTART, false);
         } else {
-            ReactNativeNotificationsHandler.sendNotification(this, bundle, notificationChannelID);
+            ReactNativeNotificationsHandler.sendNotification(this, bundle, resolveNotificationChannel(bundle));
         }
 
         ReactNativeNotificationsHandler.sendBroadcast(this, bundle, 0);
     }
+
+    // A notification can name one of the channels declared by JS; anything else goes to the
+    // default channel
+    private String resolveNotificationChannel(Bundle bundle) {
+        String channelID = ReactNativeNotificationChannelRegistry.getInstance(this).resolve(
+                this, bundle.getString(KEY_REMOTE_NOTIFICATION_CHANNEL_ID));
+        return channelID != null ? channelID : notificationChannelID;
+    }
 }
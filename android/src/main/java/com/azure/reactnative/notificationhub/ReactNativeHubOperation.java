@@ -0,0 +1,154 @@
+package com.azure.reactnative.notificationhub;
+
+import com.facebook.react.bridge.Promise;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * A blocking Azure Notification Hub call that runs off the React bridge thread and settles
+ * its promise exactly once: with the result, the failure, a timeout or a cancellation.
+ *
+ * Side effects of {@link #execute()} still happen if the promise has already been rejected
+ * by a timeout, so local state stays in line with what the hub was told.
+ */
+public abstract class ReactNativeHubOperation implements Runnable {
+    public static final String TAG = "ReactNativeHubOperation";
+
+    private static final Set<ReactNativeHubOperation> mPending =
+            Collections.newSetFromMap(new ConcurrentHashMap<ReactNativeHubOperation, Boolean>());
+
+    private final String mName;
+    private final Promise mPromise;
+    private final AtomicBoolean mSettled = new AtomicBoolean(false);
+    private final long mEnqueuedAt;
+    private volatile Future<?> mFuture;
+    private volatile Future<?> mTimeout;
+
+    public ReactNativeHubOperation(String name, Promise promise) {
+        mName = name;
+        mPromise = promise;
+        mEnqueuedAt = System.nanoTime();
+    }
+
+    /**
+     * Performs the hub call on the worker thread and returns the value to resolve with.
+     */
+    protected abstract Object execute() throws Exception;
+
+    public String getName() {
+        return mName;
+    }
+
+    public boolean isSettled() {
+        return mSettled.get();
+    }
+
+    public void submit(ExecutorService executor, ScheduledExecutorService scheduler, long timeoutMs) {
+        mPending.add(this);
+        try {
+            mFuture = executor.submit(this);
+        } catch (RejectedExecutionException e) {
+            reject(ERROR_NOTIFICATION_HUB, e);
+            return;
+        }
+
+        if (timeoutMs > 0 && !isSettled()) {
+            mTimeout = scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    timeout();
+                }
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void run() {
+        long startedAt = System.nanoTime();
+        ReactNativeMetrics.recordLatency(mName + METRIC_SUFFIX_QUEUE_WAIT, toMillis(startedAt - mEnqueuedAt));
+        if (isSettled()) {
+            // Cancelled or timed out before a worker picked it up
+            return;
+        }
+
+        try {
+            Object result = execute();
+            resolve(result);
+        } catch (Exception e) {
+            reject(ERROR_NOTIFICATION_HUB, e);
+        } finally {
+            ReactNativeMetrics.recordLatency(mName + METRIC_SUFFIX_NETWORK, toMillis(System.nanoTime() - startedAt));
+        }
+    }
+
+    public void cancel() {
+        if (settle()) {
+            ReactNativeMetrics.increment(mName + METRIC_SUFFIX_CANCELLED);
+            Future<?> future = mFuture;
+            if (future != null) {
+                future.cancel(true);
+            }
+            mPromise.reject(ERROR_OPERATION_CANCELLED, ERROR_OPERATION_CANCELLED_DESC);
+        }
+    }
+
+    /**
+     * Cancels every operation that has been submitted but not yet settled.
+     */
+    public static void cancelAll() {
+        for (ReactNativeHubOperation operation : mPending) {
+            operation.cancel();
+        }
+    }
+
+    private void timeout() {
+        if (settle()) {
+            ReactNativeMetrics.increment(mName + METRIC_SUFFIX_TIMEOUT);
+            Future<?> future = mFuture;
+            if (future != null) {
+                future.cancel(true);
+            }
+            mPromise.reject(ERROR_OPERATION_TIMEOUT, ERROR_OPERATION_TIMEOUT_DESC);
+        }
+    }
+
+    private void resolve(Object result) {
+        if (settle()) {
+            mPromise.resolve(result);
+        }
+    }
+
+    private void reject(String code, Exception e) {
+        if (settle()) {
+            ReactNativeMetrics.increment(mName + METRIC_SUFFIX_FAILED);
+            mPromise.reject(code, e);
+        }
+    }
+
+    private boolean settle() {
+        if (!mSettled.compareAndSet(false, true)) {
+            return false;
+        }
+
+        mPending.remove(this);
+        Future<?> timeout = mTimeout;
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+        return true;
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,583 @@
+package com.azure.reactnative.notificationhub;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * Loads the bitmaps shown as notification large icons. Bitmaps are decoded only when they are
+ * going to be used, downsampled to the system's large icon size and kept in a byte-bounded LRU
+ * so repeated notifications do not decode the same image again.
+ *
+ * Images fetched from a URL are also written to a size-capped disk cache. Both caches keep each
+ * image's expiry and validators, and an image is revalidated with its ETag or Last-Modified
+ * once it is no longer fresh. Responses marked no-store are not cached at all.
+ */
+public class ReactNativeImageLoader {
+    public static final String TAG = "ReactNativeImageLoader";
+
+    private static final String KEY_PREFIX_RESOURCE = "res:";
+    private static final String KEY_PREFIX_URL = "url:";
+    private static final String DISK_CACHE_DIR = "azure-notification-hub-images";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final int DISK_CACHE_VERSION = 1;
+
+    private static ReactNativeImageLoader sharedImageLoaderInstance = null;
+
+    private final Context mContext;
+    private final MemoryCache mMemoryCache;
+    private final File mDiskCacheDir;
+    private final long mDiskCacheSize;
+    private volatile int mConnectTimeout = DEFAULT_IMAGE_CONNECT_TIMEOUT_MS;
+    private volatile int mReadTimeout = DEFAULT_IMAGE_READ_TIMEOUT_MS;
+    private int mLargeIconWidth;
+    private int mLargeIconHeight;
+
+    public static synchronized ReactNativeImageLoader getInstance(Context context) {
+        if (sharedImageLoaderInstance == null) {
+            Context appContext = context.getApplicationContext();
+            if (appContext == null) {
+                appContext = context;
+            }
+
+            sharedImageLoaderInstance = new ReactNativeImageLoader(
+                    appContext,
+                    getDefaultMemoryCacheSize(),
+                    new File(appContext.getCacheDir(), DISK_CACHE_DIR),
+                    DEFAULT_IMAGE_DISK_CACHE_BYTES);
+        }
+        return sharedImageLoaderInstance;
+    }
+
+    public ReactNativeImageLoader(Context context, long memoryCacheSize) {
+        this(context, memoryCacheSize, null, 0);
+    }
+
+    public ReactNativeImageLoader(Context context, long memoryCacheSize, File diskCacheDir, long diskCacheSize) {
+        mContext = context;
+        mMemoryCache = new MemoryCache(memoryCacheSize);
+        mDiskCacheDir = diskCacheDir;
+        mDiskCacheSize = diskCacheSize;
+    }
+
+    public void setTimeouts(int connectTimeout, int readTimeout) {
+        mConnectTimeout = connectTimeout;
+        mReadTimeout = readTimeout;
+    }
+
+    /**
+     * Returns the bitmap for a drawable or mipmap resource, scaled down for use as a
+     * notification large icon, or null if the resource id is 0 or cannot be decoded.
+     */
+    public Bitmap getLargeIcon(int resId) {
+        if (resId == 0) {
+            return null;
+        }
+
+        String key = KEY_PREFIX_RESOURCE + resId;
+        Bitmap bitmap = mMemoryCache.get(key);
+        if (bitmap != null) {
+            ReactNativeMetrics.increment(METRIC_IMAGE_MEMORY_HIT);
+            return bitmap;
+        }
+
+        ReactNativeMetrics.increment(METRIC_IMAGE_MEMORY_MISS);
+        Resources res = mContext.getResources();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(res, resId, options);
+        options.inSampleSize = calculateInSampleSize(
+                options.outWidth, options.outHeight, getLargeIconWidth(), getLargeIconHeight());
+        options.inJustDecodeBounds = false;
+
+        bitmap = BitmapFactory.decodeResource(res, resId, options);
+        if (bitmap != null) {
+            mMemoryCache.put(key, bitmap);
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Returns the image at the given URL, scaled down for use as a notification large icon,
+     * or null if it cannot be fetched or decoded. Blocks on network I/O when the image is
+     * not cached or has to be revalidated, so it must not be called on the main thread.
+     */
+    public Bitmap getImage(String url) {
+        if (url == null) {
+            return null;
+        }
+
+        String key = KEY_PREFIX_URL + url;
+        MemoryEntry cached = mMemoryCache.getEntry(key);
+        if (cached != null && cached.mExpiresAt > System.currentTimeMillis()) {
+            ReactNativeMetrics.increment(METRIC_IMAGE_MEMORY_HIT);
+            return cached.mBitmap;
+        }
+
+        ReactNativeMetrics.increment(METRIC_IMAGE_MEMORY_MISS);
+        long start = System.nanoTime();
+        DiskEntry loaded = loadImageData(url, cached);
+        ReactNativeMetrics.recordLatency(METRIC_IMAGE_LOAD, (System.nanoTime() - start) / 1000000);
+        if (loaded == null) {
+            // A stale image is still better than no image
+            return cached != null ? cached.mBitmap : null;
+        }
+
+        if (loaded.mData == null) {
+            // Revalidated with the validators kept in memory, so the bitmap is still current
+            mMemoryCache.put(key, new MemoryEntry(
+                    cached.mBitmap, loaded.mExpiresAt, cached.mETag, cached.mLastModified));
+            return cached.mBitmap;
+        }
+
+        byte[] data = loaded.mData;
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        options.inSampleSize = calculateInSampleSize(
+                options.outWidth, options.outHeight, getLargeIconWidth(), getLargeIconHeight());
+        options.inJustDecodeBounds = false;
+
+        Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (bitmap != null && !loaded.mNoStore) {
+            mMemoryCache.put(key, new MemoryEntry(bitmap, loaded.mExpiresAt, loaded.mETag, loaded.mLastModified));
+        } else if (loaded.mNoStore) {
+            mMemoryCache.remove(key);
+        }
+
+        return bitmap;
+    }
+
+    public long getMemoryCacheSize() {
+        return mMemoryCache.size();
+    }
+
+    public void clearMemoryCache() {
+        mMemoryCache.clear();
+    }
+
+    /**
+     * Largest power of two that keeps both dimensions at or above the requested size, which is
+     * what BitmapFactory can downsample by without a second scaling pass.
+     */
+    public static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        if (width <= 0 || height <= 0 || reqWidth <= 0 || reqHeight <= 0) {
+            return inSampleSize;
+        }
+
+        while (width / (inSampleSize * 2) >= reqWidth && height / (inSampleSize * 2) >= reqHeight) {
+            inSampleSize *= 2;
+        }
+
+        return inSampleSize;
+    }
+
+    /**
+     * Returns the image from the disk cache or the network, or null if neither has it. The
+     * returned entry has no data when the server confirmed that the image in memory is current.
+     */
+    private DiskEntry loadImageData(String url, MemoryEntry cached) {
+        File file = getDiskCacheFile(url);
+        DiskEntry entry = file != null ? readDiskEntry(file) : null;
+        long now = System.currentTimeMillis();
+        if (entry != null && entry.mExpiresAt > now) {
+            ReactNativeMetrics.increment(METRIC_IMAGE_DISK_HIT);
+            file.setLastModified(now);
+            return entry;
+        }
+
+        String eTag = entry != null ? entry.mETag : (cached != null ? cached.mETag : null);
+        String lastModified = entry != null ? entry.mLastModified : (cached != null ? cached.mLastModified : null);
+
+        HttpURLConnection connection = null;
+        try {
+            connection = ReactNativeUtil.UrlWrapper.openConnection(url);
+            connection.setConnectTimeout(mConnectTimeout);
+            connection.setReadTimeout(mReadTimeout);
+            connection.setDoInput(true);
+            if (eTag != null) {
+                connection.setRequestProperty("If-None-Match", eTag);
+            }
+            if (lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && (entry != null || cached != null)) {
+                ReactNativeMetrics.increment(METRIC_IMAGE_REVALIDATED);
+                if (entry == null) {
+                    DiskEntry revalidated = new DiskEntry();
+                    revalidated.mExpiresAt = getExpiresAt(connection, now);
+                    return revalidated;
+                }
+
+                entry.mExpiresAt = getExpiresAt(connection, now);
+                writeDiskEntry(file, entry);
+                return entry;
+            }
+
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected response code " + responseCode);
+            }
+
+            ReactNativeMetrics.increment(METRIC_IMAGE_DOWNLOADED);
+            DiskEntry downloaded = new DiskEntry();
+            downloaded.mETag = connection.getHeaderField("ETag");
+            downloaded.mLastModified = connection.getHeaderField("Last-Modified");
+            downloaded.mExpiresAt = getExpiresAt(connection, now);
+            downloaded.mData = readFully(connection.getInputStream(), DEFAULT_IMAGE_MAX_DOWNLOAD_BYTES);
+            downloaded.mNoStore = isNoStore(connection);
+            if (file != null && !downloaded.mNoStore) {
+                writeDiskEntry(file, downloaded);
+                trimDiskCache();
+            } else if (file != null) {
+                file.delete();
+            }
+
+            return downloaded;
+        } catch (Exception e) {
+            Log.e(TAG, ERROR_FETCH_IMAGE, e);
+            ReactNativeMetrics.increment(METRIC_IMAGE_FETCH_FAILED);
+
+            // A stale image is still better than no image
+            return entry;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static long getExpiresAt(HttpURLConnection connection, long now) {
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        if (cacheControl != null) {
+            for (String directive : cacheControl.split(",")) {
+                directive = directive.trim().toLowerCase();
+                if (directive.equals("no-cache") || directive.equals("no-store")) {
+                    return now;
+                }
+                if (directive.startsWith("max-age=")) {
+                    try {
+                        return now + Long.parseLong(directive.substring("max-age=".length())) * 1000;
+                    } catch (NumberFormatException e) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        return now + DEFAULT_IMAGE_FRESHNESS_MS;
+    }
+
+    private static boolean isNoStore(HttpURLConnection connection) {
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        return cacheControl != null && cacheControl.toLowerCase().contains("no-store");
+    }
+
+    private static byte[] readFully(InputStream input, int maxBytes) throws IOException {
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                if (output.size() + read > maxBytes) {
+                    throw new IOException("Image is larger than " + maxBytes + " bytes");
+                }
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+
+    private File getDiskCacheFile(String url) {
+        if (mDiskCacheDir == null || mDiskCacheSize <= 0) {
+            return null;
+        }
+
+        if (!mDiskCacheDir.isDirectory() && !mDiskCacheDir.mkdirs()) {
+            return null;
+        }
+
+        return new File(mDiskCacheDir, hashKey(url));
+    }
+
+    private static DiskEntry readDiskEntry(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new FileInputStream(file));
+            if (input.readInt() != DISK_CACHE_VERSION) {
+                return null;
+            }
+
+            DiskEntry entry = new DiskEntry();
+            entry.mETag = readOptionalString(input);
+            entry.mLastModified = readOptionalString(input);
+            entry.mExpiresAt = input.readLong();
+
+            // A corrupt length must not be trusted with an allocation
+            int length = input.readInt();
+            if (length < 0 || length > file.length()) {
+                throw new IOException("Corrupt image cache entry " + file.getName());
+            }
+
+            entry.mData = new byte[length];
+            input.readFully(entry.mData);
+            if (input.read() != -1) {
+                throw new IOException("Corrupt image cache entry " + file.getName());
+            }
+            return entry;
+        } catch (IOException e) {
+            file.delete();
+            return null;
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    private static void writeDiskEntry(File file, DiskEntry entry) {
+        // Written to a temporary file first so a crash never leaves a truncated entry behind. Each
+        // writer gets its own, so two fetches of the same URL cannot interleave their writes.
+        File tempFile = null;
+        DataOutputStream output = null;
+        try {
+            tempFile = File.createTempFile(file.getName(), TEMP_FILE_SUFFIX, file.getParentFile());
+            output = new DataOutputStream(new FileOutputStream(tempFile));
+            output.writeInt(DISK_CACHE_VERSION);
+            writeOptionalString(output, entry.mETag);
+            writeOptionalString(output, entry.mLastModified);
+            output.writeLong(entry.mExpiresAt);
+            output.writeInt(entry.mData.length);
+            output.write(entry.mData);
+            output.close();
+            output = null;
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, ERROR_FETCH_IMAGE, e);
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        } finally {
+            closeQuietly(output);
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the disk cache fits its size cap.
+     */
+    private synchronized void trimDiskCache() {
+        File[] files = mDiskCacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+
+        if (size <= mDiskCacheSize) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long lhsModified = lhs.lastModified();
+                long rhsModified = rhs.lastModified();
+                return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+            }
+        });
+
+        for (File file : files) {
+            if (size <= mDiskCacheSize) {
+                break;
+            }
+
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+                ReactNativeMetrics.increment(METRIC_IMAGE_DISK_EVICTED);
+            }
+        }
+    }
+
+    private static String readOptionalString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static void writeOptionalString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    private static String hashKey(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(url.getBytes(Charset.forName("UTF-8")));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private synchronized int getLargeIconWidth() {
+        if (mLargeIconWidth == 0) {
+            mLargeIconWidth = mContext.getResources().getDimensionPixelSize(
+                    android.R.dimen.notification_large_icon_width);
+        }
+        return mLargeIconWidth;
+    }
+
+    private synchronized int getLargeIconHeight() {
+        if (mLargeIconHeight == 0) {
+            mLargeIconHeight = mContext.getResources().getDimensionPixelSize(
+                    android.R.dimen.notification_large_icon_height);
+        }
+        return mLargeIconHeight;
+    }
+
+    private static long getDefaultMemoryCacheSize() {
+        return Math.min(Runtime.getRuntime().maxMemory() / 32, DEFAULT_IMAGE_MEMORY_CACHE_BYTES);
+    }
+
+    private static final class DiskEntry {
+        String mETag;
+        String mLastModified;
+        long mExpiresAt;
+        byte[] mData;
+        boolean mNoStore;
+    }
+
+    /**
+     * A decoded bitmap and, for images fetched from a URL, how long it is fresh for and the
+     * validators to revalidate it with. Resource bitmaps never expire.
+     */
+    static final class MemoryEntry {
+        final Bitmap mBitmap;
+        final long mExpiresAt;
+        final String mETag;
+        final String mLastModified;
+
+        MemoryEntry(Bitmap bitmap, long expiresAt, String eTag, String lastModified) {
+            mBitmap = bitmap;
+            mExpiresAt = expiresAt;
+            mETag = eTag;
+            mLastModified = lastModified;
+        }
+    }
+
+    /**
+     * LRU of decoded bitmaps bounded by their total byte count rather than by entry count.
+     */
+    static final class MemoryCache {
+        private final long mMaxSize;
+        private final LinkedHashMap<String, MemoryEntry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+        private long mSize;
+
+        MemoryCache(long maxSize) {
+            mMaxSize = maxSize;
+        }
+
+        synchronized Bitmap get(String key) {
+            MemoryEntry entry = mEntries.get(key);
+            return entry != null ? entry.mBitmap : null;
+        }
+
+        synchronized MemoryEntry getEntry(String key) {
+            return mEntries.get(key);
+        }
+
+        synchronized void put(String key, Bitmap bitmap) {
+            put(key, new MemoryEntry(bitmap, Long.MAX_VALUE, null, null));
+        }
+
+        synchronized void put(String key, MemoryEntry entry) {
+            long bitmapSize = sizeOf(entry.mBitmap);
+            if (bitmapSize > mMaxSize) {
+                remove(key);
+                return;
+            }
+
+            MemoryEntry previous = mEntries.put(key, entry);
+            if (previous != null) {
+                mSize -= sizeOf(previous.mBitmap);
+            }
+            mSize += bitmapSize;
+
+            Iterator<Map.Entry<String, MemoryEntry>> eldest = mEntries.entrySet().iterator();
+            while (mSize > mMaxSize && eldest.hasNext()) {
+                mSize -= sizeOf(eldest.next().getValue().mBitmap);
+                eldest.remove();
+                ReactNativeMetrics.increment(METRIC_IMAGE_MEMORY_EVICTED);
+            }
+        }
+
+        synchronized void remove(String key) {
+            MemoryEntry previous = mEntries.remove(key);
+            if (previous != null) {
+                mSize -= sizeOf(previous.mBitmap);
+            }
+        }
+
+        synchronized long size() {
+            return mSize;
+        }
+
+        synchronized void clear() {
+            mEntries.clear();
+            mSize = 0;
+        }
+
+        private static long sizeOf(Bitmap bitmap) {
+            return bitmap.getByteCount();
+        }
+    }
+}
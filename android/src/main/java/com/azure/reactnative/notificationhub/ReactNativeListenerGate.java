@@ -0,0 +1,129 @@
+package com.azure.reactnative.notificationhub;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * Holds back notifications that opened the app until JS reports that its listeners are attached.
+ *
+ * Notifications are delivered as soon as {@link #setListenersReady()} is called. Apps that never
+ * call it still get their notifications once the fallback timeout expires.
+ */
+public class ReactNativeListenerGate {
+    public static final String TAG = "ReactNativeListenerGate";
+
+    private final Context mContext;
+    private final List<PendingTask> mPending = new ArrayList<>();
+    private boolean mListenersReady;
+    private Future<?> mFallback;
+    private volatile long mFallbackTimeout = DEFAULT_LISTENERS_READY_TIMEOUT_MS;
+
+    public ReactNativeListenerGate(Context context) {
+        mContext = context;
+    }
+
+    public long getFallbackTimeout() {
+        return mFallbackTimeout;
+    }
+
+    public void setFallbackTimeout(long fallbackTimeout) {
+        mFallbackTimeout = fallbackTimeout;
+    }
+
+    public synchronized boolean isListenersReady() {
+        return mListenersReady;
+    }
+
+    public synchronized int getPendingCount() {
+        return mPending.size();
+    }
+
+    /**
+     * Delivers the notification to JS now if its listeners are ready, otherwise once they are
+     * or once the fallback timeout expires, whichever comes first.
+     */
+    public void deliver(final Bundle bundle) {
+        runWhenReady(new Runnable() {
+            @Override
+            public void run() {
+                ReactNativeNotificationsHandler.sendBroadcast(mContext, bundle, 0);
+            }
+        });
+    }
+
+    /**
+     * Runs a task that emits events to JS under the same rules as {@link #deliver(Bundle)}.
+     */
+    public synchronized void runWhenReady(Runnable task) {
+        if (mListenersReady) {
+            ReactNativeMetrics.recordLatency(METRIC_LAUNCH_NOTIFICATION_DELIVERY, 0);
+            task.run();
+            return;
+        }
+
+        mPending.add(new PendingTask(task, System.nanoTime()));
+        if (mFallback == null) {
+            Runnable fallback = new Runnable() {
+                @Override
+                public void run() {
+                    onFallbackTimeout();
+                }
+            };
+            mFallback = ReactNativeUtil.dispatchDelayed(fallback, mFallbackTimeout);
+            if (mFallback == null) {
+                // The dispatcher is full; the scheduler still gets the held events delivered
+                mFallback = ReactNativeUtil.runDelayed(fallback, mFallbackTimeout);
+            }
+        }
+    }
+
+    /**
+     * Called when JS has attached its listeners. Queued notifications are flushed right away.
+     */
+    public synchronized void setListenersReady() {
+        mListenersReady = true;
+        cancelFallback();
+        flush();
+    }
+
+    private synchronized void onFallbackTimeout() {
+        mFallback = null;
+        if (!mPending.isEmpty()) {
+            ReactNativeMetrics.add(METRIC_LAUNCH_NOTIFICATION_FALLBACK, mPending.size());
+            flush();
+        }
+    }
+
+    private void cancelFallback() {
+        if (mFallback != null) {
+            mFallback.cancel(false);
+            mFallback = null;
+        }
+    }
+
+    private void flush() {
+        long now = System.nanoTime();
+        for (PendingTask pending : mPending) {
+            ReactNativeMetrics.recordLatency(
+                    METRIC_LAUNCH_NOTIFICATION_DELIVERY, (now - pending.mQueuedAt) / 1000000);
+            pending.mTask.run();
+        }
+        mPending.clear();
+    }
+
+    private static final class PendingTask {
+        final Runnable mTask;
+        final long mQueuedAt;
+
+        PendingTask(Runnable task, long queuedAt) {
+            mTask = task;
+            mQueuedAt = queuedAt;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.azure.reactnative.notificationhub;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * Remembers the message IDs of recently received remote messages so FCM redeliveries can be
+ * dropped before any work is done for them.
+ *
+ * IDs are spread over a fixed number of stripes, each guarded by its own lock, so concurrent
+ * receives rarely contend. Every stripe keeps its most recent IDs up to an equal share of the
+ * capacity and, when backed by SharedPreferences, is persisted under its own key so a restart
+ * does not forget what was already shown.
+ *
+ * Writes are batched: new IDs are persisted together shortly after the first of them arrives,
+ * so a burst of messages costs one SharedPreferences write instead of one per message. IDs
+ * received just before the process dies may be forgotten, which at worst lets one redelivery
+ * through.
+ */
+public class ReactNativeMessageDeduplicator {
+    public static final String TAG = "ReactNativeMessageDeduplicator";
+
+    private static final int STRIPE_COUNT = 8;
+    private static final String KEY_STRIPE_PREFIX = "ids.";
+    private static final String ID_SEPARATOR = "\n";
+
+    private static ReactNativeMessageDeduplicator sharedDeduplicatorInstance = null;
+
+    private final Stripe[] mStripes = new Stripe[STRIPE_COUNT];
+    private final SharedPreferences mPrefs;
+    private final AtomicBoolean mFlushScheduled = new AtomicBoolean();
+
+    public static synchronized ReactNativeMessageDeduplicator getInstance(Context context) {
+        if (sharedDeduplicatorInstance == null) {
+            SharedPreferences prefs = context.getApplicationContext().getSharedPreferences(
+                    MESSAGE_IDS_PREFS_NAME, Context.MODE_PRIVATE);
+            sharedDeduplicatorInstance = new ReactNativeMessageDeduplicator(prefs, DEFAULT_MESSAGE_ID_CACHE_SIZE);
+        }
+        return sharedDeduplicatorInstance;
+    }
+
+    /**
+     * @param prefs where the IDs are persisted, or null to keep them in memory only.
+     * @param capacity how many IDs to remember in total.
+     */
+    public ReactNativeMessageDeduplicator(SharedPreferences prefs, int capacity) {
+        mPrefs = prefs;
+        int stripeCapacity = Math.max(1, (capacity + STRIPE_COUNT - 1) / STRIPE_COUNT);
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            mStripes[i] = new Stripe(KEY_STRIPE_PREFIX + i, stripeCapacity);
+        }
+    }
+
+    /**
+     * Records the message ID.
+     *
+     * @return false if the ID was seen before and the message should be dropped. Messages
+     * without an ID are never treated as duplicates.
+     */
+    public boolean markSeen(String messageId) {
+        if (messageId == null) {
+            return true;
+        }
+
+        Stripe stripe = mStripes[(messageId.hashCode() & 0x7fffffff) % STRIPE_COUNT];
+        if (!stripe.add(messageId)) {
+            ReactNativeMetrics.increment(METRIC_MESSAGE_DUPLICATE);
+            return false;
+        }
+
+        if (mPrefs != null && mFlushScheduled.compareAndSet(false, true)) {
+            ReactNativeUtil.runDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, MESSAGE_ID_PERSIST_DELAY_MS);
+        }
+
+        return true;
+    }
+
+    /**
+     * Persists the stripes that changed since the last flush with a single write.
+     */
+    public void flush() {
+        // Cleared first so IDs added while this runs schedule another flush
+        mFlushScheduled.set(false);
+        if (mPrefs == null) {
+            return;
+        }
+
+        SharedPreferences.Editor editor = null;
+        for (Stripe stripe : mStripes) {
+            String ids = stripe.takeChanges();
+            if (ids == null) {
+                continue;
+            }
+
+            if (editor == null) {
+                editor = mPrefs.edit();
+            }
+            editor.putString(stripe.mKey, ids);
+        }
+
+        if (editor != null) {
+            editor.apply();
+        }
+    }
+
+    private final class Stripe {
+        private final String mKey;
+        private final Map<String, Boolean> mIds;
+        private boolean mLoaded;
+        private boolean mChanged;
+
+        Stripe(String key, final int capacity) {
+            mKey = key;
+            mIds = new LinkedHashMap<String, Boolean>(capacity + 1, 1.0f) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized boolean add(String messageId) {
+            load();
+            if (mIds.containsKey(messageId)) {
+                return false;
+            }
+
+            mIds.put(messageId, Boolean.TRUE);
+            mChanged = true;
+            return true;
+        }
+
+        // The stripe's IDs in the form they are persisted, or null if nothing changed
+        synchronized String takeChanges() {
+            if (!mChanged) {
+                return null;
+            }
+
+            mChanged = false;
+            StringBuilder builder = new StringBuilder();
+            for (String id : mIds.keySet()) {
+                if (builder.length() > 0) {
+                    builder.append(ID_SEPARATOR);
+                }
+                builder.append(id);
+            }
+            return builder.toString();
+        }
+
+        private void load() {
+            if (mLoaded) {
+                return;
+            }
+
+            mLoaded = true;
+            String ids = mPrefs != null ? mPrefs.getString(mKey, null) : null;
+            if (ids == null || ids.isEmpty()) {
+                return;
+            }
+
+            for (String id : ids.split(ID_SEPARATOR)) {
+                mIds.put(id, Boolean.TRUE);
+            }
+        }
+    }
+}
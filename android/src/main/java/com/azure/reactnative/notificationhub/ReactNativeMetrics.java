@@ -0,0 +1,167 @@
+package com.azure.reactnative.notificationhub;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide counters and latency recorders for the notification hub module.
+ */
+public final class ReactNativeMetrics {
+    public static final String TAG = "ReactNativeMetrics";
+
+    // Number of most recent samples kept per latency recorder for percentile estimates
+    private static final int MAX_LATENCY_SAMPLES = 512;
+
+    private static final ConcurrentHashMap<String, AtomicLong> mCounters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LatencyRecorder> mLatencies = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Gauge> mGauges = new ConcurrentHashMap<>();
+
+    /**
+     * A value that is read when the metrics are collected, e.g. the current size of a queue.
+     */
+    public interface Gauge {
+        long get();
+    }
+
+    public static void increment(String name) {
+        add(name, 1);
+    }
+
+    public static void add(String name, long delta) {
+        AtomicLong counter = mCounters.get(name);
+        if (counter == null) {
+            AtomicLong newCounter = new AtomicLong();
+            counter = mCounters.putIfAbsent(name, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+
+        counter.addAndGet(delta);
+    }
+
+    public static long getCount(String name) {
+        AtomicLong counter = mCounters.get(name);
+        return counter != null ? counter.get() : 0;
+    }
+
+    public static void recordLatency(String name, long millis) {
+        recordValue(name, millis);
+    }
+
+    /**
+     * Records a sample that is summarized like a latency, e.g. a queue depth.
+     */
+    public static void recordValue(String name, long value) {
+        LatencyRecorder recorder = mLatencies.get(name);
+        if (recorder == null) {
+            LatencyRecorder newRecorder = new LatencyRecorder();
+            recorder = mLatencies.putIfAbsent(name, newRecorder);
+            if (recorder == null) {
+                recorder = newRecorder;
+            }
+        }
+
+        recorder.record(value);
+    }
+
+    /**
+     * Returns the given percentile (0-100) over the most recent samples, or -1 if nothing
+     * has been recorded under the name.
+     */
+    public static long getLatencyPercentile(String name, int percentile) {
+        LatencyRecorder recorder = mLatencies.get(name);
+        return recorder != null ? recorder.percentile(percentile) : -1;
+    }
+
+    /**
+     * Registers a gauge under the name, replacing any previous one. Gauges are not cleared by
+     * {@link #reset()} since they report live state.
+     */
+    public static void registerGauge(String name, Gauge gauge) {
+        mGauges.put(name, gauge);
+    }
+
+    public static long getGauge(String name) {
+        Gauge gauge = mGauges.get(name);
+        return gauge != null ? gauge.get() : 0;
+    }
+
+    public static long getLatencyCount(String name) {
+        LatencyRecorder recorder = mLatencies.get(name);
+        return recorder != null ? recorder.count() : 0;
+    }
+
+    public static WritableMap toWritableMap() {
+        WritableMap metrics = Arguments.createMap();
+        for (Map.Entry<String, AtomicLong> counter : mCounters.entrySet()) {
+            metrics.putDouble(counter.getKey(), counter.getValue().get());
+        }
+
+        for (Map.Entry<String, LatencyRecorder> latency : mLatencies.entrySet()) {
+            metrics.putMap(latency.getKey(), latency.getValue().toWritableMap());
+        }
+
+        for (Map.Entry<String, Gauge> gauge : mGauges.entrySet()) {
+            metrics.putDouble(gauge.getKey(), gauge.getValue().get());
+        }
+
+        return metrics;
+    }
+
+    public static void reset() {
+        mCounters.clear();
+        mLatencies.clear();
+    }
+
+    private static final class LatencyRecorder {
+        private final long[] mSamples = new long[MAX_LATENCY_SAMPLES];
+        private long mCount;
+        private long mTotal;
+        private long mMax;
+
+        synchronized void record(long millis) {
+            mSamples[(int) (mCount % MAX_LATENCY_SAMPLES)] = millis;
+            mCount++;
+            mTotal += millis;
+            mMax = Math.max(mMax, millis);
+        }
+
+        synchronized long count() {
+            return mCount;
+        }
+
+        synchronized long percentile(int percentile) {
+            int size = (int) Math.min(mCount, MAX_LATENCY_SAMPLES);
+            if (size == 0) {
+                return -1;
+            }
+
+            long[] sorted = Arrays.copyOf(mSamples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+            return sorted[Math.max(0, Math.min(size - 1, index))];
+        }
+
+        WritableMap toWritableMap() {
+            WritableMap map = Arguments.createMap();
+            synchronized (this) {
+                map.putDouble("count", mCount);
+                map.putDouble("mean", mCount > 0 ? (double) mTotal / mCount : 0);
+                map.putDouble("max", mMax);
+            }
+            map.putDouble("p50", percentile(50));
+            map.putDouble("p90", percentile(90));
+            map.putDouble("p99", percentile(99));
+            return map;
+        }
+    }
+
+    private ReactNativeMetrics() {
+    }
+}
@@ -0,0 +1,235 @@
+package com.azure.reactnative.notificationhub;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * Keeps the remote notifications that arrive while the app is in the background so they can be
+ * handed to JS when it comes back to the foreground.
+ *
+ * Notifications are appended to a file with one JSON object per line, so they survive the
+ * process being killed. The buffer holds at most {@code capacity} notifications and drops the
+ * oldest first. Notifications whose message ID is already buffered are ignored.
+ */
+public class ReactNativeNotificationBuffer {
+    public static final String TAG = "ReactNativeNotificationBuffer";
+
+    private static final String BUFFER_FILE_NAME = "azure-notification-hub-buffer.jsonl";
+    private static final String KEY_ENTRY_ID = "id";
+    private static final String KEY_ENTRY_RECEIVED_AT = "receivedAt";
+    private static final String KEY_ENTRY_PAYLOAD = "payload";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static ReactNativeNotificationBuffer sharedBufferInstance = null;
+
+    private final File mFile;
+    private final int mCapacity;
+
+    // Loaded from the file on first use. mLines counts the lines in the file, which can run
+    // ahead of mEntries until the file is compacted.
+    private LinkedList<JSONObject> mEntries;
+    private Set<String> mIds;
+    private int mLines;
+
+    public static synchronized ReactNativeNotificationBuffer getInstance(Context context) {
+        if (sharedBufferInstance == null) {
+            sharedBufferInstance = new ReactNativeNotificationBuffer(
+                    new File(context.getFilesDir(), BUFFER_FILE_NAME), DEFAULT_BACKGROUND_BUFFER_CAPACITY);
+        }
+        return sharedBufferInstance;
+    }
+
+    public ReactNativeNotificationBuffer(File file, int capacity) {
+        mFile = file;
+        mCapacity = capacity;
+    }
+
+    /**
+     * Buffers the notification unless one with the same message ID is already buffered.
+     *
+     * @return true if the notification was buffered.
+     */
+    public synchronized boolean append(Bundle bundle) {
+        load();
+
+        String id = bundle.getString(KEY_REMOTE_NOTIFICATION_ID);
+        if (id != null && mIds.contains(id)) {
+            ReactNativeMetrics.increment(METRIC_BUFFER_DUPLICATE);
+            return false;
+        }
+
+        JSONObject entry = new JSONObject();
+        try {
+            entry.put(KEY_ENTRY_ID, id != null ? id : JSONObject.NULL);
+            entry.put(KEY_ENTRY_RECEIVED_AT, System.currentTimeMillis());
+            entry.put(KEY_ENTRY_PAYLOAD, ReactNativeUtil.convertBundleToJSON(bundle));
+        } catch (JSONException e) {
+            Log.e(TAG, ERROR_NOTIFICATION_BUFFER, e);
+            return false;
+        }
+
+        mEntries.addLast(entry);
+        if (id != null) {
+            mIds.add(id);
+        }
+
+        while (mEntries.size() > mCapacity) {
+            removeEntry(mEntries.removeFirst());
+            ReactNativeMetrics.increment(METRIC_BUFFER_EVICTED);
+        }
+
+        // Appending is cheap; the file is only rewritten once evicted lines make up half of it
+        boolean compacted = mLines + 1 > mCapacity * 2 && rewrite();
+        if (!compacted) {
+            write(entry.toString() + '\n', true);
+            mLines++;
+        }
+
+        ReactNativeMetrics.increment(METRIC_BUFFER_APPENDED);
+        return true;
+    }
+
+    /**
+     * Removes and returns the buffered notification payloads, oldest first.
+     */
+    public synchronized List<JSONObject> drain() {
+        load();
+
+        List<JSONObject> payloads = new ArrayList<>(mEntries.size());
+        for (JSONObject entry : mEntries) {
+            JSONObject payload = entry.optJSONObject(KEY_ENTRY_PAYLOAD);
+            if (payload != null) {
+                payloads.add(payload);
+            }
+        }
+
+        mEntries.clear();
+        mIds.clear();
+        mLines = 0;
+        if (mFile.exists() && !mFile.delete()) {
+            write("", false);
+        }
+
+        ReactNativeMetrics.add(METRIC_BUFFER_REPLAYED, payloads.size());
+        return payloads;
+    }
+
+    public synchronized int size() {
+        load();
+        return mEntries.size();
+    }
+
+    private void load() {
+        if (mEntries != null) {
+            return;
+        }
+
+        mEntries = new LinkedList<>();
+        mIds = new HashSet<>();
+        mLines = 0;
+        if (!mFile.isFile()) {
+            return;
+        }
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(mFile), UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                mLines++;
+                JSONObject entry;
+                try {
+                    entry = new JSONObject(line);
+                } catch (JSONException e) {
+                    // Most likely the tail of a write cut short by process death
+                    continue;
+                }
+
+                String id = entry.isNull(KEY_ENTRY_ID) ? null : entry.optString(KEY_ENTRY_ID, null);
+                if (id != null && !mIds.add(id)) {
+                    continue;
+                }
+
+                mEntries.addLast(entry);
+                while (mEntries.size() > mCapacity) {
+                    removeEntry(mEntries.removeFirst());
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, ERROR_NOTIFICATION_BUFFER, e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    private void removeEntry(JSONObject entry) {
+        if (!entry.isNull(KEY_ENTRY_ID)) {
+            mIds.remove(entry.optString(KEY_ENTRY_ID));
+        }
+    }
+
+    private boolean rewrite() {
+        StringBuilder builder = new StringBuilder();
+        for (JSONObject entry : mEntries) {
+            builder.append(entry.toString()).append('\n');
+        }
+
+        File tempFile = new File(mFile.getPath() + ".tmp");
+        if (writeFile(tempFile, builder.toString(), false) && tempFile.renameTo(mFile)) {
+            mLines = mEntries.size();
+            return true;
+        }
+
+        tempFile.delete();
+        return false;
+    }
+
+    private void write(String data, boolean append) {
+        writeFile(mFile, data, append);
+    }
+
+    private static boolean writeFile(File file, String data, boolean append) {
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(file, append), UTF_8);
+            writer.write(data);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, ERROR_NOTIFICATION_BUFFER, e);
+            return false;
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+}
@@ -34,6 +34,11 @@ public class ReactNativeNotificationChannelBuilder {
         return channel;
     }
 
+    public ReactNativeNotificationChannelBuilder setID(String id) {
+        this.mID = id;
+        return this;
+    }
+
     public ReactNativeNotificationChannelBuilder setName(CharSequence name) {
         this.mName = name;
         return this;
@@ -0,0 +1,370 @@
+package com.azure.reactnative.notificationhub;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * The notification channels declared by JS, so a remote notification can name the channel it is
+ * posted to.
+ *
+ * Declarations are persisted, since messages are often received by a process in which no JS has
+ * run, and are looked up by channel ID in a map. A channel is created the first time a
+ * notification is routed to it, and again only when its definition has changed since then, so
+ * the NotificationManager round trip is skipped for every later notification.
+ *
+ * {@link #sync} brings all declared channels up to date at once, off the receive path, and
+ * deletes the channels this registry created that are no longer declared.
+ */
+public class ReactNativeNotificationChannelRegistry {
+    public static final String TAG = "ReactNativeNotificationChannelRegistry";
+
+    private static final String KEY_CHANNELS = "channels";
+    private static final String KEY_MANAGED = "managed";
+
+    private static ReactNativeNotificationChannelRegistry sharedRegistryInstance = null;
+
+    private final SharedPreferences mPrefs;
+
+    // Declared channels by ID, loaded from the prefs on first use
+    private Map<String, Channel> mChannels;
+
+    // IDs of the channels this registry has declared and not deleted yet, loaded with mChannels
+    private Set<String> mManaged;
+
+    // The definition each channel was last created with by this process
+    private final Map<String, Channel> mCreated = new HashMap<>();
+
+    public static synchronized ReactNativeNotificationChannelRegistry getInstance(Context context) {
+        if (sharedRegistryInstance == null) {
+            SharedPreferences prefs = context.getApplicationContext().getSharedPreferences(
+                    NOTIFICATION_CHANNELS_PREFS_NAME, Context.MODE_PRIVATE);
+            sharedRegistryInstance = new ReactNativeNotificationChannelRegistry(prefs);
+        }
+        return sharedRegistryInstance;
+    }
+
+    /**
+     * @param prefs where the declarations are persisted, or null to keep them in memory only.
+     */
+    public ReactNativeNotificationChannelRegistry(SharedPreferences prefs) {
+        mPrefs = prefs;
+    }
+
+    /**
+     * Replaces the declared channels. Channels are created when a notification is first routed
+     * to them, not here.
+     */
+    public synchronized void declare(Collection<Channel> channels) {
+        load();
+        mChannels = new LinkedHashMap<>();
+        for (Channel channel : channels) {
+            mChannels.put(channel.getID(), channel);
+        }
+
+        // Channels dropped from the declarations stay managed until sync deletes them
+        mManaged.addAll(mChannels.keySet());
+        save();
+    }
+
+    public synchronized List<Channel> getChannels() {
+        load();
+        return new ArrayList<>(mChannels.values());
+    }
+
+    public synchronized Channel getChannel(String id) {
+        load();
+        return id != null ? mChannels.get(id) : null;
+    }
+
+    /**
+     * Returns the ID of the declared channel, creating or updating the channel first if this
+     * process has not created it with its current definition yet.
+     *
+     * @return null if no channel with the ID is declared.
+     */
+    public synchronized String resolve(Context context, String id) {
+        Channel channel = getChannel(id);
+        if (channel == null) {
+            if (id != null) {
+                ReactNativeMetrics.increment(METRIC_CHANNEL_UNKNOWN);
+            }
+            return null;
+        }
+
+        if (channel.equals(mCreated.get(id))) {
+            return id;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager notificationManager = (NotificationManager) context.getSystemService(
+                    Context.NOTIFICATION_SERVICE);
+            if (notificationManager == null) {
+                return id;
+            }
+
+            notificationManager.createNotificationChannel(channel.build());
+            ReactNativeMetrics.increment(METRIC_CHANNEL_CREATED);
+        }
+
+        mCreated.put(id, channel);
+        return id;
+    }
+
+    /**
+     * Diffs the declared channels against the ones the system has, then creates or updates
+     * every missing or changed channel in a single createNotificationChannels call and deletes
+     * the channels this registry created that are no longer declared. Channels the app or the
+     * default registration created are never deleted.
+     */
+    public synchronized void sync(Context context) {
+        load();
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+
+        NotificationManager notificationManager = (NotificationManager) context.getSystemService(
+                Context.NOTIFICATION_SERVICE);
+        if (notificationManager == null) {
+            return;
+        }
+
+        Map<String, NotificationChannel> existing = new HashMap<>();
+        for (NotificationChannel channel : notificationManager.getNotificationChannels()) {
+            existing.put(channel.getId(), channel);
+        }
+
+        List<NotificationChannel> changed = new ArrayList<>();
+        for (Channel channel : mChannels.values()) {
+            if (!channel.matches(existing.get(channel.getID()))) {
+                changed.add(channel.build());
+            }
+            mCreated.put(channel.getID(), channel);
+        }
+
+        if (!changed.isEmpty()) {
+            notificationManager.createNotificationChannels(changed);
+            ReactNativeMetrics.add(METRIC_CHANNEL_CREATED, changed.size());
+        }
+
+        for (String id : mManaged) {
+            if (!mChannels.containsKey(id) && !NOTIFICATION_CHANNEL_ID.equals(id) && existing.containsKey(id)) {
+                notificationManager.deleteNotificationChannel(id);
+                mCreated.remove(id);
+                ReactNativeMetrics.increment(METRIC_CHANNEL_DELETED);
+            }
+        }
+
+        if (mManaged.retainAll(mChannels.keySet())) {
+            save();
+        }
+    }
+
+    private void load() {
+        if (mChannels != null) {
+            return;
+        }
+
+        mChannels = new LinkedHashMap<>();
+        mManaged = new LinkedHashSet<>();
+        if (mPrefs == null) {
+            return;
+        }
+
+        try {
+            String channels = mPrefs.getString(KEY_CHANNELS, null);
+            if (channels != null) {
+                JSONArray json = new JSONArray(channels);
+                for (int i = 0; i < json.length(); i++) {
+                    Channel channel = Channel.fromJSON(json.getJSONObject(i));
+                    mChannels.put(channel.getID(), channel);
+                }
+            }
+
+            String managed = mPrefs.getString(KEY_MANAGED, null);
+            if (managed != null) {
+                JSONArray json = new JSONArray(managed);
+                for (int i = 0; i < json.length(); i++) {
+                    mManaged.add(json.getString(i));
+                }
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, ERROR_NOTIFICATION_CHANNELS, e);
+        }
+
+        // Declarations saved before the managed IDs were tracked
+        mManaged.addAll(mChannels.keySet());
+    }
+
+    private void save() {
+        if (mPrefs == null) {
+            return;
+        }
+
+        JSONArray channels = new JSONArray();
+        for (Channel channel : mChannels.values()) {
+            try {
+                channels.put(channel.toJSON());
+            } catch (JSONException e) {
+                Log.e(TAG, ERROR_NOTIFICATION_CHANNELS, e);
+            }
+        }
+
+        mPrefs.edit()
+                .putString(KEY_CHANNELS, channels.toString())
+                .putString(KEY_MANAGED, new JSONArray(mManaged).toString())
+                .apply();
+    }
+
+    /**
+     * The definition of a channel as declared by JS.
+     */
+    public static final class Channel {
+        private final String mID;
+        private final String mName;
+        private final String mDescription;
+        private final int mImportance;
+        private final boolean mShowBadge;
+        private final boolean mEnableLights;
+        private final boolean mEnableVibration;
+
+        public Channel(String id,
+                       String name,
+                       String description,
+                       int importance,
+                       boolean showBadge,
+                       boolean enableLights,
+                       boolean enableVibration) {
+            mID = id;
+            mName = name != null ? name : id;
+            mDescription = description;
+            mImportance = importance;
+            mShowBadge = showBadge;
+            mEnableLights = enableLights;
+            mEnableVibration = enableVibration;
+        }
+
+        public String getID() {
+            return mID;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public String getDescription() {
+            return mDescription;
+        }
+
+        public int getImportance() {
+            return mImportance;
+        }
+
+        public boolean getShowBadge() {
+            return mShowBadge;
+        }
+
+        public boolean getEnableLights() {
+            return mEnableLights;
+        }
+
+        public boolean getEnableVibration() {
+            return mEnableVibration;
+        }
+
+        public NotificationChannel build() {
+            return ReactNativeNotificationChannelBuilder.Factory.create()
+                    .setID(mID)
+                    .setName(mName)
+                    .setDescription(mDescription)
+                    .setImportance(mImportance)
+                    .setShowBadge(mShowBadge)
+                    .enableLights(mEnableLights)
+                    .enableVibration(mEnableVibration)
+                    .build();
+        }
+
+        // Whether the system channel already has the user-visible parts of this definition. The
+        // importance is left out since users can change it and apps can only lower it.
+        boolean matches(NotificationChannel channel) {
+            if (channel == null || channel.getName() == null || !mName.equals(channel.getName().toString())) {
+                return false;
+            }
+
+            String description = channel.getDescription();
+            return mDescription == null ? description == null || description.isEmpty() : mDescription.equals(description);
+        }
+
+        JSONObject toJSON() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put(KEY_CHANNEL_ID, mID);
+            json.put(KEY_CHANNEL_NAME, mName);
+            json.putOpt(KEY_CHANNEL_DESCRIPTION, mDescription);
+            json.put(KEY_CHANNEL_IMPORTANCE, mImportance);
+            json.put(KEY_CHANNEL_SHOW_BADGE, mShowBadge);
+            json.put(KEY_CHANNEL_ENABLE_LIGHTS, mEnableLights);
+            json.put(KEY_CHANNEL_ENABLE_VIBRATION, mEnableVibration);
+            return json;
+        }
+
+        static Channel fromJSON(JSONObject json) throws JSONException {
+            return new Channel(
+                    json.getString(KEY_CHANNEL_ID),
+                    json.optString(KEY_CHANNEL_NAME, null),
+                    json.optString(KEY_CHANNEL_DESCRIPTION, null),
+                    json.optInt(KEY_CHANNEL_IMPORTANCE, NotificationManager.IMPORTANCE_DEFAULT),
+                    json.optBoolean(KEY_CHANNEL_SHOW_BADGE, true),
+                    json.optBoolean(KEY_CHANNEL_ENABLE_LIGHTS, true),
+                    json.optBoolean(KEY_CHANNEL_ENABLE_VIBRATION, true));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Channel)) {
+                return false;
+            }
+
+            Channel other = (Channel) o;
+            return mImportance == other.mImportance
+                    && mShowBadge == other.mShowBadge
+                    && mEnableLights == other.mEnableLights
+                    && mEnableVibration == other.mEnableVibration
+                    && mID.equals(other.mID)
+                    && mName.equals(other.mName)
+                    && (mDescription == null ? other.mDescription == null : mDescription.equals(other.mDescription));
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = mID.hashCode();
+            hash = 31 * hash + mName.hashCode();
+            hash = 31 * hash + (mDescription != null ? mDescription.hashCode() : 0);
+            hash = 31 * hash + mImportance;
+            hash = 31 * hash + (mShowBadge ? 1 : 0);
+            hash = 31 * hash + (mEnableLights ? 1 : 0);
+            hash = 31 * hash + (mEnableVibration ? 1 : 0);
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.azure.reactnative.notificationhub;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.content.Context;
+
+import androidx.core.app.NotificationCompat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * Posts notifications that share a group through a short collection window, so a burst turns
+ * into a few NotificationManager calls instead of one per message.
+ *
+ * Within a window, an update to a notification that is still waiting replaces it. When the
+ * window closes the group's InboxStyle summary is posted along with the newest waiting
+ * notifications, up to the group's budget of posts per second. Notifications that do not fit in
+ * the budget are not posted on their own; they only appear as lines in the summary. If the
+ * budget is already spent, the flush waits until it frees up.
+ *
+ * A group that has not received anything for a while starts over with an empty summary.
+ */
+public class ReactNativeNotificationGrouper {
+    public static final String TAG = "ReactNativeNotificationGrouper";
+
+    // Summaries are posted under their own tag so their IDs cannot clash with notification IDs
+    private static final String SUMMARY_TAG = "AzureNotificationHubGroupSummary";
+    private static final int MAX_TRACKED_GROUPS = 32;
+    private static final long POST_RATE_WINDOW_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private static ReactNativeNotificationGrouper sharedGrouperInstance = null;
+
+    private final Map<String, Group> mGroups = new LinkedHashMap<String, Group>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Group> eldest) {
+            return size() > MAX_TRACKED_GROUPS && eldest.getValue().mFlushTask == null;
+        }
+    };
+    private volatile long mWindow = DEFAULT_GROUP_WINDOW_MS;
+    private volatile int mMaxPostsPerSecond = DEFAULT_GROUP_MAX_POSTS_PER_SECOND;
+
+    public static synchronized ReactNativeNotificationGrouper getInstance() {
+        if (sharedGrouperInstance == null) {
+            sharedGrouperInstance = new ReactNativeNotificationGrouper();
+        }
+        return sharedGrouperInstance;
+    }
+
+    public boolean isEnabled() {
+        return mWindow > 0;
+    }
+
+    public long getWindow() {
+        return mWindow;
+    }
+
+    /**
+     * Sets how long to collect a group's notifications before posting them. Zero turns grouping
+     * off, and grouped notifications are then posted one by one as they arrive.
+     */
+    public void setWindow(long window) {
+        mWindow = window;
+    }
+
+    public int getMaxPostsPerSecond() {
+        return mMaxPostsPerSecond;
+    }
+
+    /**
+     * Sets how many NotificationManager posts, summary included, a group may make per second.
+     */
+    public void setMaxPostsPerSecond(int maxPostsPerSecond) {
+        mMaxPostsPerSecond = Math.max(1, maxPostsPerSecond);
+    }
+
+    public synchronized int getPendingCount(String group) {
+        Group state = mGroups.get(group);
+        return state != null ? state.mPending.size() : 0;
+    }
+
+    /**
+     * Queues a notification to be posted with its group when the window closes.
+     */
+    public void add(final Context context, final String group, String notificationChannelID, Child child) {
+        synchronized (this) {
+            long now = System.nanoTime();
+            Group state = mGroups.get(group);
+            if (state == null || (state.mFlushTask == null && state.mPending.isEmpty()
+                    && now - state.mLastAddedAt >= TimeUnit.MILLISECONDS.toNanos(DEFAULT_GROUP_IDLE_RESET_MS))) {
+                state = new Group(mMaxPostsPerSecond);
+                mGroups.put(group, state);
+            }
+
+            // A newer version of a waiting notification replaces it and moves to the back
+            String key = child.mTag + ":" + child.mID;
+            if (state.mPending.remove(key) == null) {
+                state.mCount++;
+            }
+            state.mPending.put(key, child);
+            state.addLine(child);
+            state.mLastAddedAt = now;
+            state.mNotificationChannelID = notificationChannelID;
+
+            if (state.mFlushTask != null) {
+                return;
+            }
+
+            state.mFlushTask = ReactNativeUtil.dispatchDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    flush(context, group);
+                }
+            }, mWindow);
+            if (state.mFlushTask != null) {
+                return;
+            }
+        }
+
+        // The dispatcher is full, so post now rather than lose the notification
+        flush(context, group);
+    }
+
+    /**
+     * Posts the group's summary and waiting notifications, as far as its budget allows.
+     */
+    public void flush(final Context context, final String group) {
+        List<Child> children;
+        Child latest;
+        List<CharSequence> lines;
+        String notificationChannelID;
+        int count;
+        boolean postSummary;
+        synchronized (this) {
+            Group state = mGroups.get(group);
+            if (state == null) {
+                return;
+            }
+
+            state.mFlushTask = null;
+            if (state.mPending.isEmpty()) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            int budget = state.availablePosts(now, mMaxPostsPerSecond);
+            if (budget <= 0) {
+                ReactNativeMetrics.increment(METRIC_GROUP_DEFERRED);
+                long delayMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(state.nextPostAt() - now));
+                Runnable flush = new Runnable() {
+                    @Override
+                    public void run() {
+                        flush(context, group);
+                    }
+                };
+                state.mFlushTask = ReactNativeUtil.dispatchDelayed(flush, delayMs);
+                if (state.mFlushTask == null) {
+                    // The dispatcher is full; the scheduler still gets the group posted
+                    state.mFlushTask = ReactNativeUtil.runDelayed(flush, delayMs);
+                }
+                return;
+            }
+
+            // A single notification needs no summary; once there are more, the summary takes
+            // the first post so the group always shows up collapsed
+            postSummary = state.mCount > 1;
+            int childBudget = postSummary ? budget - 1 : budget;
+
+            List<Child> pending = new ArrayList<>(state.mPending.values());
+            state.mPending.clear();
+            int first = Math.max(0, pending.size() - childBudget);
+            children = pending.subList(first, pending.size());
+            latest = pending.get(pending.size() - 1);
+            if (first > 0) {
+                ReactNativeMetrics.add(METRIC_GROUP_COLLAPSED, first);
+            }
+
+            int posts = children.size() + (postSummary ? 1 : 0);
+            for (int i = 0; i < posts; i++) {
+                state.recordPost(now);
+            }
+
+            lines = new ArrayList<>(state.mLines);
+            notificationChannelID = state.mNotificationChannelID;
+            count = state.mCount;
+        }
+
+        // Posting is an IPC per notification, so it happens outside the lock
+        ReactNativeNotificationRateLimiter rateLimiter = ReactNativeNotificationRateLimiter.getInstance();
+        for (Child child : children) {
+            rateLimiter.notify(context, child.mTag, child.mID, child.mNotification, child.mPriority);
+        }
+        ReactNativeMetrics.add(METRIC_GROUP_POSTED, children.size());
+
+        if (postSummary) {
+            rateLimiter.notify(context, SUMMARY_TAG, group.hashCode(),
+                    buildSummary(context, group, notificationChannelID, latest, lines, count), latest.mPriority);
+            ReactNativeMetrics.increment(METRIC_GROUP_POSTED);
+            ReactNativeMetrics.increment(METRIC_GROUP_SUMMARIES);
+        }
+    }
+
+    private static Notification buildSummary(Context context,
+                                             String group,
+                                             String notificationChannelID,
+                                             Child latest,
+                                             List<CharSequence> lines,
+                                             int count) {
+        NotificationCompat.Builder summaryBuilder = ReactNativeUtil.initNotificationCompatBuilder(
+                context,
+                notificationChannelID,
+                latest.mTitle,
+                null,
+                NotificationCompat.VISIBILITY_PRIVATE,
+                latest.mPriority,
+                true);
+        summaryBuilder.setContentText(latest.mText);
+        summaryBuilder.setSmallIcon(latest.mSmallIcon);
+        summaryBuilder.setContentIntent(latest.mContentIntent);
+        summaryBuilder.setNumber(count);
+        summaryBuilder.setGroup(group);
+        summaryBuilder.setGroupSummary(true);
+        summaryBuilder.setOnlyAlertOnce(true);
+        summaryBuilder.setStyle(ReactNativeUtil.getInboxStyle(lines));
+        return summaryBuilder.build();
+    }
+
+    /**
+     * A built notification waiting to be posted with its group.
+     */
+    public static final class Child {
+        private final String mTag;
+        private final int mID;
+        private final Notification mNotification;
+        private final String mTitle;
+        private final String mText;
+        private final int mSmallIcon;
+        private final PendingIntent mContentIntent;
+        private final int mPriority;
+
+        public Child(String tag,
+                     int id,
+                     Notification notification,
+                     String title,
+                     String text,
+                     int smallIcon,
+                     PendingIntent contentIntent,
+                     int priority) {
+            mTag = tag;
+            mID = id;
+            mNotification = notification;
+            mTitle = title;
+            mText = text;
+            mSmallIcon = smallIcon;
+            mContentIntent = contentIntent;
+            mPriority = priority;
+        }
+    }
+
+    private static final class Group {
+        private final Map<String, Child> mPending = new LinkedHashMap<>();
+        private final ArrayDeque<CharSequence> mLines = new ArrayDeque<>();
+        private long[] mPostTimes;
+        private int mPostIndex;
+        private int mPostCount;
+        private int mCount;
+        private long mLastAddedAt;
+        private String mNotificationChannelID;
+        private Future<?> mFlushTask;
+
+        Group(int maxPostsPerSecond) {
+            mPostTimes = new long[maxPostsPerSecond];
+        }
+
+        void addLine(Child child) {
+            mLines.addLast(child.mTitle != null ? child.mTitle + ": " + child.mText : child.mText);
+            while (mLines.size() > DEFAULT_GROUP_SUMMARY_LINES) {
+                mLines.removeFirst();
+            }
+        }
+
+        /**
+         * How many posts can be made now without going over the budget for the last second.
+         */
+        int availablePosts(long now, int maxPostsPerSecond) {
+            if (mPostTimes.length != maxPostsPerSecond) {
+                // The budget was reconfigured; forget the history rather than resize it
+                mPostTimes = new long[maxPostsPerSecond];
+                mPostIndex = 0;
+                mPostCount = 0;
+            }
+
+            int available = mPostTimes.length - mPostCount;
+            for (int i = 0; i < mPostCount; i++) {
+                if (now - mPostTimes[i] >= POST_RATE_WINDOW_NS) {
+                    available++;
+                }
+            }
+            return available;
+        }
+
+        /**
+         * When the oldest post in a spent budget leaves the one second window.
+         */
+        long nextPostAt() {
+            return mPostTimes[mPostIndex] + POST_RATE_WINDOW_NS;
+        }
+
+        void recordPost(long now) {
+            mPostTimes[mPostIndex] = now;
+            mPostIndex = (mPostIndex + 1) % mPostTimes.length;
+            mPostCount = Math.min(mPostCount + 1, mPostTimes.length);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.azure.reactnative.notificationhub;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+
+import java.io.File;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * Holds the store that received notifications are recorded in. By default it is a
+ * {@link ReactNativeNotificationLogStore} in the app's files directory, which records nothing
+ * until a retention is set.
+ */
+public final class ReactNativeNotificationHistory {
+    public static final String TAG = "ReactNativeNotificationHistory";
+
+    private static final String HISTORY_FILE_NAME = "azure-notification-hub-history.jsonl";
+    private static final String KEY_RETENTION = "retention";
+    private static final String KEY_MAX_SIZE = "maxSize";
+
+    private static ReactNativeNotificationStore sharedStoreInstance = null;
+
+    private ReactNativeNotificationHistory() {
+    }
+
+    public static synchronized ReactNativeNotificationStore getStore(Context context) {
+        if (sharedStoreInstance == null) {
+            SharedPreferences prefs = getSharedPreferences(context);
+            sharedStoreInstance = new ReactNativeNotificationLogStore(
+                    new File(context.getApplicationContext().getFilesDir(), HISTORY_FILE_NAME),
+                    prefs.getLong(KEY_RETENTION, DEFAULT_HISTORY_RETENTION_MS),
+                    prefs.getLong(KEY_MAX_SIZE, DEFAULT_HISTORY_MAX_SIZE));
+        }
+        return sharedStoreInstance;
+    }
+
+    /**
+     * Sets how long notifications are kept, in milliseconds. The setting is persisted, so a
+     * process that FCM starts in the background records with it too.
+     */
+    public static void setRetention(Context context, long retention) {
+        getSharedPreferences(context).edit().putLong(KEY_RETENTION, retention).apply();
+        getStore(context).setRetention(retention);
+    }
+
+    /**
+     * Sets roughly how much space the history may take, in bytes. Persisted like the retention.
+     */
+    public static void setMaxSize(Context context, long maxSize) {
+        getSharedPreferences(context).edit().putLong(KEY_MAX_SIZE, maxSize).apply();
+        getStore(context).setMaxSize(maxSize);
+    }
+
+    /**
+     * Replaces the store notifications are recorded in and queried from. It is best called from
+     * Application.onCreate, since a message can be received before any React code runs.
+     */
+    public static synchronized void setStore(ReactNativeNotificationStore store) {
+        sharedStoreInstance = store;
+    }
+
+    /**
+     * Records the notification on the calling thread. FCM may stop the process as soon as
+     * onMessageReceived returns, so a write handed to another thread could be lost; the receive
+     * thread is not the main thread, and the default store does no I/O while the history is off.
+     */
+    public static void record(Context context, Bundle bundle) {
+        if (bundle == null) {
+            return;
+        }
+
+        getStore(context).append(bundle, System.currentTimeMillis());
+    }
+
+    private static SharedPreferences getSharedPreferences(Context context) {
+        return context.getApplicationContext().getSharedPreferences(HISTORY_PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
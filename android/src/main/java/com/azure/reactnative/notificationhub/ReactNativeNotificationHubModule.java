@@ -1,11 +1,13 @@
 package com.azure.reactnative.notificationhub;
 
 import android.app.Activity;
+import android.app.NotificationManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.Bundle;
+import android.util.Log;
 
 import androidx.core.app.NotificationManagerCompat;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
@@ -13,6 +15,7 @@ import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import com.facebook.react.bridge.ActivityEventListener;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.GoogleApiAvailability;
@@ -28,25 +31,39 @@ import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.UiThreadUtil;
 
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
 
 public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule implements
         ActivityEventListener, LifecycleEventListener {
     private static final int PLAY_SERVICES_RESOLUTION_REQUEST = 9000;
-    private static final int NOTIFICATION_DELAY_ON_START = 3000;
 
     private ReactApplicationContext mReactContext;
     private LocalBroadcastReceiver mLocalBroadcastReceiver;
+    private ReactNativeListenerGate mListenerGate;
+    private ReactNativeEventBatcher mEventBatcher;
+
+    // Background buffer appends and replays run one at a time, in the order they arrived
+    private final ArrayDeque<Runnable> mBufferTasks = new ArrayDeque<>();
+    private boolean mBufferTaskRunning;
 
     public ReactNativeNotificationHubModule(ReactApplicationContext reactContext) {
         super(reactContext);
         this.mReactContext = reactContext;
+        this.mListenerGate = new ReactNativeListenerGate(reactContext);
+        this.mEventBatcher = new ReactNativeEventBatcher(reactContext);
         this.mLocalBroadcastReceiver = new LocalBroadcastReceiver();
         LocalBroadcastManager localBroadcastManager = LocalBroadcastManager.getInstance(reactContext);
         localBroadcastManager.registerReceiver(mLocalBroadcastReceiver, new IntentFilter(ReactNativeRegistrationIntentService.TAG));
         localBroadcastManager.registerReceiver(mLocalBroadcastReceiver, new IntentFilter(ReactNativeNotificationsHandler.TAG));
         reactContext.addLifecycleEventListener(this);
         reactContext.addActivityEventListener(this);
+        warmUp();
     }
 
     @Override
@@ -54,6 +71,23 @@ public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule
         return AZURE_NOTIFICATION_HUB_NAME;
     }
 
+    // Resolves what the first notification would otherwise look up on its own critical path
+    private void warmUp() {
+        final ReactApplicationContext reactContext = mReactContext;
+        ReactNativeUtil.runInWorkerThread(new Runnable() {
+            @Override
+            public void run() {
+                ReactNativeUtil.warmUpResources(reactContext);
+
+                // Picks up a registration retry that was pending when the process last died
+                ReactNativeRegistrationRetryScheduler.getInstance(reactContext).resume(reactContext);
+
+                // Creates the declared channels in one batch instead of one by one on the receive path
+                ReactNativeNotificationChannelRegistry.getInstance(reactContext).sync(reactContext);
+            }
+        });
+    }
+
     public void setIsForeground(boolean isForeground) {
         ReactNativeNotificationHubUtil notificationHubUtil = ReactNativeNotificationHubUtil.getInstance();
         notificationHubUtil.setAppIsForeground(isForeground);
@@ -118,48 +152,57 @@ public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule
         }
 
         ReactContext reactContext = getReactApplicationContext();
-        notificationHubUtil.setConnectionString(reactContext, connectionString);
-        notificationHubUtil.setHubName(reactContext, hubName);
-        notificationHubUtil.setSenderID(reactContext, senderID);
-        notificationHubUtil.setTemplated(reactContext, false);
-        notificationHubUtil.setTags(reactContext, tags);
+        invalidateStaleNotificationHub(reactContext, hubName, connectionString);
+        ReactNativeNotificationHubUtil.ConfigEditor configEditor = notificationHubUtil.edit(reactContext)
+                .setConnectionString(connectionString)
+                .setHubName(hubName)
+                .setSenderID(senderID)
+                .setTemplated(false)
+                .setTags(tags);
 
         if (config.hasKey(KEY_REGISTRATION_CHANNELNAME)) {
             String channelName = config.getString(KEY_REGISTRATION_CHANNELNAME);
-            notificationHubUtil.setChannelName(reactContext, channelName);
+            configEditor.setChannelName(channelName);
         }
 
         if (config.hasKey(KEY_REGISTRATION_CHANNELDESCRIPTION)) {
             String channelDescription = config.getString(KEY_REGISTRATION_CHANNELDESCRIPTION);
-            notificationHubUtil.setChannelDescription(reactContext, channelDescription);
+            configEditor.setChannelDescription(channelDescription);
         }
 
         if (config.hasKey(KEY_REGISTRATION_CHANNELIMPORTANCE)) {
             int channelImportance = config.getInt(KEY_REGISTRATION_CHANNELIMPORTANCE);
-            notificationHubUtil.setChannelImportance(reactContext, channelImportance);
+            configEditor.setChannelImportance(channelImportance);
         }
 
         if (config.hasKey(KEY_REGISTRATION_CHANNELSHOWBADGE)) {
             boolean channelShowBadge = config.getBoolean(KEY_REGISTRATION_CHANNELSHOWBADGE);
-            notificationHubUtil.setChannelShowBadge(reactContext, channelShowBadge);
+            configEditor.setChannelShowBadge(channelShowBadge);
         }
 
         if (config.hasKey(KEY_REGISTRATION_CHANNELENABLELIGHTS)) {
             boolean channelEnableLights = config.getBoolean(KEY_REGISTRATION_CHANNELENABLELIGHTS);
-            notificationHubUtil.setChannelEnableLights(reactContext, channelEnableLights);
+            configEditor.setChannelEnableLights(channelEnableLights);
         }
 
         if (config.hasKey(KEY_REGISTRATION_CHANNELENABLEVIBRATION)) {
             boolean channelEnableVibration = config.getBoolean(KEY_REGISTRATION_CHANNELENABLEVIBRATION);
-            notificationHubUtil.setChannelEnableVibration(reactContext, channelEnableVibration);
+            configEditor.setChannelEnableVibration(channelEnableVibration);
+        }
+
+        if (config.hasKey(KEY_REGISTRATION_TTL)) {
+            long registrationTTL = (long) config.getDouble(KEY_REGISTRATION_TTL);
+            configEditor.setRegistrationTTL(registrationTTL);
         }
 
         String uuid = notificationHubUtil.getUUID(reactContext);
         if (uuid == null) {
             uuid = ReactNativeUtil.genUUID();
-            notificationHubUtil.setUUID(reactContext, uuid);
+            configEditor.setUUID(uuid);
         }
 
+        configEditor.commit();
+
         GoogleApiAvailability apiAvailability = GoogleApiAvailability.getInstance();
         int resultCode = apiAvailability.isGooglePlayServicesAvailable(reactContext);
         if (resultCode != ConnectionResult.SUCCESS) {
@@ -176,9 +219,7 @@ public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule
             return;
         }
 
-        Intent intent = ReactNativeNotificationHubUtil.IntentFactory.createIntent(
-                reactContext, ReactNativeRegistrationIntentService.class);
-        ReactNativeRegistrationIntentService.enqueueWork(reactContext, intent);
+        ReactNativeRegistrationCoordinator.getInstance().requestRegistration(reactContext);
 
         WritableMap res = Arguments.createMap();
         res.putString(KEY_PROMISE_RESOLVE_UUID, uuid);
@@ -228,50 +269,59 @@ public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule
         }
 
         ReactContext reactContext = getReactApplicationContext();
-        notificationHubUtil.setConnectionString(reactContext, connectionString);
-        notificationHubUtil.setHubName(reactContext, hubName);
-        notificationHubUtil.setSenderID(reactContext, senderID);
-        notificationHubUtil.setTemplateName(reactContext, templateName);
-        notificationHubUtil.setTemplate(reactContext, template);
-        notificationHubUtil.setTemplated(reactContext, true);
-        notificationHubUtil.setTags(reactContext, tags);
+        invalidateStaleNotificationHub(reactContext, hubName, connectionString);
+        ReactNativeNotificationHubUtil.ConfigEditor configEditor = notificationHubUtil.edit(reactContext)
+                .setConnectionString(connectionString)
+                .setHubName(hubName)
+                .setSenderID(senderID)
+                .setTemplateName(templateName)
+                .setTemplate(template)
+                .setTemplated(true)
+                .setTags(tags);
 
         if (config.hasKey(KEY_REGISTRATION_CHANNELNAME)) {
             String channelName = config.getString(KEY_REGISTRATION_CHANNELNAME);
-            notificationHubUtil.setChannelName(reactContext, channelName);
+            configEditor.setChannelName(channelName);
         }
 
         if (config.hasKey(KEY_REGISTRATION_CHANNELDESCRIPTION)) {
             String channelDescription = config.getString(KEY_REGISTRATION_CHANNELDESCRIPTION);
-            notificationHubUtil.setChannelDescription(reactContext, channelDescription);
+            configEditor.setChannelDescription(channelDescription);
         }
 
         if (config.hasKey(KEY_REGISTRATION_CHANNELIMPORTANCE)) {
             int channelImportance = config.getInt(KEY_REGISTRATION_CHANNELIMPORTANCE);
-            notificationHubUtil.setChannelImportance(reactContext, channelImportance);
+            configEditor.setChannelImportance(channelImportance);
         }
 
         if (config.hasKey(KEY_REGISTRATION_CHANNELSHOWBADGE)) {
             boolean channelShowBadge = config.getBoolean(KEY_REGISTRATION_CHANNELSHOWBADGE);
-            notificationHubUtil.setChannelShowBadge(reactContext, channelShowBadge);
+            configEditor.setChannelShowBadge(channelShowBadge);
         }
 
         if (config.hasKey(KEY_REGISTRATION_CHANNELENABLELIGHTS)) {
             boolean channelEnableLights = config.getBoolean(KEY_REGISTRATION_CHANNELENABLELIGHTS);
-            notificationHubUtil.setChannelEnableLights(reactContext, channelEnableLights);
+            configEditor.setChannelEnableLights(channelEnableLights);
         }
 
         if (config.hasKey(KEY_REGISTRATION_CHANNELENABLEVIBRATION)) {
             boolean channelEnableVibration = config.getBoolean(KEY_REGISTRATION_CHANNELENABLEVIBRATION);
-            notificationHubUtil.setChannelEnableVibration(reactContext, channelEnableVibration);
+            configEditor.setChannelEnableVibration(channelEnableVibration);
+        }
+
+        if (config.hasKey(KEY_REGISTRATION_TTL)) {
+            long registrationTTL = (long) config.getDouble(KEY_REGISTRATION_TTL);
+            configEditor.setRegistrationTTL(registrationTTL);
         }
 
         String uuid = notificationHubUtil.getUUID(reactContext);
         if (uuid == null) {
             uuid = ReactNativeUtil.genUUID();
-            notificationHubUtil.setUUID(reactContext, uuid);
+            configEditor.setUUID(uuid);
         }
 
+        configEditor.commit();
+
         GoogleApiAvailability apiAvailability = GoogleApiAvailability.getInstance();
         int resultCode = apiAvailability.isGooglePlayServicesAvailable(reactContext);
         if (resultCode != ConnectionResult.SUCCESS) {
@@ -288,9 +338,7 @@ public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule
             return;
         }
 
-        Intent intent = ReactNativeNotificationHubUtil.IntentFactory.createIntent(
-                reactContext, ReactNativeRegistrationIntentService.class);
-        ReactNativeRegistrationIntentService.enqueueWork(reactContext, intent);
+        ReactNativeRegistrationCoordinator.getInstance().requestRegistration(reactContext);
 
         WritableMap res = Arguments.createMap();
         res.putString(KEY_PROMISE_RESOLVE_UUID, uuid);
@@ -299,11 +347,11 @@ public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule
 
     @ReactMethod
     public void unregister(Promise promise) {
-        ReactNativeNotificationHubUtil notificationHubUtil = ReactNativeNotificationHubUtil.getInstance();
+        final ReactNativeNotificationHubUtil notificationHubUtil = ReactNativeNotificationHubUtil.getInstance();
 
-        ReactContext reactContext = getReactApplicationContext();
-        String connectionString = notificationHubUtil.getConnectionString(reactContext);
-        String hubName = notificationHubUtil.getHubName(reactContext);
+        final ReactContext reactContext = getReactApplicationContext();
+        final String connectionString = notificationHubUtil.getConnectionString(reactContext);
+        final String hubName = notificationHubUtil.getHubName(reactContext);
         String registrationId = notificationHubUtil.getRegistrationID(reactContext);
 
         if (connectionString == null || hubName == null || registrationId == null) {
@@ -311,24 +359,25 @@ public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule
             return;
         }
 
-        NotificationHub hub = ReactNativeUtil.createNotificationHub(hubName, connectionString, reactContext);
-        try {
-            hub.unregister();
-            notificationHubUtil.setRegistrationID(reactContext, null);
-            notificationHubUtil.setUUID(reactContext, null);
-            promise.resolve(AZURE_NOTIFICATION_HUB_UNREGISTERED);
-        } catch (Exception e) {
-            promise.reject(ERROR_NOTIFICATION_HUB, e);
-        }
+        ReactNativeUtil.runHubOperation(new ReactNativeHubOperation(METRIC_UNREGISTER, promise) {
+            @Override
+            protected Object execute() throws Exception {
+                NotificationHub hub = ReactNativeUtil.getNotificationHub(hubName, connectionString, reactContext);
+                hub.unregister();
+                notificationHubUtil.setRegistrationID(reactContext, null);
+                notificationHubUtil.setUUID(reactContext, null);
+                return AZURE_NOTIFICATION_HUB_UNREGISTERED;
+            }
+        }, notificationHubUtil.getNetworkTimeout());
     }
 
     @ReactMethod
-    public void unregisterTemplate(String templateName, Promise promise) {
-        ReactNativeNotificationHubUtil notificationHubUtil = ReactNativeNotificationHubUtil.getInstance();
+    public void unregisterTemplate(final String templateName, Promise promise) {
+        final ReactNativeNotificationHubUtil notificationHubUtil = ReactNativeNotificationHubUtil.getInstance();
 
-        ReactContext reactContext = getReactApplicationContext();
-        String connectionString = notificationHubUtil.getConnectionString(reactContext);
-        String hubName = notificationHubUtil.getHubName(reactContext);
+        final ReactContext reactContext = getReactApplicationContext();
+        final String connectionString = notificationHubUtil.getConnectionString(reactContext);
+        final String hubName = notificationHubUtil.getHubName(reactContext);
         String registrationId = notificationHubUtil.getRegistrationID(reactContext);
 
         if (connectionString == null || hubName == null || registrationId == null) {
@@ -336,15 +385,16 @@ public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule
             return;
         }
 
-        NotificationHub hub = ReactNativeUtil.createNotificationHub(hubName, connectionString, reactContext);
-        try {
-            hub.unregisterTemplate(templateName);
-            notificationHubUtil.setRegistrationID(reactContext, null);
-            notificationHubUtil.setUUID(reactContext, null);
-            promise.resolve(AZURE_NOTIFICATION_HUB_UNREGISTERED);
-        } catch (Exception e) {
-            promise.reject(ERROR_NOTIFICATION_HUB, e);
-        }
+        ReactNativeUtil.runHubOperation(new ReactNativeHubOperation(METRIC_UNREGISTER_TEMPLATE, promise) {
+            @Override
+            protected Object execute() throws Exception {
+                NotificationHub hub = ReactNativeUtil.getNotificationHub(hubName, connectionString, reactContext);
+                hub.unregisterTemplate(templateName);
+                notificationHubUtil.setRegistrationID(reactContext, null);
+                notificationHubUtil.setUUID(reactContext, null);
+                return AZURE_NOTIFICATION_HUB_UNREGISTERED;
+            }
+        }, notificationHubUtil.getNetworkTimeout());
     }
 
     @ReactMethod
@@ -364,6 +414,254 @@ public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule
         }
     }
 
+    @ReactMethod
+    public void configure(ReadableMap options) {
+        ReactNativeNotificationHubUtil notificationHubUtil = ReactNativeNotificationHubUtil.getInstance();
+        if (options.hasKey(KEY_OPTIONS_NETWORK_TIMEOUT) && !options.isNull(KEY_OPTIONS_NETWORK_TIMEOUT)) {
+            long networkTimeout = (long) options.getDouble(KEY_OPTIONS_NETWORK_TIMEOUT);
+            notificationHubUtil.setNetworkTimeout(networkTimeout);
+        }
+
+        if (options.hasKey(KEY_OPTIONS_REGISTRATION_DEBOUNCE) && !options.isNull(KEY_OPTIONS_REGISTRATION_DEBOUNCE)) {
+            long registrationDebounce = (long) options.getDouble(KEY_OPTIONS_REGISTRATION_DEBOUNCE);
+            ReactNativeRegistrationCoordinator.getInstance().setDebounceDelay(registrationDebounce);
+        }
+
+        if (options.hasKey(KEY_OPTIONS_LISTENERS_READY_TIMEOUT) && !options.isNull(KEY_OPTIONS_LISTENERS_READY_TIMEOUT)) {
+            long listenersReadyTimeout = (long) options.getDouble(KEY_OPTIONS_LISTENERS_READY_TIMEOUT);
+            mListenerGate.setFallbackTimeout(listenersReadyTimeout);
+        }
+
+        if (options.hasKey(KEY_OPTIONS_JSON_KEYS) && !options.isNull(KEY_OPTIONS_JSON_KEYS)) {
+            ReadableArray jsonKeysArray = options.getArray(KEY_OPTIONS_JSON_KEYS);
+            List<String> jsonKeys = new ArrayList<>(jsonKeysArray.size());
+            for (int i = 0; i < jsonKeysArray.size(); ++i) {
+                jsonKeys.add(jsonKeysArray.getString(i));
+            }
+            ReactNativeUtil.setJsonKeys(jsonKeys);
+        }
+
+        if (options.hasKey(KEY_OPTIONS_EXECUTORS) && !options.isNull(KEY_OPTIONS_EXECUTORS)) {
+            ReadableMap executors = options.getMap(KEY_OPTIONS_EXECUTORS);
+            configureExecutor(executors, EXECUTOR_IO, true);
+            configureExecutor(executors, EXECUTOR_CPU, true);
+            // The dispatcher stays single-threaded to keep events in order
+            configureExecutor(executors, EXECUTOR_DISPATCH, false);
+        }
+
+        if (options.hasKey(KEY_OPTIONS_BATCH_SIZE) && !options.isNull(KEY_OPTIONS_BATCH_SIZE)) {
+            mEventBatcher.setMaxSize(options.getInt(KEY_OPTIONS_BATCH_SIZE));
+        }
+
+        if (options.hasKey(KEY_OPTIONS_BATCH_WINDOW) && !options.isNull(KEY_OPTIONS_BATCH_WINDOW)) {
+            long batchWindow = (long) options.getDouble(KEY_OPTIONS_BATCH_WINDOW);
+            mEventBatcher.setWindow(batchWindow);
+        }
+
+        if (options.hasKey(KEY_OPTIONS_GROUP_WINDOW) && !options.isNull(KEY_OPTIONS_GROUP_WINDOW)) {
+            long groupWindow = (long) options.getDouble(KEY_OPTIONS_GROUP_WINDOW);
+            ReactNativeNotificationGrouper.getInstance().setWindow(groupWindow);
+        }
+
+        if (options.hasKey(KEY_OPTIONS_GROUP_MAX_POSTS_PER_SECOND)
+                && !options.isNull(KEY_OPTIONS_GROUP_MAX_POSTS_PER_SECOND)) {
+            ReactNativeNotificationGrouper.getInstance().setMaxPostsPerSecond(
+                    options.getInt(KEY_OPTIONS_GROUP_MAX_POSTS_PER_SECOND));
+        }
+
+        if (options.hasKey(KEY_OPTIONS_HISTORY_RETENTION) && !options.isNull(KEY_OPTIONS_HISTORY_RETENTION)) {
+            long historyRetention = (long) options.getDouble(KEY_OPTIONS_HISTORY_RETENTION);
+            ReactNativeNotificationHistory.setRetention(mReactContext, historyRetention);
+        }
+
+        if (options.hasKey(KEY_OPTIONS_HISTORY_MAX_SIZE) && !options.isNull(KEY_OPTIONS_HISTORY_MAX_SIZE)) {
+            long historyMaxSize = (long) options.getDouble(KEY_OPTIONS_HISTORY_MAX_SIZE);
+            ReactNativeNotificationHistory.setMaxSize(mReactContext, historyMaxSize);
+        }
+
+        ReactNativeNotificationRateLimiter rateLimiter = ReactNativeNotificationRateLimiter.getInstance();
+        if (options.hasKey(KEY_OPTIONS_NOTIFY_RATE) && !options.isNull(KEY_OPTIONS_NOTIFY_RATE)) {
+            rateLimiter.setRate(options.getDouble(KEY_OPTIONS_NOTIFY_RATE));
+        }
+
+        if (options.hasKey(KEY_OPTIONS_NOTIFY_BURST) && !options.isNull(KEY_OPTIONS_NOTIFY_BURST)) {
+            rateLimiter.setBurst(options.getInt(KEY_OPTIONS_NOTIFY_BURST));
+        }
+
+        if (options.hasKey(KEY_OPTIONS_NOTIFY_QUEUE_SIZE) && !options.isNull(KEY_OPTIONS_NOTIFY_QUEUE_SIZE)) {
+            rateLimiter.setMaxQueueSize(options.getInt(KEY_OPTIONS_NOTIFY_QUEUE_SIZE));
+        }
+    }
+
+    private static void configureExecutor(ReadableMap executors, String name, boolean canResize) {
+        if (!executors.hasKey(name) || executors.isNull(name)) {
+            return;
+        }
+
+        ReadableMap options = executors.getMap(name);
+        ReactNativeExecutor executor = ReactNativeUtil.getExecutor(name);
+        if (canResize && options.hasKey(KEY_OPTIONS_EXECUTOR_THREADS) && !options.isNull(KEY_OPTIONS_EXECUTOR_THREADS)) {
+            executor.setThreads(options.getInt(KEY_OPTIONS_EXECUTOR_THREADS));
+        }
+
+        if (options.hasKey(KEY_OPTIONS_EXECUTOR_QUEUE_SIZE) && !options.isNull(KEY_OPTIONS_EXECUTOR_QUEUE_SIZE)) {
+            executor.setMaxQueueSize(options.getInt(KEY_OPTIONS_EXECUTOR_QUEUE_SIZE));
+        }
+    }
+
+    private static String optString(ReadableMap map, String key) {
+        return map.hasKey(key) && !map.isNull(key) ? map.getString(key) : null;
+    }
+
+    private static int optInt(ReadableMap map, String key, int fallback) {
+        return map.hasKey(key) && !map.isNull(key) ? map.getInt(key) : fallback;
+    }
+
+    private static boolean optBoolean(ReadableMap map, String key, boolean fallback) {
+        return map.hasKey(key) && !map.isNull(key) ? map.getBoolean(key) : fallback;
+    }
+
+    /**
+     * Called by JS once its notification listeners are attached. Notifications that opened the
+     * app are held back until then, or until the listenersReadyTimeout fallback expires.
+     */
+    @ReactMethod
+    public void notifyListenersReady() {
+        mListenerGate.setListenersReady();
+    }
+
+    @ReactMethod
+    public void getMetrics(Promise promise) {
+        promise.resolve(ReactNativeMetrics.toWritableMap());
+    }
+
+    /**
+     * Declares the channels that remote notifications can be posted to by naming one in their
+     * channelId field. The declarations replace any made before and are kept across restarts.
+     * Resolves once the channels have been created or updated in one batch off the JS thread.
+     */
+    @ReactMethod
+    public void setNotificationChannels(ReadableArray channels, final Promise promise) {
+        List<ReactNativeNotificationChannelRegistry.Channel> declared = new ArrayList<>(channels.size());
+        for (int i = 0; i < channels.size(); ++i) {
+            ReadableMap channel = channels.getMap(i);
+            if (!channel.hasKey(KEY_CHANNEL_ID) || channel.isNull(KEY_CHANNEL_ID)) {
+                promise.reject(ERROR_INVALID_ARGUMENTS, ERROR_INVALID_CHANNEL_ID);
+                return;
+            }
+
+            declared.add(new ReactNativeNotificationChannelRegistry.Channel(
+                    channel.getString(KEY_CHANNEL_ID),
+                    optString(channel, KEY_CHANNEL_NAME),
+                    optString(channel, KEY_CHANNEL_DESCRIPTION),
+                    optInt(channel, KEY_CHANNEL_IMPORTANCE, NotificationManager.IMPORTANCE_DEFAULT),
+                    optBoolean(channel, KEY_CHANNEL_SHOW_BADGE, true),
+                    optBoolean(channel, KEY_CHANNEL_ENABLE_LIGHTS, true),
+                    optBoolean(channel, KEY_CHANNEL_ENABLE_VIBRATION, true)));
+        }
+
+        final ReactApplicationContext reactContext = mReactContext;
+        final ReactNativeNotificationChannelRegistry registry = ReactNativeNotificationChannelRegistry.getInstance(
+                reactContext);
+        registry.declare(declared);
+        boolean queued = ReactNativeUtil.runInWorkerThread(new Runnable() {
+            @Override
+            public void run() {
+                registry.sync(reactContext);
+                promise.resolve(null);
+            }
+        });
+        if (!queued) {
+            promise.reject(ERROR_SET_NOTIFICATION_CHANNELS, ERROR_CHANNELS_BUSY);
+        }
+    }
+
+    /**
+     * Resolves with one page of the notification history, oldest first, and the cursor to pass
+     * back for the next page, or a null cursor when there is none. The page is read and
+     * converted on an io thread one notification at a time.
+     */
+    @ReactMethod
+    public void getNotificationHistory(ReadableMap options, final Promise promise) {
+        final ReactNativeNotificationStore.Query query = new ReactNativeNotificationStore.Query();
+        if (options != null) {
+            if (options.hasKey(KEY_HISTORY_SINCE) && !options.isNull(KEY_HISTORY_SINCE)) {
+                query.setSince((long) options.getDouble(KEY_HISTORY_SINCE));
+            }
+
+            if (options.hasKey(KEY_HISTORY_CURSOR) && !options.isNull(KEY_HISTORY_CURSOR)) {
+                query.setCursor((long) options.getDouble(KEY_HISTORY_CURSOR));
+            }
+
+            if (options.hasKey(KEY_HISTORY_LIMIT) && !options.isNull(KEY_HISTORY_LIMIT)) {
+                query.setLimit(options.getInt(KEY_HISTORY_LIMIT));
+            }
+
+            if (options.hasKey(KEY_HISTORY_GROUP) && !options.isNull(KEY_HISTORY_GROUP)) {
+                query.setGroup(options.getString(KEY_HISTORY_GROUP));
+            }
+
+            if (options.hasKey(KEY_HISTORY_TAG) && !options.isNull(KEY_HISTORY_TAG)) {
+                query.setTag(options.getString(KEY_HISTORY_TAG));
+            }
+        }
+
+        final ReactApplicationContext reactContext = mReactContext;
+        boolean queued = ReactNativeUtil.runInIoThread(new Runnable() {
+            @Override
+            public void run() {
+                final WritableArray notifications = Arguments.createArray();
+                long cursor = ReactNativeNotificationHistory.getStore(reactContext).query(
+                        query, new ReactNativeNotificationStore.Visitor() {
+                            @Override
+                            public void visit(String id, long receivedAt, JSONObject payload) {
+                                WritableMap notification = ReactNativeUtil.convertJSONToMap(payload);
+                                ReactNativeUtil.parseJsonFields(payload, notification);
+
+                                WritableMap entry = Arguments.createMap();
+                                if (id != null) {
+                                    entry.putString(KEY_HISTORY_ID, id);
+                                } else {
+                                    entry.putNull(KEY_HISTORY_ID);
+                                }
+                                entry.putDouble(KEY_HISTORY_RECEIVED_AT, receivedAt);
+                                entry.putMap(KEY_HISTORY_NOTIFICATION, notification);
+                                notifications.pushMap(entry);
+                            }
+                        });
+
+                WritableMap page = Arguments.createMap();
+                page.putArray(KEY_HISTORY_NOTIFICATIONS, notifications);
+                if (cursor >= 0) {
+                    page.putDouble(KEY_HISTORY_CURSOR, cursor);
+                } else {
+                    page.putNull(KEY_HISTORY_CURSOR);
+                }
+                promise.resolve(page);
+            }
+        });
+
+        if (!queued) {
+            promise.reject(ERROR_GET_NOTIFICATION_HISTORY, ERROR_HISTORY_BUSY);
+        }
+    }
+
+    @ReactMethod
+    public void clearNotificationHistory(final Promise promise) {
+        final ReactApplicationContext reactContext = mReactContext;
+        boolean queued = ReactNativeUtil.runInIoThread(new Runnable() {
+            @Override
+            public void run() {
+                ReactNativeNotificationHistory.getStore(reactContext).clear();
+                promise.resolve(null);
+            }
+        });
+
+        if (!queued) {
+            promise.reject(ERROR_GET_NOTIFICATION_HISTORY, ERROR_HISTORY_BUSY);
+        }
+    }
+
     @ReactMethod
     public void isNotificationEnabledOnOSLevel(Promise promise) {
         ReactContext reactContext = getReactApplicationContext();
@@ -372,9 +670,15 @@ public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule
         promise.resolve(areNotificationsEnabled);
     }
 
+    @Override
+    public void onCatalystInstanceDestroy() {
+        ReactNativeHubOperation.cancelAll();
+    }
+
     @Override
     public void onHostResume() {
         setIsForeground(true);
+        replayBackgroundNotifications();
 
         Activity activity = getCurrentActivity();
         if (activity != null) {
@@ -386,8 +690,7 @@ public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule
                     bundle.putBoolean(KEY_REMOTE_NOTIFICATION_FOREGROUND, false);
                     bundle.putBoolean(KEY_REMOTE_NOTIFICATION_USER_INTERACTION, true);
                     bundle.putBoolean(KEY_REMOTE_NOTIFICATION_COLDSTART, true);
-                    ReactNativeNotificationsHandler.sendBroadcast(
-                            mReactContext, bundle, NOTIFICATION_DELAY_ON_START);
+                    mListenerGate.deliver(bundle);
                 }
             }
         }
@@ -396,6 +699,9 @@ public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule
     @Override
     public void onHostPause() {
         setIsForeground(false);
+
+        // Hand over anything collected while in the foreground before the app goes away
+        mEventBatcher.flush();
     }
 
     @Override
@@ -408,8 +714,7 @@ public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule
         if (bundle != null) {
             bundle.putBoolean(KEY_REMOTE_NOTIFICATION_FOREGROUND, false);
             bundle.putBoolean(KEY_REMOTE_NOTIFICATION_USER_INTERACTION, true);
-            ReactNativeNotificationsHandler.sendBroadcast(
-                    mReactContext, bundle, NOTIFICATION_DELAY_ON_START);
+            mListenerGate.deliver(bundle);
         }
     }
 
@@ -420,9 +725,143 @@ public class ReactNativeNotificationHubModule extends ReactContextBaseJavaModule
     public class LocalBroadcastReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
+            boolean isNotification = EVENT_REMOTE_NOTIFICATION_RECEIVED.equals(
+                    intent.getStringExtra(KEY_INTENT_EVENT_NAME));
             if (getIsForeground()) {
-                ReactNativeUtil.emitIntent(mReactContext, intent);
+                // Taps are emitted on their own so JS can react to them straight away
+                Bundle extras = intent.getExtras();
+                boolean isTap = extras != null && extras.getBoolean(KEY_REMOTE_NOTIFICATION_USER_INTERACTION, false);
+                if (isNotification && !isTap && mEventBatcher.isEnabled()) {
+                    mEventBatcher.add(extras);
+                } else if (isNotification && !ReactNativeUtil.getJsonKeys().isEmpty()) {
+                    emitIntentInBackground(intent);
+                } else {
+                    ReactNativeUtil.emitIntent(mReactContext, intent);
+                }
+            } else if (isNotification) {
+                bufferBackgroundNotification(intent.getExtras());
+            }
+        }
+    }
+
+    // Parsing JSON fields is kept off the main thread. The dispatcher is a single thread, so
+    // notifications still reach JS in the order they arrived.
+    private void emitIntentInBackground(final Intent intent) {
+        final ReactApplicationContext reactContext = mReactContext;
+        Runnable emit = new Runnable() {
+            @Override
+            public void run() {
+                ReactNativeUtil.emitIntent(reactContext, intent);
+            }
+        };
+        if (ReactNativeUtil.dispatchDelayed(emit, 0) == null) {
+            // The dispatcher is full; the scheduler still gets the notification to JS
+            ReactNativeUtil.runDelayed(emit, 0);
+        }
+    }
+
+    // Keeps a notification JS could not be told about so it can be replayed on resume
+    private void bufferBackgroundNotification(final Bundle bundle) {
+        if (bundle == null) {
+            return;
+        }
+
+        final ReactApplicationContext reactContext = mReactContext;
+        runBufferTask(new Runnable() {
+            @Override
+            public void run() {
+                ReactNativeNotificationBuffer.getInstance(reactContext).append(bundle);
+            }
+        });
+    }
+
+    // Emits everything buffered while in the background as one event once JS is listening
+    private void replayBackgroundNotifications() {
+        final ReactApplicationContext reactContext = mReactContext;
+        final Runnable replay = new Runnable() {
+            @Override
+            public void run() {
+                if (!reactContext.hasActiveCatalystInstance()) {
+                    return;
+                }
+
+                List<JSONObject> payloads = ReactNativeNotificationBuffer.getInstance(reactContext).drain();
+                if (payloads.isEmpty()) {
+                    return;
+                }
+
+                WritableArray notifications = Arguments.createArray();
+                for (JSONObject payload : payloads) {
+                    WritableMap notification = ReactNativeUtil.convertJSONToMap(payload);
+                    ReactNativeUtil.parseJsonFields(payload, notification);
+                    notifications.pushMap(notification);
+                }
+                ReactNativeUtil.emitEvent(reactContext, EVENT_REMOTE_NOTIFICATIONS_RECEIVED_IN_BACKGROUND, notifications);
+            }
+        };
+
+        mListenerGate.runWhenReady(new Runnable() {
+            @Override
+            public void run() {
+                runBufferTask(replay);
+            }
+        });
+    }
+
+    // Queues the task behind earlier buffer tasks and starts a single runner on the I/O pool
+    // if none is going. When the pool is full the runner works through the queue on this
+    // thread, since dropping the task would lose the notification.
+    private void runBufferTask(Runnable task) {
+        synchronized (mBufferTasks) {
+            mBufferTasks.add(task);
+            if (mBufferTaskRunning) {
+                return;
+            }
+            mBufferTaskRunning = true;
+        }
+
+        Runnable runner = new Runnable() {
+            @Override
+            public void run() {
+                runBufferTasks();
+            }
+        };
+        if (!ReactNativeUtil.runInIoThread(runner)) {
+            runner.run();
+        }
+    }
+
+    private void runBufferTasks() {
+        while (true) {
+            Runnable task;
+            synchronized (mBufferTasks) {
+                task = mBufferTasks.poll();
+                if (task == null) {
+                    mBufferTaskRunning = false;
+                    return;
+                }
             }
+
+            try {
+                task.run();
+            } catch (Exception e) {
+                Log.e(ReactNativeNotificationBuffer.TAG, ERROR_NOTIFICATION_BUFFER, e);
+            }
+        }
+    }
+
+    // Drops the cached client for the previous hub when register() moves to another hub or
+    // connection string, so stale connection and SAS state is not kept around.
+    private void invalidateStaleNotificationHub(ReactContext reactContext, String hubName, String connectionString) {
+        ReactNativeNotificationHubUtil notificationHubUtil = ReactNativeNotificationHubUtil.getInstance();
+        String previousHubName = notificationHubUtil.getHubName(reactContext);
+        String previousConnectionString = notificationHubUtil.getConnectionString(reactContext);
+        if (previousHubName == null || previousConnectionString == null) {
+            return;
+        }
+
+        if (!previousHubName.equals(hubName) || !previousConnectionString.equals(connectionString)) {
+            ReactNativeUtil.invalidateNotificationHub(previousHubName, previousConnectionString);
         }
     }
 
@@ -13,7 +13,10 @@ import android.util.Log;
 import androidx.core.app.NotificationCompat;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -34,6 +37,13 @@ public class ReactNativeNotificationHubUtil {
 
     private boolean mIsForeground;
 
+    // Runtime options set through configure(). They are not persisted.
+    private volatile long mNetworkTimeout = DEFAULT_NETWORK_TIMEOUT_MS;
+
+    // Immutable view of the persisted registration config. Loaded once from SharedPreferences
+    // and replaced as a whole on every write so readers never see a partially applied update.
+    private volatile RegistrationConfig mConfig;
+
     public static class IntentFactory {
         public static Intent createIntent() {
             return new Intent();
@@ -56,7 +66,7 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public String getConnectionString(Context context) {
-        return getPref(context, KEY_FOR_PREFS_CONNECTIONSTRING);
+        return getRegistrationConfig(context).getConnectionString();
     }
 
     public void setConnectionString(Context context, String connectionString) {
@@ -64,7 +74,7 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public String getHubName(Context context) {
-        return getPref(context, KEY_FOR_PREFS_HUBNAME);
+        return getRegistrationConfig(context).getHubName();
     }
 
     public void setHubName(Context context, String hubName) {
@@ -72,7 +82,7 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public String getRegistrationID(Context context) {
-        return getPref(context, KEY_FOR_PREFS_REGISTRATIONID);
+        return getRegistrationConfig(context).getRegistrationID();
     }
 
     public void setRegistrationID(Context context, String registrationID) {
@@ -80,7 +90,7 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public String getFCMToken(Context context) {
-        return getPref(context, KEY_FOR_PREFS_FCMTOKEN);
+        return getRegistrationConfig(context).getFCMToken();
     }
 
     public void setFCMToken(Context context, String token) {
@@ -88,8 +98,7 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public String[] getTags(Context context) {
-        Set<String> set = getPrefSet(context, KEY_FOR_PREFS_TAGS);
-        return set != null ? set.toArray(new String[set.size()]) : null;
+        return getRegistrationConfig(context).getTags();
     }
 
     public void setTags(Context context, String[] tags) {
@@ -98,7 +107,7 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public String getSenderID(Context context) {
-        return getPref(context, KEY_FOR_PREFS_SENDERID);
+        return getRegistrationConfig(context).getSenderID();
     }
 
     public void setSenderID(Context context, String senderID) {
@@ -106,11 +115,11 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public String getChannelName(Context context) {
-        return getPref(context, KEY_FOR_PREFS_CHANNELNAME);
+        return getRegistrationConfig(context).getChannelName();
     }
 
     public String getChannelDescription(Context context) {
-        return getPref(context, KEY_FOR_PREFS_CHANNELDESCRIPTION);
+        return getRegistrationConfig(context).getChannelDescription();
     }
 
     public void setChannelName(Context context, String channelName) {
@@ -122,15 +131,15 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public boolean hasChannelName(Context context) {
-        return hasKey(context, KEY_FOR_PREFS_CHANNELNAME);
+        return getRegistrationConfig(context).hasChannelName();
     }
 
     public boolean hasChannelDescription(Context context) {
-        return hasKey(context, KEY_FOR_PREFS_CHANNELDESCRIPTION);
+        return getRegistrationConfig(context).hasChannelDescription();
     }
 
     public int getChannelImportance(Context context) {
-        return getPrefInt(context, KEY_FOR_PREFS_CHANNELIMPORTANCE);
+        return getRegistrationConfig(context).getChannelImportance();
     }
 
     public void setChannelImportance(Context context, int channelImportance) {
@@ -138,11 +147,11 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public boolean hasChannelImportance(Context context) {
-        return hasKey(context, KEY_FOR_PREFS_CHANNELIMPORTANCE);
+        return getRegistrationConfig(context).hasChannelImportance();
     }
 
     public boolean getChannelShowBadge(Context context) {
-        return getPrefBoolean(context, KEY_FOR_PREFS_CHANNELSHOWBADGE);
+        return getRegistrationConfig(context).getChannelShowBadge();
     }
 
     public void setChannelShowBadge(Context context, boolean channelShowBadge) {
@@ -150,11 +159,11 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public boolean hasChannelShowBadge(Context context) {
-        return hasKey(context, KEY_FOR_PREFS_CHANNELSHOWBADGE);
+        return getRegistrationConfig(context).hasChannelShowBadge();
     }
 
     public boolean getChannelEnableLights(Context context) {
-        return getPrefBoolean(context, KEY_FOR_PREFS_CHANNELENABLELIGHTS);
+        return getRegistrationConfig(context).getChannelEnableLights();
     }
 
     public void setChannelEnableLights(Context context, boolean channelEnableLights) {
@@ -162,11 +171,11 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public boolean hasChannelEnableLights(Context context) {
-        return hasKey(context, KEY_FOR_PREFS_CHANNELENABLELIGHTS);
+        return getRegistrationConfig(context).hasChannelEnableLights();
     }
 
     public boolean getChannelEnableVibration(Context context) {
-        return getPrefBoolean(context, KEY_FOR_PREFS_CHANNELENABLEVIBRATION);
+        return getRegistrationConfig(context).getChannelEnableVibration();
     }
 
     public void setChannelEnableVibration(Context context, boolean channelEnableVibration) {
@@ -174,11 +183,11 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public boolean hasChannelEnableVibration(Context context) {
-        return hasKey(context, KEY_FOR_PREFS_CHANNELENABLEVIBRATION);
+        return getRegistrationConfig(context).hasChannelEnableVibration();
     }
 
     public String getTemplateName(Context context) {
-        return getPref(context, KEY_FOR_PREFS_TEMPLATENAME);
+        return getRegistrationConfig(context).getTemplateName();
     }
 
     public void setTemplateName(Context context, String templateName) {
@@ -186,7 +195,7 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public String getTemplate(Context context) {
-        return getPref(context, KEY_FOR_PREFS_TEMPLATE);
+        return getRegistrationConfig(context).getTemplate();
     }
 
     public void setTemplate(Context context, String template) {
@@ -194,7 +203,7 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public boolean isTemplated(Context context) {
-        return getPrefBoolean(context, KEY_FOR_PREFS_ISTEMPLATE);
+        return getRegistrationConfig(context).isTemplated();
     }
 
     public void setTemplated(Context context, boolean templated) {
@@ -202,7 +211,19 @@ public class ReactNativeNotificationHubUtil {
     }
 
     public String getUUID(Context context) {
-        return getPref(context, KEY_FOR_PREFS_UUID);
+        return getRegistrationConfig(context).getUUID();
+    }
+
+    public String getRegistrationFingerprint(Context context) {
+        return getRegistrationConfig(context).getRegistrationFingerprint();
+    }
+
+    public long getRegisteredAt(Context context) {
+        return getRegistrationConfig(context).getRegisteredAt();
+    }
+
+    public long getRegistrationTTL(Context context) {
+        return getRegistrationConfig(context).getRegistrationTTL();
     }
 
     public void setUUID(Context context, String uuid) {
@@ -217,61 +238,538 @@ public class ReactNativeNotificationHubUtil {
         return mIsForeground;
     }
 
-    private String getPref(Context context, String key) {
-        SharedPreferences prefs =
-                context.getSharedPreferences(SHARED_PREFS_NAME, Context.MODE_PRIVATE);
-        return prefs.getString(key, null);
+    public long getNetworkTimeout() {
+        return mNetworkTimeout;
     }
 
-    private int getPrefInt(Context context, String key) {
-        SharedPreferences prefs =
-                context.getSharedPreferences(SHARED_PREFS_NAME, Context.MODE_PRIVATE);
-        return prefs.getInt(key, 0);
+    public void setNetworkTimeout(long networkTimeout) {
+        mNetworkTimeout = networkTimeout;
     }
 
-    private boolean getPrefBoolean(Context context, String key) {
-        SharedPreferences prefs =
-                context.getSharedPreferences(SHARED_PREFS_NAME, Context.MODE_PRIVATE);
-        return prefs.getBoolean(key, false);
+    /**
+     * Returns the current registration config snapshot, loading it from SharedPreferences on
+     * first use. The returned object is immutable; read several fields from the same snapshot
+     * when they need to be consistent with each other.
+     */
+    public RegistrationConfig getRegistrationConfig(Context context) {
+        RegistrationConfig config = mConfig;
+        if (config == null) {
+            synchronized (this) {
+                config = mConfig;
+                if (config == null) {
+                    config = RegistrationConfig.load(getSharedPreferences(context));
+                    mConfig = config;
+                }
+            }
+        }
+
+        return config;
+    }
+
+    /**
+     * Starts a transaction over the registration config. Nothing is written until
+     * {@link ConfigEditor#commit()}, which flushes every staged value with a single
+     * SharedPreferences editor commit.
+     */
+    public ConfigEditor edit(Context context) {
+        return new ConfigEditor(context);
     }
 
-    private Set<String> getPrefSet(Context context, String key) {
-        SharedPreferences prefs =
-                context.getSharedPreferences(SHARED_PREFS_NAME, Context.MODE_PRIVATE);
-        return prefs.getStringSet(key, null);
+    private SharedPreferences getSharedPreferences(Context context) {
+        return context.getSharedPreferences(SHARED_PREFS_NAME, Context.MODE_PRIVATE);
     }
 
-    private void setPref(Context context, String key, String value) {
-        SharedPreferences.Editor editor =
-                context.getSharedPreferences(SHARED_PREFS_NAME, Context.MODE_PRIVATE).edit();
+    private synchronized void setPref(Context context, String key, String value) {
+        SharedPreferences.Editor editor = getSharedPreferences(context).edit();
         editor.putString(key, value);
         editor.apply();
+        mConfig = getRegistrationConfig(context).buildUpon().put(key, value).build();
     }
 
-    private void setPrefInt(Context context, String key, int value) {
-        SharedPreferences.Editor editor =
-                context.getSharedPreferences(SHARED_PREFS_NAME, Context.MODE_PRIVATE).edit();
+    private synchronized void setPrefInt(Context context, String key, int value) {
+        SharedPreferences.Editor editor = getSharedPreferences(context).edit();
         editor.putInt(key, value);
         editor.apply();
+        mConfig = getRegistrationConfig(context).buildUpon().put(key, value).build();
     }
 
-    private void setPrefBoolean(Context context, String key, boolean value) {
-        SharedPreferences.Editor editor =
-                context.getSharedPreferences(SHARED_PREFS_NAME, Context.MODE_PRIVATE).edit();
+    private synchronized void setPrefBoolean(Context context, String key, boolean value) {
+        SharedPreferences.Editor editor = getSharedPreferences(context).edit();
         editor.putBoolean(key, value);
         editor.apply();
+        mConfig = getRegistrationConfig(context).buildUpon().put(key, value).build();
     }
 
-    private void setPrefSet(Context context, String key, Set<String> value) {
-        SharedPreferences.Editor editor =
-                context.getSharedPreferences(SHARED_PREFS_NAME, Context.MODE_PRIVATE).edit();
+    private synchronized void setPrefSet(Context context, String key, Set<String> value) {
+        SharedPreferences.Editor editor = getSharedPreferences(context).edit();
         editor.putStringSet(key, value);
         editor.apply();
+        mConfig = getRegistrationConfig(context).buildUpon().put(key, value).build();
+    }
+
+    private static void putValue(SharedPreferences.Editor editor, String key, Object value) {
+        if (value instanceof Integer) {
+            editor.putInt(key, (Integer) value);
+        } else if (value instanceof Long) {
+            editor.putLong(key, (Long) value);
+        } else if (value instanceof Boolean) {
+            editor.putBoolean(key, (Boolean) value);
+        } else if (value instanceof Set) {
+            @SuppressWarnings("unchecked")
+            Set<String> set = (Set<String>) value;
+            editor.putStringSet(key, set);
+        } else if (KEY_FOR_PREFS_TAGS.equals(key)) {
+            editor.putStringSet(key, null);
+        } else {
+            editor.putString(key, (String) value);
+        }
+    }
+
+    /**
+     * Stages registration config changes and writes them all at once, so a crash can never
+     * leave a half-written config behind.
+     */
+    public class ConfigEditor {
+        private final Context mContext;
+        private final Map<String, Object> mChanges = new LinkedHashMap<>();
+
+        ConfigEditor(Context context) {
+            this.mContext = context;
+        }
+
+        public ConfigEditor setConnectionString(String connectionString) {
+            mChanges.put(KEY_FOR_PREFS_CONNECTIONSTRING, connectionString);
+            return this;
+        }
+
+        public ConfigEditor setHubName(String hubName) {
+            mChanges.put(KEY_FOR_PREFS_HUBNAME, hubName);
+            return this;
+        }
+
+        public ConfigEditor setRegistrationID(String registrationID) {
+            mChanges.put(KEY_FOR_PREFS_REGISTRATIONID, registrationID);
+            return this;
+        }
+
+        public ConfigEditor setFCMToken(String token) {
+            mChanges.put(KEY_FOR_PREFS_FCMTOKEN, token);
+            return this;
+        }
+
+        public ConfigEditor setTags(String[] tags) {
+            Set<String> set = tags != null ? new HashSet<>(Arrays.asList(tags)) : null;
+            mChanges.put(KEY_FOR_PREFS_TAGS, set);
+            return this;
+        }
+
+        public ConfigEditor setSenderID(String senderID) {
+            mChanges.put(KEY_FOR_PREFS_SENDERID, senderID);
+            return this;
+        }
+
+        public ConfigEditor setChannelName(String channelName) {
+            mChanges.put(KEY_FOR_PREFS_CHANNELNAME, channelName);
+            return this;
+        }
+
+        public ConfigEditor setChannelDescription(String channelDesc) {
+            mChanges.put(KEY_FOR_PREFS_CHANNELDESCRIPTION, channelDesc);
+            return this;
+        }
+
+        public ConfigEditor setChannelImportance(int channelImportance) {
+            mChanges.put(KEY_FOR_PREFS_CHANNELIMPORTANCE, channelImportance);
+            return this;
+        }
+
+        public ConfigEditor setChannelShowBadge(boolean channelShowBadge) {
+            mChanges.put(KEY_FOR_PREFS_CHANNELSHOWBADGE, channelShowBadge);
+            return this;
+        }
+
+        public ConfigEditor setChannelEnableLights(boolean channelEnableLights) {
+            mChanges.put(KEY_FOR_PREFS_CHANNELENABLELIGHTS, channelEnableLights);
+            return this;
+        }
+
+        public ConfigEditor setChannelEnableVibration(boolean channelEnableVibration) {
+            mChanges.put(KEY_FOR_PREFS_CHANNELENABLEVIBRATION, channelEnableVibration);
+            return this;
+        }
+
+        public ConfigEditor setTemplateName(String templateName) {
+            mChanges.put(KEY_FOR_PREFS_TEMPLATENAME, templateName);
+            return this;
+        }
+
+        public ConfigEditor setTemplate(String template) {
+            mChanges.put(KEY_FOR_PREFS_TEMPLATE, template);
+            return this;
+        }
+
+        public ConfigEditor setTemplated(boolean templated) {
+            mChanges.put(KEY_FOR_PREFS_ISTEMPLATE, templated);
+            return this;
+        }
+
+        public ConfigEditor setUUID(String uuid) {
+            mChanges.put(KEY_FOR_PREFS_UUID, uuid);
+            return this;
+        }
+
+        public ConfigEditor setRegistrationFingerprint(String fingerprint) {
+            mChanges.put(KEY_FOR_PREFS_REGISTRATION_FINGERPRINT, fingerprint);
+            return this;
+        }
+
+        public ConfigEditor setRegisteredAt(long registeredAt) {
+            mChanges.put(KEY_FOR_PREFS_REGISTERED_AT, registeredAt);
+            return this;
+        }
+
+        public ConfigEditor setRegistrationTTL(long registrationTTL) {
+            mChanges.put(KEY_FOR_PREFS_REGISTRATION_TTL, registrationTTL);
+            return this;
+        }
+
+        /**
+         * Writes all staged values in one editor commit and publishes the matching config
+         * snapshot. Uses commit() rather than apply() so nothing is left on the QueuedWork
+         * thread for Activity pause to wait on; callers are already off the UI thread.
+         *
+         * @return true if the new values were successfully written to persistent storage.
+         */
+        public boolean commit() {
+            synchronized (ReactNativeNotificationHubUtil.this) {
+                SharedPreferences.Editor editor = getSharedPreferences(mContext).edit();
+                RegistrationConfig.Builder builder = getRegistrationConfig(mContext).buildUpon();
+                for (Map.Entry<String, Object> change : mChanges.entrySet()) {
+                    putValue(editor, change.getKey(), change.getValue());
+                    builder.put(change.getKey(), change.getValue());
+                }
+
+                boolean committed = editor.commit();
+                mConfig = builder.build();
+                mChanges.clear();
+                return committed;
+            }
+        }
     }
 
-    private boolean hasKey(Context context, String key) {
-        SharedPreferences prefs =
-                context.getSharedPreferences(SHARED_PREFS_NAME, Context.MODE_PRIVATE);
-        return prefs.contains(key);
+    /**
+     * Immutable, typed snapshot of everything this module persists in SharedPreferences.
+     */
+    public static final class RegistrationConfig {
+        private final String mConnectionString;
+        private final String mHubName;
+        private final String mRegistrationID;
+        private final String mFCMToken;
+        private final Set<String> mTags;
+        private final String mSenderID;
+        private final String mChannelName;
+        private final String mChannelDescription;
+        private final int mChannelImportance;
+        private final boolean mHasChannelImportance;
+        private final boolean mChannelShowBadge;
+        private final boolean mHasChannelShowBadge;
+        private final boolean mChannelEnableLights;
+        private final boolean mHasChannelEnableLights;
+        private final boolean mChannelEnableVibration;
+        private final boolean mHasChannelEnableVibration;
+        private final String mTemplateName;
+        private final String mTemplate;
+        private final boolean mIsTemplated;
+        private final String mUUID;
+        private final String mRegistrationFingerprint;
+        private final long mRegisteredAt;
+        private final long mRegistrationTTL;
+
+        private RegistrationConfig(Builder builder) {
+            mConnectionString = builder.mConnectionString;
+            mHubName = builder.mHubName;
+            mRegistrationID = builder.mRegistrationID;
+            mFCMToken = builder.mFCMToken;
+            mTags = builder.mTags != null ?
+                    Collections.unmodifiableSet(new HashSet<>(builder.mTags)) : null;
+            mSenderID = builder.mSenderID;
+            mChannelName = builder.mChannelName;
+            mChannelDescription = builder.mChannelDescription;
+            mChannelImportance = builder.mChannelImportance;
+            mHasChannelImportance = builder.mHasChannelImportance;
+            mChannelShowBadge = builder.mChannelShowBadge;
+            mHasChannelShowBadge = builder.mHasChannelShowBadge;
+            mChannelEnableLights = builder.mChannelEnableLights;
+            mHasChannelEnableLights = builder.mHasChannelEnableLights;
+            mChannelEnableVibration = builder.mChannelEnableVibration;
+            mHasChannelEnableVibration = builder.mHasChannelEnableVibration;
+            mTemplateName = builder.mTemplateName;
+            mTemplate = builder.mTemplate;
+            mIsTemplated = builder.mIsTemplated;
+            mUUID = builder.mUUID;
+            mRegistrationFingerprint = builder.mRegistrationFingerprint;
+            mRegisteredAt = builder.mRegisteredAt;
+            mRegistrationTTL = builder.mRegistrationTTL;
+        }
+
+        static RegistrationConfig load(SharedPreferences prefs) {
+            Builder builder = new Builder();
+            builder.mConnectionString = prefs.getString(KEY_FOR_PREFS_CONNECTIONSTRING, null);
+            builder.mHubName = prefs.getString(KEY_FOR_PREFS_HUBNAME, null);
+            builder.mRegistrationID = prefs.getString(KEY_FOR_PREFS_REGISTRATIONID, null);
+            builder.mFCMToken = prefs.getString(KEY_FOR_PREFS_FCMTOKEN, null);
+            builder.mTags = prefs.getStringSet(KEY_FOR_PREFS_TAGS, null);
+            builder.mSenderID = prefs.getString(KEY_FOR_PREFS_SENDERID, null);
+            builder.mChannelName = prefs.getString(KEY_FOR_PREFS_CHANNELNAME, null);
+            builder.mChannelDescription = prefs.getString(KEY_FOR_PREFS_CHANNELDESCRIPTION, null);
+            builder.mChannelImportance = prefs.getInt(KEY_FOR_PREFS_CHANNELIMPORTANCE, 0);
+            builder.mHasChannelImportance = prefs.contains(KEY_FOR_PREFS_CHANNELIMPORTANCE);
+            builder.mChannelShowBadge = prefs.getBoolean(KEY_FOR_PREFS_CHANNELSHOWBADGE, false);
+            builder.mHasChannelShowBadge = prefs.contains(KEY_FOR_PREFS_CHANNELSHOWBADGE);
+            builder.mChannelEnableLights = prefs.getBoolean(KEY_FOR_PREFS_CHANNELENABLELIGHTS, false);
+            builder.mHasChannelEnableLights = prefs.contains(KEY_FOR_PREFS_CHANNELENABLELIGHTS);
+            builder.mChannelEnableVibration = prefs.getBoolean(KEY_FOR_PREFS_CHANNELENABLEVIBRATION, false);
+            builder.mHasChannelEnableVibration = prefs.contains(KEY_FOR_PREFS_CHANNELENABLEVIBRATION);
+            builder.mTemplateName = prefs.getString(KEY_FOR_PREFS_TEMPLATENAME, null);
+            builder.mTemplate = prefs.getString(KEY_FOR_PREFS_TEMPLATE, null);
+            builder.mIsTemplated = prefs.getBoolean(KEY_FOR_PREFS_ISTEMPLATE, false);
+            builder.mUUID = prefs.getString(KEY_FOR_PREFS_UUID, null);
+            builder.mRegistrationFingerprint = prefs.getString(KEY_FOR_PREFS_REGISTRATION_FINGERPRINT, null);
+            builder.mRegisteredAt = prefs.getLong(KEY_FOR_PREFS_REGISTERED_AT, 0);
+            builder.mRegistrationTTL = prefs.getLong(KEY_FOR_PREFS_REGISTRATION_TTL, 0);
+            return builder.build();
+        }
+
+        Builder buildUpon() {
+            Builder builder = new Builder();
+            builder.mConnectionString = mConnectionString;
+            builder.mHubName = mHubName;
+            builder.mRegistrationID = mRegistrationID;
+            builder.mFCMToken = mFCMToken;
+            builder.mTags = mTags;
+            builder.mSenderID = mSenderID;
+            builder.mChannelName = mChannelName;
+            builder.mChannelDescription = mChannelDescription;
+            builder.mChannelImportance = mChannelImportance;
+            builder.mHasChannelImportance = mHasChannelImportance;
+            builder.mChannelShowBadge = mChannelShowBadge;
+            builder.mHasChannelShowBadge = mHasChannelShowBadge;
+            builder.mChannelEnableLights = mChannelEnableLights;
+            builder.mHasChannelEnableLights = mHasChannelEnableLights;
+            builder.mChannelEnableVibration = mChannelEnableVibration;
+            builder.mHasChannelEnableVibration = mHasChannelEnableVibration;
+            builder.mTemplateName = mTemplateName;
+            builder.mTemplate = mTemplate;
+            builder.mIsTemplated = mIsTemplated;
+            builder.mUUID = mUUID;
+            builder.mRegistrationFingerprint = mRegistrationFingerprint;
+            builder.mRegisteredAt = mRegisteredAt;
+            builder.mRegistrationTTL = mRegistrationTTL;
+            return builder;
+        }
+
+        public String getConnectionString() {
+            return mConnectionString;
+        }
+
+        public String getHubName() {
+            return mHubName;
+        }
+
+        public String getRegistrationID() {
+            return mRegistrationID;
+        }
+
+        public String getFCMToken() {
+            return mFCMToken;
+        }
+
+        public String[] getTags() {
+            return mTags != null ? mTags.toArray(new String[mTags.size()]) : null;
+        }
+
+        public String getSenderID() {
+            return mSenderID;
+        }
+
+        public String getChannelName() {
+            return mChannelName;
+        }
+
+        public boolean hasChannelName() {
+            return mChannelName != null;
+        }
+
+        public String getChannelDescription() {
+            return mChannelDescription;
+        }
+
+        public boolean hasChannelDescription() {
+            return mChannelDescription != null;
+        }
+
+        public int getChannelImportance() {
+            return mChannelImportance;
+        }
+
+        public boolean hasChannelImportance() {
+            return mHasChannelImportance;
+        }
+
+        public boolean getChannelShowBadge() {
+            return mChannelShowBadge;
+        }
+
+        public boolean hasChannelShowBadge() {
+            return mHasChannelShowBadge;
+        }
+
+        public boolean getChannelEnableLights() {
+            return mChannelEnableLights;
+        }
+
+        public boolean hasChannelEnableLights() {
+            return mHasChannelEnableLights;
+        }
+
+        public boolean getChannelEnableVibration() {
+            return mChannelEnableVibration;
+        }
+
+        public boolean hasChannelEnableVibration() {
+            return mHasChannelEnableVibration;
+        }
+
+        public String getTemplateName() {
+            return mTemplateName;
+        }
+
+        public String getTemplate() {
+            return mTemplate;
+        }
+
+        public boolean isTemplated() {
+            return mIsTemplated;
+        }
+
+        public String getUUID() {
+            return mUUID;
+        }
+
+        public String getRegistrationFingerprint() {
+            return mRegistrationFingerprint;
+        }
+
+        public long getRegisteredAt() {
+            return mRegisteredAt;
+        }
+
+        public long getRegistrationTTL() {
+            return mRegistrationTTL;
+        }
+
+        static final class Builder {
+            private String mConnectionString;
+            private String mHubName;
+            private String mRegistrationID;
+            private String mFCMToken;
+            private Set<String> mTags;
+            private String mSenderID;
+            private String mChannelName;
+            private String mChannelDescription;
+            private int mChannelImportance;
+            private boolean mHasChannelImportance;
+            private boolean mChannelShowBadge;
+            private boolean mHasChannelShowBadge;
+            private boolean mChannelEnableLights;
+            private boolean mHasChannelEnableLights;
+            private boolean mChannelEnableVibration;
+            private boolean mHasChannelEnableVibration;
+            private String mTemplateName;
+            private String mTemplate;
+            private boolean mIsTemplated;
+            private String mUUID;
+            private String mRegistrationFingerprint;
+            private long mRegisteredAt;
+            private long mRegistrationTTL;
+
+            /**
+             * Applies a value written under one of the KEY_FOR_PREFS_* keys.
+             */
+            @SuppressWarnings("unchecked")
+            Builder put(String key, Object value) {
+                switch (key) {
+                    case KEY_FOR_PREFS_CONNECTIONSTRING:
+                        mConnectionString = (String) value;
+                        break;
+                    case KEY_FOR_PREFS_HUBNAME:
+                        mHubName = (String) value;
+                        break;
+                    case KEY_FOR_PREFS_REGISTRATIONID:
+                        mRegistrationID = (String) value;
+                        break;
+                    case KEY_FOR_PREFS_FCMTOKEN:
+                        mFCMToken = (String) value;
+                        break;
+                    case KEY_FOR_PREFS_TAGS:
+                        mTags = (Set<String>) value;
+                        break;
+                    case KEY_FOR_PREFS_SENDERID:
+                        mSenderID = (String) value;
+                        break;
+                    case KEY_FOR_PREFS_CHANNELNAME:
+                        mChannelName = (String) value;
+                        break;
+                    case KEY_FOR_PREFS_CHANNELDESCRIPTION:
+                        mChannelDescription = (String) value;
+                        break;
+                    case KEY_FOR_PREFS_CHANNELIMPORTANCE:
+                        mChannelImportance = (Integer) value;
+                        mHasChannelImportance = true;
+                        break;
+                    case KEY_FOR_PREFS_CHANNELSHOWBADGE:
+                        mChannelShowBadge = (Boolean) value;
+                        mHasChannelShowBadge = true;
+                        break;
+                    case KEY_FOR_PREFS_CHANNELENABLELIGHTS:
+                        mChannelEnableLights = (Boolean) value;
+                        mHasChannelEnableLights = true;
+                        break;
+                    case KEY_FOR_PREFS_CHANNELENABLEVIBRATION:
+                        mChannelEnableVibration = (Boolean) value;
+                        mHasChannelEnableVibration = true;
+                        break;
+                    case KEY_FOR_PREFS_TEMPLATENAME:
+                        mTemplateName = (String) value;
+                        break;
+                    case KEY_FOR_PREFS_TEMPLATE:
+                        mTemplate = (String) value;
+                        break;
+                    case KEY_FOR_PREFS_ISTEMPLATE:
+                        mIsTemplated = (Boolean) value;
+                        break;
+                    case KEY_FOR_PREFS_UUID:
+                        mUUID = (String) value;
+                        break;
+                    case KEY_FOR_PREFS_REGISTRATION_FINGERPRINT:
+                        mRegistrationFingerprint = (String) value;
+                        break;
+                    case KEY_FOR_PREFS_REGISTERED_AT:
+                        mRegisteredAt = (Long) value;
+                        break;
+                    case KEY_FOR_PREFS_REGISTRATION_TTL:
+                        mRegistrationTTL = (Long) value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException(key);
+                }
+
+                return this;
+            }
+
+            RegistrationConfig build() {
+                return new RegistrationConfig(this);
+            }
+        }
     }
 }
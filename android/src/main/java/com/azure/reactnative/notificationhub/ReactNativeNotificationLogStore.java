@@ -0,0 +1,504 @@
+package com.azure.reactnative.notificationhub;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * A notification store backed by an append-only file with one JSON object per line.
+ *
+ * Only a small index is kept in memory: the position of every line in the file along with its
+ * message ID, time, group and tag. Entries are appended in time order, so a query finds its
+ * first match with a binary search over all entries, or over the entries of one group or tag,
+ * and then reads just the lines it returns from the file.
+ *
+ * Notifications older than the retention are no longer returned. The file is rewritten without
+ * them once the oldest has expired, at most once per compaction interval, and whenever the file
+ * grows past the size limit. Compaction keeps the newest notifications that fit in three
+ * quarters of the limit, so it does not run again on the next append.
+ */
+public class ReactNativeNotificationLogStore implements ReactNativeNotificationStore {
+    public static final String TAG = "ReactNativeNotificationLogStore";
+
+    private static final String KEY_ENTRY_SEQUENCE = "seq";
+    private static final String KEY_ENTRY_ID = "id";
+    private static final String KEY_ENTRY_RECEIVED_AT = "receivedAt";
+    private static final String KEY_ENTRY_GROUP = "group";
+    private static final String KEY_ENTRY_TAG = "tag";
+    private static final String KEY_ENTRY_PAYLOAD = "payload";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private final File mFile;
+    private volatile long mRetention;
+    private volatile long mMaxSize;
+
+    // Loaded from the file on first use. mEntries holds every entry in file order, which is also
+    // time order, and the maps index the same entries by message ID, group and tag.
+    private List<Entry> mEntries;
+    private Map<String, Entry> mIds;
+    private Map<String, List<Entry>> mGroups;
+    private Map<String, List<Entry>> mTags;
+    private long mSize;
+    private long mNextSequence;
+    private long mLastReceivedAt;
+    private long mCompactedAt;
+
+    /**
+     * @param retention how long notifications are kept, in milliseconds.
+     * @param maxSize roughly how large the file may grow, in bytes.
+     */
+    public ReactNativeNotificationLogStore(File file, long retention, long maxSize) {
+        mFile = file;
+        setRetention(retention);
+        setMaxSize(maxSize);
+    }
+
+    public long getRetention() {
+        return mRetention;
+    }
+
+    /**
+     * Zero turns the history off; nothing new is recorded and nothing already recorded is
+     * returned.
+     */
+    @Override
+    public void setRetention(long retention) {
+        mRetention = Math.max(0, retention);
+    }
+
+    public long getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Zero turns the history off, like a zero retention.
+     */
+    @Override
+    public void setMaxSize(long maxSize) {
+        mMaxSize = Math.max(0, maxSize);
+    }
+
+    public synchronized int size() {
+        load();
+        return mEntries.size();
+    }
+
+    public synchronized long getFileSize() {
+        load();
+        return mSize;
+    }
+
+    @Override
+    public synchronized boolean append(Bundle bundle, long receivedAt) {
+        if (mRetention == 0 || mMaxSize == 0) {
+            return false;
+        }
+
+        load();
+
+        String id = bundle.getString(KEY_REMOTE_NOTIFICATION_ID);
+        if (id != null && mIds.containsKey(id)) {
+            ReactNativeMetrics.increment(METRIC_HISTORY_DUPLICATE);
+            return false;
+        }
+
+        // A clock that went backwards must not break the time order queries rely on
+        receivedAt = Math.max(receivedAt, mLastReceivedAt);
+        String group = bundle.getString(KEY_REMOTE_NOTIFICATION_GROUP);
+        String tag = bundle.getString(KEY_REMOTE_NOTIFICATION_TAG);
+        JSONObject json = new JSONObject();
+        try {
+            json.put(KEY_ENTRY_SEQUENCE, mNextSequence);
+            json.put(KEY_ENTRY_ID, id != null ? id : JSONObject.NULL);
+            json.put(KEY_ENTRY_RECEIVED_AT, receivedAt);
+            json.putOpt(KEY_ENTRY_GROUP, group);
+            json.putOpt(KEY_ENTRY_TAG, tag);
+            json.put(KEY_ENTRY_PAYLOAD, ReactNativeUtil.convertBundleToJSON(bundle));
+        } catch (JSONException e) {
+            Log.e(TAG, ERROR_NOTIFICATION_HISTORY, e);
+            return false;
+        }
+
+        byte[] line = (json.toString() + '\n').getBytes(UTF_8);
+        if (!writeFile(mFile, line, 0, line.length, true)) {
+            // Part of the line may have made it to the file; reloading cuts it off again
+            mEntries = null;
+            return false;
+        }
+
+        index(new Entry(mNextSequence, id, receivedAt, group, tag, mSize, line.length));
+        mSize += line.length;
+        mNextSequence++;
+        mLastReceivedAt = receivedAt;
+        ReactNativeMetrics.increment(METRIC_HISTORY_APPENDED);
+
+        if (mSize > mMaxSize || (mEntries.get(0).mReceivedAt < receivedAt - mRetention
+                && receivedAt - mCompactedAt >= DEFAULT_HISTORY_COMPACT_INTERVAL_MS)) {
+            compactLocked(receivedAt);
+        }
+
+        return true;
+    }
+
+    @Override
+    public synchronized long query(Query query, Visitor visitor) {
+        long start = System.nanoTime();
+        load();
+
+        String group = query.getGroup();
+        String tag = query.getTag();
+        List<Entry> candidates = group != null ? mGroups.get(group) : tag != null ? mTags.get(tag) : mEntries;
+        if (candidates == null || mRetention == 0) {
+            return -1;
+        }
+
+        long since = Math.max(query.getSince(), System.currentTimeMillis() - mRetention);
+        int first = Math.max(firstReceivedAt(candidates, since), firstAfterSequence(candidates, query.getCursor()));
+        long cursor = -1;
+        long lastSequence = -1;
+        int returned = 0;
+        RandomAccessFile file = null;
+        try {
+            for (int i = first; i < candidates.size(); i++) {
+                Entry entry = candidates.get(i);
+                if (group != null && tag != null && !tag.equals(entry.mTag)) {
+                    continue;
+                }
+
+                if (returned == query.getLimit()) {
+                    // There is at least one more match, so the caller gets a cursor to continue
+                    cursor = lastSequence;
+                    break;
+                }
+
+                if (file == null) {
+                    file = new RandomAccessFile(mFile, "r");
+                }
+
+                JSONObject payload = readPayload(file, entry);
+                lastSequence = entry.mSequence;
+                if (payload != null) {
+                    visitor.visit(entry.mID, entry.mReceivedAt, payload);
+                    returned++;
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, ERROR_NOTIFICATION_HISTORY, e);
+            cursor = -1;
+        } finally {
+            closeQuietly(file);
+        }
+
+        ReactNativeMetrics.recordLatency(METRIC_HISTORY_QUERY, (System.nanoTime() - start) / 1000000);
+        return cursor;
+    }
+
+    @Override
+    public synchronized void compact(long now) {
+        load();
+        compactLocked(now);
+    }
+
+    @Override
+    public synchronized void clear() {
+        mEntries = null;
+        if (mFile.exists() && !mFile.delete()) {
+            writeFile(mFile, new byte[0], 0, 0, false);
+        }
+        load();
+    }
+
+    private void compactLocked(long now) {
+        mCompactedAt = now;
+
+        // Walk back from the newest entry to find the oldest one worth keeping
+        long expiredBefore = now - mRetention;
+        long budget = mMaxSize * 3 / 4;
+        long kept = 0;
+        int first = mEntries.size();
+        while (first > 0) {
+            Entry entry = mEntries.get(first - 1);
+            if (entry.mReceivedAt < expiredBefore || kept + entry.mLength > budget) {
+                break;
+            }
+            kept += entry.mLength;
+            first--;
+        }
+
+        if (first == 0) {
+            return;
+        }
+
+        // The entries kept are the tail of the file, so they are copied over as one range
+        long offset = first < mEntries.size() ? mEntries.get(first).mOffset : mSize;
+        File tempFile = new File(mFile.getPath() + ".tmp");
+        if (!copyRange(mFile, offset, mSize - offset, tempFile) || !tempFile.renameTo(mFile)) {
+            tempFile.delete();
+            return;
+        }
+
+        int expired = 0;
+        for (int i = 0; i < first; i++) {
+            if (mEntries.get(i).mReceivedAt < expiredBefore) {
+                expired++;
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>(mEntries.subList(first, mEntries.size()));
+        resetIndex();
+        for (Entry entry : entries) {
+            entry.mOffset -= offset;
+            index(entry);
+        }
+        mSize -= offset;
+
+        ReactNativeMetrics.increment(METRIC_HISTORY_COMPACTIONS);
+        ReactNativeMetrics.add(METRIC_HISTORY_EXPIRED, expired);
+        ReactNativeMetrics.add(METRIC_HISTORY_EVICTED, first - expired);
+    }
+
+    private void load() {
+        if (mEntries != null) {
+            return;
+        }
+
+        resetIndex();
+        mSize = 0;
+        mNextSequence = 0;
+        mLastReceivedAt = 0;
+        if (!mFile.isFile()) {
+            return;
+        }
+
+        InputStream input = null;
+        long lineStart = 0;
+        long offset = 0;
+        try {
+            input = new FileInputStream(mFile);
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] != '\n') {
+                        continue;
+                    }
+
+                    line.write(buffer, start, i - start);
+                    offset += i - start + 1;
+                    loadEntry(line.toString("UTF-8"), lineStart, (int) (offset - lineStart));
+                    line.reset();
+                    lineStart = offset;
+                    start = i + 1;
+                }
+                line.write(buffer, start, read - start);
+                offset += read - start;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, ERROR_NOTIFICATION_HISTORY, e);
+        } finally {
+            closeQuietly(input);
+        }
+
+        mSize = lineStart;
+        if (offset > lineStart) {
+            // The tail of a write cut short by process death; it is cut off so the next append
+            // starts on a line of its own
+            truncate(mFile, lineStart);
+        }
+    }
+
+    private void loadEntry(String line, long offset, int length) {
+        JSONObject json;
+        try {
+            json = new JSONObject(line);
+        } catch (JSONException e) {
+            return;
+        }
+
+        long sequence = json.optLong(KEY_ENTRY_SEQUENCE, -1);
+        String id = json.isNull(KEY_ENTRY_ID) ? null : json.optString(KEY_ENTRY_ID, null);
+        if (sequence < 0 || (id != null && mIds.containsKey(id))) {
+            return;
+        }
+
+        long receivedAt = Math.max(json.optLong(KEY_ENTRY_RECEIVED_AT, 0), mLastReceivedAt);
+        index(new Entry(sequence, id, receivedAt,
+                json.optString(KEY_ENTRY_GROUP, null), json.optString(KEY_ENTRY_TAG, null), offset, length));
+        mNextSequence = Math.max(mNextSequence, sequence + 1);
+        mLastReceivedAt = receivedAt;
+    }
+
+    private void resetIndex() {
+        mEntries = new ArrayList<>();
+        mIds = new HashMap<>();
+        mGroups = new HashMap<>();
+        mTags = new HashMap<>();
+    }
+
+    private void index(Entry entry) {
+        mEntries.add(entry);
+        if (entry.mID != null) {
+            mIds.put(entry.mID, entry);
+        }
+        if (entry.mGroup != null) {
+            indexBy(mGroups, entry.mGroup, entry);
+        }
+        if (entry.mTag != null) {
+            indexBy(mTags, entry.mTag, entry);
+        }
+    }
+
+    private static void indexBy(Map<String, List<Entry>> index, String key, Entry entry) {
+        List<Entry> entries = index.get(key);
+        if (entries == null) {
+            entries = new ArrayList<>();
+            index.put(key, entries);
+        }
+        entries.add(entry);
+    }
+
+    // The index of the first entry received at or after the time
+    private static int firstReceivedAt(List<Entry> entries, long receivedAt) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entries.get(middle).mReceivedAt < receivedAt) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // The index of the first entry after the one with the sequence number
+    private static int firstAfterSequence(List<Entry> entries, long sequence) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entries.get(middle).mSequence <= sequence) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static JSONObject readPayload(RandomAccessFile file, Entry entry) throws IOException {
+        byte[] line = new byte[entry.mLength];
+        file.seek(entry.mOffset);
+        file.readFully(line);
+        try {
+            return new JSONObject(new String(line, UTF_8)).optJSONObject(KEY_ENTRY_PAYLOAD);
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    private static boolean copyRange(File source, long offset, long length, File destination) {
+        RandomAccessFile input = null;
+        OutputStream output = null;
+        try {
+            input = new RandomAccessFile(source, "r");
+            output = new FileOutputStream(destination, false);
+            input.seek(offset);
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            long remaining = length;
+            while (remaining > 0) {
+                int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1) {
+                    break;
+                }
+                output.write(buffer, 0, read);
+                remaining -= read;
+            }
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, ERROR_NOTIFICATION_HISTORY, e);
+            return false;
+        } finally {
+            closeQuietly(input);
+            closeQuietly(output);
+        }
+    }
+
+    private static void truncate(File file, long length) {
+        RandomAccessFile output = null;
+        try {
+            output = new RandomAccessFile(file, "rw");
+            output.setLength(length);
+        } catch (IOException e) {
+            Log.e(TAG, ERROR_NOTIFICATION_HISTORY, e);
+        } finally {
+            closeQuietly(output);
+        }
+    }
+
+    private static boolean writeFile(File file, byte[] data, int offset, int length, boolean append) {
+        OutputStream output = null;
+        try {
+            output = new FileOutputStream(file, append);
+            output.write(data, offset, length);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, ERROR_NOTIFICATION_HISTORY, e);
+            return false;
+        } finally {
+            closeQuietly(output);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final long mSequence;
+        private final String mID;
+        private final long mReceivedAt;
+        private final String mGroup;
+        private final String mTag;
+        private final int mLength;
+        private long mOffset;
+
+        Entry(long sequence, String id, long receivedAt, String group, String tag, long offset, int length) {
+            mSequence = sequence;
+            mID = id;
+            mReceivedAt = receivedAt;
+            mGroup = group;
+            mTag = tag;
+            mOffset = offset;
+            mLength = length;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.azure.reactnative.notificationhub;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+
+import androidx.core.app.NotificationCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * A token bucket in front of NotificationManager.notify, so the app stays under the rate at
+ * which Android starts dropping its notifications.
+ *
+ * Every post takes a token and tokens come back at a fixed rate up to the burst size. High and
+ * max priority notifications are always posted straight away. Others are queued when no token
+ * is free and posted, highest priority first, as tokens come back. Low and min priority ones
+ * also leave the last token for more important notifications, so they are the first to wait.
+ *
+ * A queued notification is replaced by a newer one with the same tag and ID. When the queue is
+ * full, the oldest of its lowest priority notifications is dropped to make room, or the new one
+ * is dropped if nothing queued ranks below it.
+ *
+ * The limiter is off until a rate is set, and notifications are then posted straight away.
+ * Queued notifications are only held in memory, so they are lost if the process dies first.
+ */
+public class ReactNativeNotificationRateLimiter {
+    public static final String TAG = "ReactNativeNotificationRateLimiter";
+
+    // Tokens low and min priority notifications leave for the others
+    private static final int LOW_PRIORITY_RESERVE = 1;
+
+    private static ReactNativeNotificationRateLimiter sharedRateLimiterInstance = null;
+
+    private final List<Entry> mQueue = new ArrayList<>();
+    private double mTokens;
+    private long mRefilledAt;
+    private Future<?> mDrainTask;
+    private volatile double mRate = DEFAULT_NOTIFY_RATE_PER_SECOND;
+    private volatile int mBurst = DEFAULT_NOTIFY_BURST;
+    private volatile int mMaxQueueSize = DEFAULT_NOTIFY_QUEUE_SIZE;
+
+    public static synchronized ReactNativeNotificationRateLimiter getInstance() {
+        if (sharedRateLimiterInstance == null) {
+            sharedRateLimiterInstance = new ReactNativeNotificationRateLimiter();
+        }
+        return sharedRateLimiterInstance;
+    }
+
+    public ReactNativeNotificationRateLimiter() {
+        mTokens = mBurst;
+        mRefilledAt = System.nanoTime();
+
+        ReactNativeMetrics.registerGauge(METRIC_NOTIFY_QUEUED, new ReactNativeMetrics.Gauge() {
+            @Override
+            public long get() {
+                return getQueuedCount();
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return mRate > 0;
+    }
+
+    public double getRate() {
+        return mRate;
+    }
+
+    /**
+     * Sets how many tokens come back per second. Zero turns the limiter off.
+     */
+    public void setRate(double rate) {
+        synchronized (this) {
+            refill(System.nanoTime());
+        }
+        mRate = rate > 0 ? Math.max(0.1, rate) : 0;
+    }
+
+    public int getBurst() {
+        return mBurst;
+    }
+
+    /**
+     * Sets how many notifications can be posted back to back before the rate applies.
+     */
+    public synchronized void setBurst(int burst) {
+        mBurst = Math.max(1, burst);
+        mTokens = Math.min(mTokens, mBurst);
+    }
+
+    public int getMaxQueueSize() {
+        return mMaxQueueSize;
+    }
+
+    public void setMaxQueueSize(int maxQueueSize) {
+        mMaxQueueSize = Math.max(1, maxQueueSize);
+    }
+
+    public synchronized int getQueuedCount() {
+        return mQueue.size();
+    }
+
+    /**
+     * Posts the notification now if the budget allows, and otherwise queues it.
+     *
+     * @param priority one of the NotificationCompat priorities.
+     */
+    public void notify(Context context, String tag, int id, Notification notification, int priority) {
+        Entry entry = new Entry(context, tag, id, notification, priority);
+        if (!isEnabled()) {
+            post(entry);
+            return;
+        }
+
+        synchronized (this) {
+            refill(System.nanoTime());
+            boolean postNow = priority >= NotificationCompat.PRIORITY_HIGH;
+            if (postNow) {
+                mTokens = Math.max(0, mTokens - 1);
+            } else {
+                // Waiting notifications that are at least as important go first
+                postNow = !hasQueuedAtLeast(priority) && takeToken(priority);
+            }
+
+            if (!postNow) {
+                enqueue(entry);
+                scheduleDrain();
+                return;
+            }
+        }
+
+        post(entry);
+    }
+
+    private void drain() {
+        List<Entry> ready = new ArrayList<>();
+        synchronized (this) {
+            mDrainTask = null;
+            refill(System.nanoTime());
+            if (!isEnabled()) {
+                // Turned off while notifications were waiting
+                ready.addAll(mQueue);
+                mQueue.clear();
+            }
+
+            while (!mQueue.isEmpty()) {
+                int next = highestPriorityIndex();
+                if (!takeToken(mQueue.get(next).mPriority)) {
+                    break;
+                }
+                ready.add(mQueue.remove(next));
+            }
+
+            scheduleDrain();
+        }
+
+        for (Entry entry : ready) {
+            post(entry);
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        for (int i = 0; i < mQueue.size(); i++) {
+            Entry queued = mQueue.get(i);
+            if (queued.mID == entry.mID && (queued.mTag == null ? entry.mTag == null : queued.mTag.equals(entry.mTag))) {
+                // Keep the place in line, but show the latest version when it is posted
+                mQueue.set(i, entry.mPriority >= queued.mPriority ? entry : entry.withPriority(queued.mPriority));
+                ReactNativeMetrics.increment(METRIC_NOTIFY_COLLAPSED);
+                return;
+            }
+        }
+
+        if (mQueue.size() >= mMaxQueueSize) {
+            int victim = lowestPriorityIndex();
+            if (mQueue.get(victim).mPriority > entry.mPriority) {
+                ReactNativeMetrics.increment(METRIC_NOTIFY_DROPPED);
+                return;
+            }
+
+            mQueue.remove(victim);
+            ReactNativeMetrics.increment(METRIC_NOTIFY_DROPPED);
+        }
+
+        mQueue.add(entry);
+        ReactNativeMetrics.increment(METRIC_NOTIFY_DEFERRED);
+    }
+
+    private void scheduleDrain() {
+        if (mQueue.isEmpty() || mDrainTask != null) {
+            return;
+        }
+
+        int priority = mQueue.get(highestPriorityIndex()).mPriority;
+        double needed = tokensNeeded(priority) - mTokens;
+        long delayMs = isEnabled() ? Math.max(1, (long) Math.ceil(needed * 1000 / mRate)) : 1;
+        Runnable drain = new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+
+        mDrainTask = ReactNativeUtil.dispatchDelayed(drain, delayMs);
+        if (mDrainTask == null) {
+            // The dispatcher is full; the scheduler still gets the queue drained
+            mDrainTask = ReactNativeUtil.runDelayed(drain, delayMs);
+        }
+    }
+
+    private boolean hasQueuedAtLeast(int priority) {
+        for (Entry queued : mQueue) {
+            if (queued.mPriority >= priority) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int highestPriorityIndex() {
+        int index = 0;
+        for (int i = 1; i < mQueue.size(); i++) {
+            if (mQueue.get(i).mPriority > mQueue.get(index).mPriority) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    private int lowestPriorityIndex() {
+        int index = 0;
+        for (int i = 1; i < mQueue.size(); i++) {
+            if (mQueue.get(i).mPriority < mQueue.get(index).mPriority) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    private boolean takeToken(int priority) {
+        if (mTokens < tokensNeeded(priority)) {
+            return false;
+        }
+
+        mTokens -= 1;
+        return true;
+    }
+
+    private int tokensNeeded(int priority) {
+        // A burst too small to hold the reserve must still let low priority notifications through
+        return priority <= NotificationCompat.PRIORITY_LOW ? Math.min(mBurst, 1 + LOW_PRIORITY_RESERVE) : 1;
+    }
+
+    private void refill(long now) {
+        double elapsedSeconds = (now - mRefilledAt) / (double) TimeUnit.SECONDS.toNanos(1);
+        mTokens = Math.min(mBurst, mTokens + elapsedSeconds * mRate);
+        mRefilledAt = now;
+    }
+
+    private static void post(Entry entry) {
+        NotificationManager notificationManager = (NotificationManager) entry.mContext.getSystemService(
+                Context.NOTIFICATION_SERVICE);
+        if (entry.mTag != null) {
+            notificationManager.notify(entry.mTag, entry.mID, entry.mNotification);
+        } else {
+            notificationManager.notify(entry.mID, entry.mNotification);
+        }
+        ReactNativeMetrics.increment(METRIC_NOTIFY_POSTED);
+    }
+
+    private static final class Entry {
+        private final Context mContext;
+        private final String mTag;
+        private final int mID;
+        private final Notification mNotification;
+        private final int mPriority;
+
+        Entry(Context context, String tag, int id, Notification notification, int priority) {
+            mContext = context;
+            mTag = tag;
+            mID = id;
+            mNotification = notification;
+            mPriority = priority;
+        }
+
+        Entry withPriority(int priority) {
+            return new Entry(mContext, mTag, mID, mNotification, priority);
+        }
+    }
+}
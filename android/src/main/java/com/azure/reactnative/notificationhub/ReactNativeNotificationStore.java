@@ -0,0 +1,117 @@
+package com.azure.reactnative.notificationhub;
+
+import android.os.Bundle;
+
+import org.json.JSONObject;
+
+/**
+ * Keeps a history of received remote notifications that JS can page through later.
+ *
+ * The module records every message it receives through the store returned by
+ * {@link ReactNativeNotificationHistory#getStore}. Apps that want the history somewhere else,
+ * such as their own database, can install their own implementation with
+ * {@link ReactNativeNotificationHistory#setStore} before the first message arrives.
+ */
+public interface ReactNativeNotificationStore {
+    /**
+     * Records a received notification.
+     *
+     * @return false if it was not recorded, for example because a notification with the same
+     * message ID already was.
+     */
+    boolean append(Bundle bundle, long receivedAt);
+
+    /**
+     * Passes the notifications that match the query to the visitor one at a time, oldest first,
+     * without holding the rest of the history in memory.
+     *
+     * @return the cursor to pass to {@link Query#setCursor} for the next page, or -1 if there
+     * are no more matches.
+     */
+    long query(Query query, Visitor visitor);
+
+    /**
+     * Sets how long notifications are kept, in milliseconds.
+     */
+    void setRetention(long retention);
+
+    /**
+     * Sets roughly how much space the history may take, in bytes.
+     */
+    void setMaxSize(long maxSize);
+
+    /**
+     * Drops notifications that are past the retention or do not fit in the size limit.
+     */
+    void compact(long now);
+
+    void clear();
+
+    interface Visitor {
+        void visit(String id, long receivedAt, JSONObject payload);
+    }
+
+    /**
+     * Which notifications to return. By default a page holds the oldest
+     * {@link ReactNativeConstants#DEFAULT_HISTORY_PAGE_SIZE} notifications still kept.
+     */
+    final class Query {
+        private long mSince = 0;
+        private long mCursor = -1;
+        private int mLimit = ReactNativeConstants.DEFAULT_HISTORY_PAGE_SIZE;
+        private String mGroup = null;
+        private String mTag = null;
+
+        public long getSince() {
+            return mSince;
+        }
+
+        /**
+         * Only returns notifications received at or after this time, in milliseconds since the
+         * epoch.
+         */
+        public Query setSince(long since) {
+            this.mSince = since;
+            return this;
+        }
+
+        public long getCursor() {
+            return mCursor;
+        }
+
+        /**
+         * Continues after the last notification of the page that returned the cursor.
+         */
+        public Query setCursor(long cursor) {
+            this.mCursor = cursor;
+            return this;
+        }
+
+        public int getLimit() {
+            return mLimit;
+        }
+
+        public Query setLimit(int limit) {
+            this.mLimit = Math.max(1, Math.min(limit, ReactNativeConstants.MAX_HISTORY_PAGE_SIZE));
+            return this;
+        }
+
+        public String getGroup() {
+            return mGroup;
+        }
+
+        public Query setGroup(String group) {
+            this.mGroup = group;
+            return this;
+        }
+
+        public String getTag() {
+            return mTag;
+        }
+
+        public Query setTag(String tag) {
+            this.mTag = tag;
+            return this;
+        }
+    }
+}
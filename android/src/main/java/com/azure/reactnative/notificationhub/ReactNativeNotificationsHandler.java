@@ -1,14 +1,11 @@
 package com.azure.reactnative.notificationhub;
 
 import android.app.Notification;
-import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.ApplicationInfo;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Color;
 import android.net.Uri;
 import android.os.Build;
@@ -34,16 +31,12 @@ public final class ReactNativeNotificationsHandler {
      *  {"notification":{"body":"Notification Hub test notification"}} // notification
      */
     public static void sendBroadcast(final Context context, final Intent intent, final long delay) {
-        ReactNativeUtil.runInWorkerThread(new Runnable() {
+        dispatch(new Runnable() {
             public void run() {
-                try {
-                    Thread.currentThread().sleep(delay);
-                    LocalBroadcastManager localBroadcastManager = LocalBroadcastManager.getInstance(context);
-                    localBroadcastManager.sendBroadcast(intent);
-                } catch (Exception e) {
-                }
+                LocalBroadcastManager localBroadcastManager = LocalBroadcastManager.getInstance(context);
+                localBroadcastManager.sendBroadcast(intent);
             }
-        });
+        }, delay);
     }
 
     /**
@@ -54,17 +47,20 @@ public final class ReactNativeNotificationsHandler {
      *  {"notification":{"body":"Notification Hub test notification"}} // notification
      */
     public static void sendBroadcast(final Context context, final Bundle bundle, final long delay) {
-        ReactNativeUtil.runInWorkerThread(new Runnable() {
+        dispatch(new Runnable() {
             public void run() {
-                try {
-                    Thread.currentThread().sleep(delay);
-                    Intent intent = ReactNativeUtil.createBroadcastIntent(TAG, bundle);
-                    LocalBroadcastManager localBroadcastManager = LocalBroadcastManager.getInstance(context);
-                    localBroadcastManager.sendBroadcast(intent);
-                } catch (Exception e) {
-                }
+                Intent intent = ReactNativeUtil.createBroadcastIntent(TAG, bundle);
+                LocalBroadcastManager localBroadcastManager = LocalBroadcastManager.getInstance(context);
+                localBroadcastManager.sendBroadcast(intent);
             }
-        });
+        }, delay);
+    }
+
+    private static void dispatch(Runnable broadcast, long delay) {
+        if (ReactNativeUtil.dispatchDelayed(broadcast, delay) == null) {
+            // The dispatcher is full; notification and registration events must still arrive
+            ReactNativeUtil.runDelayed(broadcast, delay);
+        }
     }
 
     /**
@@ -76,7 +72,32 @@ public final class ReactNativeNotificationsHandler {
     public static void sendNotification(final Context context,
                                         final Bundle bundle,
                                         final String notificationChannelID) {
-        ReactNativeUtil.runInWorkerThread(new Runnable() {
+        final String avatarUrl = bundle.getString(KEY_REMOTE_NOTIFICATION_AVATAR_URL);
+        if (avatarUrl == null) {
+            buildNotification(context, bundle, notificationChannelID, null);
+            return;
+        }
+
+        // The avatar is downloaded on the I/O pool, so notifications without one never wait
+        // behind a slow image server.
+        Runnable fetch = new Runnable() {
+            public void run() {
+                Bitmap avatar = ReactNativeUtil.fetchImage(context, avatarUrl);
+                buildNotification(context, bundle, notificationChannelID, avatar);
+            }
+        };
+        if (!ReactNativeUtil.runInIoThread(fetch)) {
+            // The I/O pool is full; the caller is off the main thread, so fetch here rather
+            // than lose the notification
+            fetch.run();
+        }
+    }
+
+    private static void buildNotification(final Context context,
+                                          final Bundle bundle,
+                                          final String notificationChannelID,
+                                          final Bitmap avatar) {
+        Runnable build = new Runnable() {
             public void run() {
                 try {
                     Class intentClass = ReactNativeUtil.getMainActivityClass(context);
@@ -100,8 +121,7 @@ public final class ReactNativeNotificationsHandler {
 
                     String title = bundle.getString(KEY_REMOTE_NOTIFICATION_TITLE);
                     if (title == null) {
-                        ApplicationInfo appInfo = context.getApplicationInfo();
-                        title = context.getPackageManager().getApplicationLabel(appInfo).toString();
+                        title = ReactNativeUtil.getApplicationLabel(context);
                     }
 
                     int priority = ReactNativeUtil.getNotificationCompatPriority(
@@ -138,18 +158,16 @@ public final class ReactNativeNotificationsHandler {
                     if (bundle.getString(KEY_REMOTE_NOTIFICATION_AVATAR_URL) == null) {
                         String largeIcon = bundle.getString(KEY_REMOTE_NOTIFICATION_LARGE_ICON);
                         int largeIconResId = ReactNativeUtil.getLargeIcon(bundle, largeIcon, res, packageName);
-                        Bitmap largeIconBitmap = BitmapFactory.decodeResource(res, largeIconResId);
                         if (largeIconResId != 0 && (
                                 largeIcon != null ||
                                 Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)) {
-                            notificationBuilder.setLargeIcon(largeIconBitmap);
-                        }
-                    } else {
-                        Bitmap largeIconBitmap = ReactNativeUtil.fetchImage(
-                                bundle.getString(KEY_REMOTE_NOTIFICATION_AVATAR_URL));
-                        if (largeIconBitmap != null) {
-                            notificationBuilder.setLargeIcon(largeIconBitmap);
+                            Bitmap largeIconBitmap = ReactNativeUtil.getLargeIconBitmap(context, largeIconResId);
+                            if (largeIconBitmap != null) {
+                                notificationBuilder.setLargeIcon(largeIconBitmap);
+                            }
                         }
+                    } else if (avatar != null) {
+                        notificationBuilder.setLargeIcon(avatar);
                     }
 
                     String bigText = bundle.getString(KEY_REMOTE_NOTIFICATION_BIG_TEXT);
@@ -196,19 +214,35 @@ public final class ReactNativeNotificationsHandler {
                     ReactNativeUtil.processNotificationActions(context, bundle, notificationBuilder, notificationID);
 
                     Notification notification = notificationBuilder.build();
-                    NotificationManager notificationManager = (NotificationManager) context.getSystemService(
-                            Context.NOTIFICATION_SERVICE);
-                    if (bundle.containsKey(KEY_REMOTE_NOTIFICATION_TAG)) {
-                        String tag = bundle.getString(KEY_REMOTE_NOTIFICATION_TAG);
-                        notificationManager.notify(tag, notificationID, notification);
-                    } else {
-                        notificationManager.notify(notificationID, notification);
+                    ReactNativeNotificationGrouper grouper = ReactNativeNotificationGrouper.getInstance();
+                    if (group != null && grouper.isEnabled()) {
+                        grouper.add(context, group, notificationChannelID, new ReactNativeNotificationGrouper.Child(
+                                bundle.getString(KEY_REMOTE_NOTIFICATION_TAG),
+                                notificationID,
+                                notification,
+                                title,
+                                message,
+                                smallIconResId,
+                                pendingIntent,
+                                priority));
+                        return;
                     }
+
+                    ReactNativeNotificationRateLimiter.getInstance().notify(
+                            context,
+                            bundle.getString(KEY_REMOTE_NOTIFICATION_TAG),
+                            notificationID,
+                            notification,
+                            priority);
                 } catch (Exception e) {
                     Log.e(TAG, ERROR_SEND_PUSH_NOTIFICATION, e);
                 }
             }
-        });
+        };
+        if (!ReactNativeUtil.runInWorkerThread(build)) {
+            // The worker pool is full; build on this thread rather than lose the notification
+            build.run();
+        }
     }
 
     private ReactNativeNotificationsHandler() {
@@ -0,0 +1,131 @@
+package com.azure.reactnative.notificationhub;
+
+import android.content.Context;
+import android.content.Intent;
+
+import java.util.concurrent.Future;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * Funnels every registration request (register(), registerTemplate(), FCM token refresh)
+ * into at most one in-flight Azure Notification Hub registration.
+ *
+ * Callers persist the desired registration config first and then call
+ * {@link #requestRegistration(Context)}. Requests that arrive within the debounce window are
+ * merged into one job, and requests that arrive while a registration is running cause exactly
+ * one follow-up run against the latest config once it finishes.
+ *
+ * The debounce timer lives in memory, so an FCM token refresh, which may be the only reason the
+ * process is running, skips it with {@link #requestRegistrationNow(Context)}.
+ */
+public class ReactNativeRegistrationCoordinator {
+    public static final String TAG = "ReactNativeRegistrationCoordinator";
+
+    private static ReactNativeRegistrationCoordinator sharedCoordinatorInstance = null;
+
+    private long mRequestedGeneration;
+    private boolean mInFlight;
+    private Future<?> mPendingEnqueue;
+    private volatile long mDebounceDelay = DEFAULT_REGISTRATION_DEBOUNCE_MS;
+
+    public static synchronized ReactNativeRegistrationCoordinator getInstance() {
+        if (sharedCoordinatorInstance == null) {
+            sharedCoordinatorInstance = new ReactNativeRegistrationCoordinator();
+        }
+        return sharedCoordinatorInstance;
+    }
+
+    public long getDebounceDelay() {
+        return mDebounceDelay;
+    }
+
+    public void setDebounceDelay(long debounceDelay) {
+        mDebounceDelay = debounceDelay;
+    }
+
+    /**
+     * Asks for the persisted registration config to be sent to Azure Notification Hub.
+     */
+    public synchronized void requestRegistration(Context context) {
+        mRequestedGeneration++;
+        ReactNativeMetrics.increment(METRIC_REGISTRATION_REQUESTED);
+        if (mInFlight) {
+            // finishRegistration() will see the newer generation and run again
+            ReactNativeMetrics.increment(METRIC_REGISTRATION_COALESCED);
+            return;
+        }
+
+        scheduleEnqueue(context, mDebounceDelay);
+    }
+
+    /**
+     * Like {@link #requestRegistration(Context)}, but enqueues the work right away so it is
+     * persisted by JobIntentService and survives the process dying. A debounced request that is
+     * still waiting is folded into this one. If a run is in flight, the enqueued job defers to
+     * it and it runs again once it finishes.
+     */
+    public synchronized void requestRegistrationNow(Context context) {
+        mRequestedGeneration++;
+        ReactNativeMetrics.increment(METRIC_REGISTRATION_REQUESTED);
+        if (mPendingEnqueue != null) {
+            mPendingEnqueue.cancel(false);
+            mPendingEnqueue = null;
+        }
+
+        enqueue(context);
+    }
+
+    /**
+     * Marks the start of a registration run.
+     *
+     * @return the generation the run covers, or -1 if another run is already in flight, in
+     * which case the caller must not register and the in-flight run will be repeated instead.
+     */
+    public synchronized long beginRegistration() {
+        if (mInFlight) {
+            mRequestedGeneration++;
+            ReactNativeMetrics.increment(METRIC_REGISTRATION_COALESCED);
+            return -1;
+        }
+
+        mInFlight = true;
+        return mRequestedGeneration;
+    }
+
+    /**
+     * Marks the end of the run started by {@link #beginRegistration()}.
+     *
+     * @return true if the run still reflects the latest request and its result should be
+     * reported; false if it has been superseded and a follow-up run has been scheduled.
+     */
+    public synchronized boolean finishRegistration(Context context, long generation) {
+        mInFlight = false;
+        if (generation >= mRequestedGeneration) {
+            return true;
+        }
+
+        ReactNativeMetrics.increment(METRIC_REGISTRATION_SUPERSEDED);
+        scheduleEnqueue(context, 0);
+        return false;
+    }
+
+    private void scheduleEnqueue(final Context context, long delay) {
+        if (mPendingEnqueue != null) {
+            mPendingEnqueue.cancel(false);
+        }
+
+        mPendingEnqueue = ReactNativeUtil.runDelayed(new Runnable() {
+            @Override
+            public void run() {
+                enqueue(context);
+            }
+        }, delay);
+    }
+
+    private static void enqueue(Context context) {
+        Intent intent = ReactNativeNotificationHubUtil.IntentFactory.createIntent(
+                context, ReactNativeRegistrationIntentService.class);
+        ReactNativeRegistrationIntentService.enqueueWork(context, intent);
+    }
+}
@@ -7,13 +7,13 @@ import androidx.core.app.JobIntentService;
 
 import android.util.Log;
 
+import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.firebase.iid.FirebaseInstanceId;
 import com.google.firebase.iid.InstanceIdResult;
 import com.microsoft.windowsazure.messaging.NotificationHub;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 public class ReactNativeRegistrationIntentService extends JobIntentService {
 
@@ -21,8 +21,6 @@ public class ReactNativeRegistrationIntentService extends JobIntentService {
 
     private static final int JOB_ID = 1000;
 
-    private final ExecutorService mPool = Executors.newFixedThreadPool(1);
-
     /**
      * Convenience method for enqueuing work in to this service.
      */
@@ -32,37 +30,58 @@ public class ReactNativeRegistrationIntentService extends JobIntentService {
 
     @Override
     protected void onHandleWork(Intent intent) {
+        final ReactNativeRegistrationCoordinator coordinator = ReactNativeRegistrationCoordinator.getInstance();
+        final long generation = coordinator.beginRegistration();
+        if (generation < 0) {
+            // Another registration is in flight; it runs again with the latest config when done.
+            return;
+        }
+
         final Intent event = ReactNativeNotificationHubUtil.IntentFactory.createIntent(TAG);
         final ReactNativeNotificationHubUtil notificationHubUtil = ReactNativeNotificationHubUtil.getInstance();
-        final String connectionString = notificationHubUtil.getConnectionString(this);
-        final String hubName = notificationHubUtil.getHubName(this);
-        final String storedToken = notificationHubUtil.getFCMToken(this);
-        final String[] tags = notificationHubUtil.getTags(this);
-        final boolean isTemplated = notificationHubUtil.isTemplated(this);
-        final String templateName = notificationHubUtil.getTemplateName(this);
-        final String template = notificationHubUtil.getTemplate(this);
+        final ReactNativeNotificationHubUtil.RegistrationConfig config =
+                notificationHubUtil.getRegistrationConfig(this);
+        final String connectionString = config.getConnectionString();
+        final String hubName = config.getHubName();
+        final String storedFingerprint = config.getRegistrationFingerprint();
+        final long registeredAt = config.getRegisteredAt();
+        final long registrationTTL = config.getRegistrationTTL();
+        final String[] tags = config.getTags();
+        final boolean isTemplated = config.isTemplated();
+        final String templateName = config.getTemplateName();
+        final String template = config.getTemplate();
 
         if (connectionString == null || hubName == null) {
             // The intent was triggered when no connection string has been set.
             // This is likely due to an InstanceID refresh occurring while no user
             // registration is active for Azure Notification Hub.
+            coordinator.finishRegistration(this, generation);
             return;
         }
 
+        // The service is created anew for every job, so the callbacks run on an executor that
+        // outlives it rather than one owned by this instance.
+        final Executor executor = ReactNativeUtil.getRegistrationExecutor();
         FirebaseInstanceId.getInstance().getInstanceId().addOnSuccessListener(
-                mPool, new OnSuccessListener<InstanceIdResult>() {
+                executor, new OnSuccessListener<InstanceIdResult>() {
                     @Override
                     public void onSuccess(InstanceIdResult instanceIdResult) {
+                        String regID = null;
+                        Exception error = null;
                         try {
-                            String regID = notificationHubUtil.getRegistrationID(ReactNativeRegistrationIntentService.this);
+                            regID = notificationHubUtil.getRegistrationID(ReactNativeRegistrationIntentService.this);
                             String token = instanceIdResult.getToken();
                             Log.d(TAG, "FCM Registration Token: " + token);
 
-                            // Storing the registration ID indicates whether the generated token has been
-                            // sent to your server. If it is not stored, send the token to your server.
-                            // Also check if the token has been compromised and needs refreshing.
-                            if (regID == null || storedToken != token) {
-                                NotificationHub hub = ReactNativeUtil.createNotificationHub(hubName, connectionString,
+                            // Only talk to Azure Notification Hub when something that is part of the
+                            // registration has changed, or when the stored registration has outlived
+                            // its configured TTL.
+                            String fingerprint = ReactNativeUtil.computeRegistrationFingerprint(
+                                    token, hubName, connectionString, tags, isTemplated, templateName, template);
+                            long now = System.currentTimeMillis();
+                            boolean expired = registrationTTL > 0 && now - registeredAt >= registrationTTL;
+                            if (regID == null || !fingerprint.equals(storedFingerprint) || expired) {
+                                NotificationHub hub = ReactNativeUtil.getNotificationHub(hubName, connectionString,
                                         ReactNativeRegistrationIntentService.this);
                                 Log.d(TAG, "NH Registration refreshing with token : " + token);
 
@@ -75,38 +94,76 @@ public class ReactNativeRegistrationIntentService extends JobIntentService {
 
                                 Log.d(TAG, "New NH Registration Successfully - RegId : " + regID);
 
-                                notificationHubUtil.setRegistrationID(ReactNativeRegistrationIntentService.this, regID);
-                                notificationHubUtil.setFCMToken(ReactNativeRegistrationIntentService.this, token);
-
-                                event.putExtra(
-                                        ReactNativeConstants.KEY_INTENT_EVENT_NAME,
-                                        ReactNativeConstants.EVENT_AZURE_NOTIFICATION_HUB_REGISTERED);
-                                event.putExtra(
-                                        ReactNativeConstants.KEY_INTENT_EVENT_TYPE,
-                                        ReactNativeConstants.INTENT_EVENT_TYPE_STRING);
-                                event.putExtra(
-                                        ReactNativeConstants.KEY_INTENT_EVENT_STRING_DATA, regID);
-                                ReactNativeNotificationsHandler.sendBroadcast(
-                                        ReactNativeRegistrationIntentService.this, event, 0);
-
-                                // Create notification handler
-                                ReactNativeFirebaseMessagingService.createNotificationChannel(
-                                        ReactNativeRegistrationIntentService.this);
+                                notificationHubUtil.edit(ReactNativeRegistrationIntentService.this)
+                                        .setRegistrationID(regID)
+                                        .setFCMToken(token)
+                                        .setRegistrationFingerprint(fingerprint)
+                                        .setRegisteredAt(now)
+                                        .commit();
+                                ReactNativeMetrics.increment(ReactNativeConstants.METRIC_REGISTRATION_SENT);
+                            } else {
+                                Log.d(TAG, "NH Registration unchanged, skipping refresh - RegId : " + regID);
+                                ReactNativeMetrics.increment(ReactNativeConstants.METRIC_REGISTRATION_SKIPPED);
                             }
+
+                            // Create notification handler
+                            ReactNativeFirebaseMessagingService.createNotificationChannel(
+                                    ReactNativeRegistrationIntentService.this);
                         } catch (Exception e) {
                             Log.e(TAG, "Failed to complete token refresh", e);
+                            error = e;
+                        }
 
-                            event.putExtra(
-                                    ReactNativeConstants.KEY_INTENT_EVENT_NAME,
-                                    ReactNativeConstants.EVENT_AZURE_NOTIFICATION_HUB_REGISTERED_ERROR);
-                            event.putExtra(
-                                    ReactNativeConstants.KEY_INTENT_EVENT_TYPE,
-                                    ReactNativeConstants.INTENT_EVENT_TYPE_STRING);
-                            event.putExtra(ReactNativeConstants.KEY_INTENT_EVENT_STRING_DATA, e.getMessage());
-                            ReactNativeNotificationsHandler.sendBroadcast(
-                                    ReactNativeRegistrationIntentService.this, event, 0);
+                        if (!coordinator.finishRegistration(ReactNativeRegistrationIntentService.this, generation)) {
+                            // Superseded by a newer request; the follow-up run reports the outcome.
+                            return;
+                        }
+
+                        ReactNativeRegistrationRetryScheduler retryScheduler =
+                                ReactNativeRegistrationRetryScheduler.getInstance(
+                                        ReactNativeRegistrationIntentService.this);
+                        if (error != null) {
+                            // Still reported right away; a retryable error is also tried again later
+                            retryScheduler.onFailure(ReactNativeRegistrationIntentService.this, error);
+                            sendRegistrationError(event, error);
+                        } else {
+                            retryScheduler.onSuccess();
+                            sendRegistered(event, regID);
+                        }
+                    }
+                }).addOnFailureListener(executor, new OnFailureListener() {
+                    @Override
+                    public void onFailure(Exception e) {
+                        Log.e(TAG, "Failed to get FCM registration token", e);
+                        if (coordinator.finishRegistration(ReactNativeRegistrationIntentService.this, generation)) {
+                            ReactNativeRegistrationRetryScheduler.getInstance(ReactNativeRegistrationIntentService.this)
+                                    .onFailure(ReactNativeRegistrationIntentService.this, e);
+                            sendRegistrationError(event, e);
                         }
                     }
                 });
     }
+
+    private void sendRegistered(Intent event, String regID) {
+        event.putExtra(
+                ReactNativeConstants.KEY_INTENT_EVENT_NAME,
+                ReactNativeConstants.EVENT_AZURE_NOTIFICATION_HUB_REGISTERED);
+        event.putExtra(
+                ReactNativeConstants.KEY_INTENT_EVENT_TYPE,
+                ReactNativeConstants.INTENT_EVENT_TYPE_STRING);
+        event.putExtra(
+                ReactNativeConstants.KEY_INTENT_EVENT_STRING_DATA, regID);
+        ReactNativeNotificationsHandler.sendBroadcast(this, event, 0);
+    }
+
+    private void sendRegistrationError(Intent event, Exception e) {
+        event.putExtra(
+                ReactNativeConstants.KEY_INTENT_EVENT_NAME,
+                ReactNativeConstants.EVENT_AZURE_NOTIFICATION_HUB_REGISTERED_ERROR);
+        event.putExtra(
+                ReactNativeConstants.KEY_INTENT_EVENT_TYPE,
+                ReactNativeConstants.INTENT_EVENT_TYPE_STRING);
+        event.putExtra(ReactNativeConstants.KEY_INTENT_EVENT_STRING_DATA, e.getMessage());
+        ReactNativeNotificationsHandler.sendBroadcast(this, event, 0);
+    }
 }
@@ -0,0 +1,18 @@
+package com.azure.reactnative.notificationhub;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Wakes the app when a persisted registration retry is due, even if the process died in the
+ * meantime.
+ */
+public class ReactNativeRegistrationRetryReceiver extends BroadcastReceiver {
+    public static final String TAG = "ReactNativeRegistrationRetryReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        ReactNativeRegistrationRetryScheduler.getInstance(context).onAlarm(context);
+    }
+}
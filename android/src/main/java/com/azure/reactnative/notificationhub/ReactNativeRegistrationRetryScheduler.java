@@ -0,0 +1,294 @@
+package com.azure.reactnative.notificationhub;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.microsoft.windowsazure.messaging.NotificationHubException;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * Retries failed Azure Notification Hub registrations.
+ *
+ * Network errors, timeouts, throttling (429) and server errors (5xx) are retried with a capped
+ * exponential backoff. Each delay is picked at random from the upper half of its backoff step so
+ * devices that failed together, for example during an Azure incident, do not all retry at the same
+ * moment. Anything else, such as a rejected SAS key (401) or a malformed connection string, is
+ * permanent and is not retried.
+ *
+ * The attempt count and the time of the next attempt are persisted, and each retry is also set
+ * as an alarm, so a retry that is pending when the process dies still runs through
+ * {@link ReactNativeRegistrationRetryReceiver}. Alarms do not survive a reboot; those retries are
+ * picked up by {@link #resume(Context)} on the next launch.
+ */
+public class ReactNativeRegistrationRetryScheduler {
+    public static final String TAG = "ReactNativeRegistrationRetryScheduler";
+
+    private static final String KEY_ATTEMPT = "attempt";
+    private static final String KEY_NEXT_ATTEMPT_AT = "nextAttemptAt";
+
+    // Shifting past this would overflow; the delay is capped long before it matters
+    private static final int MAX_BACKOFF_SHIFT = 30;
+
+    private static final int ALARM_REQUEST_CODE = 0;
+
+    private static ReactNativeRegistrationRetryScheduler sharedRetrySchedulerInstance = null;
+
+    private final SharedPreferences mPrefs;
+    private final Random mRandom;
+    private boolean mLoaded;
+    private int mAttempt;
+    private long mNextAttemptAt;
+    private Future<?> mPendingRetry;
+    private AlarmManager mAlarmManager;
+    private PendingIntent mAlarmIntent;
+    private volatile long mBaseDelay = DEFAULT_REGISTRATION_RETRY_BASE_MS;
+    private volatile long mMaxDelay = DEFAULT_REGISTRATION_RETRY_MAX_MS;
+    private volatile int mMaxAttempts = DEFAULT_REGISTRATION_RETRY_MAX_ATTEMPTS;
+
+    public static synchronized ReactNativeRegistrationRetryScheduler getInstance(Context context) {
+        if (sharedRetrySchedulerInstance == null) {
+            SharedPreferences prefs = context.getApplicationContext().getSharedPreferences(
+                    REGISTRATION_RETRY_PREFS_NAME, Context.MODE_PRIVATE);
+            sharedRetrySchedulerInstance = new ReactNativeRegistrationRetryScheduler(prefs, new Random());
+        }
+        return sharedRetrySchedulerInstance;
+    }
+
+    /**
+     * @param prefs where the retry state is persisted, or null to keep it in memory only.
+     * @param random the source of the jitter.
+     */
+    public ReactNativeRegistrationRetryScheduler(SharedPreferences prefs, Random random) {
+        mPrefs = prefs;
+        mRandom = random;
+    }
+
+    public long getBaseDelay() {
+        return mBaseDelay;
+    }
+
+    public void setBaseDelay(long baseDelay) {
+        mBaseDelay = Math.max(1, baseDelay);
+    }
+
+    public long getMaxDelay() {
+        return mMaxDelay;
+    }
+
+    public void setMaxDelay(long maxDelay) {
+        mMaxDelay = Math.max(1, maxDelay);
+    }
+
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        mMaxAttempts = Math.max(0, maxAttempts);
+    }
+
+    /**
+     * The number of retries scheduled since the last successful registration.
+     */
+    public synchronized int getAttempt() {
+        load();
+        return mAttempt;
+    }
+
+    /**
+     * The wall clock time of the next retry, or 0 if none is pending.
+     */
+    public synchronized long getNextAttemptAt() {
+        load();
+        return mNextAttemptAt;
+    }
+
+    /**
+     * Whether a registration that failed with the given error may succeed if tried again.
+     */
+    public static boolean isRetryable(Throwable error) {
+        // The hub client and Play Services both wrap the underlying failure, so look at the
+        // whole cause chain rather than only the outermost exception.
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof NotificationHubException) {
+                int statusCode = ((NotificationHubException) cause).getStatusCode();
+                return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+            } else if (cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * The delay before the given retry, counting from 0. The backoff step doubles with every
+     * attempt up to the maximum delay, and the delay is picked at random from its upper half.
+     */
+    public long computeDelay(int attempt) {
+        long step = Math.min(mMaxDelay, mBaseDelay << Math.min(attempt, MAX_BACKOFF_SHIFT));
+        if (step <= 0) {
+            step = mMaxDelay;
+        }
+
+        long half = step / 2;
+        return half + (long) (mRandom.nextDouble() * (step - half));
+    }
+
+    /**
+     * Records a failed registration and schedules another one if the error is retryable and
+     * the attempts are not used up.
+     *
+     * @return true if a retry was scheduled.
+     */
+    public synchronized boolean onFailure(Context context, Exception error) {
+        load();
+        if (!isRetryable(error)) {
+            Log.w(TAG, ERROR_REGISTRATION_PERMANENT, error);
+            ReactNativeMetrics.increment(METRIC_REGISTRATION_PERMANENT_FAILURE);
+            clear();
+            return false;
+        }
+
+        if (mAttempt >= mMaxAttempts) {
+            Log.w(TAG, ERROR_REGISTRATION_PERMANENT, error);
+            ReactNativeMetrics.increment(METRIC_REGISTRATION_RETRY_EXHAUSTED);
+            clear();
+            return false;
+        }
+
+        long delay = computeDelay(mAttempt);
+        mAttempt++;
+        mNextAttemptAt = System.currentTimeMillis() + delay;
+        save();
+
+        Log.w(TAG, ERROR_REGISTRATION_RETRY + delay, error);
+        ReactNativeMetrics.increment(METRIC_REGISTRATION_RETRY_SCHEDULED);
+        schedule(context, delay);
+        return true;
+    }
+
+    /**
+     * Records a successful registration and drops any pending retry.
+     */
+    public synchronized void onSuccess() {
+        load();
+        clear();
+    }
+
+    /**
+     * Schedules the retry that was pending when the process last died, if any. Retries that
+     * are overdue run straight away.
+     */
+    public synchronized void resume(Context context) {
+        load();
+        if (mNextAttemptAt <= 0 || (mPendingRetry != null && !mPendingRetry.isDone())) {
+            return;
+        }
+
+        schedule(context, Math.max(0, mNextAttemptAt - System.currentTimeMillis()));
+    }
+
+    /**
+     * Runs the persisted retry when its alarm goes off, unless it is not due yet or this process
+     * already ran it. The registration is queued with the system so it survives the receiver.
+     */
+    public synchronized void onAlarm(Context context) {
+        load();
+        if (mNextAttemptAt <= 0 || mNextAttemptAt > System.currentTimeMillis()) {
+            return;
+        }
+
+        if (mPendingRetry != null) {
+            if (mPendingRetry.isDone()) {
+                return;
+            }
+
+            mPendingRetry.cancel(false);
+            mPendingRetry = null;
+        }
+
+        ReactNativeRegistrationCoordinator.getInstance().requestRegistrationNow(context);
+    }
+
+    private void schedule(final Context context, long delay) {
+        if (mPendingRetry != null) {
+            mPendingRetry.cancel(false);
+        }
+
+        mPendingRetry = ReactNativeUtil.runDelayed(new Runnable() {
+            @Override
+            public void run() {
+                ReactNativeRegistrationCoordinator.getInstance().requestRegistration(context);
+            }
+        }, delay);
+        setAlarm(context, System.currentTimeMillis() + delay);
+    }
+
+    private void setAlarm(Context context, long triggerAt) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            return;
+        }
+
+        // The intent is always the same, so setting it again replaces the previous alarm
+        Intent intent = ReactNativeNotificationHubUtil.IntentFactory.createIntent(
+                context, ReactNativeRegistrationRetryReceiver.class);
+        mAlarmManager = alarmManager;
+        mAlarmIntent = PendingIntent.getBroadcast(
+                context, ALARM_REQUEST_CODE, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+        mAlarmManager.set(AlarmManager.RTC, triggerAt, mAlarmIntent);
+    }
+
+    private void clear() {
+        if (mPendingRetry != null) {
+            mPendingRetry.cancel(false);
+            mPendingRetry = null;
+        }
+
+        if (mAlarmIntent != null) {
+            mAlarmManager.cancel(mAlarmIntent);
+            mAlarmIntent = null;
+        }
+
+        // Successful registrations are the common case, so only write when there is state to drop
+        if (mAttempt == 0 && mNextAttemptAt == 0) {
+            return;
+        }
+
+        mAttempt = 0;
+        mNextAttemptAt = 0;
+        save();
+    }
+
+    private void load() {
+        if (mLoaded) {
+            return;
+        }
+
+        mLoaded = true;
+        if (mPrefs != null) {
+            mAttempt = mPrefs.getInt(KEY_ATTEMPT, 0);
+            mNextAttemptAt = mPrefs.getLong(KEY_NEXT_ATTEMPT_AT, 0);
+        }
+    }
+
+    private void save() {
+        if (mPrefs != null) {
+            mPrefs.edit()
+                    .putInt(KEY_ATTEMPT, mAttempt)
+                    .putLong(KEY_NEXT_ATTEMPT_AT, mNextAttemptAt)
+                    .apply();
+        }
+    }
+}
@@ -3,9 +3,9 @@ package com.azure.reactnative.notificationhub;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Bundle;
@@ -16,6 +16,7 @@ import androidx.core.app.NotificationCompat;
 
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 import com.microsoft.windowsazure.messaging.NotificationHub;
@@ -23,24 +24,164 @@ import com.microsoft.windowsazure.messaging.NotificationHub;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
-import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
 
 public final class ReactNativeUtil {
     public static final String TAG = "ReactNativeUtil";
 
-    private static final ExecutorService mPool = Executors.newFixedThreadPool(2);
+    private static final int MAX_CACHED_HUBS = 4;
+
+    // Image downloads, notification building and JS dispatch each get their own pool so a slow
+    // avatar server cannot hold up notifications or events that do not need it.
+    private static final ReactNativeExecutor mIoExecutor = new ReactNativeExecutor(
+            EXECUTOR_IO, DEFAULT_IO_THREADS, DEFAULT_IO_QUEUE_SIZE);
+    private static final ReactNativeExecutor mCpuExecutor = new ReactNativeExecutor(
+            EXECUTOR_CPU, DEFAULT_CPU_THREADS, DEFAULT_CPU_QUEUE_SIZE);
+
+    // Delayed broadcasts wait here instead of sleeping on a worker thread. It has a single
+    // thread so events reach JS in the order they were dispatched.
+    private static final ReactNativeExecutor mDispatcher = new ReactNativeExecutor(
+            EXECUTOR_DISPATCH, 1, DEFAULT_DISPATCH_QUEUE_SIZE);
+
+    // Neither changes for the life of the process, so they are resolved once.
+    private static volatile Class mMainActivityClass;
+    private static volatile String mApplicationLabel;
+
+    // Notification fields that carry JSON and are parsed before they are emitted to JS
+    private static volatile Set<String> mJsonKeys = Collections.emptySet();
+
+    // Resource identifiers keyed by package, type and name
+    private static final ConcurrentHashMap<String, Integer> mResourceIds = new ConcurrentHashMap<>();
+
+    // Azure Notification Hub requests are serialized on their own thread so a slow round trip
+    // never holds up the React bridge or the notification workers.
+    private static final ExecutorService mNetworkPool = Executors.newSingleThreadExecutor(
+            createThreadFactory("AzureNotificationHub-network"));
+    private static final ScheduledExecutorService mScheduler = Executors.newSingleThreadScheduledExecutor(
+            createThreadFactory("AzureNotificationHub-scheduler"));
+
+    // Token lookups and registrations are handed off here by every registration service
+    // instance. The single thread exits when idle, so a process that registers once does not
+    // keep it around, and the queue is unbounded because a registration must never be dropped.
+    private static final ThreadPoolExecutor mRegistrationExecutor = createRegistrationExecutor();
+
+    /**
+     * Runs CPU-bound work such as building a notification.
+     *
+     * @return false if too many tasks are queued and this one was dropped.
+     */
+    public static boolean runInWorkerThread(Runnable runnable) {
+        return mCpuExecutor.execute(runnable);
+    }
+
+    /**
+     * Runs work that blocks on disk or network, such as fetching an image.
+     *
+     * @return false if too many tasks are queued and this one was dropped.
+     */
+    public static boolean runInIoThread(Runnable runnable) {
+        return mIoExecutor.execute(runnable);
+    }
+
+    public static ReactNativeExecutor getExecutor(String name) {
+        if (EXECUTOR_IO.equals(name)) {
+            return mIoExecutor;
+        } else if (EXECUTOR_CPU.equals(name)) {
+            return mCpuExecutor;
+        } else if (EXECUTOR_DISPATCH.equals(name)) {
+            return mDispatcher;
+        }
+
+        return null;
+    }
 
-    public static void runInWorkerThread(Runnable runnable) {
-        mPool.execute(runnable);
+    // Hub clients keyed by hub name and connection string, least recently used first
+    private static final Map<String, NotificationHub> mHubs =
+            new LinkedHashMap<String, NotificationHub>(MAX_CACHED_HUBS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, NotificationHub> eldest) {
+                    return size() > MAX_CACHED_HUBS;
+                }
+            };
+
+    public static ScheduledFuture<?> runDelayed(Runnable runnable, long delayMs) {
+        return mScheduler.schedule(runnable, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the task on the dispatch thread once the delay has passed. Nothing is blocked while
+     * it waits, so the task must be short. The number of pending tasks and how late each one
+     * starts are recorded in the metrics.
+     *
+     * @return null if too many tasks are pending and this one was dropped.
+     */
+    public static ScheduledFuture<?> dispatchDelayed(Runnable runnable, long delayMs) {
+        return mDispatcher.schedule(runnable, delayMs);
+    }
+
+    public static int getPendingDispatchCount() {
+        return mDispatcher.getQueuedCount();
+    }
+
+    /**
+     * The executor that registration callbacks run on. It is shared by the whole process.
+     */
+    public static Executor getRegistrationExecutor() {
+        return mRegistrationExecutor;
+    }
+
+    public static void runHubOperation(ReactNativeHubOperation operation, long timeoutMs) {
+        operation.submit(mNetworkPool, mScheduler, timeoutMs);
+    }
+
+    private static ThreadPoolExecutor createRegistrationExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                1, 1, REGISTRATION_THREAD_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                createThreadFactory("AzureNotificationHub-registration"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory createThreadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
     }
 
     public static NotificationHub createNotificationHub(String hubName, String connectionString, Context context) {
@@ -48,6 +189,35 @@ public final class ReactNativeUtil {
         return hub;
     }
 
+    /**
+     * Returns a cached hub client for the given hub and connection string, creating it on first
+     * use. Clients are bound to the application context so they can outlive the caller.
+     */
+    public static NotificationHub getNotificationHub(String hubName, String connectionString, Context context) {
+        String key = getNotificationHubKey(hubName, connectionString);
+        synchronized (mHubs) {
+            NotificationHub hub = mHubs.get(key);
+            if (hub == null) {
+                Context appContext = context.getApplicationContext();
+                hub = createNotificationHub(hubName, connectionString, appContext != null ? appContext : context);
+                mHubs.put(key, hub);
+                ReactNativeMetrics.increment(METRIC_HUB_CLIENT_CREATED);
+            }
+
+            return hub;
+        }
+    }
+
+    public static void invalidateNotificationHub(String hubName, String connectionString) {
+        synchronized (mHubs) {
+            mHubs.remove(getNotificationHubKey(hubName, connectionString));
+        }
+    }
+
+    private static String getNotificationHubKey(String hubName, String connectionString) {
+        return hubName + '\n' + connectionString;
+    }
+
     public static JSONObject convertBundleToJSON(Bundle bundle) {
         JSONObject json = new JSONObject();
         Set<String> keys = bundle.keySet();
@@ -62,47 +232,148 @@ public final class ReactNativeUtil {
     }
 
     public static WritableMap convertBundleToMap(Bundle bundle) {
-        WritableMap map = Arguments.createMap();
-        if (bundle == null) {
-            return map;
+        WritableMap map = ReactNativeBundleConverter.toMap(bundle);
+        Set<String> jsonKeys = mJsonKeys;
+        if (bundle != null && !jsonKeys.isEmpty()) {
+            WritableMap errors = null;
+            for (String key : jsonKeys) {
+                errors = parseJsonField(map, key, bundle.get(key), errors);
+            }
+            putJsonErrors(map, errors);
         }
 
-        for (String key : bundle.keySet()) {
-            try {
-                Object o = bundle.get(key);
-
-                // TODO: Handle char and all array types
-                if (o == null) {
-                    map.putNull(key);
-                } else if (o instanceof Bundle) {
-                    map.putMap(key, convertBundleToMap((Bundle) o));
-                } else if (o instanceof String) {
-                    map.putString(key, (String) o);
-                } else if (o instanceof Float) {
-                    map.putDouble(key, ((Float) o).doubleValue());
-                } else if (o instanceof Double) {
-                    map.putDouble(key, (Double) o);
-                } else if (o instanceof Integer) {
-                    map.putInt(key, (Integer) o);
-                } else if (o instanceof Long) {
-                    map.putInt(key, ((Long) o).intValue());
-                } else if (o instanceof Short) {
-                    map.putInt(key, ((Short) o).intValue());
-                } else if (o instanceof Byte) {
-                    map.putInt(key, ((Byte) o).intValue());
-                } else if (o instanceof Boolean) {
-                    map.putBoolean(key, (Boolean) o);
-                } else {
-                    map.putNull(key);
-                }
-            } catch (ClassCastException e) {
-                // TODO: Warn
+        return map;
+    }
+
+    /**
+     * Sets the notification fields whose string values are JSON and are emitted to JS as the
+     * parsed objects, arrays or values instead.
+     */
+    public static void setJsonKeys(Collection<String> keys) {
+        mJsonKeys = keys.isEmpty()
+                ? Collections.<String>emptySet()
+                : Collections.unmodifiableSet(new HashSet<>(keys));
+    }
+
+    public static Set<String> getJsonKeys() {
+        return mJsonKeys;
+    }
+
+    /**
+     * Parses the configured JSON fields of a notification that was stored as JSON, replacing
+     * their string values in the converted map.
+     */
+    public static void parseJsonFields(JSONObject notification, WritableMap map) {
+        Set<String> jsonKeys = mJsonKeys;
+        if (jsonKeys.isEmpty()) {
+            return;
+        }
+
+        WritableMap errors = null;
+        for (String key : jsonKeys) {
+            errors = parseJsonField(map, key, notification.opt(key), errors);
+        }
+        putJsonErrors(map, errors);
+    }
+
+    // Returns the per-key parse errors, created on the first failure
+    private static WritableMap parseJsonField(WritableMap map, String key, Object value, WritableMap errors) {
+        if (!(value instanceof String)) {
+            return errors;
+        }
+
+        try {
+            JSONTokener tokener = new JSONTokener((String) value);
+            Object parsed = tokener.nextValue();
+            if (tokener.nextClean() != 0) {
+                throw tokener.syntaxError("Unexpected characters after the JSON value");
+            }
+
+            if (parsed == JSONObject.NULL) {
+                map.putNull(key);
+            } else if (parsed instanceof JSONObject) {
+                map.putMap(key, convertJSONToMap((JSONObject) parsed));
+            } else if (parsed instanceof JSONArray) {
+                map.putArray(key, convertJSONToArray((JSONArray) parsed));
+            } else if (parsed instanceof Boolean) {
+                map.putBoolean(key, (Boolean) parsed);
+            } else if (parsed instanceof Integer) {
+                map.putInt(key, (Integer) parsed);
+            } else if (parsed instanceof Number) {
+                map.putDouble(key, ((Number) parsed).doubleValue());
+            } else {
+                map.putString(key, parsed.toString());
+            }
+            ReactNativeMetrics.increment(METRIC_JSON_PARSED);
+        } catch (JSONException e) {
+            // The raw string is left in place so JS still sees what was sent
+            Log.w(TAG, ERROR_PARSE_JSON_FIELD + key, e);
+            ReactNativeMetrics.increment(METRIC_JSON_PARSE_FAILED);
+            if (errors == null) {
+                errors = Arguments.createMap();
+            }
+            errors.putString(key, e.getMessage());
+        }
+
+        return errors;
+    }
+
+    private static void putJsonErrors(WritableMap map, WritableMap errors) {
+        if (errors != null) {
+            map.putMap(KEY_REMOTE_NOTIFICATION_JSON_ERRORS, errors);
+        }
+    }
+
+    public static WritableMap convertJSONToMap(JSONObject json) {
+        WritableMap map = Arguments.createMap();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = json.opt(key);
+            if (value == null || value == JSONObject.NULL) {
+                map.putNull(key);
+            } else if (value instanceof JSONObject) {
+                map.putMap(key, convertJSONToMap((JSONObject) value));
+            } else if (value instanceof JSONArray) {
+                map.putArray(key, convertJSONToArray((JSONArray) value));
+            } else if (value instanceof Boolean) {
+                map.putBoolean(key, (Boolean) value);
+            } else if (value instanceof Integer) {
+                map.putInt(key, (Integer) value);
+            } else if (value instanceof Number) {
+                map.putDouble(key, ((Number) value).doubleValue());
+            } else {
+                map.putString(key, value.toString());
             }
         }
 
         return map;
     }
 
+    public static WritableArray convertJSONToArray(JSONArray json) {
+        WritableArray array = Arguments.createArray();
+        for (int i = 0; i < json.length(); i++) {
+            Object value = json.opt(i);
+            if (value == null || value == JSONObject.NULL) {
+                array.pushNull();
+            } else if (value instanceof JSONObject) {
+                array.pushMap(convertJSONToMap((JSONObject) value));
+            } else if (value instanceof JSONArray) {
+                array.pushArray(convertJSONToArray((JSONArray) value));
+            } else if (value instanceof Boolean) {
+                array.pushBoolean((Boolean) value);
+            } else if (value instanceof Integer) {
+                array.pushInt((Integer) value);
+            } else if (value instanceof Number) {
+                array.pushDouble(((Number) value).doubleValue());
+            } else {
+                array.pushString(value.toString());
+            }
+        }
+
+        return array;
+    }
+
     public static Intent createBroadcastIntent(String action, Bundle bundle) {
         Intent intent = ReactNativeNotificationHubUtil.IntentFactory.createIntent(action);
         intent.putExtra(KEY_INTENT_EVENT_NAME, EVENT_REMOTE_NOTIFICATION_RECEIVED);
@@ -135,18 +406,44 @@ public final class ReactNativeUtil {
         }
     }
 
+    /**
+     * Sets the Activity that notifications open, bypassing the launch intent lookup in
+     * {@link #getMainActivityClass(Context)}. Call it from Application.onCreate().
+     */
+    public static void setMainActivityClass(Class activityClass) {
+        mMainActivityClass = activityClass;
+    }
+
     public static Class getMainActivityClass(Context context) {
+        Class activityClass = mMainActivityClass;
+        if (activityClass != null) {
+            return activityClass;
+        }
+
         String packageName = context.getPackageName();
         Intent launchIntent = context.getPackageManager().getLaunchIntentForPackage(packageName);
         String className = launchIntent.getComponent().getClassName();
         try {
-            return Class.forName(className);
+            activityClass = Class.forName(className);
+            mMainActivityClass = activityClass;
+            return activityClass;
         } catch (ClassNotFoundException e) {
             Log.e(TAG, ERROR_ACTIVITY_CLASS_NOT_FOUND, e);
             return null;
         }
     }
 
+    public static String getApplicationLabel(Context context) {
+        String label = mApplicationLabel;
+        if (label == null) {
+            ApplicationInfo appInfo = context.getApplicationInfo();
+            label = context.getPackageManager().getApplicationLabel(appInfo).toString();
+            mApplicationLabel = label;
+        }
+
+        return label;
+    }
+
     public static int getNotificationCompatPriority(String priorityString) {
         int priority = NotificationCompat.PRIORITY_DEFAULT;
         if (priorityString != null) {
@@ -172,18 +469,43 @@ public final class ReactNativeUtil {
         return priority;
     }
 
+    /**
+     * Resolves a resource name through {@link Resources#getIdentifier}, which is a slow reflective
+     * lookup, at most once per process. Names that do not exist are cached as 0.
+     */
+    public static int getResourceIdentifier(Resources res, String name, String defType, String packageName) {
+        String key = packageName + ':' + defType + '/' + name;
+        Integer resId = mResourceIds.get(key);
+        if (resId == null) {
+            resId = res.getIdentifier(name, defType, packageName);
+            mResourceIds.put(key, resId);
+        }
+
+        return resId;
+    }
+
+    /**
+     * Resolves the default notification icons ahead of the first notification.
+     */
+    public static void warmUpResources(Context context) {
+        Resources res = context.getResources();
+        String packageName = context.getPackageName();
+        getResourceIdentifier(res, RESOURCE_NAME_NOTIFICATION, RESOURCE_DEF_TYPE_MIPMAP, packageName);
+        getResourceIdentifier(res, RESOURCE_NAME_LAUNCHER, RESOURCE_DEF_TYPE_MIPMAP, packageName);
+    }
+
     public static int getSmallIcon(Bundle bundle, Resources res, String packageName) {
         int smallIconResId;
         String smallIcon = bundle.getString(KEY_REMOTE_NOTIFICATION_SMALL_ICON);
 
         if (smallIcon != null) {
-            smallIconResId = res.getIdentifier(smallIcon, RESOURCE_DEF_TYPE_MIPMAP, packageName);
+            smallIconResId = getResourceIdentifier(res, smallIcon, RESOURCE_DEF_TYPE_MIPMAP, packageName);
         } else {
-            smallIconResId = res.getIdentifier(RESOURCE_NAME_NOTIFICATION, RESOURCE_DEF_TYPE_MIPMAP, packageName);
+            smallIconResId = getResourceIdentifier(res, RESOURCE_NAME_NOTIFICATION, RESOURCE_DEF_TYPE_MIPMAP, packageName);
         }
 
         if (smallIconResId == 0) {
-            smallIconResId = res.getIdentifier(RESOURCE_NAME_LAUNCHER, RESOURCE_DEF_TYPE_MIPMAP, packageName);
+            smallIconResId = getResourceIdentifier(res, RESOURCE_NAME_LAUNCHER, RESOURCE_DEF_TYPE_MIPMAP, packageName);
 
             if (smallIconResId == 0) {
                 smallIconResId = android.R.drawable.ic_dialog_info;
@@ -197,14 +519,22 @@ public final class ReactNativeUtil {
         int largeIconResId;
 
         if (largeIcon != null) {
-            largeIconResId = res.getIdentifier(largeIcon, RESOURCE_DEF_TYPE_MIPMAP, packageName);
+            largeIconResId = getResourceIdentifier(res, largeIcon, RESOURCE_DEF_TYPE_MIPMAP, packageName);
         } else {
-            largeIconResId = res.getIdentifier(RESOURCE_NAME_LAUNCHER, RESOURCE_DEF_TYPE_MIPMAP, packageName);
+            largeIconResId = getResourceIdentifier(res, RESOURCE_NAME_LAUNCHER, RESOURCE_DEF_TYPE_MIPMAP, packageName);
         }
 
         return largeIconResId;
     }
 
+    /**
+     * Returns the bitmap for a large icon resource, decoded at most once and scaled down to the
+     * system's large icon size. See {@link ReactNativeImageLoader}.
+     */
+    public static Bitmap getLargeIconBitmap(Context context, int largeIconResId) {
+        return ReactNativeImageLoader.getInstance(context).getLargeIcon(largeIconResId);
+    }
+
     public static Uri getSoundUri(Context context, Bundle bundle) {
         Uri soundUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
         String soundName = bundle.getString(KEY_REMOTE_NOTIFICATION_SOUND_NAME);
@@ -215,10 +545,12 @@ public final class ReactNativeUtil {
                 // So the strings 'my_sound.mp3' AND 'my_sound' are accepted
                 // The reason is to make the iOS and android javascript interfaces compatible
 
-                int resId = context.getResources().getIdentifier(soundName, RESOURCE_DEF_TYPE_RAW, context.getPackageName());
+                int resId = getResourceIdentifier(
+                        context.getResources(), soundName, RESOURCE_DEF_TYPE_RAW, context.getPackageName());
                 if (resId == 0) {
                     soundName = soundName.substring(0, soundName.lastIndexOf('.'));
-                    resId = context.getResources().getIdentifier(soundName, RESOURCE_DEF_TYPE_RAW, context.getPackageName());
+                    resId = getResourceIdentifier(
+                            context.getResources(), soundName, RESOURCE_DEF_TYPE_RAW, context.getPackageName());
                 }
 
                 soundUri = Uri.parse("android.resource://" + context.getPackageName() + "/" + resId);
@@ -316,29 +648,85 @@ public final class ReactNativeUtil {
         return new NotificationCompat.BigTextStyle().bigText(bigText);
     }
 
+    public static NotificationCompat.InboxStyle getInboxStyle(Collection<? extends CharSequence> lines) {
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+        for (CharSequence line : lines) {
+            style.addLine(line);
+        }
+        return style;
+    }
+
     public static class UrlWrapper {
         public static HttpURLConnection openConnection(String url) throws Exception {
             return (HttpURLConnection)(new URL(url)).openConnection();
         }
     }
 
-    public static Bitmap fetchImage(String urlString) {
-        try {
-            HttpURLConnection connection = UrlWrapper.openConnection(urlString);
-            connection.setDoInput(true);
-            connection.connect();
-            InputStream input = connection.getInputStream();
-            return BitmapFactory.decodeStream(input);
-        } catch (Exception e) {
-            Log.e(TAG, ERROR_FETCH_IMAGE, e);
-            return null;
-        }
+    /**
+     * Returns the image at the given URL through the shared {@link ReactNativeImageLoader},
+     * or null if it cannot be fetched. Must not be called on the main thread.
+     */
+    public static Bitmap fetchImage(Context context, String urlString) {
+        return ReactNativeImageLoader.getInstance(context).getImage(urlString);
     }
 
     public static String genUUID() {
         return UUID.randomUUID().toString();
     }
 
+    /**
+     * Returns a SHA-256 hex digest over everything that is sent to Azure Notification Hub when
+     * registering. Tags are sorted first so their order does not matter.
+     */
+    public static String computeRegistrationFingerprint(
+            String token,
+            String hubName,
+            String connectionString,
+            String[] tags,
+            boolean isTemplated,
+            String templateName,
+            String template) {
+        StringBuilder builder = new StringBuilder();
+        appendFingerprintField(builder, token);
+        appendFingerprintField(builder, hubName);
+        appendFingerprintField(builder, connectionString);
+        if (tags != null) {
+            String[] sortedTags = Arrays.copyOf(tags, tags.length);
+            Arrays.sort(sortedTags);
+            builder.append(sortedTags.length).append('[');
+            for (String tag : sortedTags) {
+                appendFingerprintField(builder, tag);
+            }
+            builder.append(']');
+        } else {
+            builder.append("-1[]");
+        }
+        builder.append(isTemplated);
+        appendFingerprintField(builder, templateName);
+        appendFingerprintField(builder, template);
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(builder.toString().getBytes(Charset.forName("UTF-8")));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Length-prefixed so that adjacent fields can never run into each other
+    private static void appendFingerprintField(StringBuilder builder, String value) {
+        if (value == null) {
+            builder.append("-1:");
+        } else {
+            builder.append(value.length()).append(':').append(value);
+        }
+    }
+
     private ReactNativeUtil() {
     }
 }
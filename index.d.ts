@@ -9,6 +9,8 @@ declare namespace AzureNotificationHub {
         channelShowBadge: boolean;
         channelEnableLights: boolean;
         channelEnableVibration: boolean;
+        // Milliseconds after which an unchanged registration is sent to the hub again
+        registrationTTL?: number;
     }
 
     export interface TemplateRegistrationConfig extends RegistrationConfig {
@@ -19,6 +21,100 @@ declare namespace AzureNotificationHub {
     export interface RegistrationResponse {
         uuid: string;
     }
+
+    export interface RuntimeOptions {
+        // Milliseconds before a pending hub request rejects with E_TIMEOUT
+        networkTimeout?: number;
+        // Milliseconds to wait for more register calls before contacting the hub
+        registrationDebounce?: number;
+        // Milliseconds to hold tapped notifications if notifyListenersReady() is never called
+        listenersReadyTimeout?: number;
+        // Milliseconds to collect foreground notifications into one remoteNotificationsReceivedBatch event; 0 turns batching off
+        batchWindow?: number;
+        // Most notifications in one batch before it is emitted early
+        batchSize?: number;
+        // Milliseconds to collect notifications that share a group before posting them with a summary; 0 (the default) turns grouping off
+        groupWindow?: number;
+        // Most notifications, summary included, a group may post per second
+        groupMaxPostsPerSecond?: number;
+        // Notifications posted per second once the burst is spent; 0 (the default) turns the limit off. High and max priority ones are never held back
+        notifyRate?: number;
+        // Notifications that can be posted back to back before notifyRate applies
+        notifyBurst?: number;
+        // Most notifications waiting to be posted; the lowest priority one is dropped when it is full
+        notifyQueueSize?: number;
+        // Milliseconds received notifications are kept in the history; 0 (the default) turns the history off
+        historyRetention?: number;
+        // Bytes the history file may take before its oldest notifications are dropped
+        historyMaxSize?: number;
+        // Notification fields holding JSON strings that are parsed natively before they reach JS
+        jsonKeys?: string[];
+        // Thread and queue limits for the native io, cpu and dispatch pools
+        executors?: {
+            io?: ExecutorOptions;
+            cpu?: ExecutorOptions;
+            dispatch?: Pick<ExecutorOptions, 'queueSize'>;
+        };
+    }
+
+    export interface ExecutorOptions {
+        threads?: number;
+        // Tasks that may wait before new ones are dropped
+        queueSize?: number;
+    }
+
+    // Payload of the remoteNotificationsReceivedBatch and remoteNotificationsReceivedInBackground events
+    export type NotificationBatch<T = { [key: string]: any }> = T[];
+
+    export interface NotificationHistoryQuery {
+        // Only notifications received at or after this time, in milliseconds since the epoch
+        since?: number;
+        // Cursor returned with the previous page
+        cursor?: number | null;
+        // Most notifications in the page, 50 by default and at most 500
+        limit?: number;
+        group?: string;
+        tag?: string;
+    }
+
+    export interface NotificationHistoryEntry<T = { [key: string]: any }> {
+        id: string | null;
+        receivedAt: number;
+        notification: T;
+    }
+
+    export interface NotificationHistoryPage<T = { [key: string]: any }> {
+        // Oldest first
+        notifications: NotificationHistoryEntry<T>[];
+        // Pass as cursor to get the next page; null on the last page
+        cursor: number | null;
+    }
+
+    export interface NotificationChannelConfig {
+        // Channel a notification is posted to when its payload has this channelId
+        id: string;
+        // Defaults to the id
+        name?: string;
+        description?: string;
+        // NotificationManager importance, 3 (default) by default
+        importance?: number;
+        showBadge?: boolean;
+        enableLights?: boolean;
+        enableVibration?: boolean;
+    }
+
+    export interface LatencyMetric {
+        count: number;
+        mean: number;
+        max: number;
+        p50: number;
+        p90: number;
+        p99: number;
+    }
+
+    export interface Metrics {
+        [name: string]: number | LatencyMetric;
+    }
 }
 
 declare class AzureNotificationHub {
@@ -29,6 +125,12 @@ declare class AzureNotificationHub {
     static getUUID(autoGen: boolean): Promise<string>;
     static getInitialNotification<T>(): Promise<T>;
     static isNotificationEnabledOnOSLevel(): Promise<boolean>;
+    static configure(options: AzureNotificationHub.RuntimeOptions): void;
+    static notifyListenersReady(): void;
+    static getMetrics(): Promise<AzureNotificationHub.Metrics>;
+    static getNotificationHistory<T>(query?: AzureNotificationHub.NotificationHistoryQuery): Promise<AzureNotificationHub.NotificationHistoryPage<T>>;
+    static clearNotificationHistory(): Promise<void>;
+    static setNotificationChannels(channels: AzureNotificationHub.NotificationChannelConfig[]): Promise<void>;
 }
 
 export = AzureNotificationHub;
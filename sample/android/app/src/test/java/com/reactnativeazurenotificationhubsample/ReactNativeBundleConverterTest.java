@@ -0,0 +1,210 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Parcelable;
+
+import com.azure.reactnative.notificationhub.ReactNativeBundleConverter;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Unit tests for ReactNativeBundleConverter.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        Arguments.class
+})
+public class ReactNativeBundleConverterTest {
+    @Before
+    public void setUp() {
+        mockArguments();
+    }
+
+    @Test
+    public void testToMapNull() {
+        WritableMap map = ReactNativeBundleConverter.toMap(null);
+
+        Assert.assertFalse(map.keySetIterator().hasNextKey());
+    }
+
+    @Test
+    public void testToMapScalars() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("string", "Value");
+        values.put("int", 7);
+        values.put("short", (short) 3);
+        values.put("byte", (byte) 2);
+        values.put("long", 1234567890123L);
+        values.put("float", 1.5f);
+        values.put("double", 2.5);
+        values.put("boolean", true);
+        values.put("char", 'x');
+        values.put("null", null);
+        values.put("unsupported", new HashMap<>());
+
+        ReadableMap map = ReactNativeBundleConverter.toMap(createBundle(values));
+
+        Assert.assertEquals("Value", map.getString("string"));
+        Assert.assertEquals(7, map.getInt("int"));
+        Assert.assertEquals(3, map.getInt("short"));
+        Assert.assertEquals(2, map.getInt("byte"));
+        Assert.assertEquals(1234567890123.0, map.getDouble("long"), 0);
+        Assert.assertEquals(1.5, map.getDouble("float"), 0);
+        Assert.assertEquals(2.5, map.getDouble("double"), 0);
+        Assert.assertTrue(map.getBoolean("boolean"));
+        Assert.assertEquals("x", map.getString("char"));
+        Assert.assertTrue(map.isNull("null"));
+        Assert.assertTrue(map.isNull("unsupported"));
+    }
+
+    @Test
+    public void testToMapArrays() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("strings", new String[] { "a", null, "c" });
+        values.put("ints", new int[] { 1, 2 });
+        values.put("longs", new long[] { 1L << 40 });
+        values.put("doubles", new double[] { 0.5 });
+        values.put("floats", new float[] { 0.25f });
+        values.put("shorts", new short[] { 4 });
+        values.put("bytes", new byte[] { 5 });
+        values.put("booleans", new boolean[] { true, false });
+        values.put("chars", new char[] { 'h', 'i' });
+
+        ReadableMap map = ReactNativeBundleConverter.toMap(createBundle(values));
+
+        ReadableArray strings = map.getArray("strings");
+        Assert.assertEquals(3, strings.size());
+        Assert.assertEquals("a", strings.getString(0));
+        Assert.assertTrue(strings.isNull(1));
+        Assert.assertEquals(2, map.getArray("ints").getInt(1));
+        Assert.assertEquals((double) (1L << 40), map.getArray("longs").getDouble(0), 0);
+        Assert.assertEquals(0.5, map.getArray("doubles").getDouble(0), 0);
+        Assert.assertEquals(0.25, map.getArray("floats").getDouble(0), 0);
+        Assert.assertEquals(4, map.getArray("shorts").getInt(0));
+        Assert.assertEquals(5, map.getArray("bytes").getInt(0));
+        Assert.assertFalse(map.getArray("booleans").getBoolean(1));
+        Assert.assertEquals("i", map.getArray("chars").getString(1));
+    }
+
+    @Test
+    public void testToMapNested() {
+        Map<String, Object> innerValues = new LinkedHashMap<>();
+        innerValues.put("title", "Inner");
+        Bundle inner = createBundle(innerValues);
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("bundle", inner);
+        values.put("bundles", new Parcelable[] { inner });
+        values.put("list", new ArrayList<Object>(Arrays.asList("a", 1, Arrays.asList(true), inner)));
+
+        ReadableMap map = ReactNativeBundleConverter.toMap(createBundle(values));
+
+        Assert.assertEquals("Inner", map.getMap("bundle").getString("title"));
+        Assert.assertEquals("Inner", map.getArray("bundles").getMap(0).getString("title"));
+        ReadableArray list = map.getArray("list");
+        Assert.assertEquals(4, list.size());
+        Assert.assertEquals("a", list.getString(0));
+        Assert.assertEquals(1, list.getInt(1));
+        Assert.assertTrue(list.getArray(2).getBoolean(0));
+        Assert.assertEquals("Inner", list.getMap(3).getString("title"));
+    }
+
+    @Test
+    public void testToMapParcelable() {
+        final String url = "https://example.com/a.png";
+        Uri uri = PowerMockito.mock(Uri.class);
+        when(uri.toString()).thenReturn(url);
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("uri", uri);
+
+        ReadableMap map = ReactNativeBundleConverter.toMap(createBundle(values));
+
+        Assert.assertEquals(ReadableType.String, map.getType("uri"));
+        Assert.assertEquals(url, map.getString("uri"));
+    }
+
+    @Test
+    public void testToMapTypicalPayload() {
+        // What FirebaseMessagingService hands over for a data message with a few custom fields
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("google.message_id", "0:1589300000000000%31bd1c9631bd1c96");
+        values.put("google.sent_time", 1589300000000L);
+        values.put("google.ttl", 2419200);
+        values.put("from", "123456789012");
+        values.put("message", "Your order has shipped");
+        values.put("foreground", true);
+        Bundle bundle = createBundle(values);
+
+        ReadableMap map = ReactNativeBundleConverter.toMap(bundle);
+
+        // The sent time is a long and must not be truncated to an int
+        Assert.assertEquals(ReadableType.Number, map.getType("google.sent_time"));
+        Assert.assertEquals(1589300000000.0, map.getDouble("google.sent_time"), 0);
+        Assert.assertEquals(2419200, map.getInt("google.ttl"));
+        Assert.assertEquals("Your order has shipped", map.getString("message"));
+        Assert.assertTrue(map.getBoolean("foreground"));
+
+        // Each value is read once through the untyped accessor and never through a typed getter
+        for (String key : values.keySet()) {
+            verify(bundle, times(1)).get(key);
+        }
+        verify(bundle, times(0)).getString(anyString());
+        verify(bundle, times(0)).getLong(anyString());
+    }
+
+    static void mockArguments() {
+        PowerMockito.mockStatic(Arguments.class);
+        when(Arguments.createMap()).thenAnswer(new Answer<WritableMap>() {
+            @Override
+            public WritableMap answer(InvocationOnMock invocation) {
+                return new JavaOnlyMap();
+            }
+        });
+        when(Arguments.createArray()).thenAnswer(new Answer<WritableArray>() {
+            @Override
+            public WritableArray answer(InvocationOnMock invocation) {
+                return new JavaOnlyArray();
+            }
+        });
+    }
+
+    static Bundle createBundle(final Map<String, Object> values) {
+        Bundle bundle = PowerMockito.mock(Bundle.class);
+        when(bundle.keySet()).thenReturn(values.keySet());
+        when(bundle.get(anyString())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return values.get(invocation.<String>getArgument(0));
+            }
+        });
+        return bundle;
+    }
+}
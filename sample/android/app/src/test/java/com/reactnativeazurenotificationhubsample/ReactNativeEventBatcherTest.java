@@ -0,0 +1,217 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.os.Bundle;
+
+import com.azure.reactnative.notificationhub.ReactNativeEventBatcher;
+import com.azure.reactnative.notificationhub.ReactNativeMetrics;
+import com.azure.reactnative.notificationhub.ReactNativeUtil;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.concurrent.ScheduledFuture;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Unit tests for ReactNativeEventBatcher.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        ReactNativeUtil.class,
+        Arguments.class
+})
+public class ReactNativeEventBatcherTest {
+    private static final long BATCH_WINDOW = 200;
+
+    @Mock
+    ReactApplicationContext mReactApplicationContext;
+
+    @Mock
+    WritableArray mNotifications;
+
+    @Mock
+    ScheduledFuture mScheduledFuture;
+
+    private ArgumentCaptor<Runnable> mFlushTask;
+
+    private ReactNativeEventBatcher mBatcher;
+
+    @Before
+    public void setUp() {
+        // Reset mocks
+        reset(mNotifications);
+        reset(mScheduledFuture);
+
+        // Prepare mock objects
+        ReactNativeMetrics.reset();
+        PowerMockito.mockStatic(ReactNativeUtil.class);
+        PowerMockito.mockStatic(Arguments.class);
+        when(Arguments.createArray()).thenReturn(mNotifications);
+        mFlushTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.dispatchDelayed(mFlushTask.capture(), anyLong())).thenReturn(mScheduledFuture);
+
+        mBatcher = new ReactNativeEventBatcher(mReactApplicationContext);
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        Assert.assertFalse(mBatcher.isEnabled());
+        Assert.assertEquals(DEFAULT_BATCH_SIZE, mBatcher.getMaxSize());
+
+        mBatcher.setWindow(BATCH_WINDOW);
+
+        Assert.assertTrue(mBatcher.isEnabled());
+        Assert.assertEquals(BATCH_WINDOW, mBatcher.getWindow());
+    }
+
+    @Test
+    public void testAddEmitsAfterWindow() {
+        Bundle first = PowerMockito.mock(Bundle.class);
+        Bundle second = PowerMockito.mock(Bundle.class);
+        WritableMap firstMap = PowerMockito.mock(WritableMap.class);
+        WritableMap secondMap = PowerMockito.mock(WritableMap.class);
+        when(ReactNativeUtil.convertBundleToMap(first)).thenReturn(firstMap);
+        when(ReactNativeUtil.convertBundleToMap(second)).thenReturn(secondMap);
+        mBatcher.setWindow(BATCH_WINDOW);
+
+        mBatcher.add(first);
+        mBatcher.add(second);
+
+        Assert.assertEquals(2, mBatcher.getPendingCount());
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), eq(BATCH_WINDOW));
+        verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.emitEvent(any(), anyString(), any());
+
+        mFlushTask.getValue().run();
+
+        InOrder order = inOrder(mNotifications);
+        order.verify(mNotifications).pushMap(firstMap);
+        order.verify(mNotifications).pushMap(secondMap);
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.emitEvent(mReactApplicationContext, EVENT_REMOTE_NOTIFICATIONS_RECEIVED_BATCH, mNotifications);
+        Assert.assertEquals(0, mBatcher.getPendingCount());
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_BATCH_EMITTED));
+        Assert.assertEquals(2, ReactNativeMetrics.getCount(METRIC_BATCH_NOTIFICATIONS));
+    }
+
+    @Test
+    public void testFullDispatcherStillEmitsAfterWindow() {
+        ArgumentCaptor<Runnable> fallbackTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.dispatchDelayed(any(Runnable.class), anyLong())).thenReturn(null);
+        when(ReactNativeUtil.runDelayed(fallbackTask.capture(), eq(BATCH_WINDOW))).thenReturn(mScheduledFuture);
+        mBatcher.setWindow(BATCH_WINDOW);
+
+        mBatcher.add(PowerMockito.mock(Bundle.class));
+        fallbackTask.getValue().run();
+
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.emitEvent(mReactApplicationContext, EVENT_REMOTE_NOTIFICATIONS_RECEIVED_BATCH, mNotifications);
+        Assert.assertEquals(0, mBatcher.getPendingCount());
+    }
+
+    @Test
+    public void testAddEmitsWhenFull() {
+        mBatcher.setWindow(BATCH_WINDOW);
+        mBatcher.setMaxSize(3);
+
+        for (int i = 0; i < 3; i++) {
+            mBatcher.add(PowerMockito.mock(Bundle.class));
+        }
+
+        // The full batch is handed to the dispatcher instead of being converted on this thread
+        verify(mScheduledFuture, times(1)).cancel(false);
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), eq(0L));
+        verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.emitEvent(any(), anyString(), any());
+        verify(mNotifications, times(0)).pushMap(any());
+
+        // Notifications added before it runs join the same batch
+        mBatcher.add(PowerMockito.mock(Bundle.class));
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), eq(0L));
+
+        mFlushTask.getValue().run();
+
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.emitEvent(mReactApplicationContext, EVENT_REMOTE_NOTIFICATIONS_RECEIVED_BATCH, mNotifications);
+        verify(mNotifications, times(4)).pushMap(any());
+        Assert.assertEquals(0, mBatcher.getPendingCount());
+        Assert.assertEquals(4, ReactNativeMetrics.getLatencyPercentile(METRIC_BATCH_SIZE, 100));
+
+        // The next notification starts a new window
+        mBatcher.add(PowerMockito.mock(Bundle.class));
+        verifyStatic(ReactNativeUtil.class, times(2));
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), eq(BATCH_WINDOW));
+    }
+
+    @Test
+    public void testFullBatchFallsBackWhenDispatcherIsFull() {
+        ArgumentCaptor<Runnable> fallbackTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.dispatchDelayed(any(Runnable.class), anyLong())).thenReturn(null);
+        when(ReactNativeUtil.runDelayed(fallbackTask.capture(), eq(0L))).thenReturn(mScheduledFuture);
+        mBatcher.setWindow(BATCH_WINDOW);
+        mBatcher.setMaxSize(1);
+
+        mBatcher.add(PowerMockito.mock(Bundle.class));
+        verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.emitEvent(any(), anyString(), any());
+        fallbackTask.getValue().run();
+
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.emitEvent(mReactApplicationContext, EVENT_REMOTE_NOTIFICATIONS_RECEIVED_BATCH, mNotifications);
+    }
+
+    @Test
+    public void testFlushWhenEmpty() {
+        mBatcher.flush();
+
+        verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.emitEvent(any(), anyString(), any());
+        Assert.assertEquals(0, ReactNativeMetrics.getCount(METRIC_BATCH_EMITTED));
+    }
+
+    @Test
+    public void testDisableEmitsPending() {
+        mBatcher.setWindow(BATCH_WINDOW);
+        mBatcher.add(PowerMockito.mock(Bundle.class));
+
+        mBatcher.setWindow(0);
+
+        Assert.assertFalse(mBatcher.isEnabled());
+        verify(mScheduledFuture, times(1)).cancel(false);
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.emitEvent(mReactApplicationContext, EVENT_REMOTE_NOTIFICATIONS_RECEIVED_BATCH, mNotifications);
+    }
+
+    @Test
+    public void testSetMaxSizeAtLeastOne() {
+        mBatcher.setMaxSize(0);
+
+        Assert.assertEquals(1, mBatcher.getMaxSize());
+    }
+}
@@ -0,0 +1,202 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.os.Build;
+import android.util.Log;
+
+import com.azure.reactnative.notificationhub.ReactNativeExecutor;
+import com.azure.reactnative.notificationhub.ReactNativeMetrics;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+
+/**
+ * Unit tests for ReactNativeExecutor.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        Build.VERSION.class,
+        Log.class
+})
+public class ReactNativeExecutorTest {
+    private static final String NAME = "test";
+
+    @Before
+    public void setUp() {
+        ReactNativeMetrics.reset();
+        PowerMockito.mockStatic(Log.class);
+    }
+
+    @Test
+    public void testExecuteOnNamedThread() throws Exception {
+        ReactNativeExecutor executor = new ReactNativeExecutor(NAME, 1, 4);
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Assert.assertTrue(executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                thread.set(Thread.currentThread());
+                done.countDown();
+            }
+        }));
+
+        Assert.assertTrue(done.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals("AzureNotificationHub-" + NAME + "-1", thread.get().getName());
+        Assert.assertTrue(thread.get().isDaemon());
+    }
+
+    @Test
+    public void testCancelledTasksLeaveTheQueue() {
+        Whitebox.setInternalState(Build.VERSION.class, "SDK_INT", Build.VERSION_CODES.LOLLIPOP);
+        ReactNativeExecutor executor = new ReactNativeExecutor(NAME, 1, 2);
+
+        ScheduledFuture<?> first = executor.schedule(new NoOp(), 60000);
+        ScheduledFuture<?> second = executor.schedule(new NoOp(), 60000);
+        first.cancel(false);
+        second.cancel(false);
+
+        Assert.assertEquals(0, executor.getQueuedCount());
+        Assert.assertNotNull(executor.schedule(new NoOp(), 60000));
+        Assert.assertEquals(0, ReactNativeMetrics.getCount(NAME + METRIC_SUFFIX_REJECTED));
+    }
+
+    @Test
+    public void testCancelledTasksArePurgedWhenQueueIsFull() {
+        Whitebox.setInternalState(Build.VERSION.class, "SDK_INT", Build.VERSION_CODES.KITKAT);
+        ReactNativeExecutor executor = new ReactNativeExecutor(NAME, 1, 2);
+
+        executor.schedule(new NoOp(), 60000).cancel(false);
+        executor.schedule(new NoOp(), 60000).cancel(false);
+
+        Assert.assertNotNull(executor.schedule(new NoOp(), 60000));
+        Assert.assertEquals(1, executor.getQueuedCount());
+        Assert.assertEquals(0, ReactNativeMetrics.getCount(NAME + METRIC_SUFFIX_REJECTED));
+    }
+
+    @Test
+    public void testExecuteShedsLoadWhenQueueIsFull() throws Exception {
+        ReactNativeExecutor executor = new ReactNativeExecutor(NAME, 1, 2);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(3);
+        Runnable blocker = new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+                finished.countDown();
+            }
+        };
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                finished.countDown();
+            }
+        };
+
+        Assert.assertTrue(executor.execute(blocker));
+        Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+        Assert.assertTrue(executor.execute(task));
+        Assert.assertTrue(executor.execute(task));
+        Assert.assertFalse(executor.execute(task));
+
+        Assert.assertEquals(1, executor.getActiveCount());
+        Assert.assertEquals(2, executor.getQueuedCount());
+        Assert.assertEquals(1, ReactNativeMetrics.getGauge(NAME + METRIC_SUFFIX_ACTIVE));
+        Assert.assertEquals(2, ReactNativeMetrics.getGauge(NAME + METRIC_SUFFIX_QUEUED));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(NAME + METRIC_SUFFIX_REJECTED));
+
+        release.countDown();
+        Assert.assertTrue(finished.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(2, ReactNativeMetrics.getLatencyPercentile(NAME + METRIC_SUFFIX_QUEUE_DEPTH, 100));
+    }
+
+    @Test
+    public void testSetMaxQueueSize() {
+        ReactNativeExecutor executor = new ReactNativeExecutor(NAME, 1, 1);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+
+        executor.setMaxQueueSize(3);
+        executor.schedule(task, 60000);
+        executor.schedule(task, 60000);
+
+        Assert.assertNotNull(executor.schedule(task, 60000));
+        Assert.assertNull(executor.schedule(task, 60000));
+        Assert.assertEquals(3, executor.getMaxQueueSize());
+    }
+
+    @Test
+    public void testSetThreads() throws Exception {
+        ReactNativeExecutor executor = new ReactNativeExecutor(NAME, 1, 4);
+        final CountDownLatch running = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+
+        executor.setThreads(2);
+        executor.execute(task);
+        executor.execute(task);
+
+        // Both tasks run at once on the two threads
+        Assert.assertTrue(running.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(2, executor.getThreads());
+        release.countDown();
+    }
+
+    @Test
+    public void testExecuteRecordsLatencyAndSurvivesFailure() throws Exception {
+        ReactNativeExecutor executor = new ReactNativeExecutor(NAME, 1, 4);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException();
+            }
+        });
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+
+        Assert.assertTrue(done.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(NAME + METRIC_SUFFIX_FAILED));
+        Assert.assertEquals(2, ReactNativeMetrics.getLatencyCount(NAME + METRIC_SUFFIX_LAG));
+    }
+
+    private static class NoOp implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+}
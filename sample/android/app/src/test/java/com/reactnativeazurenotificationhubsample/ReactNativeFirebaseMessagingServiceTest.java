@@ -8,10 +8,14 @@ import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
 
+import com.azure.reactnative.notificationhub.ReactNativeMessageDeduplicator;
 import com.azure.reactnative.notificationhub.ReactNativeNotificationChannelBuilder;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationChannelRegistry;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationHistory;
 import com.azure.reactnative.notificationhub.ReactNativeNotificationHubUtil;
 import com.azure.reactnative.notificationhub.ReactNativeFirebaseMessagingService;
 import com.azure.reactnative.notificationhub.ReactNativeNotificationsHandler;
+import com.azure.reactnative.notificationhub.ReactNativeRegistrationCoordinator;
 import com.azure.reactnative.notificationhub.ReactNativeRegistrationIntentService;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.google.firebase.messaging.FirebaseMessagingService;
@@ -30,6 +34,7 @@ import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.reset;
@@ -47,6 +52,10 @@ import static org.powermock.api.support.membermodification.MemberMatcher.methods
         ReactNativeNotificationHubUtil.class,
         ReactNativeNotificationsHandler.class,
         ReactNativeRegistrationIntentService.class,
+        ReactNativeRegistrationCoordinator.class,
+        ReactNativeMessageDeduplicator.class,
+        ReactNativeNotificationHistory.class,
+        ReactNativeNotificationChannelRegistry.class,
         ReactNativeNotificationChannelBuilder.Factory.class,
         ReactNativeNotificationHubUtil.IntentFactory.class,
         Build.VERSION.class,
@@ -64,6 +73,15 @@ public class ReactNativeFirebaseMessagingServiceTest {
     @Mock
     NotificationManager mNotificationManager;
 
+    @Mock
+    ReactNativeRegistrationCoordinator mRegistrationCoordinator;
+
+    @Mock
+    ReactNativeMessageDeduplicator mDeduplicator;
+
+    @Mock
+    ReactNativeNotificationChannelRegistry mChannelRegistry;
+
     ReactNativeFirebaseMessagingService mMessagingService;
 
     @Before
@@ -71,12 +89,23 @@ public class ReactNativeFirebaseMessagingServiceTest {
         // Reset mocks
         reset(mHubUtil);
         reset(mReactApplicationContext);
+        reset(mRegistrationCoordinator);
+        reset(mDeduplicator);
+        reset(mChannelRegistry);
 
         // Prepare mock objects
         PowerMockito.mockStatic(ReactNativeNotificationHubUtil.class);
         when(ReactNativeNotificationHubUtil.getInstance()).thenReturn(mHubUtil);
         PowerMockito.mockStatic(ReactNativeNotificationsHandler.class);
         PowerMockito.mockStatic(ReactNativeRegistrationIntentService.class);
+        PowerMockito.mockStatic(ReactNativeRegistrationCoordinator.class);
+        when(ReactNativeRegistrationCoordinator.getInstance()).thenReturn(mRegistrationCoordinator);
+        PowerMockito.mockStatic(ReactNativeMessageDeduplicator.class);
+        when(ReactNativeMessageDeduplicator.getInstance(any())).thenReturn(mDeduplicator);
+        when(mDeduplicator.markSeen(any())).thenReturn(true);
+        PowerMockito.mockStatic(ReactNativeNotificationHistory.class);
+        PowerMockito.mockStatic(ReactNativeNotificationChannelRegistry.class);
+        when(ReactNativeNotificationChannelRegistry.getInstance(any())).thenReturn(mChannelRegistry);
         PowerMockito.mockStatic(ReactNativeNotificationChannelBuilder.Factory.class);
         PowerMockito.mockStatic(ReactNativeNotificationHubUtil.IntentFactory.class);
         PowerMockito.suppress(methodsDeclaredIn(FirebaseMessagingService.class));
@@ -193,9 +222,8 @@ public class ReactNativeFirebaseMessagingServiceTest {
 
         mMessagingService.onNewToken(token);
 
-        verifyStatic(ReactNativeNotificationHubUtil.IntentFactory.class);
-        ReactNativeNotificationHubUtil.IntentFactory.createIntent(
-                any(), eq(ReactNativeRegistrationIntentService.class));
+        verify(mRegistrationCoordinator, times(1)).requestRegistrationNow(mMessagingService);
+        verify(mRegistrationCoordinator, times(0)).requestRegistration(any());
     }
 
     @Test
@@ -251,4 +279,72 @@ public class ReactNativeFirebaseMessagingServiceTest {
         PowerMockito.verifyStatic(ReactNativeNotificationsHandler.class);
         ReactNativeNotificationsHandler.sendBroadcast(any(), eq(bundle), eq((long)0));
     }
+
+    @Test
+    public void testOnMessageReceivedRoutesToDeclaredChannel() {
+        final String channelID = "orders";
+        RemoteMessage remoteMessage = PowerMockito.mock(RemoteMessage.class);
+        Intent intent = PowerMockito.mock(Intent.class);
+        Bundle bundle = PowerMockito.mock(Bundle.class);
+        when(remoteMessage.toIntent()).thenReturn(intent);
+        when(intent.getExtras()).thenReturn(bundle);
+        when(bundle.getString(KEY_REMOTE_NOTIFICATION_CHANNEL_ID)).thenReturn(channelID);
+        when(mChannelRegistry.resolve(any(), eq(channelID))).thenReturn(channelID);
+        when(mHubUtil.getAppIsForeground()).thenReturn(false);
+
+        // Prepare channel
+        ReactNativeNotificationChannelBuilder builder = PowerMockito.mock(ReactNativeNotificationChannelBuilder.class);
+        when(ReactNativeNotificationChannelBuilder.Factory.create()).thenReturn(builder);
+        NotificationChannel channel = PowerMockito.mock(NotificationChannel.class);
+        when(channel.getId()).thenReturn(NOTIFICATION_CHANNEL_ID);
+        when(builder.build()).thenReturn(channel);
+        ReactNativeFirebaseMessagingService.createNotificationChannel(mReactApplicationContext);
+
+        mMessagingService.onMessageReceived(remoteMessage);
+
+        PowerMockito.verifyStatic(ReactNativeNotificationsHandler.class);
+        ReactNativeNotificationsHandler.sendNotification(any(), eq(bundle), eq(channelID));
+    }
+
+    @Test
+    public void testOnMessageReceivedRecordsHistory() {
+        RemoteMessage remoteMessage = PowerMockito.mock(RemoteMessage.class);
+        Intent intent = PowerMockito.mock(Intent.class);
+        Bundle bundle = PowerMockito.mock(Bundle.class);
+        when(remoteMessage.toIntent()).thenReturn(intent);
+        when(intent.getExtras()).thenReturn(bundle);
+        when(mHubUtil.getAppIsForeground()).thenReturn(true);
+
+        // Prepare channel
+        ReactNativeNotificationChannelBuilder builder = PowerMockito.mock(ReactNativeNotificationChannelBuilder.class);
+        when(ReactNativeNotificationChannelBuilder.Factory.create()).thenReturn(builder);
+        NotificationChannel channel = PowerMockito.mock(NotificationChannel.class);
+        when(channel.getId()).thenReturn(NOTIFICATION_CHANNEL_ID);
+        when(builder.build()).thenReturn(channel);
+        ReactNativeFirebaseMessagingService.createNotificationChannel(mReactApplicationContext);
+
+        mMessagingService.onMessageReceived(remoteMessage);
+
+        PowerMockito.verifyStatic(ReactNativeNotificationHistory.class);
+        ReactNativeNotificationHistory.record(mMessagingService, bundle);
+    }
+
+    @Test
+    public void testOnMessageReceivedDropsDuplicate() {
+        final String messageId = "0:1234";
+        RemoteMessage remoteMessage = PowerMockito.mock(RemoteMessage.class);
+        when(remoteMessage.getMessageId()).thenReturn(messageId);
+        when(mDeduplicator.markSeen(messageId)).thenReturn(false);
+
+        mMessagingService.onMessageReceived(remoteMessage);
+
+        verify(remoteMessage, times(0)).toIntent();
+        verify(mHubUtil, times(0)).getAppIsForeground();
+        PowerMockito.verifyStatic(ReactNativeNotificationsHandler.class, times(0));
+        ReactNativeNotificationsHandler.sendNotification(any(), any(), any());
+        PowerMockito.verifyStatic(ReactNativeNotificationsHandler.class, times(0));
+        ReactNativeNotificationsHandler.sendBroadcast(any(), any(), anyLong());
+        PowerMockito.verifyStatic(ReactNativeNotificationHistory.class, times(0));
+        ReactNativeNotificationHistory.record(any(), any());
+    }
 }
@@ -0,0 +1,133 @@
+package com.reactnativeazurenotificationhubsample;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.azure.reactnative.notificationhub.ReactNativeHubOperation;
+import com.azure.reactnative.notificationhub.ReactNativeMetrics;
+import com.facebook.react.bridge.Promise;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for ReactNativeHubOperation.
+ */
+public class ReactNativeHubOperationTest {
+    private static final String OPERATION_NAME = "test";
+
+    private ExecutorService mExecutor;
+    private ScheduledExecutorService mScheduler;
+    private Promise mPromise;
+    private CountDownLatch mRelease;
+
+    @Before
+    public void setUp() {
+        ReactNativeMetrics.reset();
+        mExecutor = Executors.newSingleThreadExecutor();
+        mScheduler = Executors.newSingleThreadScheduledExecutor();
+        mPromise = mock(Promise.class);
+        mRelease = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+        mExecutor.shutdownNow();
+        mScheduler.shutdownNow();
+    }
+
+    @Test
+    public void testResolvesOnWorkerAndRecordsLatency() {
+        ReactNativeHubOperation operation = new ReactNativeHubOperation(OPERATION_NAME, mPromise) {
+            @Override
+            protected Object execute() {
+                return Thread.currentThread().getName();
+            }
+        };
+
+        operation.submit(mExecutor, mScheduler, 1000);
+
+        verify(mPromise, timeout(1000).times(1)).resolve(any());
+        Assert.assertTrue(operation.isSettled());
+        Assert.assertEquals(1, ReactNativeMetrics.getLatencyCount(OPERATION_NAME + METRIC_SUFFIX_QUEUE_WAIT));
+        Assert.assertEquals(1, ReactNativeMetrics.getLatencyCount(OPERATION_NAME + METRIC_SUFFIX_NETWORK));
+    }
+
+    @Test
+    public void testRejectsOnException() {
+        final Exception exception = new Exception("Unhandled exception");
+        ReactNativeHubOperation operation = new ReactNativeHubOperation(OPERATION_NAME, mPromise) {
+            @Override
+            protected Object execute() throws Exception {
+                throw exception;
+            }
+        };
+
+        operation.run();
+
+        verify(mPromise, times(1)).reject(ERROR_NOTIFICATION_HUB, exception);
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(OPERATION_NAME + METRIC_SUFFIX_FAILED));
+    }
+
+    @Test
+    public void testTimeoutRejectsOnce() throws Exception {
+        ReactNativeHubOperation operation = new BlockingOperation();
+
+        operation.submit(mExecutor, mScheduler, 50);
+
+        verify(mPromise, timeout(1000).times(1)).reject(ERROR_OPERATION_TIMEOUT, ERROR_OPERATION_TIMEOUT_DESC);
+        mRelease.countDown();
+        mExecutor.shutdown();
+        mExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        verify(mPromise, times(0)).resolve(any());
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(OPERATION_NAME + METRIC_SUFFIX_TIMEOUT));
+    }
+
+    @Test
+    public void testCancelAllRejectsPendingOperations() {
+        ReactNativeHubOperation operation = new BlockingOperation();
+
+        operation.submit(mExecutor, mScheduler, 0);
+        ReactNativeHubOperation.cancelAll();
+
+        verify(mPromise, times(1)).reject(ERROR_OPERATION_CANCELLED, ERROR_OPERATION_CANCELLED_DESC);
+        Assert.assertTrue(operation.isSettled());
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(OPERATION_NAME + METRIC_SUFFIX_CANCELLED));
+    }
+
+    @Test
+    public void testCancelledOperationIsSkipped() {
+        ReactNativeHubOperation operation = new BlockingOperation();
+
+        operation.cancel();
+        operation.run();
+
+        verify(mPromise, times(0)).resolve(any());
+        Assert.assertEquals(0, ReactNativeMetrics.getLatencyCount(OPERATION_NAME + METRIC_SUFFIX_NETWORK));
+    }
+
+    private class BlockingOperation extends ReactNativeHubOperation {
+        BlockingOperation() {
+            super(OPERATION_NAME, mPromise);
+        }
+
+        @Override
+        protected Object execute() throws Exception {
+            mRelease.await();
+            return AZURE_NOTIFICATION_HUB_UNREGISTERED;
+        }
+    }
+}
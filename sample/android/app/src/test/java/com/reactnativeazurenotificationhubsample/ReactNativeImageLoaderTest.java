@@ -0,0 +1,407 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import com.azure.reactnative.notificationhub.ReactNativeImageLoader;
+import com.azure.reactnative.notificationhub.ReactNativeMetrics;
+import com.facebook.react.bridge.ReactApplicationContext;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Unit tests for ReactNativeImageLoader.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        ReactNativeImageLoader.class,
+        BitmapFactory.class,
+        Log.class
+})
+@PowerMockIgnore({"com.sun.net.httpserver.*", "javax.net.ssl.*"})
+public class ReactNativeImageLoaderTest {
+    private static final int LARGE_ICON_SIZE = 128;
+    private static final int BITMAP_BYTES = LARGE_ICON_SIZE * LARGE_ICON_SIZE * 4;
+    private static final long DISK_CACHE_BYTES = 1024 * 1024;
+    private static final String ETAG = "\"v1\"";
+    private static final byte[] IMAGE_DATA = new byte[1000];
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private HttpServer mServer;
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private final AtomicInteger mConditionalRequests = new AtomicInteger();
+    private volatile String mCacheControl;
+    private volatile long mResponseDelay;
+
+    @Mock
+    ReactApplicationContext mReactApplicationContext;
+
+    @Mock
+    Resources mResources;
+
+    @Mock
+    BitmapFactory.Options mOptions;
+
+    @Before
+    public void setUp() throws Exception {
+        // Reset mocks
+        reset(mReactApplicationContext);
+        reset(mResources);
+
+        // Prepare mock objects
+        ReactNativeMetrics.reset();
+        PowerMockito.mockStatic(BitmapFactory.class);
+        PowerMockito.whenNew(BitmapFactory.Options.class).withNoArguments().thenReturn(mOptions);
+        when(mReactApplicationContext.getResources()).thenReturn(mResources);
+        when(mResources.getDimensionPixelSize(anyInt())).thenReturn(LARGE_ICON_SIZE);
+        PowerMockito.mockStatic(Log.class);
+
+        // Local stand-in for an avatar host that honours If-None-Match
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                try {
+                    Thread.sleep(mResponseDelay);
+                } catch (InterruptedException e) {
+                }
+
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                if (mCacheControl != null) {
+                    exchange.getResponseHeaders().set("Cache-Control", mCacheControl);
+                }
+
+                if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    mConditionalRequests.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, IMAGE_DATA.length);
+                    OutputStream body = exchange.getResponseBody();
+                    body.write(IMAGE_DATA);
+                    body.close();
+                }
+                exchange.close();
+            }
+        });
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+    }
+
+    @Test
+    public void testGetLargeIconNoResource() {
+        ReactNativeImageLoader loader = new ReactNativeImageLoader(mReactApplicationContext, BITMAP_BYTES);
+
+        Assert.assertNull(loader.getLargeIcon(0));
+        verifyStatic(BitmapFactory.class, times(0));
+        BitmapFactory.decodeResource(any(Resources.class), anyInt(), any(BitmapFactory.Options.class));
+    }
+
+    @Test
+    public void testGetLargeIconDecodesOnce() {
+        final int resId = 1;
+        Bitmap bitmap = mockBitmap(BITMAP_BYTES);
+        when(BitmapFactory.decodeResource(mResources, resId, mOptions)).thenReturn(null, bitmap);
+        ReactNativeImageLoader loader = new ReactNativeImageLoader(mReactApplicationContext, BITMAP_BYTES);
+
+        Assert.assertSame(bitmap, loader.getLargeIcon(resId));
+        Assert.assertSame(bitmap, loader.getLargeIcon(resId));
+
+        // One pass for the bounds and one for the pixels, both on the first call only
+        verifyStatic(BitmapFactory.class, times(2));
+        BitmapFactory.decodeResource(eq(mResources), eq(resId), any(BitmapFactory.Options.class));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_IMAGE_MEMORY_MISS));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_IMAGE_MEMORY_HIT));
+        Assert.assertEquals(BITMAP_BYTES, loader.getMemoryCacheSize());
+    }
+
+    @Test
+    public void testGetLargeIconDownsamples() {
+        final int resId = 1;
+        mOptions.outWidth = LARGE_ICON_SIZE * 4;
+        mOptions.outHeight = LARGE_ICON_SIZE * 4;
+        ReactNativeImageLoader loader = new ReactNativeImageLoader(mReactApplicationContext, BITMAP_BYTES);
+
+        loader.getLargeIcon(resId);
+
+        Assert.assertEquals(4, mOptions.inSampleSize);
+        Assert.assertFalse(mOptions.inJustDecodeBounds);
+    }
+
+    @Test
+    public void testGetLargeIconDecodeFailed() {
+        final int resId = 1;
+        when(BitmapFactory.decodeResource(mResources, resId, mOptions)).thenReturn(null);
+        ReactNativeImageLoader loader = new ReactNativeImageLoader(mReactApplicationContext, BITMAP_BYTES);
+
+        Assert.assertNull(loader.getLargeIcon(resId));
+        Assert.assertEquals(0, loader.getMemoryCacheSize());
+    }
+
+    @Test
+    public void testMemoryCacheEvictsLeastRecentlyUsed() {
+        Bitmap first = mockBitmap(BITMAP_BYTES);
+        Bitmap second = mockBitmap(BITMAP_BYTES);
+        Bitmap third = mockBitmap(BITMAP_BYTES);
+        when(BitmapFactory.decodeResource(mResources, 1, mOptions)).thenReturn(null, first);
+        when(BitmapFactory.decodeResource(mResources, 2, mOptions)).thenReturn(null, second);
+        when(BitmapFactory.decodeResource(mResources, 3, mOptions)).thenReturn(null, third);
+        ReactNativeImageLoader loader = new ReactNativeImageLoader(mReactApplicationContext, BITMAP_BYTES * 2);
+
+        loader.getLargeIcon(1);
+        loader.getLargeIcon(2);
+        loader.getLargeIcon(1);
+        loader.getLargeIcon(3);
+
+        Assert.assertEquals(BITMAP_BYTES * 2, loader.getMemoryCacheSize());
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_IMAGE_MEMORY_EVICTED));
+        Assert.assertSame(first, loader.getLargeIcon(1));
+        Assert.assertEquals(2, ReactNativeMetrics.getCount(METRIC_IMAGE_MEMORY_HIT));
+    }
+
+    @Test
+    public void testMemoryCacheSkipsOversizedBitmap() {
+        Bitmap bitmap = mockBitmap(BITMAP_BYTES * 2);
+        when(BitmapFactory.decodeResource(mResources, 1, mOptions)).thenReturn(null, bitmap);
+        ReactNativeImageLoader loader = new ReactNativeImageLoader(mReactApplicationContext, BITMAP_BYTES);
+
+        Assert.assertSame(bitmap, loader.getLargeIcon(1));
+        Assert.assertEquals(0, loader.getMemoryCacheSize());
+    }
+
+    @Test
+    public void testCalculateInSampleSize() {
+        Assert.assertEquals(1, ReactNativeImageLoader.calculateInSampleSize(128, 128, 128, 128));
+        Assert.assertEquals(1, ReactNativeImageLoader.calculateInSampleSize(255, 255, 128, 128));
+        Assert.assertEquals(2, ReactNativeImageLoader.calculateInSampleSize(256, 256, 128, 128));
+        Assert.assertEquals(2, ReactNativeImageLoader.calculateInSampleSize(1024, 256, 128, 128));
+        Assert.assertEquals(8, ReactNativeImageLoader.calculateInSampleSize(1024, 1024, 128, 128));
+        Assert.assertEquals(1, ReactNativeImageLoader.calculateInSampleSize(0, 0, 128, 128));
+    }
+
+    @Test
+    public void testGetImageMemoryHit() throws Exception {
+        Bitmap bitmap = mockBitmap(BITMAP_BYTES);
+        when(BitmapFactory.decodeByteArray(any(byte[].class), anyInt(), anyInt(), eq(mOptions))).thenReturn(bitmap);
+        ReactNativeImageLoader loader = createLoader(mTemporaryFolder.newFolder());
+
+        Assert.assertSame(bitmap, loader.getImage(getUrl("avatar.png")));
+        Assert.assertSame(bitmap, loader.getImage(getUrl("avatar.png")));
+
+        Assert.assertEquals(1, mRequests.get());
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_IMAGE_DOWNLOADED));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_IMAGE_MEMORY_HIT));
+    }
+
+    @Test
+    public void testGetImageDiskHit() throws Exception {
+        Bitmap bitmap = mockBitmap(BITMAP_BYTES);
+        when(BitmapFactory.decodeByteArray(any(byte[].class), anyInt(), anyInt(), eq(mOptions))).thenReturn(bitmap);
+        File cacheDir = mTemporaryFolder.newFolder();
+
+        createLoader(cacheDir).getImage(getUrl("avatar.png"));
+        Bitmap cached = createLoader(cacheDir).getImage(getUrl("avatar.png"));
+
+        Assert.assertSame(bitmap, cached);
+        Assert.assertEquals(1, mRequests.get());
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_IMAGE_DISK_HIT));
+        verifyStatic(BitmapFactory.class, times(4));
+        BitmapFactory.decodeByteArray(any(byte[].class), eq(0), eq(IMAGE_DATA.length), any(BitmapFactory.Options.class));
+    }
+
+    @Test
+    public void testGetImageRevalidatesStaleEntry() throws Exception {
+        Bitmap bitmap = mockBitmap(BITMAP_BYTES);
+        when(BitmapFactory.decodeByteArray(any(byte[].class), anyInt(), anyInt(), eq(mOptions))).thenReturn(bitmap);
+        File cacheDir = mTemporaryFolder.newFolder();
+        mCacheControl = "max-age=0";
+
+        createLoader(cacheDir).getImage(getUrl("avatar.png"));
+        Bitmap revalidated = createLoader(cacheDir).getImage(getUrl("avatar.png"));
+
+        Assert.assertSame(bitmap, revalidated);
+        Assert.assertEquals(2, mRequests.get());
+        Assert.assertEquals(1, mConditionalRequests.get());
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_IMAGE_REVALIDATED));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_IMAGE_DOWNLOADED));
+    }
+
+    @Test
+    public void testGetImageRevalidatesStaleMemoryEntry() throws Exception {
+        Bitmap bitmap = mockBitmap(BITMAP_BYTES);
+        when(BitmapFactory.decodeByteArray(any(byte[].class), anyInt(), anyInt(), eq(mOptions))).thenReturn(bitmap);
+        ReactNativeImageLoader loader = new ReactNativeImageLoader(mReactApplicationContext, BITMAP_BYTES);
+        mCacheControl = "max-age=0";
+
+        loader.getImage(getUrl("avatar.png"));
+        Bitmap revalidated = loader.getImage(getUrl("avatar.png"));
+
+        Assert.assertSame(bitmap, revalidated);
+        Assert.assertEquals(2, mRequests.get());
+        Assert.assertEquals(1, mConditionalRequests.get());
+        Assert.assertEquals(0, ReactNativeMetrics.getCount(METRIC_IMAGE_MEMORY_HIT));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_IMAGE_REVALIDATED));
+
+        // The bitmap in memory is reused without decoding the image again
+        verifyStatic(BitmapFactory.class, times(2));
+        BitmapFactory.decodeByteArray(any(byte[].class), eq(0), eq(IMAGE_DATA.length), any(BitmapFactory.Options.class));
+    }
+
+    @Test
+    public void testGetImageNoStoreIsNotCached() throws Exception {
+        Bitmap bitmap = mockBitmap(BITMAP_BYTES);
+        when(BitmapFactory.decodeByteArray(any(byte[].class), anyInt(), anyInt(), eq(mOptions))).thenReturn(bitmap);
+        File cacheDir = mTemporaryFolder.newFolder();
+        ReactNativeImageLoader loader = createLoader(cacheDir);
+        mCacheControl = "no-store";
+
+        Assert.assertSame(bitmap, loader.getImage(getUrl("avatar.png")));
+        Assert.assertSame(bitmap, loader.getImage(getUrl("avatar.png")));
+
+        Assert.assertEquals(2, mRequests.get());
+        Assert.assertEquals(0, mConditionalRequests.get());
+        Assert.assertEquals(0, ReactNativeMetrics.getCount(METRIC_IMAGE_MEMORY_HIT));
+        Assert.assertEquals(0, loader.getMemoryCacheSize());
+        Assert.assertEquals(0, cacheDir.listFiles().length);
+    }
+
+    @Test
+    public void testCorruptDiskEntryIsAMiss() throws Exception {
+        Bitmap bitmap = mockBitmap(BITMAP_BYTES);
+        when(BitmapFactory.decodeByteArray(any(byte[].class), anyInt(), anyInt(), eq(mOptions))).thenReturn(bitmap);
+        File cacheDir = mTemporaryFolder.newFolder();
+        createLoader(cacheDir).getImage(getUrl("avatar.png"));
+
+        // Overwrite the stored image length, which sits just before the image bytes
+        File[] files = cacheDir.listFiles();
+        Assert.assertEquals(1, files.length);
+        RandomAccessFile file = new RandomAccessFile(files[0], "rw");
+        file.seek(file.length() - IMAGE_DATA.length - 4);
+        file.writeInt(Integer.MAX_VALUE);
+        file.close();
+
+        Assert.assertSame(bitmap, createLoader(cacheDir).getImage(getUrl("avatar.png")));
+
+        Assert.assertEquals(2, mRequests.get());
+        Assert.assertEquals(0, ReactNativeMetrics.getCount(METRIC_IMAGE_DISK_HIT));
+        Assert.assertEquals(1, cacheDir.listFiles().length);
+        Assert.assertSame(bitmap, createLoader(cacheDir).getImage(getUrl("avatar.png")));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_IMAGE_DISK_HIT));
+    }
+
+    @Test
+    public void testGetImageTimeout() throws Exception {
+        mResponseDelay = 2000;
+        ReactNativeImageLoader loader = createLoader(mTemporaryFolder.newFolder());
+        loader.setTimeouts(200, 200);
+
+        long start = System.nanoTime();
+        Bitmap bitmap = loader.getImage(getUrl("avatar.png"));
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+        Assert.assertNull(bitmap);
+        Assert.assertTrue(elapsedMs < mResponseDelay);
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_IMAGE_FETCH_FAILED));
+        verifyStatic(Log.class);
+        Log.e(anyString(), eq(ERROR_FETCH_IMAGE), any(Throwable.class));
+    }
+
+    @Test
+    public void testGetImageFetchFailed() throws Exception {
+        ReactNativeImageLoader loader = createLoader(mTemporaryFolder.newFolder());
+        mServer.stop(0);
+
+        Assert.assertNull(loader.getImage(getUrl("avatar.png")));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_IMAGE_FETCH_FAILED));
+    }
+
+    @Test
+    public void testDiskCacheIsCapped() throws Exception {
+        File cacheDir = mTemporaryFolder.newFolder();
+        long diskCacheSize = IMAGE_DATA.length * 5 / 2;
+        ReactNativeImageLoader loader = new ReactNativeImageLoader(
+                mReactApplicationContext, BITMAP_BYTES, cacheDir, diskCacheSize);
+
+        loader.getImage(getUrl("1.png"));
+        loader.getImage(getUrl("2.png"));
+        loader.getImage(getUrl("3.png"));
+
+        long size = 0;
+        for (File file : cacheDir.listFiles()) {
+            size += file.length();
+        }
+        Assert.assertTrue(size <= diskCacheSize);
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_IMAGE_DISK_EVICTED));
+    }
+
+    @Test
+    public void testRepeatedAvatarsHitRate() throws Exception {
+        final int avatars = 5;
+        final int notifications = 200;
+        Bitmap bitmap = mockBitmap(BITMAP_BYTES / avatars);
+        when(BitmapFactory.decodeByteArray(any(byte[].class), anyInt(), anyInt(), eq(mOptions))).thenReturn(bitmap);
+        ReactNativeImageLoader loader = createLoader(mTemporaryFolder.newFolder());
+
+        for (int i = 0; i < notifications; i++) {
+            loader.getImage(getUrl("avatar" + (i % avatars) + ".png"));
+        }
+
+        Assert.assertEquals(avatars, mRequests.get());
+        Assert.assertEquals(notifications - avatars, ReactNativeMetrics.getCount(METRIC_IMAGE_MEMORY_HIT));
+        Assert.assertEquals(avatars, ReactNativeMetrics.getLatencyCount(METRIC_IMAGE_LOAD));
+    }
+
+    private ReactNativeImageLoader createLoader(File cacheDir) {
+        return new ReactNativeImageLoader(mReactApplicationContext, BITMAP_BYTES, cacheDir, DISK_CACHE_BYTES);
+    }
+
+    private String getUrl(String path) {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + "/" + path;
+    }
+
+    private static Bitmap mockBitmap(int byteCount) {
+        Bitmap bitmap = PowerMockito.mock(Bitmap.class);
+        when(bitmap.getByteCount()).thenReturn(byteCount);
+        return bitmap;
+    }
+}
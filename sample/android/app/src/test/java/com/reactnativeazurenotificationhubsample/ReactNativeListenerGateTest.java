@@ -0,0 +1,152 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.os.Bundle;
+
+import com.azure.reactnative.notificationhub.ReactNativeListenerGate;
+import com.azure.reactnative.notificationhub.ReactNativeMetrics;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationsHandler;
+import com.azure.reactnative.notificationhub.ReactNativeUtil;
+import com.facebook.react.bridge.ReactApplicationContext;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.concurrent.ScheduledFuture;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Unit tests for ReactNativeListenerGate.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        ReactNativeUtil.class,
+        ReactNativeNotificationsHandler.class
+})
+public class ReactNativeListenerGateTest {
+    @Mock
+    ReactApplicationContext mReactApplicationContext;
+
+    @Mock
+    Bundle mBundle;
+
+    @Mock
+    ScheduledFuture mScheduledFuture;
+
+    private ArgumentCaptor<Runnable> mFallbackTask;
+
+    private ReactNativeListenerGate mGate;
+
+    @Before
+    public void setUp() {
+        // Reset mocks
+        reset(mScheduledFuture);
+
+        // Prepare mock objects
+        ReactNativeMetrics.reset();
+        PowerMockito.mockStatic(ReactNativeUtil.class);
+        PowerMockito.mockStatic(ReactNativeNotificationsHandler.class);
+        mFallbackTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.dispatchDelayed(mFallbackTask.capture(), anyLong())).thenReturn(mScheduledFuture);
+
+        mGate = new ReactNativeListenerGate(mReactApplicationContext);
+    }
+
+    @Test
+    public void testDeliverHeldUntilListenersReady() {
+        Bundle otherBundle = PowerMockito.mock(Bundle.class);
+
+        mGate.deliver(mBundle);
+        mGate.deliver(otherBundle);
+
+        Assert.assertEquals(2, mGate.getPendingCount());
+        verifyStatic(ReactNativeNotificationsHandler.class, times(0));
+        ReactNativeNotificationsHandler.sendBroadcast(eq(mReactApplicationContext), any(Bundle.class), anyLong());
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), eq(DEFAULT_LISTENERS_READY_TIMEOUT_MS));
+
+        mGate.setListenersReady();
+
+        verifyStatic(ReactNativeNotificationsHandler.class);
+        ReactNativeNotificationsHandler.sendBroadcast(mReactApplicationContext, mBundle, 0);
+        verifyStatic(ReactNativeNotificationsHandler.class);
+        ReactNativeNotificationsHandler.sendBroadcast(mReactApplicationContext, otherBundle, 0);
+        verify(mScheduledFuture, times(1)).cancel(false);
+        Assert.assertEquals(0, mGate.getPendingCount());
+        Assert.assertEquals(2, ReactNativeMetrics.getLatencyCount(METRIC_LAUNCH_NOTIFICATION_DELIVERY));
+    }
+
+    @Test
+    public void testDeliverWhenListenersReady() {
+        mGate.setListenersReady();
+
+        mGate.deliver(mBundle);
+
+        Assert.assertTrue(mGate.isListenersReady());
+        verifyStatic(ReactNativeNotificationsHandler.class);
+        ReactNativeNotificationsHandler.sendBroadcast(mReactApplicationContext, mBundle, 0);
+        verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), anyLong());
+        Assert.assertEquals(0, ReactNativeMetrics.getLatencyPercentile(METRIC_LAUNCH_NOTIFICATION_DELIVERY, 100));
+    }
+
+    @Test
+    public void testDeliverFallbackTimeout() {
+        mGate.deliver(mBundle);
+
+        mFallbackTask.getValue().run();
+
+        verifyStatic(ReactNativeNotificationsHandler.class);
+        ReactNativeNotificationsHandler.sendBroadcast(mReactApplicationContext, mBundle, 0);
+        Assert.assertFalse(mGate.isListenersReady());
+        Assert.assertEquals(0, mGate.getPendingCount());
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_LAUNCH_NOTIFICATION_FALLBACK));
+
+        // The next notification waits for JS again
+        mGate.deliver(mBundle);
+
+        verifyStatic(ReactNativeUtil.class, times(2));
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void testFullDispatcherStillFallsBack() {
+        ArgumentCaptor<Runnable> fallbackTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.dispatchDelayed(any(Runnable.class), anyLong())).thenReturn(null);
+        when(ReactNativeUtil.runDelayed(fallbackTask.capture(), eq(DEFAULT_LISTENERS_READY_TIMEOUT_MS))).thenReturn(
+                mScheduledFuture);
+
+        mGate.deliver(mBundle);
+        fallbackTask.getValue().run();
+
+        verifyStatic(ReactNativeNotificationsHandler.class);
+        ReactNativeNotificationsHandler.sendBroadcast(mReactApplicationContext, mBundle, 0);
+        Assert.assertEquals(0, mGate.getPendingCount());
+    }
+
+    @Test
+    public void testSetFallbackTimeout() {
+        mGate.setFallbackTimeout(10000);
+
+        mGate.deliver(mBundle);
+
+        Assert.assertEquals(10000, mGate.getFallbackTimeout());
+        verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), eq(10000L));
+    }
+}
@@ -0,0 +1,194 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.content.SharedPreferences;
+
+import com.azure.reactnative.notificationhub.ReactNativeMessageDeduplicator;
+import com.azure.reactnative.notificationhub.ReactNativeMetrics;
+import com.azure.reactnative.notificationhub.ReactNativeUtil;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Unit tests for ReactNativeMessageDeduplicator.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        ReactNativeUtil.class
+})
+public class ReactNativeMessageDeduplicatorTest {
+    private Map<String, String> mStore;
+    private SharedPreferences mPrefs;
+    private SharedPreferences.Editor mEditor;
+    private ArgumentCaptor<Runnable> mFlushTask;
+
+    @Before
+    public void setUp() {
+        ReactNativeMetrics.reset();
+        PowerMockito.mockStatic(ReactNativeUtil.class);
+        mFlushTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.runDelayed(mFlushTask.capture(), anyLong())).thenReturn(null);
+
+        // SharedPreferences backed by a map so persisted IDs can be read back
+        mStore = new HashMap<>();
+        mPrefs = PowerMockito.mock(SharedPreferences.class);
+        final SharedPreferences.Editor editor = PowerMockito.mock(SharedPreferences.Editor.class);
+        mEditor = editor;
+        when(mPrefs.edit()).thenReturn(editor);
+        when(mPrefs.getString(anyString(), nullable(String.class))).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                String value = mStore.get(invocation.<String>getArgument(0));
+                return value != null ? value : invocation.<String>getArgument(1);
+            }
+        });
+        when(editor.putString(anyString(), anyString())).thenAnswer(new Answer<SharedPreferences.Editor>() {
+            @Override
+            public SharedPreferences.Editor answer(InvocationOnMock invocation) {
+                mStore.put(invocation.<String>getArgument(0), invocation.<String>getArgument(1));
+                return editor;
+            }
+        });
+    }
+
+    @Test
+    public void testMarkSeenDropsDuplicates() {
+        ReactNativeMessageDeduplicator deduplicator = new ReactNativeMessageDeduplicator(null, 16);
+
+        Assert.assertTrue(deduplicator.markSeen("0:1"));
+        Assert.assertTrue(deduplicator.markSeen("0:2"));
+        Assert.assertFalse(deduplicator.markSeen("0:1"));
+        Assert.assertFalse(deduplicator.markSeen("0:2"));
+
+        Assert.assertEquals(2, ReactNativeMetrics.getCount(METRIC_MESSAGE_DUPLICATE));
+    }
+
+    @Test
+    public void testMarkSeenWithoutMessageId() {
+        ReactNativeMessageDeduplicator deduplicator = new ReactNativeMessageDeduplicator(null, 16);
+
+        Assert.assertTrue(deduplicator.markSeen(null));
+        Assert.assertTrue(deduplicator.markSeen(null));
+        Assert.assertEquals(0, ReactNativeMetrics.getCount(METRIC_MESSAGE_DUPLICATE));
+    }
+
+    @Test
+    public void testMarkSeenIsBounded() {
+        ReactNativeMessageDeduplicator deduplicator = new ReactNativeMessageDeduplicator(null, 16);
+
+        for (int i = 0; i < 1000; i++) {
+            deduplicator.markSeen("0:" + i);
+        }
+
+        // The oldest IDs have been forgotten, the newest are still remembered
+        Assert.assertTrue(deduplicator.markSeen("0:0"));
+        Assert.assertFalse(deduplicator.markSeen("0:999"));
+    }
+
+    @Test
+    public void testMarkSeenSurvivesRestart() {
+        new ReactNativeMessageDeduplicator(mPrefs, 16).markSeen("0:1");
+        mFlushTask.getValue().run();
+
+        ReactNativeMessageDeduplicator deduplicator = new ReactNativeMessageDeduplicator(mPrefs, 16);
+
+        Assert.assertFalse(deduplicator.markSeen("0:1"));
+        Assert.assertTrue(deduplicator.markSeen("0:2"));
+    }
+
+    @Test
+    public void testWritesAreBatched() {
+        ReactNativeMessageDeduplicator deduplicator = new ReactNativeMessageDeduplicator(mPrefs, 64);
+        for (int i = 0; i < 50; i++) {
+            deduplicator.markSeen("0:" + i);
+        }
+
+        // Nothing is written until the flush, and then everything is written at once
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.runDelayed(any(Runnable.class), anyLong());
+        verify(mPrefs, times(0)).edit();
+
+        mFlushTask.getValue().run();
+
+        verify(mPrefs, times(1)).edit();
+        verify(mEditor, times(1)).apply();
+
+        // A later message schedules another flush, and a flush with nothing new does not write
+        deduplicator.markSeen("0:50");
+        verifyStatic(ReactNativeUtil.class, times(2));
+        ReactNativeUtil.runDelayed(any(Runnable.class), anyLong());
+        deduplicator.flush();
+        deduplicator.flush();
+        verify(mPrefs, times(2)).edit();
+    }
+
+    @Test
+    public void testDuplicatesDoNotScheduleWrites() {
+        ReactNativeMessageDeduplicator deduplicator = new ReactNativeMessageDeduplicator(mPrefs, 16);
+        deduplicator.markSeen("0:1");
+        mFlushTask.getValue().run();
+
+        deduplicator.markSeen("0:1");
+
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.runDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void testMarkSeenConcurrently() throws InterruptedException {
+        final ReactNativeMessageDeduplicator deduplicator = new ReactNativeMessageDeduplicator(null, 256);
+        final AtomicInteger accepted = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int i = 0; i < 100; i++) {
+                        if (deduplicator.markSeen("0:" + i)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(100, accepted.get());
+        Assert.assertEquals(700, ReactNativeMetrics.getCount(METRIC_MESSAGE_DUPLICATE));
+    }
+}
@@ -0,0 +1,148 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import com.azure.reactnative.notificationhub.ReactNativeMetrics;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationBuffer;
+
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Unit tests for ReactNativeNotificationBuffer.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        Log.class
+})
+public class ReactNativeNotificationBufferTest {
+    private static final String KEY_MESSAGE = "message";
+    private static final int CAPACITY = 3;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        ReactNativeMetrics.reset();
+        PowerMockito.mockStatic(Log.class);
+        mFile = new File(mTemporaryFolder.getRoot(), "buffer.jsonl");
+    }
+
+    @Test
+    public void testDrainReturnsNotificationsInOrder() throws Exception {
+        ReactNativeNotificationBuffer buffer = new ReactNativeNotificationBuffer(mFile, CAPACITY);
+
+        buffer.append(createBundle("1", "First"));
+        buffer.append(createBundle("2", "Second"));
+        List<JSONObject> payloads = buffer.drain();
+
+        Assert.assertEquals(2, payloads.size());
+        Assert.assertEquals("First", payloads.get(0).getString(KEY_MESSAGE));
+        Assert.assertEquals("Second", payloads.get(1).getString(KEY_MESSAGE));
+        Assert.assertEquals(0, buffer.size());
+        Assert.assertTrue(buffer.drain().isEmpty());
+        Assert.assertEquals(2, ReactNativeMetrics.getCount(METRIC_BUFFER_REPLAYED));
+    }
+
+    @Test
+    public void testAppendSurvivesProcessDeath() throws Exception {
+        new ReactNativeNotificationBuffer(mFile, CAPACITY).append(createBundle("1", "First"));
+
+        ReactNativeNotificationBuffer buffer = new ReactNativeNotificationBuffer(mFile, CAPACITY);
+        List<JSONObject> payloads = buffer.drain();
+
+        Assert.assertEquals(1, payloads.size());
+        Assert.assertEquals("First", payloads.get(0).getString(KEY_MESSAGE));
+        Assert.assertTrue(new ReactNativeNotificationBuffer(mFile, CAPACITY).drain().isEmpty());
+    }
+
+    @Test
+    public void testAppendDropsDuplicateMessageId() {
+        ReactNativeNotificationBuffer buffer = new ReactNativeNotificationBuffer(mFile, CAPACITY);
+
+        Assert.assertTrue(buffer.append(createBundle("1", "First")));
+        Assert.assertFalse(buffer.append(createBundle("1", "First")));
+        Assert.assertFalse(new ReactNativeNotificationBuffer(mFile, CAPACITY).append(createBundle("1", "First")));
+
+        Assert.assertEquals(1, buffer.size());
+        Assert.assertEquals(2, ReactNativeMetrics.getCount(METRIC_BUFFER_DUPLICATE));
+    }
+
+    @Test
+    public void testAppendWithoutMessageId() {
+        ReactNativeNotificationBuffer buffer = new ReactNativeNotificationBuffer(mFile, CAPACITY);
+
+        buffer.append(createBundle(null, "First"));
+        buffer.append(createBundle(null, "First"));
+
+        Assert.assertEquals(2, buffer.size());
+    }
+
+    @Test
+    public void testAppendEvictsOldest() throws Exception {
+        ReactNativeNotificationBuffer buffer = new ReactNativeNotificationBuffer(mFile, CAPACITY);
+
+        for (int i = 1; i <= 10; i++) {
+            buffer.append(createBundle(String.valueOf(i), "Message " + i));
+        }
+
+        Assert.assertEquals(7, ReactNativeMetrics.getCount(METRIC_BUFFER_EVICTED));
+
+        // The file is compacted as it grows and reloads to the same newest entries
+        List<JSONObject> payloads = new ReactNativeNotificationBuffer(mFile, CAPACITY).drain();
+        Assert.assertEquals(CAPACITY, payloads.size());
+        Assert.assertEquals("Message 8", payloads.get(0).getString(KEY_MESSAGE));
+        Assert.assertEquals("Message 10", payloads.get(2).getString(KEY_MESSAGE));
+
+        // An evicted message ID can be buffered again
+        Assert.assertTrue(buffer.append(createBundle("1", "Message 1")));
+    }
+
+    @Test
+    public void testLoadSkipsTruncatedLine() throws Exception {
+        new ReactNativeNotificationBuffer(mFile, CAPACITY).append(createBundle("1", "First"));
+        FileOutputStream output = new FileOutputStream(mFile, true);
+        output.write("{\"id\":\"2\",\"payl".getBytes(Charset.forName("UTF-8")));
+        output.close();
+
+        ReactNativeNotificationBuffer buffer = new ReactNativeNotificationBuffer(mFile, CAPACITY);
+
+        Assert.assertEquals(1, buffer.size());
+    }
+
+    private static Bundle createBundle(String id, String message) {
+        Bundle bundle = PowerMockito.mock(Bundle.class);
+        when(bundle.getString(KEY_REMOTE_NOTIFICATION_ID)).thenReturn(id);
+        if (id != null) {
+            when(bundle.keySet()).thenReturn(new HashSet<>(Arrays.asList(KEY_REMOTE_NOTIFICATION_ID, KEY_MESSAGE)));
+            when(bundle.get(KEY_REMOTE_NOTIFICATION_ID)).thenReturn(id);
+        } else {
+            when(bundle.keySet()).thenReturn(new HashSet<>(Arrays.asList(KEY_MESSAGE)));
+        }
+        when(bundle.get(KEY_MESSAGE)).thenReturn(message);
+        return bundle;
+    }
+}
@@ -0,0 +1,267 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import com.azure.reactnative.notificationhub.ReactNativeMetrics;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationChannelBuilder;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationChannelRegistry;
+import com.facebook.react.bridge.ReactApplicationContext;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Unit tests for ReactNativeNotificationChannelRegistry.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        ReactNativeNotificationChannelBuilder.Factory.class,
+        Build.VERSION.class,
+        Log.class
+})
+public class ReactNativeNotificationChannelRegistryTest {
+    @Mock
+    ReactApplicationContext mReactApplicationContext;
+
+    @Mock
+    NotificationManager mNotificationManager;
+
+    @Mock(answer = Answers.RETURNS_SELF)
+    ReactNativeNotificationChannelBuilder mChannelBuilder;
+
+    @Mock
+    NotificationChannel mChannel;
+
+    private Map<String, String> mStore;
+    private SharedPreferences mPrefs;
+
+    @Before
+    public void setUp() {
+        // Reset mocks
+        reset(mNotificationManager);
+        reset(mChannelBuilder);
+
+        // Prepare mock objects
+        ReactNativeMetrics.reset();
+        PowerMockito.mockStatic(Log.class);
+        PowerMockito.mockStatic(ReactNativeNotificationChannelBuilder.Factory.class);
+        when(ReactNativeNotificationChannelBuilder.Factory.create()).thenReturn(mChannelBuilder);
+        when(mChannelBuilder.build()).thenReturn(mChannel);
+        when(mReactApplicationContext.getSystemService(Context.NOTIFICATION_SERVICE)).thenReturn(
+                mNotificationManager);
+        Whitebox.setInternalState(Build.VERSION.class, "SDK_INT", Build.VERSION_CODES.O);
+
+        // SharedPreferences backed by a map so declarations can be read back
+        mStore = new HashMap<>();
+        mPrefs = PowerMockito.mock(SharedPreferences.class);
+        final SharedPreferences.Editor editor = PowerMockito.mock(SharedPreferences.Editor.class);
+        when(mPrefs.edit()).thenReturn(editor);
+        when(mPrefs.getString(anyString(), nullable(String.class))).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                String value = mStore.get(invocation.<String>getArgument(0));
+                return value != null ? value : invocation.<String>getArgument(1);
+            }
+        });
+        when(editor.putString(anyString(), anyString())).thenAnswer(new Answer<SharedPreferences.Editor>() {
+            @Override
+            public SharedPreferences.Editor answer(InvocationOnMock invocation) {
+                mStore.put(invocation.<String>getArgument(0), invocation.<String>getArgument(1));
+                return editor;
+            }
+        });
+    }
+
+    @Test
+    public void testResolveCreatesChannelOnce() {
+        ReactNativeNotificationChannelRegistry registry = new ReactNativeNotificationChannelRegistry(null);
+        registry.declare(Arrays.asList(createChannel("orders", "Orders"), createChannel("chat", "Chat")));
+
+        Assert.assertEquals("orders", registry.resolve(mReactApplicationContext, "orders"));
+        Assert.assertEquals("orders", registry.resolve(mReactApplicationContext, "orders"));
+        Assert.assertEquals("chat", registry.resolve(mReactApplicationContext, "chat"));
+
+        verify(mNotificationManager, times(2)).createNotificationChannel(mChannel);
+        verify(mChannelBuilder, times(1)).setID("orders");
+        verify(mChannelBuilder, times(1)).setName("Orders");
+        verify(mChannelBuilder, times(2)).setImportance(NotificationManager.IMPORTANCE_HIGH);
+        Assert.assertEquals(2, ReactNativeMetrics.getCount(METRIC_CHANNEL_CREATED));
+    }
+
+    @Test
+    public void testChangedDefinitionIsCreatedAgain() {
+        ReactNativeNotificationChannelRegistry registry = new ReactNativeNotificationChannelRegistry(null);
+        registry.declare(Arrays.asList(createChannel("orders", "Orders")));
+        registry.resolve(mReactApplicationContext, "orders");
+
+        // Declaring the same definition again does not cost another round trip
+        registry.declare(Arrays.asList(createChannel("orders", "Orders")));
+        registry.resolve(mReactApplicationContext, "orders");
+        verify(mNotificationManager, times(1)).createNotificationChannel(mChannel);
+
+        registry.declare(Arrays.asList(createChannel("orders", "Order Updates")));
+        registry.resolve(mReactApplicationContext, "orders");
+        verify(mNotificationManager, times(2)).createNotificationChannel(mChannel);
+        verify(mChannelBuilder, times(1)).setName("Order Updates");
+    }
+
+    @Test
+    public void testResolveUnknownChannel() {
+        ReactNativeNotificationChannelRegistry registry = new ReactNativeNotificationChannelRegistry(null);
+        registry.declare(Arrays.asList(createChannel("orders", "Orders")));
+
+        Assert.assertNull(registry.resolve(mReactApplicationContext, "missing"));
+        Assert.assertNull(registry.resolve(mReactApplicationContext, null));
+
+        verify(mNotificationManager, times(0)).createNotificationChannel(any(NotificationChannel.class));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_CHANNEL_UNKNOWN));
+    }
+
+    @Test
+    public void testResolveBelowVersionO() {
+        Whitebox.setInternalState(Build.VERSION.class, "SDK_INT", Build.VERSION_CODES.LOLLIPOP);
+        ReactNativeNotificationChannelRegistry registry = new ReactNativeNotificationChannelRegistry(null);
+        registry.declare(Arrays.asList(createChannel("orders", "Orders")));
+
+        Assert.assertEquals("orders", registry.resolve(mReactApplicationContext, "orders"));
+
+        verify(mNotificationManager, times(0)).createNotificationChannel(any(NotificationChannel.class));
+    }
+
+    @Test
+    public void testDeclarationsArePersisted() {
+        new ReactNativeNotificationChannelRegistry(mPrefs).declare(Arrays.asList(
+                createChannel("orders", "Orders"),
+                new ReactNativeNotificationChannelRegistry.Channel(
+                        "chat", null, "Messages from friends", NotificationManager.IMPORTANCE_LOW, false, false, true)));
+
+        ReactNativeNotificationChannelRegistry registry = new ReactNativeNotificationChannelRegistry(mPrefs);
+        List<ReactNativeNotificationChannelRegistry.Channel> channels = registry.getChannels();
+
+        Assert.assertEquals(2, channels.size());
+        Assert.assertEquals(createChannel("orders", "Orders"), channels.get(0));
+        ReactNativeNotificationChannelRegistry.Channel chat = registry.getChannel("chat");
+        Assert.assertEquals("chat", chat.getName());
+        Assert.assertEquals("Messages from friends", chat.getDescription());
+        Assert.assertEquals(NotificationManager.IMPORTANCE_LOW, chat.getImportance());
+        Assert.assertFalse(chat.getShowBadge());
+        Assert.assertFalse(chat.getEnableLights());
+        Assert.assertTrue(chat.getEnableVibration());
+    }
+
+    @Test
+    public void testSyncCreatesChangedChannelsInOneBatch() {
+        NotificationChannel orders = createSystemChannel("orders", "Orders");
+        NotificationChannel chat = createSystemChannel("chat", "Old Chat");
+        when(mNotificationManager.getNotificationChannels()).thenReturn(Arrays.asList(orders, chat));
+        ReactNativeNotificationChannelRegistry registry = new ReactNativeNotificationChannelRegistry(null);
+        registry.declare(Arrays.asList(
+                createChannel("orders", "Orders"), createChannel("chat", "Chat"), createChannel("news", "News")));
+
+        registry.sync(mReactApplicationContext);
+
+        verify(mNotificationManager, times(1)).createNotificationChannels(Arrays.asList(mChannel, mChannel));
+        verify(mChannelBuilder, times(0)).setID("orders");
+        verify(mChannelBuilder, times(1)).setID("chat");
+        verify(mChannelBuilder, times(1)).setID("news");
+        Assert.assertEquals(2, ReactNativeMetrics.getCount(METRIC_CHANNEL_CREATED));
+
+        // Synced channels are not created again on the receive path
+        registry.resolve(mReactApplicationContext, "orders");
+        registry.resolve(mReactApplicationContext, "news");
+        verify(mNotificationManager, times(0)).createNotificationChannel(any(NotificationChannel.class));
+    }
+
+    @Test
+    public void testSyncUpToDate() {
+        NotificationChannel orders = createSystemChannel("orders", "Orders");
+        when(mNotificationManager.getNotificationChannels()).thenReturn(Collections.singletonList(orders));
+        ReactNativeNotificationChannelRegistry registry = new ReactNativeNotificationChannelRegistry(null);
+        registry.declare(Arrays.asList(createChannel("orders", "Orders")));
+
+        registry.sync(mReactApplicationContext);
+
+        verify(mNotificationManager, times(0)).createNotificationChannels(anyList());
+        verify(mNotificationManager, times(0)).deleteNotificationChannel(anyString());
+    }
+
+    @Test
+    public void testSyncDeletesOnlyUndeclaredManagedChannels() {
+        NotificationChannel orders = createSystemChannel("orders", "Orders");
+        NotificationChannel chat = createSystemChannel("chat", "Chat");
+        NotificationChannel defaultChannel = createSystemChannel(NOTIFICATION_CHANNEL_ID, "Default");
+        NotificationChannel appChannel = createSystemChannel("app", "App");
+        when(mNotificationManager.getNotificationChannels()).thenReturn(
+                Arrays.asList(orders, chat, defaultChannel, appChannel));
+        new ReactNativeNotificationChannelRegistry(mPrefs).declare(Arrays.asList(
+                createChannel("orders", "Orders"), createChannel("chat", "Chat")));
+
+        // A later process drops chat from the declarations
+        ReactNativeNotificationChannelRegistry registry = new ReactNativeNotificationChannelRegistry(mPrefs);
+        registry.declare(Arrays.asList(createChannel("orders", "Orders")));
+        registry.sync(mReactApplicationContext);
+
+        verify(mNotificationManager, times(1)).deleteNotificationChannel("chat");
+        verify(mNotificationManager, times(1)).deleteNotificationChannel(anyString());
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_CHANNEL_DELETED));
+
+        // Deleted channels are no longer managed
+        new ReactNativeNotificationChannelRegistry(mPrefs).sync(mReactApplicationContext);
+        verify(mNotificationManager, times(1)).deleteNotificationChannel(anyString());
+    }
+
+    @Test
+    public void testSyncBelowVersionO() {
+        Whitebox.setInternalState(Build.VERSION.class, "SDK_INT", Build.VERSION_CODES.LOLLIPOP);
+        ReactNativeNotificationChannelRegistry registry = new ReactNativeNotificationChannelRegistry(null);
+        registry.declare(Arrays.asList(createChannel("orders", "Orders")));
+
+        registry.sync(mReactApplicationContext);
+
+        verify(mNotificationManager, times(0)).getNotificationChannels();
+        verify(mNotificationManager, times(0)).createNotificationChannels(anyList());
+    }
+
+    private static NotificationChannel createSystemChannel(String id, String name) {
+        NotificationChannel channel = PowerMockito.mock(NotificationChannel.class);
+        when(channel.getId()).thenReturn(id);
+        when(channel.getName()).thenReturn(name);
+        return channel;
+    }
+
+    private static ReactNativeNotificationChannelRegistry.Channel createChannel(String id, String name) {
+        return new ReactNativeNotificationChannelRegistry.Channel(
+                id, name, null, NotificationManager.IMPORTANCE_HIGH, true, true, true);
+    }
+}
@@ -0,0 +1,249 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+
+import androidx.core.app.NotificationCompat;
+
+import com.azure.reactnative.notificationhub.ReactNativeMetrics;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationGrouper;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationRateLimiter;
+import com.azure.reactnative.notificationhub.ReactNativeUtil;
+import com.facebook.react.bridge.ReactApplicationContext;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Unit tests for ReactNativeNotificationGrouper.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        ReactNativeUtil.class,
+        ReactNativeNotificationRateLimiter.class
+})
+public class ReactNativeNotificationGrouperTest {
+    private static final String CHANNEL_ID = "Channel ID";
+    private static final String GROUP = "Notification Group";
+    private static final String TITLE = "Notification Title";
+    private static final long GROUP_WINDOW = 300;
+
+    @Mock
+    ReactApplicationContext mReactApplicationContext;
+
+    @Mock
+    NotificationManager mNotificationManager;
+
+    @Mock
+    NotificationCompat.Builder mSummaryBuilder;
+
+    @Mock
+    NotificationCompat.InboxStyle mInboxStyle;
+
+    @Mock
+    Notification mSummary;
+
+    @Mock
+    ScheduledFuture mScheduledFuture;
+
+    private ArgumentCaptor<Runnable> mFlushTask;
+    private ArgumentCaptor<Long> mFlushDelay;
+
+    private ReactNativeNotificationGrouper mGrouper;
+
+    @Before
+    public void setUp() {
+        // Reset mocks
+        reset(mNotificationManager);
+        reset(mSummaryBuilder);
+        reset(mScheduledFuture);
+
+        // Prepare mock objects
+        ReactNativeMetrics.reset();
+        PowerMockito.mockStatic(ReactNativeUtil.class);
+        mFlushTask = ArgumentCaptor.forClass(Runnable.class);
+        mFlushDelay = ArgumentCaptor.forClass(Long.class);
+        when(ReactNativeUtil.dispatchDelayed(mFlushTask.capture(), mFlushDelay.capture())).thenReturn(mScheduledFuture);
+        when(ReactNativeUtil.initNotificationCompatBuilder(
+                any(), any(), any(), any(), anyInt(), anyInt(), anyBoolean())).thenReturn(mSummaryBuilder);
+        when(ReactNativeUtil.getInboxStyle(any(Collection.class))).thenReturn(mInboxStyle);
+        when(mSummaryBuilder.build()).thenReturn(mSummary);
+        when(mReactApplicationContext.getSystemService(Context.NOTIFICATION_SERVICE)).thenReturn(
+                mNotificationManager);
+
+        // A fresh limiter for every test, so one test cannot spend another's budget
+        PowerMockito.mockStatic(ReactNativeNotificationRateLimiter.class);
+        when(ReactNativeNotificationRateLimiter.getInstance()).thenReturn(new ReactNativeNotificationRateLimiter());
+
+        mGrouper = new ReactNativeNotificationGrouper();
+        mGrouper.setWindow(GROUP_WINDOW);
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        ReactNativeNotificationGrouper grouper = new ReactNativeNotificationGrouper();
+
+        Assert.assertFalse(grouper.isEnabled());
+        Assert.assertEquals(DEFAULT_GROUP_WINDOW_MS, grouper.getWindow());
+        Assert.assertEquals(DEFAULT_GROUP_MAX_POSTS_PER_SECOND, grouper.getMaxPostsPerSecond());
+    }
+
+    @Test
+    public void testZeroWindowDisables() {
+        mGrouper.setWindow(0);
+
+        Assert.assertFalse(mGrouper.isEnabled());
+    }
+
+    @Test
+    public void testSingleNotificationHasNoSummary() {
+        Notification notification = PowerMockito.mock(Notification.class);
+
+        mGrouper.add(mReactApplicationContext, GROUP, CHANNEL_ID, createChild(null, 1, notification));
+
+        Assert.assertEquals(GROUP_WINDOW, (long) mFlushDelay.getValue());
+        verify(mNotificationManager, times(0)).notify(anyInt(), any(Notification.class));
+
+        mFlushTask.getValue().run();
+
+        verify(mNotificationManager, times(1)).notify(1, notification);
+        verify(mNotificationManager, times(0)).notify(anyString(), anyInt(), any(Notification.class));
+        Assert.assertEquals(0, mGrouper.getPendingCount(GROUP));
+    }
+
+    @Test
+    public void testBurstCollapsesIntoSummary() {
+        List<Notification> notifications = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Notification notification = PowerMockito.mock(Notification.class);
+            notifications.add(notification);
+            mGrouper.add(mReactApplicationContext, GROUP, CHANNEL_ID, createChild(null, i, notification));
+        }
+
+        // One window for the whole burst
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), anyLong());
+        Assert.assertEquals(10, mGrouper.getPendingCount(GROUP));
+
+        mFlushTask.getValue().run();
+
+        // The summary takes one of the four posts, the newest three notifications get the rest
+        for (int i = 0; i < 7; i++) {
+            verify(mNotificationManager, times(0)).notify(i, notifications.get(i));
+        }
+        for (int i = 7; i < 10; i++) {
+            verify(mNotificationManager, times(1)).notify(i, notifications.get(i));
+        }
+        verify(mNotificationManager, times(1)).notify(anyString(), eq(GROUP.hashCode()), eq(mSummary));
+        verify(mSummaryBuilder, times(1)).setGroup(GROUP);
+        verify(mSummaryBuilder, times(1)).setGroupSummary(true);
+        verify(mSummaryBuilder, times(1)).setNumber(10);
+        verify(mSummaryBuilder, times(1)).setContentText("Message 9");
+        verify(mSummaryBuilder, times(1)).setStyle(mInboxStyle);
+
+        ArgumentCaptor<Collection> lines = ArgumentCaptor.forClass(Collection.class);
+        verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.getInboxStyle(lines.capture());
+        Assert.assertEquals(DEFAULT_GROUP_SUMMARY_LINES, lines.getValue().size());
+        Assert.assertTrue(lines.getValue().contains(TITLE + ": Message 9"));
+        Assert.assertFalse(lines.getValue().contains(TITLE + ": Message 0"));
+
+        Assert.assertEquals(7, ReactNativeMetrics.getCount(METRIC_GROUP_COLLAPSED));
+        Assert.assertEquals(4, ReactNativeMetrics.getCount(METRIC_GROUP_POSTED));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_GROUP_SUMMARIES));
+    }
+
+    @Test
+    public void testUpdateReplacesPendingNotification() {
+        Notification first = PowerMockito.mock(Notification.class);
+        Notification second = PowerMockito.mock(Notification.class);
+
+        mGrouper.add(mReactApplicationContext, GROUP, CHANNEL_ID, createChild("Tag", 1, first));
+        mGrouper.add(mReactApplicationContext, GROUP, CHANNEL_ID, createChild("Tag", 1, second));
+        Assert.assertEquals(1, mGrouper.getPendingCount(GROUP));
+
+        mFlushTask.getValue().run();
+
+        verify(mNotificationManager, times(0)).notify("Tag", 1, first);
+        verify(mNotificationManager, times(1)).notify("Tag", 1, second);
+        verify(mNotificationManager, times(0)).notify(anyString(), eq(GROUP.hashCode()), any(Notification.class));
+    }
+
+    @Test
+    public void testSpentBudgetDefersFlush() {
+        mGrouper.setMaxPostsPerSecond(1);
+        Notification first = PowerMockito.mock(Notification.class);
+        Notification second = PowerMockito.mock(Notification.class);
+
+        mGrouper.add(mReactApplicationContext, GROUP, CHANNEL_ID, createChild(null, 1, first));
+        mFlushTask.getValue().run();
+        verify(mNotificationManager, times(1)).notify(1, first);
+
+        mGrouper.add(mReactApplicationContext, GROUP, CHANNEL_ID, createChild(null, 2, second));
+        mFlushTask.getValue().run();
+
+        verify(mNotificationManager, times(0)).notify(2, second);
+        verify(mNotificationManager, times(0)).notify(anyString(), anyInt(), any(Notification.class));
+        Assert.assertEquals(1, mGrouper.getPendingCount(GROUP));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_GROUP_DEFERRED));
+        long delay = mFlushDelay.getValue();
+        Assert.assertTrue(delay >= 1 && delay <= 1000);
+    }
+
+    @Test
+    public void testGroupsAreFlushedSeparately() {
+        Notification first = PowerMockito.mock(Notification.class);
+        Notification second = PowerMockito.mock(Notification.class);
+
+        mGrouper.add(mReactApplicationContext, GROUP, CHANNEL_ID, createChild(null, 1, first));
+        mGrouper.add(mReactApplicationContext, "Other Group", CHANNEL_ID, createChild(null, 2, second));
+
+        Assert.assertEquals(2, mFlushTask.getAllValues().size());
+        mFlushTask.getAllValues().get(1).run();
+
+        verify(mNotificationManager, times(0)).notify(1, first);
+        verify(mNotificationManager, times(1)).notify(2, second);
+        Assert.assertEquals(1, mGrouper.getPendingCount(GROUP));
+    }
+
+    @Test
+    public void testFullDispatcherPostsImmediately() {
+        when(ReactNativeUtil.dispatchDelayed(any(Runnable.class), anyLong())).thenReturn(null);
+        Notification notification = PowerMockito.mock(Notification.class);
+
+        mGrouper.add(mReactApplicationContext, GROUP, CHANNEL_ID, createChild(null, 1, notification));
+
+        verify(mNotificationManager, times(1)).notify(1, notification);
+    }
+
+    private static ReactNativeNotificationGrouper.Child createChild(String tag, int id, Notification notification) {
+        return new ReactNativeNotificationGrouper.Child(
+                tag, id, notification, TITLE, "Message " + id, 1, null, NotificationCompat.PRIORITY_DEFAULT);
+    }
+}
@@ -0,0 +1,117 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.util.Log;
+
+import com.azure.reactnative.notificationhub.ReactNativeNotificationHistory;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationLogStore;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Unit tests for ReactNativeNotificationHistory.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        Log.class
+})
+public class ReactNativeNotificationHistoryTest {
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Mock
+    Context mContext;
+
+    private Map<String, Object> mStore;
+    private SharedPreferences mPrefs;
+
+    @Before
+    public void setUp() {
+        PowerMockito.mockStatic(Log.class);
+        when(mContext.getApplicationContext()).thenReturn(mContext);
+        when(mContext.getFilesDir()).thenReturn(mTemporaryFolder.getRoot());
+
+        // SharedPreferences backed by a map so the persisted settings can be read back
+        mStore = new HashMap<>();
+        mPrefs = PowerMockito.mock(SharedPreferences.class);
+        final SharedPreferences.Editor editor = PowerMockito.mock(SharedPreferences.Editor.class);
+        when(mContext.getSharedPreferences(HISTORY_PREFS_NAME, Context.MODE_PRIVATE)).thenReturn(mPrefs);
+        when(mPrefs.edit()).thenReturn(editor);
+        when(mPrefs.getLong(anyString(), anyLong())).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) {
+                Object value = mStore.get(invocation.<String>getArgument(0));
+                return value != null ? (Long) value : invocation.<Long>getArgument(1);
+            }
+        });
+        when(editor.putLong(anyString(), anyLong())).thenAnswer(new Answer<SharedPreferences.Editor>() {
+            @Override
+            public SharedPreferences.Editor answer(InvocationOnMock invocation) {
+                mStore.put(invocation.<String>getArgument(0), invocation.<Long>getArgument(1));
+                return editor;
+            }
+        });
+
+        ReactNativeNotificationHistory.setStore(null);
+    }
+
+    @After
+    public void tearDown() {
+        ReactNativeNotificationHistory.setStore(null);
+    }
+
+    @Test
+    public void testHistoryIsOffByDefault() {
+        ReactNativeNotificationLogStore store =
+                (ReactNativeNotificationLogStore) ReactNativeNotificationHistory.getStore(mContext);
+        Bundle bundle = PowerMockito.mock(Bundle.class);
+
+        ReactNativeNotificationHistory.record(mContext, bundle);
+
+        Assert.assertEquals(0, store.getRetention());
+        Assert.assertEquals(DEFAULT_HISTORY_MAX_SIZE, store.getMaxSize());
+        verify(bundle, times(0)).getString(anyString());
+        Assert.assertEquals(0, mTemporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void testSettingsSurviveRestart() {
+        ReactNativeNotificationHistory.setRetention(mContext, 60000);
+        ReactNativeNotificationHistory.setMaxSize(mContext, 4096);
+
+        ReactNativeNotificationLogStore store =
+                (ReactNativeNotificationLogStore) ReactNativeNotificationHistory.getStore(mContext);
+        Assert.assertEquals(60000, store.getRetention());
+        Assert.assertEquals(4096, store.getMaxSize());
+
+        // Dropping the store stands in for a process that FCM starts in the background
+        ReactNativeNotificationHistory.setStore(null);
+        store = (ReactNativeNotificationLogStore) ReactNativeNotificationHistory.getStore(mContext);
+        Assert.assertEquals(60000, store.getRetention());
+        Assert.assertEquals(4096, store.getMaxSize());
+    }
+}
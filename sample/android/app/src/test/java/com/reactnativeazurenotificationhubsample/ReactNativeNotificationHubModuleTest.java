@@ -9,16 +9,21 @@ import android.os.Bundle;
 import androidx.core.app.NotificationManagerCompat;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
+import org.json.JSONObject;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -26,14 +31,26 @@ import static org.mockito.Mockito.any;
 import static org.powermock.api.mockito.PowerMockito.when;
 
 import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import com.azure.reactnative.notificationhub.ReactNativeExecutor;
+import com.azure.reactnative.notificationhub.ReactNativeHubOperation;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationBuffer;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationChannelRegistry;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationHistory;
 import com.azure.reactnative.notificationhub.ReactNativeNotificationHubUtil;
 import com.azure.reactnative.notificationhub.ReactNativeNotificationHubModule;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationStore;
 import com.azure.reactnative.notificationhub.ReactNativeNotificationsHandler;
+import com.azure.reactnative.notificationhub.ReactNativeRegistrationCoordinator;
 import com.azure.reactnative.notificationhub.ReactNativeRegistrationIntentService;
 import com.azure.reactnative.notificationhub.ReactNativeUtil;
 import com.facebook.react.bridge.Arguments;
@@ -42,6 +59,7 @@ import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.GoogleApiAvailability;
@@ -57,6 +75,10 @@ import com.microsoft.windowsazure.messaging.NotificationHub;
         ReactNativeUtil.class,
         ReactNativeNotificationsHandler.class,
         ReactNativeRegistrationIntentService.class,
+        ReactNativeRegistrationCoordinator.class,
+        ReactNativeNotificationBuffer.class,
+        ReactNativeNotificationHistory.class,
+        ReactNativeNotificationChannelRegistry.class,
         GoogleApiAvailability.class,
         Arguments.class,
         NotificationManagerCompat.class
@@ -83,6 +105,21 @@ public class ReactNativeNotificationHubModuleTest {
     @Mock
     ReactNativeNotificationHubUtil mNotificationHubUtil;
 
+    @Mock(answer = Answers.RETURNS_SELF)
+    ReactNativeNotificationHubUtil.ConfigEditor mConfigEditor;
+
+    @Mock
+    ReactNativeRegistrationCoordinator mRegistrationCoordinator;
+
+    @Mock
+    ReactNativeNotificationBuffer mNotificationBuffer;
+
+    @Mock
+    ReactNativeNotificationStore mNotificationStore;
+
+    @Mock
+    ReactNativeNotificationChannelRegistry mChannelRegistry;
+
     @Mock
     NotificationHub mNotificationHub;
 
@@ -91,13 +128,20 @@ public class ReactNativeNotificationHubModuleTest {
 
     ReactNativeNotificationHubModule mHubModule;
 
+    private ArgumentCaptor<ReactNativeHubOperation> mHubOperation;
+
     @Before
-    public void setUp() {
+    public void setUp() throws Exception {
         // Reset mocks
         reset(mPromise);
         reset(mConfig);
         reset(mTags);
         reset(mNotificationHubUtil);
+        reset(mConfigEditor);
+        reset(mRegistrationCoordinator);
+        reset(mNotificationBuffer);
+        reset(mNotificationStore);
+        reset(mChannelRegistry);
         reset(mReactApplicationContext);
 
         // Prepare mock objects
@@ -105,9 +149,21 @@ public class ReactNativeNotificationHubModuleTest {
         when(LocalBroadcastManager.getInstance(mReactApplicationContext)).thenReturn(mLocalBroadcastManager);
         PowerMockito.mockStatic(ReactNativeNotificationHubUtil.class);
         when(ReactNativeNotificationHubUtil.getInstance()).thenReturn(mNotificationHubUtil);
+        when(mNotificationHubUtil.edit(any())).thenReturn(mConfigEditor);
         PowerMockito.mockStatic(ReactNativeUtil.class);
+        mHubOperation = ArgumentCaptor.forClass(ReactNativeHubOperation.class);
+        PowerMockito.doNothing().when(
+                ReactNativeUtil.class, "runHubOperation", mHubOperation.capture(), anyLong());
         PowerMockito.mockStatic(ReactNativeNotificationsHandler.class);
         PowerMockito.mockStatic(ReactNativeRegistrationIntentService.class);
+        PowerMockito.mockStatic(ReactNativeRegistrationCoordinator.class);
+        when(ReactNativeRegistrationCoordinator.getInstance()).thenReturn(mRegistrationCoordinator);
+        PowerMockito.mockStatic(ReactNativeNotificationBuffer.class);
+        when(ReactNativeNotificationBuffer.getInstance(mReactApplicationContext)).thenReturn(mNotificationBuffer);
+        PowerMockito.mockStatic(ReactNativeNotificationHistory.class);
+        when(ReactNativeNotificationHistory.getStore(mReactApplicationContext)).thenReturn(mNotificationStore);
+        PowerMockito.mockStatic(ReactNativeNotificationChannelRegistry.class);
+        when(ReactNativeNotificationChannelRegistry.getInstance(mReactApplicationContext)).thenReturn(mChannelRegistry);
         PowerMockito.mockStatic(GoogleApiAvailability.class);
         when(GoogleApiAvailability.getInstance()).thenReturn(mGoogleApiAvailability);
         PowerMockito.mockStatic(Arguments.class);
@@ -192,8 +248,7 @@ public class ReactNativeNotificationHubModuleTest {
 
         mHubModule.register(mConfig, mPromise);
 
-        verify(mNotificationHubUtil, times(0)).setChannelName(
-                any(ReactContext.class), anyString());
+        verify(mConfigEditor, times(0)).setChannelName(anyString());
     }
 
     @Test
@@ -208,8 +263,7 @@ public class ReactNativeNotificationHubModuleTest {
 
         mHubModule.register(mConfig, mPromise);
 
-        verify(mNotificationHubUtil, times(1)).setChannelName(
-                any(ReactContext.class), eq(channelName));
+        verify(mConfigEditor, times(1)).setChannelName(eq(channelName));
     }
 
     @Test
@@ -221,8 +275,7 @@ public class ReactNativeNotificationHubModuleTest {
 
         mHubModule.register(mConfig, mPromise);
 
-        verify(mNotificationHubUtil, times(0)).setChannelDescription(
-                any(ReactContext.class), anyString());
+        verify(mConfigEditor, times(0)).setChannelDescription(anyString());
     }
 
     @Test
@@ -237,8 +290,7 @@ public class ReactNativeNotificationHubModuleTest {
 
         mHubModule.register(mConfig, mPromise);
 
-        verify(mNotificationHubUtil, times(1)).setChannelDescription(
-                any(ReactContext.class), eq(channelDescription));
+        verify(mConfigEditor, times(1)).setChannelDescription(eq(channelDescription));
     }
 
     @Test
@@ -253,8 +305,7 @@ public class ReactNativeNotificationHubModuleTest {
 
         mHubModule.register(mConfig, mPromise);
 
-        verify(mNotificationHubUtil, times(1)).setChannelImportance(
-                any(ReactContext.class), eq(channelImportance));
+        verify(mConfigEditor, times(1)).setChannelImportance(eq(channelImportance));
     }
 
     @Test
@@ -269,8 +320,7 @@ public class ReactNativeNotificationHubModuleTest {
 
         mHubModule.register(mConfig, mPromise);
 
-        verify(mNotificationHubUtil, times(1)).setChannelShowBadge(
-                any(ReactContext.class), eq(channelShowBadge));
+        verify(mConfigEditor, times(1)).setChannelShowBadge(eq(channelShowBadge));
     }
 
     @Test
@@ -285,8 +335,7 @@ public class ReactNativeNotificationHubModuleTest {
 
         mHubModule.register(mConfig, mPromise);
 
-        verify(mNotificationHubUtil, times(1)).setChannelEnableLights(
-                any(ReactContext.class), eq(channelEnableLights));
+        verify(mConfigEditor, times(1)).setChannelEnableLights(eq(channelEnableLights));
     }
 
     @Test
@@ -301,8 +350,48 @@ public class ReactNativeNotificationHubModuleTest {
 
         mHubModule.register(mConfig, mPromise);
 
-        verify(mNotificationHubUtil, times(1)).setChannelEnableVibration(
-                any(ReactContext.class), eq(channelEnableVibration));
+        verify(mConfigEditor, times(1)).setChannelEnableVibration(eq(channelEnableVibration));
+    }
+
+    @Test
+    public void testRegisterHasRegistrationTTL() {
+        when(mConfig.getString(KEY_REGISTRATION_CONNECTIONSTRING)).thenReturn(KEY_REGISTRATION_CONNECTIONSTRING);
+        when(mConfig.getString(KEY_REGISTRATION_HUBNAME)).thenReturn(KEY_REGISTRATION_HUBNAME);
+        when(mConfig.getString(KEY_REGISTRATION_SENDERID)).thenReturn(KEY_REGISTRATION_SENDERID);
+        when(mConfig.hasKey(KEY_REGISTRATION_TTL)).thenReturn(true);
+        when(mConfig.getDouble(KEY_REGISTRATION_TTL)).thenReturn(86400000.0);
+
+        mHubModule.register(mConfig, mPromise);
+
+        verify(mConfigEditor, times(1)).setRegistrationTTL(86400000L);
+    }
+
+    @Test
+    public void testRegisterInvalidatesPreviousHub() {
+        when(mConfig.getString(KEY_REGISTRATION_CONNECTIONSTRING)).thenReturn("New Connection String");
+        when(mConfig.getString(KEY_REGISTRATION_HUBNAME)).thenReturn("Hub Name");
+        when(mConfig.getString(KEY_REGISTRATION_SENDERID)).thenReturn(KEY_REGISTRATION_SENDERID);
+        when(mNotificationHubUtil.getConnectionString(any(ReactContext.class))).thenReturn("Connection String");
+        when(mNotificationHubUtil.getHubName(any(ReactContext.class))).thenReturn("Hub Name");
+
+        mHubModule.register(mConfig, mPromise);
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.invalidateNotificationHub("Hub Name", "Connection String");
+    }
+
+    @Test
+    public void testRegisterKeepsUnchangedHub() {
+        when(mConfig.getString(KEY_REGISTRATION_CONNECTIONSTRING)).thenReturn("Connection String");
+        when(mConfig.getString(KEY_REGISTRATION_HUBNAME)).thenReturn("Hub Name");
+        when(mConfig.getString(KEY_REGISTRATION_SENDERID)).thenReturn(KEY_REGISTRATION_SENDERID);
+        when(mNotificationHubUtil.getConnectionString(any(ReactContext.class))).thenReturn("Connection String");
+        when(mNotificationHubUtil.getHubName(any(ReactContext.class))).thenReturn("Hub Name");
+
+        mHubModule.register(mConfig, mPromise);
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.invalidateNotificationHub(anyString(), anyString());
     }
 
     @Test
@@ -315,8 +404,7 @@ public class ReactNativeNotificationHubModuleTest {
         mHubModule.register(mConfig, mPromise);
 
         verify(mNotificationHubUtil, times(1)).getUUID(any(ReactContext.class));
-        verify(mNotificationHubUtil, times(1)).setUUID(
-                any(ReactContext.class), anyString());
+        verify(mConfigEditor, times(1)).setUUID(anyString());
         PowerMockito.verifyStatic((ReactNativeUtil.class));
         ReactNativeUtil.genUUID();
     }
@@ -332,8 +420,7 @@ public class ReactNativeNotificationHubModuleTest {
         mHubModule.register(mConfig, mPromise);
 
         verify(mNotificationHubUtil, times(1)).getUUID(any(ReactContext.class));
-        verify(mNotificationHubUtil, times(0)).setUUID(
-                any(ReactContext.class), anyString());
+        verify(mConfigEditor, times(0)).setUUID(anyString());
         PowerMockito.verifyStatic((ReactNativeUtil.class), times(0));
         ReactNativeUtil.genUUID();
     }
@@ -358,22 +445,17 @@ public class ReactNativeNotificationHubModuleTest {
 
         mHubModule.register(mConfig, mPromise);
 
-        verify(mNotificationHubUtil, times(1)).setConnectionString(
-                any(ReactContext.class), eq(connectionString));
-        verify(mNotificationHubUtil, times(1)).setHubName(
-                any(ReactContext.class), eq(hubName));
-        verify(mNotificationHubUtil, times(1)).setSenderID(
-                any(ReactContext.class), eq(senderID));
-        verify(mNotificationHubUtil, times(1)).setTemplated(
-                any(ReactContext.class), eq(false));
-        verify(mNotificationHubUtil, times(1)).setTags(
-                any(ReactContext.class), eq(tags));
+        verify(mConfigEditor, times(1)).setConnectionString(eq(connectionString));
+        verify(mConfigEditor, times(1)).setHubName(eq(hubName));
+        verify(mConfigEditor, times(1)).setSenderID(eq(senderID));
+        verify(mConfigEditor, times(1)).setTemplated(eq(false));
+        verify(mConfigEditor, times(1)).setTags(eq(tags));
+        verify(mConfigEditor, times(1)).commit();
         verify(mRes, times(1)).putString(eq(KEY_PROMISE_RESOLVE_UUID), any());
         verify(mPromise, times(1)).resolve(mRes);
         verify(mPromise, times(0)).reject(anyString(), anyString());
 
-        PowerMockito.verifyStatic(ReactNativeRegistrationIntentService.class);
-        ReactNativeRegistrationIntentService.enqueueWork(eq(mReactApplicationContext), any(Intent.class));
+        verify(mRegistrationCoordinator, times(1)).requestRegistration(mReactApplicationContext);
     }
 
     @Test
@@ -404,11 +486,19 @@ public class ReactNativeNotificationHubModuleTest {
         when(mNotificationHubUtil.getConnectionString(any(ReactContext.class))).thenReturn("Connection String");
         when(mNotificationHubUtil.getHubName(any(ReactContext.class))).thenReturn("Hub Name");
         when(mNotificationHubUtil.getRegistrationID(any(ReactContext.class))).thenReturn("registrationId");
-        when(ReactNativeUtil.createNotificationHub(
+        when(mNotificationHubUtil.getNetworkTimeout()).thenReturn(DEFAULT_NETWORK_TIMEOUT_MS);
+        when(ReactNativeUtil.getNotificationHub(
                 anyString(), anyString(), any(ReactContext.class))).thenReturn(mNotificationHub);
 
         mHubModule.unregister(mPromise);
 
+        verify(mNotificationHub, times(0)).unregister();
+        verify(mPromise, times(0)).resolve(any());
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.runHubOperation(any(ReactNativeHubOperation.class), eq(DEFAULT_NETWORK_TIMEOUT_MS));
+
+        mHubOperation.getValue().run();
+
         verify(mNotificationHub, times(1)).unregister();
         verify(mNotificationHubUtil, times(1)).setRegistrationID(
                 any(ReactContext.class), eq(null));
@@ -423,7 +513,7 @@ public class ReactNativeNotificationHubModuleTest {
         when(mNotificationHubUtil.getConnectionString(any(ReactContext.class))).thenReturn("Connection String");
         when(mNotificationHubUtil.getHubName(any(ReactContext.class))).thenReturn("Hub Name");
         when(mNotificationHubUtil.getRegistrationID(any(ReactContext.class))).thenReturn(null);
-        when(ReactNativeUtil.createNotificationHub(
+        when(ReactNativeUtil.getNotificationHub(
                 anyString(), anyString(), any(ReactContext.class))).thenReturn(mNotificationHub);
 
         mHubModule.unregister(mPromise);
@@ -431,6 +521,8 @@ public class ReactNativeNotificationHubModuleTest {
         verify(mPromise, times(1)).reject(
                 ERROR_NOT_REGISTERED,
                 ERROR_NOT_REGISTERED_DESC);
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.runHubOperation(any(ReactNativeHubOperation.class), anyLong());
     }
 
     @Test
@@ -440,11 +532,12 @@ public class ReactNativeNotificationHubModuleTest {
         when(mNotificationHubUtil.getConnectionString(any(ReactContext.class))).thenReturn("Connection String");
         when(mNotificationHubUtil.getHubName(any(ReactContext.class))).thenReturn("Hub Name");
         when(mNotificationHubUtil.getRegistrationID(any(ReactContext.class))).thenReturn("registrationId");
-        when(ReactNativeUtil.createNotificationHub(
+        when(ReactNativeUtil.getNotificationHub(
                 anyString(), anyString(), any(ReactContext.class))).thenReturn(mNotificationHub);
         doThrow(unhandledException).when(mNotificationHub).unregister();
 
         mHubModule.unregister(mPromise);
+        mHubOperation.getValue().run();
 
         verify(mPromise, times(1)).reject(
                 ERROR_NOTIFICATION_HUB,
@@ -502,26 +595,19 @@ public class ReactNativeNotificationHubModuleTest {
 
         mHubModule.registerTemplate(mConfig, mPromise);
 
-        verify(mNotificationHubUtil, times(1)).setConnectionString(
-                any(ReactContext.class), eq(connectionString));
-        verify(mNotificationHubUtil, times(1)).setHubName(
-                any(ReactContext.class), eq(hubName));
-        verify(mNotificationHubUtil, times(1)).setSenderID(
-                any(ReactContext.class), eq(senderID));
-        verify(mNotificationHubUtil, times(1)).setTemplateName(
-                any(ReactContext.class), eq(templateName));
-        verify(mNotificationHubUtil, times(1)).setTemplate(
-                any(ReactContext.class), eq(template));
-        verify(mNotificationHubUtil, times(1)).setTemplated(
-                any(ReactContext.class), eq(true));
-        verify(mNotificationHubUtil, times(1)).setTags(
-                any(ReactContext.class), eq(tags));
+        verify(mConfigEditor, times(1)).setConnectionString(eq(connectionString));
+        verify(mConfigEditor, times(1)).setHubName(eq(hubName));
+        verify(mConfigEditor, times(1)).setSenderID(eq(senderID));
+        verify(mConfigEditor, times(1)).setTemplateName(eq(templateName));
+        verify(mConfigEditor, times(1)).setTemplate(eq(template));
+        verify(mConfigEditor, times(1)).setTemplated(eq(true));
+        verify(mConfigEditor, times(1)).setTags(eq(tags));
+        verify(mConfigEditor, times(1)).commit();
         verify(mRes, times(1)).putString(eq(KEY_PROMISE_RESOLVE_UUID), any());
         verify(mPromise, times(1)).resolve(mRes);
         verify(mPromise, times(0)).reject(anyString(), anyString());
 
-        PowerMockito.verifyStatic(ReactNativeRegistrationIntentService.class);
-        ReactNativeRegistrationIntentService.enqueueWork(eq(mReactApplicationContext), any(Intent.class));
+        verify(mRegistrationCoordinator, times(1)).requestRegistration(mReactApplicationContext);
     }
 
     @Test
@@ -556,11 +642,16 @@ public class ReactNativeNotificationHubModuleTest {
         when(mNotificationHubUtil.getConnectionString(any(ReactContext.class))).thenReturn("Connection String");
         when(mNotificationHubUtil.getHubName(any(ReactContext.class))).thenReturn("Hub Name");
         when(mNotificationHubUtil.getRegistrationID(any(ReactContext.class))).thenReturn("registrationId");
-        when(ReactNativeUtil.createNotificationHub(
+        when(ReactNativeUtil.getNotificationHub(
                 anyString(), anyString(), any(ReactContext.class))).thenReturn(mNotificationHub);
 
         mHubModule.unregisterTemplate(templateName, mPromise);
 
+        verify(mNotificationHub, times(0)).unregisterTemplate(templateName);
+        verify(mPromise, times(0)).resolve(any());
+
+        mHubOperation.getValue().run();
+
         verify(mNotificationHub, times(1)).unregisterTemplate(templateName);
         verify(mNotificationHubUtil, times(1)).setRegistrationID(
                 any(ReactContext.class), eq(null));
@@ -575,7 +666,7 @@ public class ReactNativeNotificationHubModuleTest {
         when(mNotificationHubUtil.getConnectionString(any(ReactContext.class))).thenReturn("Connection String");
         when(mNotificationHubUtil.getHubName(any(ReactContext.class))).thenReturn("Hub Name");
         when(mNotificationHubUtil.getRegistrationID(any(ReactContext.class))).thenReturn(null);
-        when(ReactNativeUtil.createNotificationHub(
+        when(ReactNativeUtil.getNotificationHub(
                 anyString(), anyString(), any(ReactContext.class))).thenReturn(mNotificationHub);
 
         mHubModule.unregisterTemplate("Template Name", mPromise);
@@ -593,17 +684,210 @@ public class ReactNativeNotificationHubModuleTest {
         when(mNotificationHubUtil.getConnectionString(any(ReactContext.class))).thenReturn("Connection String");
         when(mNotificationHubUtil.getHubName(any(ReactContext.class))).thenReturn("Hub Name");
         when(mNotificationHubUtil.getRegistrationID(any(ReactContext.class))).thenReturn("registrationId");
-        when(ReactNativeUtil.createNotificationHub(
+        when(ReactNativeUtil.getNotificationHub(
                 anyString(), anyString(), any(ReactContext.class))).thenReturn(mNotificationHub);
         doThrow(unhandledException).when(mNotificationHub).unregisterTemplate(templateName);
 
         mHubModule.unregisterTemplate(templateName, mPromise);
+        mHubOperation.getValue().run();
 
         verify(mPromise, times(1)).reject(
                 ERROR_NOTIFICATION_HUB,
                 unhandledException);
     }
 
+    @Test
+    public void testConfigureNetworkTimeout() {
+        when(mConfig.hasKey(KEY_OPTIONS_NETWORK_TIMEOUT)).thenReturn(true);
+        when(mConfig.getDouble(KEY_OPTIONS_NETWORK_TIMEOUT)).thenReturn(5000.0);
+
+        mHubModule.configure(mConfig);
+
+        verify(mNotificationHubUtil, times(1)).setNetworkTimeout(5000);
+    }
+
+    @Test
+    public void testConfigureWithoutNetworkTimeout() {
+        when(mConfig.hasKey(KEY_OPTIONS_NETWORK_TIMEOUT)).thenReturn(false);
+
+        mHubModule.configure(mConfig);
+
+        verify(mNotificationHubUtil, times(0)).setNetworkTimeout(anyLong());
+        verify(mRegistrationCoordinator, times(0)).setDebounceDelay(anyLong());
+    }
+
+    @Test
+    public void testConfigureRegistrationDebounce() {
+        when(mConfig.hasKey(KEY_OPTIONS_REGISTRATION_DEBOUNCE)).thenReturn(true);
+        when(mConfig.getDouble(KEY_OPTIONS_REGISTRATION_DEBOUNCE)).thenReturn(1000.0);
+
+        mHubModule.configure(mConfig);
+
+        verify(mRegistrationCoordinator, times(1)).setDebounceDelay(1000);
+    }
+
+    @Test
+    public void testConfigureHistory() {
+        when(mConfig.hasKey(KEY_OPTIONS_HISTORY_RETENTION)).thenReturn(true);
+        when(mConfig.getDouble(KEY_OPTIONS_HISTORY_RETENTION)).thenReturn(86400000.0);
+        when(mConfig.hasKey(KEY_OPTIONS_HISTORY_MAX_SIZE)).thenReturn(true);
+        when(mConfig.getDouble(KEY_OPTIONS_HISTORY_MAX_SIZE)).thenReturn(65536.0);
+
+        mHubModule.configure(mConfig);
+
+        PowerMockito.verifyStatic(ReactNativeNotificationHistory.class);
+        ReactNativeNotificationHistory.setRetention(mReactApplicationContext, 86400000);
+        PowerMockito.verifyStatic(ReactNativeNotificationHistory.class);
+        ReactNativeNotificationHistory.setMaxSize(mReactApplicationContext, 65536);
+    }
+
+    @Test
+    public void testGetNotificationHistory() {
+        final JSONObject payload = new JSONObject();
+        ArgumentCaptor<Runnable> queryTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.runInIoThread(queryTask.capture())).thenReturn(true);
+        WritableArray notifications = PowerMockito.mock(WritableArray.class);
+        when(Arguments.createArray()).thenReturn(notifications);
+        ArgumentCaptor<ReactNativeNotificationStore.Query> query =
+                ArgumentCaptor.forClass(ReactNativeNotificationStore.Query.class);
+        when(mNotificationStore.query(query.capture(), any(ReactNativeNotificationStore.Visitor.class))).thenAnswer(
+                new Answer<Long>() {
+                    @Override
+                    public Long answer(InvocationOnMock invocation) {
+                        ReactNativeNotificationStore.Visitor visitor = invocation.getArgument(1);
+                        visitor.visit("Message ID", 1000, payload);
+                        return 42L;
+                    }
+                });
+        when(mConfig.hasKey(KEY_HISTORY_SINCE)).thenReturn(true);
+        when(mConfig.getDouble(KEY_HISTORY_SINCE)).thenReturn(500.0);
+        when(mConfig.hasKey(KEY_HISTORY_LIMIT)).thenReturn(true);
+        when(mConfig.getInt(KEY_HISTORY_LIMIT)).thenReturn(10);
+        when(mConfig.hasKey(KEY_HISTORY_GROUP)).thenReturn(true);
+        when(mConfig.getString(KEY_HISTORY_GROUP)).thenReturn("Group");
+
+        mHubModule.getNotificationHistory(mConfig, mPromise);
+        verify(mNotificationStore, times(0)).query(
+                any(ReactNativeNotificationStore.Query.class), any(ReactNativeNotificationStore.Visitor.class));
+
+        queryTask.getValue().run();
+
+        Assert.assertEquals(500, query.getValue().getSince());
+        Assert.assertEquals(10, query.getValue().getLimit());
+        Assert.assertEquals("Group", query.getValue().getGroup());
+        Assert.assertNull(query.getValue().getTag());
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.convertJSONToMap(payload);
+        verify(mRes, times(1)).putString(KEY_HISTORY_ID, "Message ID");
+        verify(mRes, times(1)).putDouble(KEY_HISTORY_RECEIVED_AT, 1000);
+        verify(notifications, times(1)).pushMap(mRes);
+        verify(mRes, times(1)).putArray(KEY_HISTORY_NOTIFICATIONS, notifications);
+        verify(mRes, times(1)).putDouble(KEY_HISTORY_CURSOR, 42);
+        verify(mPromise, times(1)).resolve(mRes);
+    }
+
+    @Test
+    public void testGetNotificationHistoryLastPage() {
+        ArgumentCaptor<Runnable> queryTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.runInIoThread(queryTask.capture())).thenReturn(true);
+        when(mNotificationStore.query(
+                any(ReactNativeNotificationStore.Query.class), any(ReactNativeNotificationStore.Visitor.class)))
+                .thenReturn(-1L);
+
+        mHubModule.getNotificationHistory(mConfig, mPromise);
+        queryTask.getValue().run();
+
+        verify(mRes, times(1)).putNull(KEY_HISTORY_CURSOR);
+        verify(mPromise, times(1)).resolve(mRes);
+    }
+
+    @Test
+    public void testGetNotificationHistoryBusy() {
+        when(ReactNativeUtil.runInIoThread(any(Runnable.class))).thenReturn(false);
+
+        mHubModule.getNotificationHistory(mConfig, mPromise);
+
+        verify(mPromise, times(1)).reject(ERROR_GET_NOTIFICATION_HISTORY, ERROR_HISTORY_BUSY);
+        verify(mNotificationStore, times(0)).query(
+                any(ReactNativeNotificationStore.Query.class), any(ReactNativeNotificationStore.Visitor.class));
+    }
+
+    @Test
+    public void testClearNotificationHistory() {
+        ArgumentCaptor<Runnable> clearTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.runInIoThread(clearTask.capture())).thenReturn(true);
+
+        mHubModule.clearNotificationHistory(mPromise);
+        clearTask.getValue().run();
+
+        verify(mNotificationStore, times(1)).clear();
+        verify(mPromise, times(1)).resolve(null);
+    }
+
+    @Test
+    public void testSetNotificationChannels() {
+        ReadableArray channels = PowerMockito.mock(ReadableArray.class);
+        ReadableMap orders = PowerMockito.mock(ReadableMap.class);
+        when(channels.size()).thenReturn(1);
+        when(channels.getMap(0)).thenReturn(orders);
+        when(orders.hasKey(KEY_CHANNEL_ID)).thenReturn(true);
+        when(orders.getString(KEY_CHANNEL_ID)).thenReturn("orders");
+        when(orders.hasKey(KEY_CHANNEL_NAME)).thenReturn(true);
+        when(orders.getString(KEY_CHANNEL_NAME)).thenReturn("Orders");
+        when(orders.hasKey(KEY_CHANNEL_IMPORTANCE)).thenReturn(true);
+        when(orders.getInt(KEY_CHANNEL_IMPORTANCE)).thenReturn(4);
+        ArgumentCaptor<Runnable> syncTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.runInWorkerThread(syncTask.capture())).thenReturn(true);
+
+        mHubModule.setNotificationChannels(channels, mPromise);
+
+        ReactNativeNotificationChannelRegistry.Channel expected = new ReactNativeNotificationChannelRegistry.Channel(
+                "orders", "Orders", null, 4, true, true, true);
+        verify(mChannelRegistry, times(1)).declare(Collections.singletonList(expected));
+        verify(mPromise, times(0)).resolve(null);
+
+        syncTask.getValue().run();
+
+        verify(mChannelRegistry, times(1)).sync(mReactApplicationContext);
+        verify(mPromise, times(1)).resolve(null);
+    }
+
+    @Test
+    public void testSetNotificationChannelsBusy() {
+        ReadableArray channels = PowerMockito.mock(ReadableArray.class);
+        when(ReactNativeUtil.runInWorkerThread(any(Runnable.class))).thenReturn(false);
+
+        mHubModule.setNotificationChannels(channels, mPromise);
+
+        verify(mPromise, times(1)).reject(ERROR_SET_NOTIFICATION_CHANNELS, ERROR_CHANNELS_BUSY);
+        verify(mChannelRegistry, times(0)).sync(any());
+    }
+
+    @Test
+    public void testSetNotificationChannelsMissingID() {
+        ReadableArray channels = PowerMockito.mock(ReadableArray.class);
+        when(channels.size()).thenReturn(1);
+        when(channels.getMap(0)).thenReturn(PowerMockito.mock(ReadableMap.class));
+
+        mHubModule.setNotificationChannels(channels, mPromise);
+
+        verify(mPromise, times(1)).reject(ERROR_INVALID_ARGUMENTS, ERROR_INVALID_CHANNEL_ID);
+        verify(mChannelRegistry, times(0)).declare(any());
+    }
+
+    @Test
+    public void testWarmUpOnInit() {
+        ArgumentCaptor<Runnable> warmUpTask = ArgumentCaptor.forClass(Runnable.class);
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.runInWorkerThread(warmUpTask.capture());
+
+        warmUpTask.getValue().run();
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.warmUpResources(mReactApplicationContext);
+        verify(mChannelRegistry, times(1)).sync(mReactApplicationContext);
+    }
+
     @Test
     public void testGetInitialNotificationNullActivity() {
         when(mReactApplicationContext.getCurrentActivity()).thenReturn(null);
@@ -757,8 +1041,13 @@ public class ReactNativeNotificationHubModuleTest {
         verify(bundle, times(1)).putBoolean(KEY_REMOTE_NOTIFICATION_COLDSTART, true);
         PowerMockito.verifyStatic(ReactNativeUtil.class);
         ReactNativeUtil.removeNotificationFromIntent(intent);
-        PowerMockito.verifyStatic(ReactNativeNotificationsHandler.class);
+        PowerMockito.verifyStatic(ReactNativeNotificationsHandler.class, times(0));
         ReactNativeNotificationsHandler.sendBroadcast(eq(mReactApplicationContext), eq(bundle), anyLong());
+
+        mHubModule.notifyListenersReady();
+
+        PowerMockito.verifyStatic(ReactNativeNotificationsHandler.class);
+        ReactNativeNotificationsHandler.sendBroadcast(mReactApplicationContext, bundle, 0);
     }
 
     @Test
@@ -778,8 +1067,13 @@ public class ReactNativeNotificationHubModuleTest {
         verify(bundle, times(1)).putBoolean(KEY_REMOTE_NOTIFICATION_COLDSTART, true);
         PowerMockito.verifyStatic(ReactNativeUtil.class);
         ReactNativeUtil.removeNotificationFromIntent(intent);
-        PowerMockito.verifyStatic(ReactNativeNotificationsHandler.class);
+        PowerMockito.verifyStatic(ReactNativeNotificationsHandler.class, times(0));
         ReactNativeNotificationsHandler.sendBroadcast(eq(mReactApplicationContext), eq(bundle), anyLong());
+
+        mHubModule.notifyListenersReady();
+
+        PowerMockito.verifyStatic(ReactNativeNotificationsHandler.class);
+        ReactNativeNotificationsHandler.sendBroadcast(mReactApplicationContext, bundle, 0);
     }
 
     @Test
@@ -799,7 +1093,344 @@ public class ReactNativeNotificationHubModuleTest {
 
         verify(bundle, times(1)).putBoolean(KEY_REMOTE_NOTIFICATION_FOREGROUND, false);
         verify(bundle, times(1)).putBoolean(KEY_REMOTE_NOTIFICATION_USER_INTERACTION, true);
-        PowerMockito.verifyStatic(ReactNativeNotificationsHandler.class);
+        PowerMockito.verifyStatic(ReactNativeNotificationsHandler.class, times(0));
         ReactNativeNotificationsHandler.sendBroadcast(eq(mReactApplicationContext), eq(bundle), anyLong());
+
+        mHubModule.notifyListenersReady();
+
+        PowerMockito.verifyStatic(ReactNativeNotificationsHandler.class);
+        ReactNativeNotificationsHandler.sendBroadcast(mReactApplicationContext, bundle, 0);
+    }
+
+    @Test
+    public void testOnNewIntentAfterListenersReady() {
+        Intent intent = PowerMockito.mock(Intent.class);
+        Bundle bundle = PowerMockito.mock(Bundle.class);
+        when(ReactNativeUtil.getBundleFromIntent(intent)).thenReturn(bundle);
+
+        mHubModule.notifyListenersReady();
+        mHubModule.onNewIntent(intent);
+
+        PowerMockito.verifyStatic(ReactNativeNotificationsHandler.class);
+        ReactNativeNotificationsHandler.sendBroadcast(mReactApplicationContext, bundle, 0);
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void testConfigureListenersReadyTimeout() {
+        final long listenersReadyTimeout = 5000;
+        Intent intent = PowerMockito.mock(Intent.class);
+        Bundle bundle = PowerMockito.mock(Bundle.class);
+        when(ReactNativeUtil.getBundleFromIntent(intent)).thenReturn(bundle);
+        when(mConfig.hasKey(KEY_OPTIONS_LISTENERS_READY_TIMEOUT)).thenReturn(true);
+        when(mConfig.getDouble(KEY_OPTIONS_LISTENERS_READY_TIMEOUT)).thenReturn((double) listenersReadyTimeout);
+
+        mHubModule.configure(mConfig);
+        mHubModule.onNewIntent(intent);
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), eq(listenersReadyTimeout));
+    }
+
+    @Test
+    public void testLocalBroadcastReceiverEmitsInForeground() {
+        Intent intent = PowerMockito.mock(Intent.class);
+        when(mNotificationHubUtil.getAppIsForeground()).thenReturn(true);
+
+        mHubModule.new LocalBroadcastReceiver().onReceive(mReactApplicationContext, intent);
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.emitIntent(mReactApplicationContext, intent);
+    }
+
+    @Test
+    public void testLocalBroadcastReceiverBatchesInForeground() {
+        final long batchWindow = 100;
+        Intent intent = PowerMockito.mock(Intent.class);
+        Bundle bundle = PowerMockito.mock(Bundle.class);
+        when(mNotificationHubUtil.getAppIsForeground()).thenReturn(true);
+        when(intent.getStringExtra(KEY_INTENT_EVENT_NAME)).thenReturn(EVENT_REMOTE_NOTIFICATION_RECEIVED);
+        when(intent.getExtras()).thenReturn(bundle);
+        when(mConfig.hasKey(KEY_OPTIONS_BATCH_WINDOW)).thenReturn(true);
+        when(mConfig.getDouble(KEY_OPTIONS_BATCH_WINDOW)).thenReturn((double) batchWindow);
+
+        mHubModule.configure(mConfig);
+        mHubModule.new LocalBroadcastReceiver().onReceive(mReactApplicationContext, intent);
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.emitIntent(any(), any());
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), eq(batchWindow));
+    }
+
+    @Test
+    public void testLocalBroadcastReceiverDoesNotBatchTaps() {
+        Intent intent = PowerMockito.mock(Intent.class);
+        Bundle bundle = PowerMockito.mock(Bundle.class);
+        when(mNotificationHubUtil.getAppIsForeground()).thenReturn(true);
+        when(intent.getStringExtra(KEY_INTENT_EVENT_NAME)).thenReturn(EVENT_REMOTE_NOTIFICATION_RECEIVED);
+        when(intent.getExtras()).thenReturn(bundle);
+        when(bundle.getBoolean(KEY_REMOTE_NOTIFICATION_USER_INTERACTION, false)).thenReturn(true);
+        when(mConfig.hasKey(KEY_OPTIONS_BATCH_WINDOW)).thenReturn(true);
+        when(mConfig.getDouble(KEY_OPTIONS_BATCH_WINDOW)).thenReturn(100.0);
+
+        mHubModule.configure(mConfig);
+        mHubModule.new LocalBroadcastReceiver().onReceive(mReactApplicationContext, intent);
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.emitIntent(mReactApplicationContext, intent);
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void testLocalBroadcastReceiverDoesNotBatchOtherEvents() {
+        Intent intent = PowerMockito.mock(Intent.class);
+        when(mNotificationHubUtil.getAppIsForeground()).thenReturn(true);
+        when(intent.getStringExtra(KEY_INTENT_EVENT_NAME)).thenReturn(EVENT_AZURE_NOTIFICATION_HUB_REGISTERED);
+        when(mConfig.hasKey(KEY_OPTIONS_BATCH_WINDOW)).thenReturn(true);
+        when(mConfig.getDouble(KEY_OPTIONS_BATCH_WINDOW)).thenReturn(100.0);
+
+        mHubModule.configure(mConfig);
+        mHubModule.new LocalBroadcastReceiver().onReceive(mReactApplicationContext, intent);
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.emitIntent(mReactApplicationContext, intent);
+    }
+
+    @Test
+    public void testOnHostPauseFlushesBatch() {
+        Intent intent = PowerMockito.mock(Intent.class);
+        WritableArray notifications = PowerMockito.mock(WritableArray.class);
+        when(Arguments.createArray()).thenReturn(notifications);
+        when(mNotificationHubUtil.getAppIsForeground()).thenReturn(true);
+        when(intent.getStringExtra(KEY_INTENT_EVENT_NAME)).thenReturn(EVENT_REMOTE_NOTIFICATION_RECEIVED);
+        when(intent.getExtras()).thenReturn(PowerMockito.mock(Bundle.class));
+        when(mConfig.hasKey(KEY_OPTIONS_BATCH_WINDOW)).thenReturn(true);
+        when(mConfig.getDouble(KEY_OPTIONS_BATCH_WINDOW)).thenReturn(100.0);
+        mHubModule.configure(mConfig);
+        mHubModule.new LocalBroadcastReceiver().onReceive(mReactApplicationContext, intent);
+
+        mHubModule.onHostPause();
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.emitEvent(mReactApplicationContext, EVENT_REMOTE_NOTIFICATIONS_RECEIVED_BATCH, notifications);
+    }
+
+    @Test
+    public void testConfigureJsonKeys() {
+        ReadableArray jsonKeys = PowerMockito.mock(ReadableArray.class);
+        when(jsonKeys.size()).thenReturn(2);
+        when(jsonKeys.getString(0)).thenReturn("actions");
+        when(jsonKeys.getString(1)).thenReturn("order");
+        when(mConfig.hasKey(KEY_OPTIONS_JSON_KEYS)).thenReturn(true);
+        when(mConfig.getArray(KEY_OPTIONS_JSON_KEYS)).thenReturn(jsonKeys);
+
+        mHubModule.configure(mConfig);
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.setJsonKeys(Arrays.asList("actions", "order"));
+    }
+
+    @Test
+    public void testConfigureExecutors() {
+        ReadableMap executors = PowerMockito.mock(ReadableMap.class);
+        ReadableMap ioOptions = PowerMockito.mock(ReadableMap.class);
+        ReadableMap dispatchOptions = PowerMockito.mock(ReadableMap.class);
+        ReactNativeExecutor ioExecutor = PowerMockito.mock(ReactNativeExecutor.class);
+        ReactNativeExecutor dispatcher = PowerMockito.mock(ReactNativeExecutor.class);
+        when(mConfig.hasKey(KEY_OPTIONS_EXECUTORS)).thenReturn(true);
+        when(mConfig.getMap(KEY_OPTIONS_EXECUTORS)).thenReturn(executors);
+        when(executors.hasKey(EXECUTOR_IO)).thenReturn(true);
+        when(executors.getMap(EXECUTOR_IO)).thenReturn(ioOptions);
+        when(ioOptions.hasKey(KEY_OPTIONS_EXECUTOR_THREADS)).thenReturn(true);
+        when(ioOptions.getInt(KEY_OPTIONS_EXECUTOR_THREADS)).thenReturn(4);
+        when(ioOptions.hasKey(KEY_OPTIONS_EXECUTOR_QUEUE_SIZE)).thenReturn(true);
+        when(ioOptions.getInt(KEY_OPTIONS_EXECUTOR_QUEUE_SIZE)).thenReturn(16);
+        when(executors.hasKey(EXECUTOR_DISPATCH)).thenReturn(true);
+        when(executors.getMap(EXECUTOR_DISPATCH)).thenReturn(dispatchOptions);
+        when(dispatchOptions.hasKey(KEY_OPTIONS_EXECUTOR_THREADS)).thenReturn(true);
+        when(dispatchOptions.getInt(KEY_OPTIONS_EXECUTOR_THREADS)).thenReturn(4);
+        when(ReactNativeUtil.getExecutor(EXECUTOR_IO)).thenReturn(ioExecutor);
+        when(ReactNativeUtil.getExecutor(EXECUTOR_DISPATCH)).thenReturn(dispatcher);
+
+        mHubModule.configure(mConfig);
+
+        verify(ioExecutor, times(1)).setThreads(4);
+        verify(ioExecutor, times(1)).setMaxQueueSize(16);
+        verify(dispatcher, times(0)).setThreads(anyInt());
+        verify(dispatcher, times(0)).setMaxQueueSize(anyInt());
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.getExecutor(EXECUTOR_CPU);
+    }
+
+    @Test
+    public void testLocalBroadcastReceiverParsesJsonInBackground() {
+        Intent intent = PowerMockito.mock(Intent.class);
+        when(mNotificationHubUtil.getAppIsForeground()).thenReturn(true);
+        when(intent.getStringExtra(KEY_INTENT_EVENT_NAME)).thenReturn(EVENT_REMOTE_NOTIFICATION_RECEIVED);
+        when(ReactNativeUtil.getJsonKeys()).thenReturn(Collections.singleton("actions"));
+
+        mHubModule.new LocalBroadcastReceiver().onReceive(mReactApplicationContext, intent);
+
+        ArgumentCaptor<Runnable> emitTask = ArgumentCaptor.forClass(Runnable.class);
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.dispatchDelayed(emitTask.capture(), eq(0L));
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.emitIntent(any(), any());
+
+        emitTask.getValue().run();
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.emitIntent(mReactApplicationContext, intent);
+    }
+
+    @Test
+    public void testLocalBroadcastReceiverFullDispatcherStillEmits() {
+        Intent intent = PowerMockito.mock(Intent.class);
+        when(mNotificationHubUtil.getAppIsForeground()).thenReturn(true);
+        when(intent.getStringExtra(KEY_INTENT_EVENT_NAME)).thenReturn(EVENT_REMOTE_NOTIFICATION_RECEIVED);
+        when(ReactNativeUtil.getJsonKeys()).thenReturn(Collections.singleton("actions"));
+        when(ReactNativeUtil.dispatchDelayed(any(Runnable.class), anyLong())).thenReturn(null);
+
+        mHubModule.new LocalBroadcastReceiver().onReceive(mReactApplicationContext, intent);
+
+        ArgumentCaptor<Runnable> emitTask = ArgumentCaptor.forClass(Runnable.class);
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.runDelayed(emitTask.capture(), eq(0L));
+        emitTask.getValue().run();
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.emitIntent(mReactApplicationContext, intent);
+    }
+
+    @Test
+    public void testLocalBroadcastReceiverBuffersInBackground() {
+        Intent intent = PowerMockito.mock(Intent.class);
+        Bundle bundle = PowerMockito.mock(Bundle.class);
+        when(mNotificationHubUtil.getAppIsForeground()).thenReturn(false);
+        when(intent.getStringExtra(KEY_INTENT_EVENT_NAME)).thenReturn(EVENT_REMOTE_NOTIFICATION_RECEIVED);
+        when(intent.getExtras()).thenReturn(bundle);
+        ArgumentCaptor<Runnable> bufferTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.runInIoThread(bufferTask.capture())).thenReturn(true);
+
+        mHubModule.new LocalBroadcastReceiver().onReceive(mReactApplicationContext, intent);
+
+        verify(mNotificationBuffer, times(0)).append(bundle);
+        bufferTask.getValue().run();
+
+        verify(mNotificationBuffer, times(1)).append(bundle);
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.emitIntent(any(), any());
+    }
+
+    @Test
+    public void testLocalBroadcastReceiverBuffersInArrivalOrder() {
+        Intent firstIntent = PowerMockito.mock(Intent.class);
+        Intent secondIntent = PowerMockito.mock(Intent.class);
+        Bundle first = PowerMockito.mock(Bundle.class);
+        Bundle second = PowerMockito.mock(Bundle.class);
+        when(mNotificationHubUtil.getAppIsForeground()).thenReturn(false);
+        when(firstIntent.getStringExtra(KEY_INTENT_EVENT_NAME)).thenReturn(EVENT_REMOTE_NOTIFICATION_RECEIVED);
+        when(firstIntent.getExtras()).thenReturn(first);
+        when(secondIntent.getStringExtra(KEY_INTENT_EVENT_NAME)).thenReturn(EVENT_REMOTE_NOTIFICATION_RECEIVED);
+        when(secondIntent.getExtras()).thenReturn(second);
+        ArgumentCaptor<Runnable> bufferTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.runInIoThread(bufferTask.capture())).thenReturn(true);
+
+        mHubModule.new LocalBroadcastReceiver().onReceive(mReactApplicationContext, firstIntent);
+        mHubModule.new LocalBroadcastReceiver().onReceive(mReactApplicationContext, secondIntent);
+
+        // A single runner works through both appends
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.runInIoThread(any(Runnable.class));
+        bufferTask.getValue().run();
+
+        InOrder inOrder = inOrder(mNotificationBuffer);
+        inOrder.verify(mNotificationBuffer).append(first);
+        inOrder.verify(mNotificationBuffer).append(second);
+    }
+
+    @Test
+    public void testLocalBroadcastReceiverFullIoPoolBuffersInline() {
+        Intent intent = PowerMockito.mock(Intent.class);
+        Bundle bundle = PowerMockito.mock(Bundle.class);
+        when(mNotificationHubUtil.getAppIsForeground()).thenReturn(false);
+        when(intent.getStringExtra(KEY_INTENT_EVENT_NAME)).thenReturn(EVENT_REMOTE_NOTIFICATION_RECEIVED);
+        when(intent.getExtras()).thenReturn(bundle);
+        when(ReactNativeUtil.runInIoThread(any(Runnable.class))).thenReturn(false);
+
+        mHubModule.new LocalBroadcastReceiver().onReceive(mReactApplicationContext, intent);
+
+        verify(mNotificationBuffer, times(1)).append(bundle);
+    }
+
+    @Test
+    public void testLocalBroadcastReceiverIgnoresOtherEventsInBackground() {
+        Intent intent = PowerMockito.mock(Intent.class);
+        when(mNotificationHubUtil.getAppIsForeground()).thenReturn(false);
+        when(intent.getStringExtra(KEY_INTENT_EVENT_NAME)).thenReturn(EVENT_AZURE_NOTIFICATION_HUB_REGISTERED);
+
+        mHubModule.new LocalBroadcastReceiver().onReceive(mReactApplicationContext, intent);
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.runInWorkerThread(any(Runnable.class));
+    }
+
+    @Test
+    public void testOnHostResumeReplaysBackgroundNotifications() {
+        JSONObject first = new JSONObject();
+        JSONObject second = new JSONObject();
+        WritableArray notifications = PowerMockito.mock(WritableArray.class);
+        WritableMap map = PowerMockito.mock(WritableMap.class);
+        when(Arguments.createArray()).thenReturn(notifications);
+        when(ReactNativeUtil.convertJSONToMap(any(JSONObject.class))).thenReturn(map);
+        when(mReactApplicationContext.hasActiveCatalystInstance()).thenReturn(true);
+        when(mNotificationBuffer.drain()).thenReturn(Arrays.asList(first, second));
+
+        ArgumentCaptor<Runnable> replayTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.runInIoThread(replayTask.capture())).thenReturn(true);
+
+        mHubModule.notifyListenersReady();
+        mHubModule.onHostResume();
+
+        replayTask.getValue().run();
+
+        verify(notifications, times(2)).pushMap(map);
+        PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.emitEvent(mReactApplicationContext, EVENT_REMOTE_NOTIFICATIONS_RECEIVED_IN_BACKGROUND, notifications);
+    }
+
+    @Test
+    public void testOnHostResumeNothingToReplay() {
+        when(mReactApplicationContext.hasActiveCatalystInstance()).thenReturn(true);
+        when(mNotificationBuffer.drain()).thenReturn(Collections.<JSONObject>emptyList());
+
+        ArgumentCaptor<Runnable> replayTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.runInIoThread(replayTask.capture())).thenReturn(true);
+
+        mHubModule.notifyListenersReady();
+        mHubModule.onHostResume();
+
+        replayTask.getValue().run();
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.emitEvent(any(), anyString(), any());
+    }
+
+    @Test
+    public void testOnHostResumeKeepsBufferWithoutCatalystInstance() {
+        when(mReactApplicationContext.hasActiveCatalystInstance()).thenReturn(false);
+
+        ArgumentCaptor<Runnable> replayTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.runInIoThread(replayTask.capture())).thenReturn(true);
+
+        mHubModule.notifyListenersReady();
+        mHubModule.onHostResume();
+
+        replayTask.getValue().run();
+
+        verify(mNotificationBuffer, times(0)).drain();
     }
 }
@@ -56,7 +56,116 @@ public class ReactNativeNotificationHubUtilTest {
                 SHARED_PREFS_NAME, Context.MODE_PRIVATE)).thenReturn(mSharedPreferences);
         when(mSharedPreferences.edit()).thenReturn(mEditor);
 
-        mHubUtil = ReactNativeNotificationHubUtil.getInstance();
+        // Use a fresh instance so no config snapshot leaks between tests
+        mHubUtil = new ReactNativeNotificationHubUtil();
+    }
+
+    @Test
+    public void testGetRegistrationConfigLoadsOnce() {
+        when(mSharedPreferences.getString(KEY_FOR_PREFS_HUBNAME, null)).thenReturn("Hub Name");
+
+        mHubUtil.getHubName(mReactApplicationContext);
+        mHubUtil.getConnectionString(mReactApplicationContext);
+        String hubName = mHubUtil.getRegistrationConfig(mReactApplicationContext).getHubName();
+
+        Assert.assertEquals(hubName, "Hub Name");
+        verify(mReactApplicationContext, times(1)).getSharedPreferences(
+                SHARED_PREFS_NAME, Context.MODE_PRIVATE);
+        verify(mSharedPreferences, times(1)).getString(
+                KEY_FOR_PREFS_HUBNAME, null);
+    }
+
+    @Test
+    public void testRepeatedRegistrationConfigReadsUseSnapshot() {
+        for (int i = 0; i < 100; i++) {
+            ReactNativeNotificationHubUtil.RegistrationConfig config =
+                    mHubUtil.getRegistrationConfig(mReactApplicationContext);
+            config.getConnectionString();
+            config.getTags();
+            config.hasChannelName();
+        }
+
+        verify(mReactApplicationContext, times(1)).getSharedPreferences(
+                SHARED_PREFS_NAME, Context.MODE_PRIVATE);
+        verify(mSharedPreferences, times(1)).getString(
+                KEY_FOR_PREFS_CONNECTIONSTRING, null);
+    }
+
+    @Test
+    public void testSetUpdatesRegistrationConfig() {
+        final String hubName = "Hub Name";
+        final String[] tags = new String[]{"Tag1"};
+
+        ReactNativeNotificationHubUtil.RegistrationConfig before =
+                mHubUtil.getRegistrationConfig(mReactApplicationContext);
+        mHubUtil.setHubName(mReactApplicationContext, hubName);
+        mHubUtil.setTags(mReactApplicationContext, tags);
+        mHubUtil.setChannelImportance(mReactApplicationContext, 3);
+        ReactNativeNotificationHubUtil.RegistrationConfig after =
+                mHubUtil.getRegistrationConfig(mReactApplicationContext);
+
+        Assert.assertNull(before.getHubName());
+        Assert.assertFalse(before.hasChannelImportance());
+        Assert.assertEquals(after.getHubName(), hubName);
+        Assert.assertArrayEquals(after.getTags(), tags);
+        Assert.assertTrue(after.hasChannelImportance());
+        Assert.assertEquals(after.getChannelImportance(), 3);
+        verify(mSharedPreferences, times(1)).getString(
+                KEY_FOR_PREFS_HUBNAME, null);
+    }
+
+    @Test
+    public void testEditCommitsRegistrationFingerprint() {
+        final String fingerprint = "Fingerprint";
+
+        mHubUtil.edit(mReactApplicationContext)
+                .setRegistrationFingerprint(fingerprint)
+                .setRegisteredAt(1000L)
+                .setRegistrationTTL(2000L)
+                .commit();
+
+        verify(mEditor, times(1)).putString(
+                KEY_FOR_PREFS_REGISTRATION_FINGERPRINT, fingerprint);
+        verify(mEditor, times(1)).putLong(
+                KEY_FOR_PREFS_REGISTERED_AT, 1000L);
+        verify(mEditor, times(1)).putLong(
+                KEY_FOR_PREFS_REGISTRATION_TTL, 2000L);
+        Assert.assertEquals(mHubUtil.getRegistrationFingerprint(mReactApplicationContext), fingerprint);
+        Assert.assertEquals(mHubUtil.getRegisteredAt(mReactApplicationContext), 1000L);
+        Assert.assertEquals(mHubUtil.getRegistrationTTL(mReactApplicationContext), 2000L);
+    }
+
+    @Test
+    public void testEditCommitsOnce() {
+        final String connectionString = "Connection String";
+        final String hubName = "Hub Name";
+        final String[] tags = new String[]{"Tag1", "Tag2"};
+
+        boolean committed = mHubUtil.edit(mReactApplicationContext)
+                .setConnectionString(connectionString)
+                .setHubName(hubName)
+                .setTags(tags)
+                .setChannelImportance(1)
+                .setTemplated(true)
+                .commit();
+
+        verify(mSharedPreferences, times(1)).edit();
+        verify(mEditor, times(1)).putString(
+                KEY_FOR_PREFS_CONNECTIONSTRING, connectionString);
+        verify(mEditor, times(1)).putString(
+                KEY_FOR_PREFS_HUBNAME, hubName);
+        verify(mEditor, times(1)).putStringSet(
+                KEY_FOR_PREFS_TAGS, new HashSet<>(Arrays.asList(tags)));
+        verify(mEditor, times(1)).putInt(
+                KEY_FOR_PREFS_CHANNELIMPORTANCE, 1);
+        verify(mEditor, times(1)).putBoolean(
+                KEY_FOR_PREFS_ISTEMPLATE, true);
+        verify(mEditor, times(1)).commit();
+        verify(mEditor, times(0)).apply();
+        Assert.assertFalse(committed);
+        Assert.assertEquals(mHubUtil.getHubName(mReactApplicationContext), hubName);
+        Assert.assertEquals(mHubUtil.getConnectionString(mReactApplicationContext), connectionString);
+        Assert.assertTrue(mHubUtil.isTemplated(mReactApplicationContext));
     }
 
     @Test
@@ -0,0 +1,245 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import com.azure.reactnative.notificationhub.ReactNativeMetrics;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationLogStore;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationStore;
+
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Unit tests for ReactNativeNotificationLogStore.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        Log.class
+})
+public class ReactNativeNotificationLogStoreTest {
+    private static final String KEY_MESSAGE = "message";
+    private static final long RETENTION = 60 * 60 * 1000;
+    private static final long MAX_SIZE = 64 * 1024;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mFile;
+    private long mNow;
+
+    @Before
+    public void setUp() throws IOException {
+        ReactNativeMetrics.reset();
+        PowerMockito.mockStatic(Log.class);
+        mFile = new File(mTemporaryFolder.getRoot(), "history.jsonl");
+        mNow = System.currentTimeMillis();
+    }
+
+    @Test
+    public void testQueryPagesOldestFirst() {
+        ReactNativeNotificationLogStore store = new ReactNativeNotificationLogStore(mFile, RETENTION, MAX_SIZE);
+        for (int i = 1; i <= 5; i++) {
+            store.append(createBundle(String.valueOf(i), "Message " + i, null, null), mNow + i);
+        }
+
+        List<String> messages = new ArrayList<>();
+        long cursor = store.query(new ReactNativeNotificationStore.Query().setLimit(2), collect(messages));
+        Assert.assertEquals(Arrays.asList("Message 1", "Message 2"), messages);
+        Assert.assertTrue(cursor >= 0);
+
+        messages.clear();
+        cursor = store.query(new ReactNativeNotificationStore.Query().setLimit(2).setCursor(cursor), collect(messages));
+        Assert.assertEquals(Arrays.asList("Message 3", "Message 4"), messages);
+
+        messages.clear();
+        cursor = store.query(new ReactNativeNotificationStore.Query().setLimit(2).setCursor(cursor), collect(messages));
+        Assert.assertEquals(Arrays.asList("Message 5"), messages);
+        Assert.assertEquals(-1, cursor);
+        Assert.assertEquals(3, ReactNativeMetrics.getLatencyCount(METRIC_HISTORY_QUERY));
+    }
+
+    @Test
+    public void testQueryFiltersBySinceGroupAndTag() {
+        ReactNativeNotificationLogStore store = new ReactNativeNotificationLogStore(mFile, RETENTION, MAX_SIZE);
+        store.append(createBundle("1", "Message 1", "Group", "Tag"), mNow + 1);
+        store.append(createBundle("2", "Message 2", "Group", null), mNow + 2);
+        store.append(createBundle("3", "Message 3", "Other Group", "Tag"), mNow + 3);
+        store.append(createBundle("4", "Message 4", "Group", "Tag"), mNow + 4);
+
+        List<String> messages = new ArrayList<>();
+        store.query(new ReactNativeNotificationStore.Query().setGroup("Group"), collect(messages));
+        Assert.assertEquals(Arrays.asList("Message 1", "Message 2", "Message 4"), messages);
+
+        messages.clear();
+        store.query(new ReactNativeNotificationStore.Query().setTag("Tag"), collect(messages));
+        Assert.assertEquals(Arrays.asList("Message 1", "Message 3", "Message 4"), messages);
+
+        messages.clear();
+        store.query(new ReactNativeNotificationStore.Query().setGroup("Group").setTag("Tag"), collect(messages));
+        Assert.assertEquals(Arrays.asList("Message 1", "Message 4"), messages);
+
+        messages.clear();
+        store.query(new ReactNativeNotificationStore.Query().setSince(mNow + 2), collect(messages));
+        Assert.assertEquals(Arrays.asList("Message 2", "Message 3", "Message 4"), messages);
+
+        messages.clear();
+        Assert.assertEquals(-1, store.query(new ReactNativeNotificationStore.Query().setGroup("Missing"), collect(messages)));
+        Assert.assertTrue(messages.isEmpty());
+    }
+
+    @Test
+    public void testAppendDropsDuplicateMessageId() {
+        ReactNativeNotificationLogStore store = new ReactNativeNotificationLogStore(mFile, RETENTION, MAX_SIZE);
+
+        Assert.assertTrue(store.append(createBundle("1", "First", null, null), mNow));
+        Assert.assertFalse(store.append(createBundle("1", "First", null, null), mNow));
+        Assert.assertFalse(new ReactNativeNotificationLogStore(mFile, RETENTION, MAX_SIZE).append(
+                createBundle("1", "First", null, null), mNow));
+        Assert.assertTrue(store.append(createBundle(null, "No ID", null, null), mNow));
+        Assert.assertTrue(store.append(createBundle(null, "No ID", null, null), mNow));
+
+        Assert.assertEquals(3, store.size());
+        Assert.assertEquals(2, ReactNativeMetrics.getCount(METRIC_HISTORY_DUPLICATE));
+    }
+
+    @Test
+    public void testReloadKeepsHistoryAndCursor() {
+        ReactNativeNotificationLogStore store = new ReactNativeNotificationLogStore(mFile, RETENTION, MAX_SIZE);
+        store.append(createBundle("1", "Message 1", null, null), mNow + 1);
+        store.append(createBundle("2", "Message 2", null, null), mNow + 2);
+        long cursor = store.query(new ReactNativeNotificationStore.Query().setLimit(1), collect(new ArrayList<String>()));
+
+        ReactNativeNotificationLogStore reloaded = new ReactNativeNotificationLogStore(mFile, RETENTION, MAX_SIZE);
+        reloaded.append(createBundle("3", "Message 3", null, null), mNow + 3);
+
+        List<String> messages = new ArrayList<>();
+        reloaded.query(new ReactNativeNotificationStore.Query().setCursor(cursor), collect(messages));
+        Assert.assertEquals(Arrays.asList("Message 2", "Message 3"), messages);
+    }
+
+    @Test
+    public void testExpiredNotificationsAreCompacted() {
+        ReactNativeNotificationLogStore store = new ReactNativeNotificationLogStore(mFile, RETENTION, MAX_SIZE);
+        store.append(createBundle("1", "Old", null, null), mNow - RETENTION - 1000);
+        store.append(createBundle("2", "New", null, null), mNow);
+
+        Assert.assertEquals(1, store.size());
+        Assert.assertEquals(mFile.length(), store.getFileSize());
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_HISTORY_COMPACTIONS));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_HISTORY_EXPIRED));
+
+        List<String> messages = new ArrayList<>();
+        new ReactNativeNotificationLogStore(mFile, RETENTION, MAX_SIZE).query(
+                new ReactNativeNotificationStore.Query(), collect(messages));
+        Assert.assertEquals(Arrays.asList("New"), messages);
+    }
+
+    @Test
+    public void testSizeLimitKeepsNewest() {
+        final long maxSize = 1000;
+        ReactNativeNotificationLogStore store = new ReactNativeNotificationLogStore(mFile, RETENTION, maxSize);
+        for (int i = 1; i <= 20; i++) {
+            store.append(createBundle(String.valueOf(i), "Message " + i, null, null), mNow + i);
+        }
+
+        Assert.assertTrue(store.getFileSize() <= maxSize);
+        Assert.assertEquals(mFile.length(), store.getFileSize());
+        Assert.assertTrue(ReactNativeMetrics.getCount(METRIC_HISTORY_EVICTED) > 0);
+        Assert.assertEquals(20, store.size() + ReactNativeMetrics.getCount(METRIC_HISTORY_EVICTED));
+
+        List<String> messages = new ArrayList<>();
+        store.query(new ReactNativeNotificationStore.Query(), collect(messages));
+        Assert.assertEquals("Message 20", messages.get(messages.size() - 1));
+
+        // An evicted message ID can be recorded again
+        Assert.assertTrue(store.append(createBundle("1", "Message 1", null, null), mNow + 21));
+    }
+
+    @Test
+    public void testLoadCutsOffTruncatedLine() throws Exception {
+        new ReactNativeNotificationLogStore(mFile, RETENTION, MAX_SIZE).append(
+                createBundle("1", "First", null, null), mNow + 1);
+        FileOutputStream output = new FileOutputStream(mFile, true);
+        output.write("{\"seq\":1,\"id\":\"2\",\"payl".getBytes(Charset.forName("UTF-8")));
+        output.close();
+
+        ReactNativeNotificationLogStore store = new ReactNativeNotificationLogStore(mFile, RETENTION, MAX_SIZE);
+        Assert.assertEquals(1, store.size());
+        store.append(createBundle("2", "Second", null, null), mNow + 2);
+
+        List<String> messages = new ArrayList<>();
+        new ReactNativeNotificationLogStore(mFile, RETENTION, MAX_SIZE).query(
+                new ReactNativeNotificationStore.Query(), collect(messages));
+        Assert.assertEquals(Arrays.asList("First", "Second"), messages);
+    }
+
+    @Test
+    public void testZeroRetentionTurnsHistoryOff() {
+        ReactNativeNotificationLogStore store = new ReactNativeNotificationLogStore(mFile, RETENTION, MAX_SIZE);
+        store.append(createBundle("1", "First", null, null), mNow);
+        store.setRetention(0);
+
+        Assert.assertFalse(store.append(createBundle("2", "Second", null, null), mNow));
+        List<String> messages = new ArrayList<>();
+        store.query(new ReactNativeNotificationStore.Query(), collect(messages));
+        Assert.assertTrue(messages.isEmpty());
+    }
+
+    @Test
+    public void testClear() {
+        ReactNativeNotificationLogStore store = new ReactNativeNotificationLogStore(mFile, RETENTION, MAX_SIZE);
+        store.append(createBundle("1", "First", null, null), mNow);
+
+        store.clear();
+
+        Assert.assertEquals(0, store.size());
+        Assert.assertEquals(0, new ReactNativeNotificationLogStore(mFile, RETENTION, MAX_SIZE).size());
+        Assert.assertTrue(store.append(createBundle("1", "First", null, null), mNow));
+    }
+
+    private static ReactNativeNotificationStore.Visitor collect(final List<String> messages) {
+        return new ReactNativeNotificationStore.Visitor() {
+            @Override
+            public void visit(String id, long receivedAt, JSONObject payload) {
+                messages.add(payload.optString(KEY_MESSAGE));
+            }
+        };
+    }
+
+    private static Bundle createBundle(String id, String message, String group, String tag) {
+        Bundle bundle = PowerMockito.mock(Bundle.class);
+        Set<String> keys = new HashSet<>(Arrays.asList(KEY_MESSAGE));
+        when(bundle.getString(KEY_REMOTE_NOTIFICATION_ID)).thenReturn(id);
+        when(bundle.getString(KEY_REMOTE_NOTIFICATION_GROUP)).thenReturn(group);
+        when(bundle.getString(KEY_REMOTE_NOTIFICATION_TAG)).thenReturn(tag);
+        if (id != null) {
+            keys.add(KEY_REMOTE_NOTIFICATION_ID);
+            when(bundle.get(KEY_REMOTE_NOTIFICATION_ID)).thenReturn(id);
+        }
+        when(bundle.keySet()).thenReturn(keys);
+        when(bundle.get(KEY_MESSAGE)).thenReturn(message);
+        return bundle;
+    }
+}
@@ -0,0 +1,256 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+
+import androidx.core.app.NotificationCompat;
+
+import com.azure.reactnative.notificationhub.ReactNativeMetrics;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationRateLimiter;
+import com.azure.reactnative.notificationhub.ReactNativeUtil;
+import com.facebook.react.bridge.ReactApplicationContext;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.concurrent.ScheduledFuture;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Unit tests for ReactNativeNotificationRateLimiter.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        ReactNativeUtil.class
+})
+public class ReactNativeNotificationRateLimiterTest {
+    private static final double RATE = 4;
+
+    @Mock
+    ReactApplicationContext mReactApplicationContext;
+
+    @Mock
+    NotificationManager mNotificationManager;
+
+    @Mock
+    ScheduledFuture mScheduledFuture;
+
+    private ArgumentCaptor<Runnable> mDrainTask;
+    private ArgumentCaptor<Long> mDrainDelay;
+
+    private ReactNativeNotificationRateLimiter mRateLimiter;
+
+    @Before
+    public void setUp() {
+        // Reset mocks
+        reset(mNotificationManager);
+        reset(mScheduledFuture);
+
+        // Prepare mock objects
+        ReactNativeMetrics.reset();
+        PowerMockito.mockStatic(ReactNativeUtil.class);
+        mDrainTask = ArgumentCaptor.forClass(Runnable.class);
+        mDrainDelay = ArgumentCaptor.forClass(Long.class);
+        when(ReactNativeUtil.dispatchDelayed(mDrainTask.capture(), mDrainDelay.capture())).thenReturn(mScheduledFuture);
+        when(mReactApplicationContext.getSystemService(Context.NOTIFICATION_SERVICE)).thenReturn(
+                mNotificationManager);
+
+        mRateLimiter = new ReactNativeNotificationRateLimiter();
+        mRateLimiter.setRate(RATE);
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        ReactNativeNotificationRateLimiter rateLimiter = new ReactNativeNotificationRateLimiter();
+
+        Assert.assertFalse(rateLimiter.isEnabled());
+        Assert.assertEquals(DEFAULT_NOTIFY_RATE_PER_SECOND, rateLimiter.getRate(), 0);
+        Assert.assertEquals(DEFAULT_NOTIFY_BURST, rateLimiter.getBurst());
+        Assert.assertEquals(DEFAULT_NOTIFY_QUEUE_SIZE, rateLimiter.getMaxQueueSize());
+        Assert.assertEquals(0, rateLimiter.getQueuedCount());
+    }
+
+    @Test
+    public void testDisabledPostsStraightAway() {
+        ReactNativeNotificationRateLimiter rateLimiter = new ReactNativeNotificationRateLimiter();
+        Notification[] notifications = createNotifications(DEFAULT_NOTIFY_BURST * 3);
+        for (int i = 0; i < notifications.length; i++) {
+            rateLimiter.notify(mReactApplicationContext, null, i, notifications[i], NotificationCompat.PRIORITY_MIN);
+        }
+
+        for (int i = 0; i < notifications.length; i++) {
+            verify(mNotificationManager, times(1)).notify(i, notifications[i]);
+        }
+        Assert.assertEquals(0, rateLimiter.getQueuedCount());
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void testTurningOffPostsQueued() {
+        exhaustTokens();
+        Notification queued = PowerMockito.mock(Notification.class);
+        mRateLimiter.notify(mReactApplicationContext, null, 100, queued, NotificationCompat.PRIORITY_DEFAULT);
+        Assert.assertEquals(1, mRateLimiter.getQueuedCount());
+
+        mRateLimiter.setRate(0);
+        mDrainTask.getValue().run();
+
+        verify(mNotificationManager, times(1)).notify(100, queued);
+        Assert.assertEquals(0, mRateLimiter.getQueuedCount());
+    }
+
+    @Test
+    public void testBurstThenDefer() {
+        Notification[] notifications = createNotifications(DEFAULT_NOTIFY_BURST + 1);
+        for (int i = 0; i < notifications.length; i++) {
+            mRateLimiter.notify(mReactApplicationContext, null, i, notifications[i], NotificationCompat.PRIORITY_DEFAULT);
+        }
+
+        for (int i = 0; i < DEFAULT_NOTIFY_BURST; i++) {
+            verify(mNotificationManager, times(1)).notify(i, notifications[i]);
+        }
+        verify(mNotificationManager, times(0)).notify(DEFAULT_NOTIFY_BURST, notifications[DEFAULT_NOTIFY_BURST]);
+        Assert.assertEquals(1, mRateLimiter.getQueuedCount());
+        Assert.assertEquals(DEFAULT_NOTIFY_BURST, ReactNativeMetrics.getCount(METRIC_NOTIFY_POSTED));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_NOTIFY_DEFERRED));
+        Assert.assertEquals(1, ReactNativeMetrics.getGauge(METRIC_NOTIFY_QUEUED));
+
+        // About a quarter of a second until the next token at four per second
+        long delay = mDrainDelay.getValue();
+        Assert.assertTrue(delay > 200 && delay <= 250);
+    }
+
+    @Test
+    public void testHighPriorityIsNeverDeferred() {
+        exhaustTokens();
+        Notification high = PowerMockito.mock(Notification.class);
+        Notification max = PowerMockito.mock(Notification.class);
+
+        mRateLimiter.notify(mReactApplicationContext, null, 100, high, NotificationCompat.PRIORITY_HIGH);
+        mRateLimiter.notify(mReactApplicationContext, "Tag", 101, max, NotificationCompat.PRIORITY_MAX);
+
+        verify(mNotificationManager, times(1)).notify(100, high);
+        verify(mNotificationManager, times(1)).notify("Tag", 101, max);
+        Assert.assertEquals(0, mRateLimiter.getQueuedCount());
+    }
+
+    @Test
+    public void testLowPriorityLeavesLastToken() {
+        Notification[] notifications = createNotifications(DEFAULT_NOTIFY_BURST - 1);
+        for (int i = 0; i < notifications.length; i++) {
+            mRateLimiter.notify(mReactApplicationContext, null, i, notifications[i], NotificationCompat.PRIORITY_DEFAULT);
+        }
+        Notification low = PowerMockito.mock(Notification.class);
+        Notification normal = PowerMockito.mock(Notification.class);
+
+        mRateLimiter.notify(mReactApplicationContext, null, 100, low, NotificationCompat.PRIORITY_LOW);
+        mRateLimiter.notify(mReactApplicationContext, null, 101, normal, NotificationCompat.PRIORITY_DEFAULT);
+
+        verify(mNotificationManager, times(0)).notify(100, low);
+        verify(mNotificationManager, times(1)).notify(101, normal);
+        Assert.assertEquals(1, mRateLimiter.getQueuedCount());
+    }
+
+    @Test
+    public void testDrainPostsHighestPriorityFirst() throws Exception {
+        exhaustTokens();
+        Notification min = PowerMockito.mock(Notification.class);
+        Notification normal = PowerMockito.mock(Notification.class);
+
+        mRateLimiter.notify(mReactApplicationContext, null, 100, min, NotificationCompat.PRIORITY_MIN);
+        mRateLimiter.notify(mReactApplicationContext, null, 101, normal, NotificationCompat.PRIORITY_DEFAULT);
+        Assert.assertEquals(2, mRateLimiter.getQueuedCount());
+
+        // Refill the bucket
+        mRateLimiter.setRate(1000);
+        Thread.sleep(20);
+        mDrainTask.getValue().run();
+
+        InOrder inOrder = inOrder(mNotificationManager);
+        inOrder.verify(mNotificationManager).notify(101, normal);
+        inOrder.verify(mNotificationManager).notify(100, min);
+        Assert.assertEquals(0, mRateLimiter.getQueuedCount());
+    }
+
+    @Test
+    public void testQueuedUpdateIsCollapsed() throws Exception {
+        exhaustTokens();
+        Notification first = PowerMockito.mock(Notification.class);
+        Notification second = PowerMockito.mock(Notification.class);
+        Notification other = PowerMockito.mock(Notification.class);
+
+        mRateLimiter.notify(mReactApplicationContext, "Tag", 100, first, NotificationCompat.PRIORITY_DEFAULT);
+        mRateLimiter.notify(mReactApplicationContext, "Tag", 100, second, NotificationCompat.PRIORITY_DEFAULT);
+        mRateLimiter.notify(mReactApplicationContext, "Other Tag", 100, other, NotificationCompat.PRIORITY_DEFAULT);
+
+        Assert.assertEquals(2, mRateLimiter.getQueuedCount());
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_NOTIFY_COLLAPSED));
+
+        mRateLimiter.setRate(1000);
+        Thread.sleep(20);
+        mDrainTask.getValue().run();
+
+        verify(mNotificationManager, times(0)).notify("Tag", 100, first);
+        verify(mNotificationManager, times(1)).notify("Tag", 100, second);
+        verify(mNotificationManager, times(1)).notify("Other Tag", 100, other);
+    }
+
+    @Test
+    public void testFullQueueDropsLowestPriority() {
+        mRateLimiter.setMaxQueueSize(2);
+        exhaustTokens();
+        Notification low = PowerMockito.mock(Notification.class);
+        Notification first = PowerMockito.mock(Notification.class);
+        Notification second = PowerMockito.mock(Notification.class);
+        Notification min = PowerMockito.mock(Notification.class);
+
+        mRateLimiter.notify(mReactApplicationContext, null, 100, low, NotificationCompat.PRIORITY_LOW);
+        mRateLimiter.notify(mReactApplicationContext, null, 101, first, NotificationCompat.PRIORITY_DEFAULT);
+
+        // The low priority notification makes room for a more important one
+        mRateLimiter.notify(mReactApplicationContext, null, 102, second, NotificationCompat.PRIORITY_DEFAULT);
+        Assert.assertEquals(2, mRateLimiter.getQueuedCount());
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_NOTIFY_DROPPED));
+
+        // Nothing queued ranks below a min priority notification, so it is the one dropped
+        mRateLimiter.notify(mReactApplicationContext, null, 103, min, NotificationCompat.PRIORITY_MIN);
+        Assert.assertEquals(2, mRateLimiter.getQueuedCount());
+        Assert.assertEquals(2, ReactNativeMetrics.getCount(METRIC_NOTIFY_DROPPED));
+        verify(mNotificationManager, times(0)).notify(anyInt(), any(Notification.class));
+    }
+
+    private void exhaustTokens() {
+        mRateLimiter.setBurst(1);
+        mRateLimiter.notify(mReactApplicationContext, null, 0, PowerMockito.mock(Notification.class),
+                NotificationCompat.PRIORITY_DEFAULT);
+        mRateLimiter.setBurst(DEFAULT_NOTIFY_BURST);
+        reset(mNotificationManager);
+    }
+
+    private static Notification[] createNotifications(int count) {
+        Notification[] notifications = new Notification[count];
+        for (int i = 0; i < count; i++) {
+            notifications[i] = PowerMockito.mock(Notification.class);
+        }
+        return notifications;
+    }
+}
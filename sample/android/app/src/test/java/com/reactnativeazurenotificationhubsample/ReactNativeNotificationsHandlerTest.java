@@ -5,10 +5,7 @@ import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.ApplicationInfo;
-import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Color;
 import android.net.Uri;
 import android.os.Build;
@@ -25,6 +22,8 @@ import static com.azure.reactnative.notificationhub.ReactNativeNotificationsHand
 import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
@@ -41,9 +40,13 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 
 import com.azure.reactnative.notificationhub.ReactNativeNotificationHubUtil;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationGrouper;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationRateLimiter;
 import com.azure.reactnative.notificationhub.ReactNativeUtil;
 import com.facebook.react.bridge.ReactApplicationContext;
 
+import java.util.concurrent.ScheduledFuture;
+
 /**
  * Unit tests for ReactNativeNotificationHubModule.
  */
@@ -52,7 +55,8 @@ import com.facebook.react.bridge.ReactApplicationContext;
         LocalBroadcastManager.class,
         ReactNativeNotificationHubUtil.class,
         ReactNativeUtil.class,
-        BitmapFactory.class,
+        ReactNativeNotificationGrouper.class,
+        ReactNativeNotificationRateLimiter.class,
         Build.VERSION.class,
         Color.class,
         PendingIntent.class,
@@ -83,15 +87,25 @@ public class ReactNativeNotificationsHandlerTest {
     @Mock
     Bundle mBundle;
 
+    @Mock
+    ReactNativeNotificationGrouper mGrouper;
+
+    @Mock
+    ScheduledFuture mScheduledFuture;
+
     private Class mIntentClass;
     private ArgumentCaptor<Runnable> mWorkerTask;
 
+    private ArgumentCaptor<Runnable> mIoTask;
+    private ArgumentCaptor<Runnable> mDispatchTask;
+
     @Before
     public void setUp() throws Exception {
         // Reset mocks
         reset(mLocalBroadcastManager);
         reset(mNotificationHubUtil);
         reset(mBundle);
+        reset(mGrouper);
 
         // Prepare mock objects
         PowerMockito.mockStatic(LocalBroadcastManager.class);
@@ -99,16 +113,22 @@ public class ReactNativeNotificationsHandlerTest {
         PowerMockito.mockStatic(ReactNativeNotificationHubUtil.class);
         when(ReactNativeNotificationHubUtil.getInstance()).thenReturn(mNotificationHubUtil);
         PowerMockito.mockStatic(ReactNativeUtil.class);
-        PowerMockito.mockStatic(BitmapFactory.class);
         PowerMockito.mockStatic(Color.class);
         PowerMockito.mockStatic(PendingIntent.class);
         PowerMockito.mockStatic(Log.class);
+        PowerMockito.mockStatic(ReactNativeNotificationGrouper.class);
+        when(ReactNativeNotificationGrouper.getInstance()).thenReturn(mGrouper);
+        PowerMockito.mockStatic(ReactNativeNotificationRateLimiter.class);
+        when(ReactNativeNotificationRateLimiter.getInstance()).thenReturn(new ReactNativeNotificationRateLimiter());
 
         mIntentClass = Class.forName("com.reactnativeazurenotificationhubsample.MainActivity");
         when(ReactNativeUtil.getMainActivityClass(mReactApplicationContext)).thenReturn(mIntentClass);
         mWorkerTask = ArgumentCaptor.forClass(Runnable.class);
-        PowerMockito.doNothing().when(
-                ReactNativeUtil.class, "runInWorkerThread", mWorkerTask.capture());
+        when(ReactNativeUtil.runInWorkerThread(mWorkerTask.capture())).thenReturn(true);
+        mIoTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.runInIoThread(mIoTask.capture())).thenReturn(true);
+        mDispatchTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.dispatchDelayed(mDispatchTask.capture(), anyLong())).thenReturn(mScheduledFuture);
         mNotificationBuilder = PowerMockito.mock(NotificationCompat.Builder.class);
         when(ReactNativeUtil.initNotificationCompatBuilder(
                 any(), any(), any(), any(), anyInt(), anyInt(), anyBoolean())).thenReturn(mNotificationBuilder);
@@ -123,9 +143,12 @@ public class ReactNativeNotificationsHandlerTest {
         Intent intent = PowerMockito.mock(Intent.class);
 
         sendBroadcast(mReactApplicationContext, intent, delay);
-        mWorkerTask.getValue().run();
+        verify(mLocalBroadcastManager, times(0)).sendBroadcast(intent);
+        mDispatchTask.getValue().run();
 
         PowerMockito.verifyStatic(ReactNativeUtil.class);
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), eq((long) delay));
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
         ReactNativeUtil.runInWorkerThread(any(Runnable.class));
         verify(mLocalBroadcastManager, times(1)).sendBroadcast(intent);
     }
@@ -138,13 +161,31 @@ public class ReactNativeNotificationsHandlerTest {
         when(ReactNativeUtil.createBroadcastIntent(TAG, mBundle)).thenReturn(intent);
 
         sendBroadcast(mReactApplicationContext, mBundle, delay);
-        mWorkerTask.getValue().run();
+        mDispatchTask.getValue().run();
 
         PowerMockito.verifyStatic(ReactNativeUtil.class);
-        ReactNativeUtil.runInWorkerThread(any(Runnable.class));
+        ReactNativeUtil.dispatchDelayed(any(Runnable.class), eq((long) delay));
         PowerMockito.verifyStatic(ReactNativeUtil.class);
         ReactNativeUtil.createBroadcastIntent(TAG, mBundle);
         verify(mLocalBroadcastManager, times(1)).sendBroadcast(intent);
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.runDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void testSendBroadcastFullDispatcherFallsBack() {
+        final int delay = 1000;
+
+        Intent intent = PowerMockito.mock(Intent.class);
+        when(ReactNativeUtil.createBroadcastIntent(TAG, mBundle)).thenReturn(intent);
+        when(ReactNativeUtil.dispatchDelayed(any(Runnable.class), anyLong())).thenReturn(null);
+        ArgumentCaptor<Runnable> fallback = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.runDelayed(fallback.capture(), eq((long) delay))).thenReturn(mScheduledFuture);
+
+        sendBroadcast(mReactApplicationContext, mBundle, delay);
+        fallback.getValue().run();
+
+        verify(mLocalBroadcastManager, times(1)).sendBroadcast(intent);
     }
 
     @Test
@@ -190,13 +231,7 @@ public class ReactNativeNotificationsHandlerTest {
     public void testSendNotificationNoTitle() {
         when(mBundle.getString(KEY_REMOTE_NOTIFICATION_MESSAGE)).thenReturn(NOTIFICATION_MESSAGE);
 
-        ApplicationInfo appInfo = PowerMockito.mock(ApplicationInfo.class);
-        PackageManager packageManager = PowerMockito.mock(PackageManager.class);
-        CharSequence applicationLabel = PowerMockito.mock(CharSequence.class);
-        when(mReactApplicationContext.getApplicationInfo()).thenReturn(appInfo);
-        when(mReactApplicationContext.getPackageManager()).thenReturn(packageManager);
-        when(packageManager.getApplicationLabel(appInfo)).thenReturn(applicationLabel);
-        when(applicationLabel.toString()).thenReturn(NOTIFICATION_TITLE);
+        when(ReactNativeUtil.getApplicationLabel(mReactApplicationContext)).thenReturn(NOTIFICATION_TITLE);
 
         sendNotification(mReactApplicationContext, mBundle, CHANNEL_ID);
         mWorkerTask.getValue().run();
@@ -325,6 +360,8 @@ public class ReactNativeNotificationsHandlerTest {
 
         PowerMockito.verifyStatic(ReactNativeUtil.class);
         ReactNativeUtil.getLargeIcon(any(), eq(null), any(), any());
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.getLargeIconBitmap(any(), anyInt());
         verify(mNotificationBuilder, times(0)).setLargeIcon(any());
     }
 
@@ -337,13 +374,32 @@ public class ReactNativeNotificationsHandlerTest {
         when(mBundle.getString(KEY_REMOTE_NOTIFICATION_TITLE)).thenReturn(NOTIFICATION_TITLE);
         when(mBundle.getString(KEY_REMOTE_NOTIFICATION_LARGE_ICON)).thenReturn(largeIcon);
         when(ReactNativeUtil.getLargeIcon(any(), any(), any(), any())).thenReturn(largeIconResID);
+        Bitmap bitmap = PowerMockito.mock(Bitmap.class);
+        when(ReactNativeUtil.getLargeIconBitmap(mReactApplicationContext, largeIconResID)).thenReturn(bitmap);
 
         sendNotification(mReactApplicationContext, mBundle, CHANNEL_ID);
         mWorkerTask.getValue().run();
 
         PowerMockito.verifyStatic(ReactNativeUtil.class);
         ReactNativeUtil.getLargeIcon(any(), eq(largeIcon), any(), any());
-        verify(mNotificationBuilder, times(1)).setLargeIcon(any());
+        verify(mNotificationBuilder, times(1)).setLargeIcon(bitmap);
+    }
+
+    @Test
+    public void testSendNotificationLargeIconDecodeFailed() {
+        final String largeIcon = "Large Icon";
+        final int largeIconResID = 1;
+
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_MESSAGE)).thenReturn(NOTIFICATION_MESSAGE);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_TITLE)).thenReturn(NOTIFICATION_TITLE);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_LARGE_ICON)).thenReturn(largeIcon);
+        when(ReactNativeUtil.getLargeIcon(any(), any(), any(), any())).thenReturn(largeIconResID);
+        when(ReactNativeUtil.getLargeIconBitmap(mReactApplicationContext, largeIconResID)).thenReturn(null);
+
+        sendNotification(mReactApplicationContext, mBundle, CHANNEL_ID);
+        mWorkerTask.getValue().run();
+
+        verify(mNotificationBuilder, times(0)).setLargeIcon(any());
     }
 
     @Test
@@ -354,14 +410,32 @@ public class ReactNativeNotificationsHandlerTest {
         when(mBundle.getString(KEY_REMOTE_NOTIFICATION_TITLE)).thenReturn(NOTIFICATION_TITLE);
         when(mBundle.getString(KEY_REMOTE_NOTIFICATION_AVATAR_URL)).thenReturn(url);
         Bitmap bitmap = PowerMockito.mock(Bitmap.class);
-        when(ReactNativeUtil.fetchImage(url)).thenReturn(bitmap);
+        when(ReactNativeUtil.fetchImage(mReactApplicationContext, url)).thenReturn(bitmap);
 
         sendNotification(mReactApplicationContext, mBundle, CHANNEL_ID);
+
+        // The download runs on the I/O pool and hands the notification over to a worker
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.runInWorkerThread(any(Runnable.class));
+        mIoTask.getValue().run();
         mWorkerTask.getValue().run();
 
         verify(mNotificationBuilder, times(1)).setLargeIcon(bitmap);
     }
 
+    @Test
+    public void testSendNotificationWithoutAvatarUrlSkipsIoPool() {
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_MESSAGE)).thenReturn(NOTIFICATION_MESSAGE);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_TITLE)).thenReturn(NOTIFICATION_TITLE);
+
+        sendNotification(mReactApplicationContext, mBundle, CHANNEL_ID);
+
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.runInIoThread(any(Runnable.class));
+        PowerMockito.verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.fetchImage(any(), anyString());
+    }
+
     @Test
     public void testSendNotificationHasAvatarUrlFetchFailed() {
         final String url = "http://avatar.com/1.png";
@@ -369,9 +443,10 @@ public class ReactNativeNotificationsHandlerTest {
         when(mBundle.getString(KEY_REMOTE_NOTIFICATION_MESSAGE)).thenReturn(NOTIFICATION_MESSAGE);
         when(mBundle.getString(KEY_REMOTE_NOTIFICATION_TITLE)).thenReturn(NOTIFICATION_TITLE);
         when(mBundle.getString(KEY_REMOTE_NOTIFICATION_AVATAR_URL)).thenReturn(url);
-        when(ReactNativeUtil.fetchImage(url)).thenReturn(null);
+        when(ReactNativeUtil.fetchImage(mReactApplicationContext, url)).thenReturn(null);
 
         sendNotification(mReactApplicationContext, mBundle, CHANNEL_ID);
+        mIoTask.getValue().run();
         mWorkerTask.getValue().run();
 
         verify(mNotificationBuilder, times(0)).setLargeIcon(any());
@@ -548,6 +623,44 @@ public class ReactNativeNotificationsHandlerTest {
         ReactNativeUtil.processNotificationActions(any(), any(), any(), anyInt());
     }
 
+    @Test
+    public void testSendNotificationFullWorkerPoolStillPosts() {
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_ID)).thenReturn(NOTIFICATION_ID);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_MESSAGE)).thenReturn(NOTIFICATION_MESSAGE);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_TITLE)).thenReturn(NOTIFICATION_TITLE);
+        NotificationManager notificationManager = PowerMockito.mock(NotificationManager.class);
+        when(mReactApplicationContext.getSystemService(Context.NOTIFICATION_SERVICE)).thenReturn(
+                notificationManager);
+        when(ReactNativeUtil.runInWorkerThread(any(Runnable.class))).thenReturn(false);
+
+        sendNotification(mReactApplicationContext, mBundle, CHANNEL_ID);
+
+        // Built and posted on the calling thread
+        verify(notificationManager, times(1)).notify(anyInt(), eq(mNotification));
+    }
+
+    @Test
+    public void testSendNotificationFullIoPoolStillPosts() {
+        final String url = "http://avatar.com/1.png";
+
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_ID)).thenReturn(NOTIFICATION_ID);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_MESSAGE)).thenReturn(NOTIFICATION_MESSAGE);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_TITLE)).thenReturn(NOTIFICATION_TITLE);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_AVATAR_URL)).thenReturn(url);
+        Bitmap bitmap = PowerMockito.mock(Bitmap.class);
+        when(ReactNativeUtil.fetchImage(mReactApplicationContext, url)).thenReturn(bitmap);
+        NotificationManager notificationManager = PowerMockito.mock(NotificationManager.class);
+        when(mReactApplicationContext.getSystemService(Context.NOTIFICATION_SERVICE)).thenReturn(
+                notificationManager);
+        when(ReactNativeUtil.runInIoThread(any(Runnable.class))).thenReturn(false);
+        when(ReactNativeUtil.runInWorkerThread(any(Runnable.class))).thenReturn(false);
+
+        sendNotification(mReactApplicationContext, mBundle, CHANNEL_ID);
+
+        verify(mNotificationBuilder, times(1)).setLargeIcon(bitmap);
+        verify(notificationManager, times(1)).notify(anyInt(), eq(mNotification));
+    }
+
     @Test
     public void testSendNotificationNotifyNoTag() {
         when(mBundle.getString(KEY_REMOTE_NOTIFICATION_ID)).thenReturn(NOTIFICATION_ID);
@@ -585,4 +698,45 @@ public class ReactNativeNotificationsHandlerTest {
         ReactNativeUtil.processNotificationActions(any(), any(), any(), anyInt());
         verify(notificationManager, times(1)).notify(eq(tags), anyInt(), eq(mNotification));
     }
+
+    @Test
+    public void testSendNotificationGroupedGoesThroughGrouper() {
+        final String group = "Notification Group";
+
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_ID)).thenReturn(NOTIFICATION_ID);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_MESSAGE)).thenReturn(NOTIFICATION_MESSAGE);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_TITLE)).thenReturn(NOTIFICATION_TITLE);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_GROUP)).thenReturn(group);
+        when(mGrouper.isEnabled()).thenReturn(true);
+        NotificationManager notificationManager = PowerMockito.mock(NotificationManager.class);
+        when(mReactApplicationContext.getSystemService(Context.NOTIFICATION_SERVICE)).thenReturn(
+                notificationManager);
+
+        sendNotification(mReactApplicationContext, mBundle, CHANNEL_ID);
+        mWorkerTask.getValue().run();
+
+        verify(mGrouper, times(1)).add(
+                eq(mReactApplicationContext), eq(group), eq(CHANNEL_ID), any(ReactNativeNotificationGrouper.Child.class));
+        verify(notificationManager, times(0)).notify(anyInt(), any(Notification.class));
+    }
+
+    @Test
+    public void testSendNotificationGroupedWithGrouperDisabled() {
+        final String group = "Notification Group";
+
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_ID)).thenReturn(NOTIFICATION_ID);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_MESSAGE)).thenReturn(NOTIFICATION_MESSAGE);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_TITLE)).thenReturn(NOTIFICATION_TITLE);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_GROUP)).thenReturn(group);
+        when(mGrouper.isEnabled()).thenReturn(false);
+        NotificationManager notificationManager = PowerMockito.mock(NotificationManager.class);
+        when(mReactApplicationContext.getSystemService(Context.NOTIFICATION_SERVICE)).thenReturn(
+                notificationManager);
+
+        sendNotification(mReactApplicationContext, mBundle, CHANNEL_ID);
+        mWorkerTask.getValue().run();
+
+        verify(mGrouper, times(0)).add(any(), any(), any(), any());
+        verify(notificationManager, times(1)).notify(anyInt(), eq(mNotification));
+    }
 }
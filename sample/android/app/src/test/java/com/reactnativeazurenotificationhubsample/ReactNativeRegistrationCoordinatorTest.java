@@ -0,0 +1,151 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.content.Intent;
+
+import com.azure.reactnative.notificationhub.ReactNativeMetrics;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationHubUtil;
+import com.azure.reactnative.notificationhub.ReactNativeRegistrationCoordinator;
+import com.azure.reactnative.notificationhub.ReactNativeRegistrationIntentService;
+import com.azure.reactnative.notificationhub.ReactNativeUtil;
+import com.facebook.react.bridge.ReactApplicationContext;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.concurrent.ScheduledFuture;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Unit tests for ReactNativeRegistrationCoordinator.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        ReactNativeUtil.class,
+        ReactNativeRegistrationIntentService.class,
+        ReactNativeNotificationHubUtil.IntentFactory.class
+})
+public class ReactNativeRegistrationCoordinatorTest {
+    @Mock
+    ReactApplicationContext mReactApplicationContext;
+
+    @Mock
+    ScheduledFuture mScheduledFuture;
+
+    private ArgumentCaptor<Runnable> mEnqueueTask;
+
+    private ReactNativeRegistrationCoordinator mCoordinator;
+
+    @Before
+    public void setUp() {
+        // Reset mocks
+        reset(mScheduledFuture);
+
+        // Prepare mock objects
+        ReactNativeMetrics.reset();
+        PowerMockito.mockStatic(ReactNativeUtil.class);
+        PowerMockito.mockStatic(ReactNativeRegistrationIntentService.class);
+        PowerMockito.mockStatic(ReactNativeNotificationHubUtil.IntentFactory.class);
+        mEnqueueTask = ArgumentCaptor.forClass(Runnable.class);
+        when(ReactNativeUtil.runDelayed(mEnqueueTask.capture(), anyLong())).thenReturn(mScheduledFuture);
+
+        mCoordinator = new ReactNativeRegistrationCoordinator();
+    }
+
+    @Test
+    public void testRequestRegistrationDebounces() {
+        mCoordinator.requestRegistration(mReactApplicationContext);
+        mCoordinator.requestRegistration(mReactApplicationContext);
+        mCoordinator.requestRegistration(mReactApplicationContext);
+
+        verifyStatic(ReactNativeUtil.class, times(3));
+        ReactNativeUtil.runDelayed(any(Runnable.class), eq(DEFAULT_REGISTRATION_DEBOUNCE_MS));
+        verify(mScheduledFuture, times(2)).cancel(false);
+
+        mEnqueueTask.getValue().run();
+
+        verifyStatic(ReactNativeRegistrationIntentService.class, times(1));
+        ReactNativeRegistrationIntentService.enqueueWork(eq(mReactApplicationContext), any(Intent.class));
+    }
+
+    @Test
+    public void testRequestRegistrationNowSkipsDebounce() {
+        mCoordinator.requestRegistration(mReactApplicationContext);
+
+        mCoordinator.requestRegistrationNow(mReactApplicationContext);
+
+        verify(mScheduledFuture, times(1)).cancel(false);
+        verifyStatic(ReactNativeRegistrationIntentService.class, times(1));
+        ReactNativeRegistrationIntentService.enqueueWork(eq(mReactApplicationContext), any(Intent.class));
+        Assert.assertEquals(2, ReactNativeMetrics.getCount(METRIC_REGISTRATION_REQUESTED));
+    }
+
+    @Test
+    public void testRequestRegistrationWhileInFlight() {
+        mCoordinator.requestRegistration(mReactApplicationContext);
+        long generation = mCoordinator.beginRegistration();
+        mCoordinator.requestRegistration(mReactApplicationContext);
+        mCoordinator.requestRegistration(mReactApplicationContext);
+
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.runDelayed(any(Runnable.class), anyLong());
+        Assert.assertEquals(2, ReactNativeMetrics.getCount(METRIC_REGISTRATION_COALESCED));
+
+        boolean current = mCoordinator.finishRegistration(mReactApplicationContext, generation);
+
+        Assert.assertFalse(current);
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.runDelayed(any(Runnable.class), eq(0L));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_REGISTRATION_SUPERSEDED));
+    }
+
+    @Test
+    public void testBeginRegistrationOnlyOnce() {
+        long generation = mCoordinator.beginRegistration();
+
+        Assert.assertTrue(generation >= 0);
+        Assert.assertEquals(-1, mCoordinator.beginRegistration());
+        Assert.assertFalse(mCoordinator.finishRegistration(mReactApplicationContext, generation));
+
+        long followUp = mCoordinator.beginRegistration();
+
+        Assert.assertTrue(followUp > generation);
+        Assert.assertTrue(mCoordinator.finishRegistration(mReactApplicationContext, followUp));
+    }
+
+    @Test
+    public void testFinishRegistrationUpToDate() {
+        mCoordinator.requestRegistration(mReactApplicationContext);
+        long generation = mCoordinator.beginRegistration();
+
+        Assert.assertTrue(mCoordinator.finishRegistration(mReactApplicationContext, generation));
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.runDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void testSetDebounceDelay() {
+        mCoordinator.setDebounceDelay(1000);
+
+        mCoordinator.requestRegistration(mReactApplicationContext);
+
+        Assert.assertEquals(1000, mCoordinator.getDebounceDelay());
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.runDelayed(any(Runnable.class), eq(1000L));
+    }
+}
@@ -0,0 +1,216 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.content.Intent;
+import android.util.Log;
+
+import androidx.core.app.JobIntentService;
+
+import com.azure.reactnative.notificationhub.ReactNativeFirebaseMessagingService;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationHubUtil;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationsHandler;
+import com.azure.reactnative.notificationhub.ReactNativeRegistrationCoordinator;
+import com.azure.reactnative.notificationhub.ReactNativeRegistrationIntentService;
+import com.azure.reactnative.notificationhub.ReactNativeRegistrationRetryScheduler;
+import com.azure.reactnative.notificationhub.ReactNativeUtil;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.iid.FirebaseInstanceId;
+import com.google.firebase.iid.InstanceIdResult;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.powermock.api.support.membermodification.MemberMatcher.constructor;
+
+/**
+ * Unit tests for ReactNativeRegistrationIntentService.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        ReactNativeNotificationHubUtil.class,
+        ReactNativeNotificationHubUtil.RegistrationConfig.class,
+        ReactNativeNotificationHubUtil.IntentFactory.class,
+        ReactNativeNotificationsHandler.class,
+        ReactNativeRegistrationCoordinator.class,
+        ReactNativeRegistrationIntentService.class,
+        ReactNativeRegistrationRetryScheduler.class,
+        ReactNativeFirebaseMessagingService.class,
+        FirebaseInstanceId.class,
+        JobIntentService.class,
+        Log.class
+})
+public class ReactNativeRegistrationIntentServiceTest {
+    private static final String TOKEN = "Token";
+    private static final String HUB_NAME = "Hub Name";
+    private static final String CONNECTION_STRING = "Connection String";
+    private static final String[] TAGS = { "Tag" };
+
+    @Mock
+    ReactNativeNotificationHubUtil mHubUtil;
+
+    @Mock
+    ReactNativeNotificationHubUtil.RegistrationConfig mConfig;
+
+    @Mock
+    ReactNativeRegistrationCoordinator mRegistrationCoordinator;
+
+    @Mock
+    ReactNativeRegistrationRetryScheduler mRetryScheduler;
+
+    @Mock
+    FirebaseInstanceId mFirebaseInstanceId;
+
+    @Mock
+    Task<InstanceIdResult> mTask;
+
+    @Mock
+    InstanceIdResult mInstanceIdResult;
+
+    @Mock
+    Intent mIntent;
+
+    private final AtomicReference<CountDownLatch> mFinished = new AtomicReference<>();
+
+    @Before
+    public void setUp() {
+        // Reset mocks
+        reset(mHubUtil);
+        reset(mConfig);
+        reset(mRegistrationCoordinator);
+        reset(mRetryScheduler);
+        reset(mFirebaseInstanceId);
+        reset(mTask);
+
+        // Prepare mock objects
+        PowerMockito.mockStatic(ReactNativeNotificationHubUtil.class);
+        when(ReactNativeNotificationHubUtil.getInstance()).thenReturn(mHubUtil);
+        PowerMockito.mockStatic(ReactNativeNotificationHubUtil.IntentFactory.class);
+        when(ReactNativeNotificationHubUtil.IntentFactory.createIntent(anyString())).thenReturn(mIntent);
+        PowerMockito.mockStatic(ReactNativeNotificationsHandler.class);
+        PowerMockito.mockStatic(ReactNativeRegistrationCoordinator.class);
+        when(ReactNativeRegistrationCoordinator.getInstance()).thenReturn(mRegistrationCoordinator);
+        PowerMockito.mockStatic(ReactNativeRegistrationRetryScheduler.class);
+        when(ReactNativeRegistrationRetryScheduler.getInstance(any())).thenReturn(mRetryScheduler);
+        PowerMockito.mockStatic(ReactNativeFirebaseMessagingService.class);
+        PowerMockito.mockStatic(FirebaseInstanceId.class);
+        when(FirebaseInstanceId.getInstance()).thenReturn(mFirebaseInstanceId);
+        PowerMockito.mockStatic(Log.class);
+        PowerMockito.suppress(constructor(JobIntentService.class));
+
+        // A registration that is up to date, so each run takes the skip path
+        when(mHubUtil.getRegistrationConfig(any())).thenReturn(mConfig);
+        when(mHubUtil.getRegistrationID(any())).thenReturn("Registration ID");
+        when(mConfig.getConnectionString()).thenReturn(CONNECTION_STRING);
+        when(mConfig.getHubName()).thenReturn(HUB_NAME);
+        when(mConfig.getTags()).thenReturn(TAGS);
+        when(mConfig.getRegistrationFingerprint()).thenReturn(ReactNativeUtil.computeRegistrationFingerprint(
+                TOKEN, HUB_NAME, CONNECTION_STRING, TAGS, false, null, null));
+        when(mInstanceIdResult.getToken()).thenReturn(TOKEN);
+
+        when(mRegistrationCoordinator.beginRegistration()).thenReturn(1L);
+        when(mRegistrationCoordinator.finishRegistration(any(), anyLong())).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                mFinished.get().countDown();
+                return true;
+            }
+        });
+
+        // Deliver the token on the executor the service hands in, as Play Services does
+        when(mFirebaseInstanceId.getInstanceId()).thenReturn(mTask);
+        when(mTask.addOnSuccessListener(any(Executor.class), any(OnSuccessListener.class))).thenAnswer(
+                new Answer<Task<InstanceIdResult>>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Task<InstanceIdResult> answer(InvocationOnMock invocation) {
+                        Executor executor = invocation.getArgument(0);
+                        final OnSuccessListener<InstanceIdResult> listener = invocation.getArgument(1);
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                listener.onSuccess(mInstanceIdResult);
+                            }
+                        });
+                        return mTask;
+                    }
+                });
+        when(mTask.addOnFailureListener(any(Executor.class), any())).thenReturn(mTask);
+    }
+
+    @Test
+    public void testOnHandleWorkDoesNotLeakThreads() throws Exception {
+        final int cycles = 50;
+
+        // The first run starts the shared registration thread
+        runRegistrations(1);
+        int threadCount = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        runRegistrations(cycles);
+
+        Assert.assertTrue(ManagementFactory.getThreadMXBean().getThreadCount() <= threadCount + 1);
+    }
+
+    @Test
+    public void testSuccessClearsRetry() throws Exception {
+        runRegistrations(1);
+
+        verify(mRetryScheduler, times(1)).onSuccess();
+        verify(mRetryScheduler, times(0)).onFailure(any(), any());
+    }
+
+    @Test
+    public void testTokenFailureSchedulesRetry() throws Exception {
+        final IOException error = new IOException("SERVICE_NOT_AVAILABLE");
+        when(mTask.addOnSuccessListener(any(Executor.class), any(OnSuccessListener.class))).thenReturn(mTask);
+        when(mTask.addOnFailureListener(any(Executor.class), any())).thenAnswer(
+                new Answer<Task<InstanceIdResult>>() {
+                    @Override
+                    public Task<InstanceIdResult> answer(InvocationOnMock invocation) {
+                        OnFailureListener listener = invocation.getArgument(1);
+                        listener.onFailure(error);
+                        return mTask;
+                    }
+                });
+
+        runRegistrations(1);
+
+        verify(mRetryScheduler, times(1)).onFailure(any(), eq(error));
+        verify(mRetryScheduler, times(0)).onSuccess();
+    }
+
+    private void runRegistrations(int count) throws Exception {
+        CountDownLatch finished = new CountDownLatch(count);
+        mFinished.set(finished);
+
+        for (int i = 0; i < count; i++) {
+            Whitebox.invokeMethod(new ReactNativeRegistrationIntentService(), "onHandleWork", mIntent);
+        }
+
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,418 @@
+package com.reactnativeazurenotificationhubsample;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.azure.reactnative.notificationhub.ReactNativeMetrics;
+import com.azure.reactnative.notificationhub.ReactNativeNotificationHubUtil;
+import com.azure.reactnative.notificationhub.ReactNativeRegistrationCoordinator;
+import com.azure.reactnative.notificationhub.ReactNativeRegistrationRetryReceiver;
+import com.azure.reactnative.notificationhub.ReactNativeRegistrationRetryScheduler;
+import com.azure.reactnative.notificationhub.ReactNativeUtil;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.microsoft.windowsazure.messaging.NotificationHubException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
+
+import static com.azure.reactnative.notificationhub.ReactNativeConstants.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Unit tests for ReactNativeRegistrationRetryScheduler.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({
+        ReactNativeUtil.class,
+        ReactNativeRegistrationCoordinator.class,
+        ReactNativeNotificationHubUtil.IntentFactory.class,
+        PendingIntent.class,
+        NotificationHubException.class,
+        Log.class
+})
+public class ReactNativeRegistrationRetrySchedulerTest {
+    private static final long BASE_DELAY = 1000;
+    private static final long MAX_DELAY = 8000;
+
+    @Mock
+    ReactApplicationContext mReactApplicationContext;
+
+    @Mock
+    ReactNativeRegistrationCoordinator mRegistrationCoordinator;
+
+    @Mock
+    ScheduledFuture mScheduledFuture;
+
+    @Mock
+    AlarmManager mAlarmManager;
+
+    @Mock
+    Intent mAlarmIntent;
+
+    @Mock
+    PendingIntent mAlarmPendingIntent;
+
+    private ArgumentCaptor<Runnable> mRetryTask;
+    private ArgumentCaptor<Long> mRetryDelay;
+    private Map<String, Object> mStore;
+    private SharedPreferences mPrefs;
+    private double mJitter;
+
+    private ReactNativeRegistrationRetryScheduler mRetryScheduler;
+
+    @Before
+    public void setUp() {
+        // Reset mocks
+        reset(mRegistrationCoordinator);
+        reset(mScheduledFuture);
+        reset(mAlarmManager);
+
+        // Prepare mock objects
+        ReactNativeMetrics.reset();
+        PowerMockito.mockStatic(ReactNativeUtil.class);
+        PowerMockito.mockStatic(ReactNativeRegistrationCoordinator.class);
+        when(ReactNativeRegistrationCoordinator.getInstance()).thenReturn(mRegistrationCoordinator);
+        PowerMockito.mockStatic(Log.class);
+        mRetryTask = ArgumentCaptor.forClass(Runnable.class);
+        mRetryDelay = ArgumentCaptor.forClass(Long.class);
+        when(ReactNativeUtil.runDelayed(mRetryTask.capture(), mRetryDelay.capture())).thenReturn(mScheduledFuture);
+        when(mReactApplicationContext.getSystemService(Context.ALARM_SERVICE)).thenReturn(mAlarmManager);
+        PowerMockito.mockStatic(ReactNativeNotificationHubUtil.IntentFactory.class);
+        when(ReactNativeNotificationHubUtil.IntentFactory.createIntent(
+                mReactApplicationContext, ReactNativeRegistrationRetryReceiver.class)).thenReturn(mAlarmIntent);
+        PowerMockito.mockStatic(PendingIntent.class);
+        when(PendingIntent.getBroadcast(eq(mReactApplicationContext), anyInt(), eq(mAlarmIntent), anyInt()))
+                .thenReturn(mAlarmPendingIntent);
+
+        // SharedPreferences backed by a map so the persisted state can be read back
+        mStore = new HashMap<>();
+        mPrefs = PowerMockito.mock(SharedPreferences.class);
+        final SharedPreferences.Editor editor = PowerMockito.mock(SharedPreferences.Editor.class);
+        when(mPrefs.edit()).thenReturn(editor);
+        when(mPrefs.getInt(anyString(), anyInt())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                Object value = mStore.get(invocation.<String>getArgument(0));
+                return value != null ? (Integer) value : invocation.<Integer>getArgument(1);
+            }
+        });
+        when(mPrefs.getLong(anyString(), anyLong())).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) {
+                Object value = mStore.get(invocation.<String>getArgument(0));
+                return value != null ? (Long) value : invocation.<Long>getArgument(1);
+            }
+        });
+        when(editor.putInt(anyString(), anyInt())).thenAnswer(new Answer<SharedPreferences.Editor>() {
+            @Override
+            public SharedPreferences.Editor answer(InvocationOnMock invocation) {
+                mStore.put(invocation.<String>getArgument(0), invocation.<Integer>getArgument(1));
+                return editor;
+            }
+        });
+        when(editor.putLong(anyString(), anyLong())).thenAnswer(new Answer<SharedPreferences.Editor>() {
+            @Override
+            public SharedPreferences.Editor answer(InvocationOnMock invocation) {
+                mStore.put(invocation.<String>getArgument(0), invocation.<Long>getArgument(1));
+                return editor;
+            }
+        });
+
+        mJitter = 0;
+        mRetryScheduler = createRetryScheduler();
+    }
+
+    @Test
+    public void testDefaults() {
+        ReactNativeRegistrationRetryScheduler retryScheduler = new ReactNativeRegistrationRetryScheduler(
+                null, new Random());
+
+        Assert.assertEquals(DEFAULT_REGISTRATION_RETRY_BASE_MS, retryScheduler.getBaseDelay());
+        Assert.assertEquals(DEFAULT_REGISTRATION_RETRY_MAX_MS, retryScheduler.getMaxDelay());
+        Assert.assertEquals(DEFAULT_REGISTRATION_RETRY_MAX_ATTEMPTS, retryScheduler.getMaxAttempts());
+        Assert.assertEquals(0, retryScheduler.getAttempt());
+        Assert.assertEquals(0, retryScheduler.getNextAttemptAt());
+    }
+
+    @Test
+    public void testComputeDelayDoublesUpToMax() {
+        Assert.assertEquals(500, mRetryScheduler.computeDelay(0));
+        Assert.assertEquals(1000, mRetryScheduler.computeDelay(1));
+        Assert.assertEquals(2000, mRetryScheduler.computeDelay(2));
+        Assert.assertEquals(4000, mRetryScheduler.computeDelay(3));
+        Assert.assertEquals(4000, mRetryScheduler.computeDelay(4));
+        Assert.assertEquals(4000, mRetryScheduler.computeDelay(100));
+    }
+
+    @Test
+    public void testComputeDelayJitter() {
+        mJitter = 0.5;
+        Assert.assertEquals(750, mRetryScheduler.computeDelay(0));
+        Assert.assertEquals(6000, mRetryScheduler.computeDelay(10));
+
+        // Never past the backoff step, and never below half of it
+        ReactNativeRegistrationRetryScheduler retryScheduler = new ReactNativeRegistrationRetryScheduler(
+                null, new Random(42));
+        retryScheduler.setBaseDelay(BASE_DELAY);
+        retryScheduler.setMaxDelay(MAX_DELAY);
+        for (int i = 0; i < 1000; i++) {
+            long delay = retryScheduler.computeDelay(2);
+            Assert.assertTrue(delay >= 2000 && delay <= 4000);
+        }
+    }
+
+    @Test
+    public void testIsRetryable() {
+        Assert.assertTrue(ReactNativeRegistrationRetryScheduler.isRetryable(new IOException()));
+        Assert.assertTrue(ReactNativeRegistrationRetryScheduler.isRetryable(new TimeoutException()));
+        Assert.assertTrue(ReactNativeRegistrationRetryScheduler.isRetryable(
+                new RuntimeException(new IOException())));
+        Assert.assertTrue(ReactNativeRegistrationRetryScheduler.isRetryable(createHubException(429)));
+        Assert.assertTrue(ReactNativeRegistrationRetryScheduler.isRetryable(createHubException(500)));
+        Assert.assertTrue(ReactNativeRegistrationRetryScheduler.isRetryable(createHubException(503)));
+        Assert.assertFalse(ReactNativeRegistrationRetryScheduler.isRetryable(createHubException(400)));
+        Assert.assertFalse(ReactNativeRegistrationRetryScheduler.isRetryable(createHubException(401)));
+        Assert.assertFalse(ReactNativeRegistrationRetryScheduler.isRetryable(createHubException(404)));
+        Assert.assertFalse(ReactNativeRegistrationRetryScheduler.isRetryable(
+                new IllegalArgumentException("Invalid connection string")));
+        Assert.assertFalse(ReactNativeRegistrationRetryScheduler.isRetryable(new Exception()));
+    }
+
+    @Test
+    public void testRetryableFailureSchedulesRetry() {
+        long before = System.currentTimeMillis();
+
+        Assert.assertTrue(mRetryScheduler.onFailure(mReactApplicationContext, new IOException()));
+
+        Assert.assertEquals(1, mRetryScheduler.getAttempt());
+        Assert.assertEquals(500L, (long) mRetryDelay.getValue());
+        Assert.assertTrue(mRetryScheduler.getNextAttemptAt() >= before + 500);
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_REGISTRATION_RETRY_SCHEDULED));
+
+        mRetryTask.getValue().run();
+        verify(mRegistrationCoordinator, times(1)).requestRegistration(mReactApplicationContext);
+    }
+
+    @Test
+    public void testRetriesBackOff() {
+        mRetryScheduler.onFailure(mReactApplicationContext, new IOException());
+        mRetryScheduler.onFailure(mReactApplicationContext, new IOException());
+        mRetryScheduler.onFailure(mReactApplicationContext, new IOException());
+
+        Assert.assertEquals(3, mRetryScheduler.getAttempt());
+        Assert.assertEquals(500L, (long) mRetryDelay.getAllValues().get(0));
+        Assert.assertEquals(1000L, (long) mRetryDelay.getAllValues().get(1));
+        Assert.assertEquals(2000L, (long) mRetryDelay.getAllValues().get(2));
+
+        // Only the latest retry stays scheduled
+        verify(mScheduledFuture, times(2)).cancel(false);
+    }
+
+    @Test
+    public void testPermanentFailureIsNotRetried() {
+        mRetryScheduler.onFailure(mReactApplicationContext, new IOException());
+
+        Assert.assertFalse(mRetryScheduler.onFailure(mReactApplicationContext, createHubException(401)));
+
+        Assert.assertEquals(0, mRetryScheduler.getAttempt());
+        Assert.assertEquals(0, mRetryScheduler.getNextAttemptAt());
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_REGISTRATION_PERMANENT_FAILURE));
+        verify(mScheduledFuture, times(1)).cancel(false);
+        verifyStatic(ReactNativeUtil.class, times(1));
+        ReactNativeUtil.runDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void testRetriesStopAfterMaxAttempts() {
+        mRetryScheduler.setMaxAttempts(2);
+
+        Assert.assertTrue(mRetryScheduler.onFailure(mReactApplicationContext, new IOException()));
+        Assert.assertTrue(mRetryScheduler.onFailure(mReactApplicationContext, new IOException()));
+        Assert.assertFalse(mRetryScheduler.onFailure(mReactApplicationContext, new IOException()));
+
+        Assert.assertEquals(0, mRetryScheduler.getAttempt());
+        Assert.assertEquals(2, ReactNativeMetrics.getCount(METRIC_REGISTRATION_RETRY_SCHEDULED));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_REGISTRATION_RETRY_EXHAUSTED));
+
+        // A later failure starts a fresh round of retries
+        Assert.assertTrue(mRetryScheduler.onFailure(mReactApplicationContext, new IOException()));
+        Assert.assertEquals(1, mRetryScheduler.getAttempt());
+    }
+
+    @Test
+    public void testSuccessClearsRetry() {
+        mRetryScheduler.onFailure(mReactApplicationContext, new IOException());
+
+        mRetryScheduler.onSuccess();
+
+        Assert.assertEquals(0, mRetryScheduler.getAttempt());
+        Assert.assertEquals(0, mRetryScheduler.getNextAttemptAt());
+        verify(mScheduledFuture, times(1)).cancel(false);
+        Assert.assertEquals(0, createRetryScheduler().getAttempt());
+    }
+
+    @Test
+    public void testSuccessWithoutRetryDoesNotWrite() {
+        mRetryScheduler.onSuccess();
+
+        verify(mPrefs, times(0)).edit();
+    }
+
+    @Test
+    public void testRetrySurvivesRestart() {
+        mRetryScheduler.onFailure(mReactApplicationContext, new IOException());
+        mRetryScheduler.onFailure(mReactApplicationContext, new IOException());
+        long nextAttemptAt = mRetryScheduler.getNextAttemptAt();
+
+        // A new instance over the same prefs stands in for the next process
+        ReactNativeRegistrationRetryScheduler retryScheduler = createRetryScheduler();
+        Assert.assertEquals(2, retryScheduler.getAttempt());
+        Assert.assertEquals(nextAttemptAt, retryScheduler.getNextAttemptAt());
+
+        retryScheduler.resume(mReactApplicationContext);
+
+        long delay = mRetryDelay.getValue();
+        Assert.assertTrue(delay >= 0 && delay <= 1000);
+        mRetryTask.getValue().run();
+        verify(mRegistrationCoordinator, times(1)).requestRegistration(mReactApplicationContext);
+
+        // The backoff carries on from where it stopped
+        retryScheduler.onFailure(mReactApplicationContext, new IOException());
+        Assert.assertEquals(2000L, (long) mRetryDelay.getValue());
+    }
+
+    @Test
+    public void testResumeWithoutRetry() {
+        mRetryScheduler.resume(mReactApplicationContext);
+
+        verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.runDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void testResumeOverdueRetryRunsNow() {
+        mStore.put("attempt", 1);
+        mStore.put("nextAttemptAt", System.currentTimeMillis() - 60000);
+
+        createRetryScheduler().resume(mReactApplicationContext);
+
+        Assert.assertEquals(0L, (long) mRetryDelay.getValue());
+    }
+
+    @Test
+    public void testRetrySetsAlarm() {
+        mRetryScheduler.onFailure(mReactApplicationContext, new IOException());
+
+        verify(mAlarmManager, times(1)).set(
+                AlarmManager.RTC, mRetryScheduler.getNextAttemptAt(), mAlarmPendingIntent);
+    }
+
+    @Test
+    public void testSuccessCancelsAlarm() {
+        mRetryScheduler.onFailure(mReactApplicationContext, new IOException());
+
+        mRetryScheduler.onSuccess();
+
+        verify(mAlarmManager, times(1)).cancel(mAlarmPendingIntent);
+    }
+
+    @Test
+    public void testAlarmRunsRetryAfterProcessDied() {
+        mStore.put("attempt", 1);
+        mStore.put("nextAttemptAt", System.currentTimeMillis() - 1000);
+
+        createRetryScheduler().onAlarm(mReactApplicationContext);
+
+        verify(mRegistrationCoordinator, times(1)).requestRegistrationNow(mReactApplicationContext);
+        verifyStatic(ReactNativeUtil.class, times(0));
+        ReactNativeUtil.runDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void testAlarmWithoutRetryDoesNothing() {
+        mRetryScheduler.onAlarm(mReactApplicationContext);
+
+        verify(mRegistrationCoordinator, times(0)).requestRegistrationNow(mReactApplicationContext);
+    }
+
+    @Test
+    public void testAlarmBeforeRetryIsDueDoesNothing() {
+        mStore.put("attempt", 1);
+        mStore.put("nextAttemptAt", System.currentTimeMillis() + 60000);
+
+        createRetryScheduler().onAlarm(mReactApplicationContext);
+
+        verify(mRegistrationCoordinator, times(0)).requestRegistrationNow(mReactApplicationContext);
+    }
+
+    @Test
+    public void testAlarmTakesOverPendingTimer() {
+        // A delay of 0 makes the retry due straight away
+        mRetryScheduler.setBaseDelay(1);
+        mRetryScheduler.onFailure(mReactApplicationContext, new IOException());
+
+        mRetryScheduler.onAlarm(mReactApplicationContext);
+
+        verify(mScheduledFuture, times(1)).cancel(false);
+        verify(mRegistrationCoordinator, times(1)).requestRegistrationNow(mReactApplicationContext);
+    }
+
+    @Test
+    public void testAlarmAfterTimerRanDoesNothing() {
+        mRetryScheduler.setBaseDelay(1);
+        mRetryScheduler.onFailure(mReactApplicationContext, new IOException());
+        when(mScheduledFuture.isDone()).thenReturn(true);
+
+        mRetryScheduler.onAlarm(mReactApplicationContext);
+
+        verify(mRegistrationCoordinator, times(0)).requestRegistrationNow(mReactApplicationContext);
+    }
+
+    private ReactNativeRegistrationRetryScheduler createRetryScheduler() {
+        ReactNativeRegistrationRetryScheduler retryScheduler = new ReactNativeRegistrationRetryScheduler(
+                mPrefs, new Random() {
+                    @Override
+                    public double nextDouble() {
+                        return mJitter;
+                    }
+                });
+        retryScheduler.setBaseDelay(BASE_DELAY);
+        retryScheduler.setMaxDelay(MAX_DELAY);
+        return retryScheduler;
+    }
+
+    private static NotificationHubException createHubException(int statusCode) {
+        NotificationHubException exception = PowerMockito.mock(NotificationHubException.class);
+        when(exception.getStatusCode()).thenReturn(statusCode);
+        return exception;
+    }
+}
@@ -3,10 +3,10 @@ package com.reactnativeazurenotificationhubsample;
 import android.app.PendingIntent;
 import android.content.ComponentName;
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Bundle;
@@ -41,18 +41,25 @@ import org.mockito.Mock;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
 
+import com.azure.reactnative.notificationhub.ReactNativeImageLoader;
+import com.azure.reactnative.notificationhub.ReactNativeMetrics;
 import com.azure.reactnative.notificationhub.ReactNativeUtil;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.microsoft.windowsazure.messaging.NotificationHub;
 
-import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static com.azure.reactnative.notificationhub.ReactNativeUtil.*;
 
@@ -67,9 +74,9 @@ import static com.azure.reactnative.notificationhub.ReactNativeUtil.*;
         IntentFactory.class,
         PendingIntent.class,
         Arguments.class,
-        BitmapFactory.class,
-        UrlWrapper.class,
-        Log.class
+        Log.class,
+        ReactNativeUtil.class,
+        ReactNativeImageLoader.class
 })
 public class ReactNativeUtilTest {
 
@@ -90,9 +97,11 @@ public class ReactNativeUtilTest {
         PowerMockito.mockStatic(IntentFactory.class);
         PowerMockito.mockStatic(PendingIntent.class);
         PowerMockito.mockStatic(Arguments.class);
-        PowerMockito.mockStatic(BitmapFactory.class);
-        PowerMockito.mockStatic(UrlWrapper.class);
         PowerMockito.mockStatic(Log.class);
+        Whitebox.setInternalState(ReactNativeUtil.class, "mMainActivityClass", (Object) null);
+        Whitebox.setInternalState(ReactNativeUtil.class, "mApplicationLabel", (Object) null);
+        Whitebox.<Map<String, Integer>>getInternalState(ReactNativeUtil.class, "mResourceIds").clear();
+        setJsonKeys(Collections.<String>emptyList());
     }
 
     @Test
@@ -175,10 +184,10 @@ public class ReactNativeUtilTest {
 
         reset(expectedMap);
         when(mBundle.keySet()).thenReturn(keys);
-        final Long longValue = new Long(1);
+        final Long longValue = 1L << 40;
         when(mBundle.get(key)).thenReturn(longValue);
         convertBundleToMap(mBundle);
-        verify(expectedMap, times(1)).putInt(key, longValue.intValue());
+        verify(expectedMap, times(1)).putDouble(key, longValue.doubleValue());
 
         reset(expectedMap);
         when(mBundle.keySet()).thenReturn(keys);
@@ -208,6 +217,72 @@ public class ReactNativeUtilTest {
         verify(expectedMap, times(1)).putNull(key);
     }
 
+    @Test
+    public void testConvertBundleToMapParsesJsonKeys() {
+        ReactNativeBundleConverterTest.mockArguments();
+        ReactNativeMetrics.reset();
+        Map<String, Object> values = new HashMap<>();
+        values.put("actions", "[\"Accept\", \"Reject\"]");
+        values.put("order", "{\"id\": \"A-1\", \"items\": [{\"qty\": 2}]}");
+        values.put("count", "5");
+        values.put("broken", "{\"id\": ");
+        values.put("message", "{\"id\": 1}");
+        setJsonKeys(Arrays.asList("actions", "order", "count", "broken", "missing"));
+
+        ReadableMap map = convertBundleToMap(ReactNativeBundleConverterTest.createBundle(values));
+
+        Assert.assertEquals("Reject", map.getArray("actions").getString(1));
+        Assert.assertEquals("A-1", map.getMap("order").getString("id"));
+        Assert.assertEquals(2, map.getMap("order").getArray("items").getMap(0).getInt("qty"));
+        Assert.assertEquals(5, map.getInt("count"));
+        Assert.assertEquals("{\"id\": ", map.getString("broken"));
+        Assert.assertEquals("{\"id\": 1}", map.getString("message"));
+        Assert.assertFalse(map.hasKey("missing"));
+        ReadableMap errors = map.getMap(KEY_REMOTE_NOTIFICATION_JSON_ERRORS);
+        Assert.assertTrue(errors.hasKey("broken"));
+        Assert.assertFalse(errors.hasKey("order"));
+        Assert.assertEquals(3, ReactNativeMetrics.getCount(METRIC_JSON_PARSED));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_JSON_PARSE_FAILED));
+    }
+
+    @Test
+    public void testConvertBundleToMapRejectsTrailingCharacters() {
+        ReactNativeBundleConverterTest.mockArguments();
+        Map<String, Object> values = new HashMap<>();
+        values.put("order", "{\"id\": 1} trailing");
+        setJsonKeys(Arrays.asList("order"));
+
+        ReadableMap map = convertBundleToMap(ReactNativeBundleConverterTest.createBundle(values));
+
+        Assert.assertEquals("{\"id\": 1} trailing", map.getString("order"));
+        Assert.assertTrue(map.getMap(KEY_REMOTE_NOTIFICATION_JSON_ERRORS).hasKey("order"));
+    }
+
+    @Test
+    public void testConvertBundleToMapWithoutJsonKeys() {
+        ReactNativeBundleConverterTest.mockArguments();
+        Map<String, Object> values = new HashMap<>();
+        values.put("actions", "[\"Accept\"]");
+
+        ReadableMap map = convertBundleToMap(ReactNativeBundleConverterTest.createBundle(values));
+
+        Assert.assertEquals("[\"Accept\"]", map.getString("actions"));
+        Assert.assertFalse(map.hasKey(KEY_REMOTE_NOTIFICATION_JSON_ERRORS));
+    }
+
+    @Test
+    public void testParseJsonFields() throws Exception {
+        ReactNativeBundleConverterTest.mockArguments();
+        JSONObject notification = new JSONObject();
+        notification.put("actions", "[\"Accept\"]");
+        setJsonKeys(Arrays.asList("actions"));
+        WritableMap map = convertJSONToMap(notification);
+
+        parseJsonFields(notification, map);
+
+        Assert.assertEquals("Accept", map.getArray("actions").getString(0));
+    }
+
     @Test
     public void testCreateBroadcastIntent() throws Exception {
         final String action = "action";
@@ -291,8 +366,62 @@ public class ReactNativeUtilTest {
         when(component.getClassName()).thenReturn(className);
 
         Class activityClass = getMainActivityClass(mReactApplicationContext);
+        Class cachedActivityClass = getMainActivityClass(mReactApplicationContext);
 
         Assert.assertEquals(activityClass.getName(), className);
+        Assert.assertSame(activityClass, cachedActivityClass);
+        verify(packageManager, times(1)).getLaunchIntentForPackage(any());
+    }
+
+    @Test
+    public void testRepeatedActivityClassAndLabelLookupsAreCached() {
+        PackageManager packageManager = PowerMockito.mock(PackageManager.class);
+        Intent launchIntent = PowerMockito.mock(Intent.class);
+        ComponentName component = PowerMockito.mock(ComponentName.class);
+        ApplicationInfo appInfo = PowerMockito.mock(ApplicationInfo.class);
+        when(mReactApplicationContext.getPackageName()).thenReturn("com.reactnativeazurenotificationhubsample");
+        when(mReactApplicationContext.getPackageManager()).thenReturn(packageManager);
+        when(mReactApplicationContext.getApplicationInfo()).thenReturn(appInfo);
+        when(packageManager.getLaunchIntentForPackage(any())).thenReturn(launchIntent);
+        when(packageManager.getApplicationLabel(appInfo)).thenReturn("Sample");
+        when(launchIntent.getComponent()).thenReturn(component);
+        when(component.getClassName()).thenReturn(MainActivity.class.getName());
+
+        // What every notification used to resolve on its own
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(MainActivity.class, getMainActivityClass(mReactApplicationContext));
+            Assert.assertEquals("Sample", getApplicationLabel(mReactApplicationContext));
+        }
+
+        verify(packageManager, times(1)).getLaunchIntentForPackage(any());
+        verify(packageManager, times(1)).getApplicationLabel(appInfo);
+    }
+
+    @Test
+    public void testGetMainActivityClassOverride() {
+        PackageManager packageManager = PowerMockito.mock(PackageManager.class);
+        when(mReactApplicationContext.getPackageManager()).thenReturn(packageManager);
+
+        setMainActivityClass(MainActivity.class);
+        Class activityClass = getMainActivityClass(mReactApplicationContext);
+
+        Assert.assertEquals(activityClass, MainActivity.class);
+        verify(packageManager, times(0)).getLaunchIntentForPackage(any());
+    }
+
+    @Test
+    public void testGetApplicationLabel() {
+        final String label = "Application Label";
+
+        ApplicationInfo appInfo = PowerMockito.mock(ApplicationInfo.class);
+        PackageManager packageManager = PowerMockito.mock(PackageManager.class);
+        when(mReactApplicationContext.getApplicationInfo()).thenReturn(appInfo);
+        when(mReactApplicationContext.getPackageManager()).thenReturn(packageManager);
+        when(packageManager.getApplicationLabel(appInfo)).thenReturn(label);
+
+        Assert.assertEquals(getApplicationLabel(mReactApplicationContext), label);
+        Assert.assertEquals(getApplicationLabel(mReactApplicationContext), label);
+        verify(packageManager, times(1)).getApplicationLabel(appInfo);
     }
 
     @Test
@@ -439,6 +568,52 @@ public class ReactNativeUtilTest {
         verify(res, times(0)).getIdentifier(RESOURCE_NAME_LAUNCHER, RESOURCE_DEF_TYPE_MIPMAP, packageName);
     }
 
+    @Test
+    public void testGetResourceIdentifierCachesMissingNames() {
+        final String packageName = "Package Name";
+        final String iconName = "Missing Icon";
+
+        Resources res = PowerMockito.mock(Resources.class);
+        when(res.getIdentifier(iconName, RESOURCE_DEF_TYPE_MIPMAP, packageName)).thenReturn(0);
+
+        Assert.assertEquals(0, getResourceIdentifier(res, iconName, RESOURCE_DEF_TYPE_MIPMAP, packageName));
+        Assert.assertEquals(0, getResourceIdentifier(res, iconName, RESOURCE_DEF_TYPE_MIPMAP, packageName));
+        verify(res, times(1)).getIdentifier(iconName, RESOURCE_DEF_TYPE_MIPMAP, packageName);
+    }
+
+    @Test
+    public void testGetResourceIdentifierKeyedByType() {
+        final String packageName = "Package Name";
+        final String name = "sound";
+
+        Resources res = PowerMockito.mock(Resources.class);
+        when(res.getIdentifier(name, RESOURCE_DEF_TYPE_MIPMAP, packageName)).thenReturn(1);
+        when(res.getIdentifier(name, RESOURCE_DEF_TYPE_RAW, packageName)).thenReturn(2);
+
+        Assert.assertEquals(1, getResourceIdentifier(res, name, RESOURCE_DEF_TYPE_MIPMAP, packageName));
+        Assert.assertEquals(2, getResourceIdentifier(res, name, RESOURCE_DEF_TYPE_RAW, packageName));
+    }
+
+    @Test
+    public void testWarmUpResources() {
+        final String packageName = "Package Name";
+        final int notificationIconResId = 1;
+
+        Resources res = PowerMockito.mock(Resources.class);
+        when(mReactApplicationContext.getResources()).thenReturn(res);
+        when(mReactApplicationContext.getPackageName()).thenReturn(packageName);
+        when(res.getIdentifier(RESOURCE_NAME_NOTIFICATION, RESOURCE_DEF_TYPE_MIPMAP, packageName))
+                .thenReturn(notificationIconResId);
+        when(mBundle.getString(KEY_REMOTE_NOTIFICATION_SMALL_ICON)).thenReturn(null);
+
+        warmUpResources(mReactApplicationContext);
+        int smallIconResId = getSmallIcon(mBundle, res, packageName);
+
+        Assert.assertEquals(notificationIconResId, smallIconResId);
+        verify(res, times(1)).getIdentifier(RESOURCE_NAME_NOTIFICATION, RESOURCE_DEF_TYPE_MIPMAP, packageName);
+        verify(res, times(1)).getIdentifier(RESOURCE_NAME_LAUNCHER, RESOURCE_DEF_TYPE_MIPMAP, packageName);
+    }
+
     @Test
     public void testGetSoundUriNull() {
         Uri expectedSoundUri = PowerMockito.mock(Uri.class);
@@ -643,18 +818,191 @@ public class ReactNativeUtilTest {
     }
 
     @Test
-    public void testFetchImage() throws Exception {
+    public void testFetchImage() {
         final String urlString = "http://somedomain.com/someimage.png";
 
-        HttpURLConnection connection = PowerMockito.mock(HttpURLConnection.class);
-        when(UrlWrapper.openConnection(urlString)).thenReturn(connection);
-        InputStream input = PowerMockito.mock(InputStream.class);
-        when(connection.getInputStream()).thenReturn(input);
+        PowerMockito.mockStatic(ReactNativeImageLoader.class);
+        ReactNativeImageLoader imageLoader = PowerMockito.mock(ReactNativeImageLoader.class);
+        when(ReactNativeImageLoader.getInstance(mReactApplicationContext)).thenReturn(imageLoader);
         Bitmap expectedBitmap = PowerMockito.mock(Bitmap.class);
-        when(BitmapFactory.decodeStream(input)).thenReturn(expectedBitmap);
+        when(imageLoader.getImage(urlString)).thenReturn(expectedBitmap);
 
-        Bitmap bitmap = ReactNativeUtil.fetchImage(urlString);
+        Bitmap bitmap = ReactNativeUtil.fetchImage(mReactApplicationContext, urlString);
 
         Assert.assertEquals(bitmap, expectedBitmap);
     }
+
+    @Test
+    public void testGetLargeIconBitmap() {
+        final int largeIconResId = 1;
+
+        PowerMockito.mockStatic(ReactNativeImageLoader.class);
+        ReactNativeImageLoader imageLoader = PowerMockito.mock(ReactNativeImageLoader.class);
+        when(ReactNativeImageLoader.getInstance(mReactApplicationContext)).thenReturn(imageLoader);
+        Bitmap expectedBitmap = PowerMockito.mock(Bitmap.class);
+        when(imageLoader.getLargeIcon(largeIconResId)).thenReturn(expectedBitmap);
+
+        Bitmap bitmap = ReactNativeUtil.getLargeIconBitmap(mReactApplicationContext, largeIconResId);
+
+        Assert.assertEquals(bitmap, expectedBitmap);
+    }
+
+    @Test
+    public void testComputeRegistrationFingerprintIgnoresTagOrder() {
+        String fingerprint = computeRegistrationFingerprint(
+                "Token", "Hub Name", "Connection String", new String[]{"Tag1", "Tag2"}, false, null, null);
+        String reordered = computeRegistrationFingerprint(
+                "Token", "Hub Name", "Connection String", new String[]{"Tag2", "Tag1"}, false, null, null);
+
+        Assert.assertEquals(64, fingerprint.length());
+        Assert.assertEquals(fingerprint, reordered);
+    }
+
+    @Test
+    public void testComputeRegistrationFingerprintChanges() {
+        final String[] tags = new String[]{"Tag1"};
+        String fingerprint = computeRegistrationFingerprint(
+                "Token", "Hub Name", "Connection String", tags, true, "Template Name", "Template");
+
+        Assert.assertNotEquals(fingerprint, computeRegistrationFingerprint(
+                "New Token", "Hub Name", "Connection String", tags, true, "Template Name", "Template"));
+        Assert.assertNotEquals(fingerprint, computeRegistrationFingerprint(
+                "Token", "New Hub Name", "Connection String", tags, true, "Template Name", "Template"));
+        Assert.assertNotEquals(fingerprint, computeRegistrationFingerprint(
+                "Token", "Hub Name", "Connection String", null, true, "Template Name", "Template"));
+        Assert.assertNotEquals(fingerprint, computeRegistrationFingerprint(
+                "Token", "Hub Name", "Connection String", tags, true, "New Template Name", "Template"));
+        Assert.assertNotEquals(fingerprint, computeRegistrationFingerprint(
+                "Token", "Hub Name", "Connection String", tags, true, "Template Name", "New Template"));
+        Assert.assertNotEquals(fingerprint, computeRegistrationFingerprint(
+                "Token", "Hub Name", "Connection String", tags, false, "Template Name", "Template"));
+        Assert.assertNotEquals(
+                computeRegistrationFingerprint("Token", "ab", "c", null, false, null, null),
+                computeRegistrationFingerprint("Token", "a", "bc", null, false, null, null));
+    }
+
+    @Test
+    public void testGetNotificationHubCachesClient() throws Exception {
+        final String hubName = "Cached Hub Name";
+        final String connectionString = "Cached Connection String";
+
+        NotificationHub hub = PowerMockito.mock(NotificationHub.class);
+        PowerMockito.whenNew(NotificationHub.class).withAnyArguments().thenReturn(hub);
+        when(mReactApplicationContext.getApplicationContext()).thenReturn(mReactApplicationContext);
+
+        NotificationHub first = getNotificationHub(hubName, connectionString, mReactApplicationContext);
+        NotificationHub second = getNotificationHub(hubName, connectionString, mReactApplicationContext);
+
+        Assert.assertEquals(hub, first);
+        Assert.assertSame(first, second);
+        PowerMockito.verifyNew(NotificationHub.class, times(1)).withArguments(
+                hubName, connectionString, mReactApplicationContext);
+
+        invalidateNotificationHub(hubName, connectionString);
+        getNotificationHub(hubName, connectionString, mReactApplicationContext);
+
+        PowerMockito.verifyNew(NotificationHub.class, times(2)).withArguments(
+                hubName, connectionString, mReactApplicationContext);
+        invalidateNotificationHub(hubName, connectionString);
+    }
+
+    @Test
+    public void testGetNotificationHubKeyedByHubAndConnectionString() throws Exception {
+        NotificationHub hub = PowerMockito.mock(NotificationHub.class);
+        NotificationHub otherHub = PowerMockito.mock(NotificationHub.class);
+        PowerMockito.whenNew(NotificationHub.class).withAnyArguments().thenReturn(hub, otherHub);
+
+        NotificationHub first = getNotificationHub("Hub Name", "Connection String", mReactApplicationContext);
+        NotificationHub second = getNotificationHub("Hub Name", "Other Connection String", mReactApplicationContext);
+
+        Assert.assertNotSame(first, second);
+        invalidateNotificationHub("Hub Name", "Connection String");
+        invalidateNotificationHub("Hub Name", "Other Connection String");
+    }
+
+    @Test
+    public void testDispatchDelayedDoesNotOccupyWorkers() throws Exception {
+        final long delay = 500;
+        final CountDownLatch dispatched = new CountDownLatch(2);
+        final CountDownLatch worked = new CountDownLatch(2);
+        Runnable dispatchTask = new Runnable() {
+            @Override
+            public void run() {
+                dispatched.countDown();
+            }
+        };
+        Runnable workerTask = new Runnable() {
+            @Override
+            public void run() {
+                worked.countDown();
+            }
+        };
+        ReactNativeMetrics.reset();
+
+        dispatchDelayed(dispatchTask, delay);
+        dispatchDelayed(dispatchTask, delay);
+        runInWorkerThread(workerTask);
+        runInWorkerThread(workerTask);
+
+        // Both workers stay free while the broadcasts wait out their delay
+        Assert.assertTrue(worked.await(delay / 2, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(2, dispatched.getCount());
+        Assert.assertEquals(2, getPendingDispatchCount());
+        Assert.assertTrue(dispatched.await(delay * 4, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(2, ReactNativeMetrics.getLatencyCount(METRIC_DISPATCH_QUEUE_DEPTH));
+        Assert.assertEquals(2, ReactNativeMetrics.getLatencyPercentile(METRIC_DISPATCH_QUEUE_DEPTH, 100));
+        Assert.assertEquals(2, ReactNativeMetrics.getLatencyCount(METRIC_DISPATCH_LAG));
+        Assert.assertEquals(0, getPendingDispatchCount());
+    }
+
+    @Test
+    public void testRunInIoThreadDoesNotBlockWorkers() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch worked = new CountDownLatch(1);
+        Runnable slowDownload = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+
+        // Every I/O thread is stuck on a slow download
+        for (int i = 0; i < DEFAULT_IO_THREADS; i++) {
+            runInIoThread(slowDownload);
+        }
+        runInWorkerThread(new Runnable() {
+            @Override
+            public void run() {
+                worked.countDown();
+            }
+        });
+
+        Assert.assertTrue(worked.await(1, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void testDispatchDelayedSurvivesFailingTask() throws Exception {
+        final CountDownLatch dispatched = new CountDownLatch(1);
+        ReactNativeMetrics.reset();
+
+        dispatchDelayed(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException();
+            }
+        }, 0);
+        dispatchDelayed(new Runnable() {
+            @Override
+            public void run() {
+                dispatched.countDown();
+            }
+        }, 0);
+
+        Assert.assertTrue(dispatched.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, ReactNativeMetrics.getCount(METRIC_DISPATCH_FAILED));
+    }
 }